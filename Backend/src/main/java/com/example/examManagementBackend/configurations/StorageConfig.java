@@ -0,0 +1,32 @@
+package com.example.examManagementBackend.configurations;
+
+import com.example.examManagementBackend.storage.LocalPaperStorage;
+import com.example.examManagementBackend.storage.PaperStorage;
+import com.example.examManagementBackend.storage.S3PaperStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.nio.file.Paths;
+
+@Configuration
+public class StorageConfig {
+
+    // storage.backend picks where papers, archives, feedback PDFs and profile images are kept: "local" or "s3"
+    @Bean
+    public PaperStorage paperStorage(
+            @Value("${storage.backend:local}") String backend,
+            @Value("${storage.local.root-dir:src/main/resources}") String rootDir,
+            @Value("${storage.s3.endpoint:}") String endpoint,
+            @Value("${storage.s3.bucket:}") String bucket,
+            @Value("${storage.s3.region:us-east-1}") String region,
+            @Value("${storage.s3.access-key:}") String accessKey,
+            @Value("${storage.s3.secret-key:}") String secretKey) {
+        return switch (backend) {
+            case "local" -> new LocalPaperStorage(Paths.get(rootDir));
+            case "s3" -> new S3PaperStorage(URI.create(endpoint), bucket, region, accessKey, secretKey);
+            default -> throw new IllegalArgumentException("Unknown storage backend: " + backend);
+        };
+    }
+}
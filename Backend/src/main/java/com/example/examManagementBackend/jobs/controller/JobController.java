@@ -0,0 +1,30 @@
+package com.example.examManagementBackend.jobs.controller;
+
+import com.example.examManagementBackend.jobs.service.JobCoordinator;
+import com.example.examManagementBackend.utill.StandardResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/api/v1/jobs")
+public class JobController {
+
+    private final JobCoordinator jobCoordinator;
+
+    public JobController(JobCoordinator jobCoordinator) {
+        this.jobCoordinator = jobCoordinator;
+    }
+
+    @GetMapping("/leases")
+    public ResponseEntity<StandardResponse> getLeases() {
+        return ResponseEntity.ok(new StandardResponse(200, "Job leases retrieved successfully", jobCoordinator.getLeases()));
+    }
+
+    @GetMapping("/runs")
+    public ResponseEntity<StandardResponse> getRuns(
+            @RequestParam(required = false) String job,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(new StandardResponse(200, "Job runs retrieved successfully", jobCoordinator.getRuns(job, limit)));
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.examManagementBackend.jobs.entity.Enums;
+
+public enum JobRunStatus {
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    // The node stopped renewing its lease, so another node may have taken the job over
+    LEASE_LOST,
+    // The node died mid-run and a later holder of the lease found the run still open
+    ABANDONED
+}
@@ -0,0 +1,42 @@
+package com.example.examManagementBackend.jobs.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Cluster-wide lock for one scheduled job, or one partition of it; a single row per lock name
+@Entity
+@Table(name = "job_leases")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class JobLease {
+
+    // Job name, with "#partition" appended for partitioned jobs
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    // Node currently or most recently holding the lease
+    private String owner;
+
+    // Incremented on every acquisition; writes made under a lease are only accepted while the token still matches
+    private long fencingToken;
+
+    // The lease is free once this has passed; the holder keeps pushing it forward while the job runs
+    @Column(nullable = false, columnDefinition = "DATETIME")
+    private LocalDateTime leaseUntil;
+
+    // Scheduled runs on other nodes skip the job until then, so a job runs once per period rather than once per node
+    @Column(columnDefinition = "DATETIME")
+    private LocalDateTime holdUntil;
+
+    @Column(columnDefinition = "DATETIME")
+    private LocalDateTime acquiredAt;
+
+    @Column(columnDefinition = "DATETIME")
+    private LocalDateTime heartbeatAt;
+}
@@ -0,0 +1,46 @@
+package com.example.examManagementBackend.jobs.entity;
+
+import com.example.examManagementBackend.jobs.entity.Enums.JobRunStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// History of scheduled job executions across the cluster
+@Entity
+@Table(name = "job_runs", indexes = @Index(columnList = "jobName, startedAt"))
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class JobRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String jobName;
+
+    // Partition index for partitioned jobs, null otherwise
+    private Integer partitionIndex;
+
+    @Column(nullable = false)
+    private String owner;
+
+    private long fencingToken;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobRunStatus status;
+
+    @Column(nullable = false, columnDefinition = "DATETIME")
+    private LocalDateTime startedAt;
+
+    @Column(columnDefinition = "DATETIME")
+    private LocalDateTime finishedAt;
+
+    @Column(length = 1000)
+    private String error;
+}
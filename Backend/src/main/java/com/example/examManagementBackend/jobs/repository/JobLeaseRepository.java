@@ -0,0 +1,50 @@
+package com.example.examManagementBackend.jobs.repository;
+
+import com.example.examManagementBackend.jobs.entity.JobLease;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    // Take the lease if it has expired and, unless ignoreHold is set, the job is not being held off; 1 when taken
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobLease l SET l.owner = :owner, l.fencingToken = l.fencingToken + 1, l.leaseUntil = :until, " +
+            "l.acquiredAt = :now, l.heartbeatAt = :now " +
+            "WHERE l.name = :name AND l.leaseUntil <= :now AND (:ignoreHold = true OR l.holdUntil IS NULL OR l.holdUntil <= :now)")
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now,
+                   @Param("until") LocalDateTime until, @Param("ignoreHold") boolean ignoreHold);
+
+    // Extend a lease still held under the given token; 0 means it was lost
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobLease l SET l.leaseUntil = :until, l.heartbeatAt = :now " +
+            "WHERE l.name = :name AND l.owner = :owner AND l.fencingToken = :token AND l.leaseUntil > :now")
+    int renew(@Param("name") String name, @Param("owner") String owner, @Param("token") long token,
+              @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    // Joins the caller's transaction: the row stays locked until it commits, so nobody can take the lease in between
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobLease l SET l.heartbeatAt = :now " +
+            "WHERE l.name = :name AND l.owner = :owner AND l.fencingToken = :token AND l.leaseUntil > :now")
+    int fence(@Param("name") String name, @Param("owner") String owner, @Param("token") long token,
+              @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobLease l SET l.leaseUntil = :now, l.holdUntil = :holdUntil " +
+            "WHERE l.name = :name AND l.owner = :owner AND l.fencingToken = :token")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("token") long token,
+                @Param("now") LocalDateTime now, @Param("holdUntil") LocalDateTime holdUntil);
+
+    List<JobLease> findAllByOrderByNameAsc();
+}
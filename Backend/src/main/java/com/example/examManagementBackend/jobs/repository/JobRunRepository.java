@@ -0,0 +1,30 @@
+package com.example.examManagementBackend.jobs.repository;
+
+import com.example.examManagementBackend.jobs.entity.Enums.JobRunStatus;
+import com.example.examManagementBackend.jobs.entity.JobRun;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface JobRunRepository extends JpaRepository<JobRun, Long> {
+
+    List<JobRun> findByJobNameOrderByStartedAtDesc(String jobName, Pageable pageable);
+
+    List<JobRun> findAllByOrderByStartedAtDesc(Pageable pageable);
+
+    // Close runs left open by a node that died while holding an older token of the same lease
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobRun r SET r.status = :abandoned WHERE r.jobName = :jobName " +
+            "AND ((:partition IS NULL AND r.partitionIndex IS NULL) OR r.partitionIndex = :partition) " +
+            "AND r.status = :running AND r.fencingToken < :token")
+    int markAbandoned(@Param("jobName") String jobName, @Param("partition") Integer partition, @Param("token") long token,
+                      @Param("running") JobRunStatus running, @Param("abandoned") JobRunStatus abandoned);
+}
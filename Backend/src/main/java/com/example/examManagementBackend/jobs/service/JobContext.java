@@ -0,0 +1,77 @@
+package com.example.examManagementBackend.jobs.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * What a job knows about the lease it is running under. Long jobs should call {@link #checkLease()}
+ * between units of work, and pass the context to {@link JobCoordinator#fence(JobContext)} inside any
+ * transaction whose writes must not land after another node has taken the job over.
+ */
+public class JobContext {
+
+    private final String jobName;
+    private final String lockName;
+    private final int partition;
+    private final int partitionCount;
+    private final String owner;
+    private final long fencingToken;
+
+    private volatile LocalDateTime leaseUntil;
+    private volatile boolean lost;
+
+    JobContext(String jobName, String lockName, int partition, int partitionCount, String owner, long fencingToken,
+               LocalDateTime leaseUntil) {
+        this.jobName = jobName;
+        this.lockName = lockName;
+        this.partition = partition;
+        this.partitionCount = partitionCount;
+        this.owner = owner;
+        this.fencingToken = fencingToken;
+        this.leaseUntil = leaseUntil;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    // Partition this run covers, 0 for a job that is not partitioned
+    public int getPartition() {
+        return partition;
+    }
+
+    // Total number of partitions, 1 for a job that is not partitioned
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    // False once a renewal was refused or the lease ran out without one
+    public boolean isLeaseHeld() {
+        return !lost && LocalDateTime.now().isBefore(leaseUntil);
+    }
+
+    public void checkLease() {
+        if (!isLeaseHeld()) {
+            throw new LeaseLostException("Lease on " + lockName + " (token " + fencingToken + ") has been lost");
+        }
+    }
+
+    String getLockName() {
+        return lockName;
+    }
+
+    String getOwner() {
+        return owner;
+    }
+
+    void renewed(LocalDateTime until) {
+        this.leaseUntil = until;
+    }
+
+    void markLost() {
+        this.lost = true;
+    }
+}
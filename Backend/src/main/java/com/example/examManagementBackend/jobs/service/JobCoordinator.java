@@ -0,0 +1,215 @@
+package com.example.examManagementBackend.jobs.service;
+
+import com.example.examManagementBackend.jobs.entity.Enums.JobRunStatus;
+import com.example.examManagementBackend.jobs.entity.JobLease;
+import com.example.examManagementBackend.jobs.entity.JobRun;
+import com.example.examManagementBackend.jobs.repository.JobLeaseRepository;
+import com.example.examManagementBackend.jobs.repository.JobRunRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes {@code @Scheduled} jobs safe to run on several backend nodes. Each job (or partition of a
+ * job) has a row in {@code job_leases}; a node runs the job only after taking that lease with a
+ * conditional update, keeps renewing it while the job runs, and records the execution in
+ * {@code job_runs}. Every acquisition increments a fencing token, and {@link #fence(JobContext)}
+ * lets a job check that token inside its own transactions, so a node that stalled past its lease
+ * cannot commit over the work of the node that took over.
+ *
+ * <p>A finished job also sets a hold on its lease, so the same job triggered by another node's
+ * scheduler shortly afterwards is skipped rather than run a second time. Lease times come from the
+ * nodes' clocks, which are expected to be kept in sync.
+ */
+@Service
+public class JobCoordinator {
+
+    private static final LocalDateTime NEVER = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final JobLeaseRepository leaseRepository;
+
+    private final JobRunRepository runRepository;
+
+    private final String nodeId;
+
+    private final Duration leaseDuration;
+
+    private final ScheduledExecutorService renewer;
+
+    @FunctionalInterface
+    public interface JobTask {
+        void run(JobContext context) throws Exception;
+    }
+
+    public JobCoordinator(JobLeaseRepository leaseRepository, JobRunRepository runRepository,
+                          @Value("${jobs.node-id:}") String nodeId,
+                          @Value("${jobs.lease-duration-seconds:120}") long leaseSeconds) {
+        this.leaseRepository = leaseRepository;
+        this.runRepository = runRepository;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.leaseDuration = Duration.ofSeconds(Math.max(10, leaseSeconds));
+        this.renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-lease-renewer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        renewer.shutdownNow();
+    }
+
+    // Run the task here unless another node holds the job or ran it within the last holdFor; false when skipped.
+    // A zero holdFor is a manual run: it still waits for a running job but ignores the hold left by a finished one
+    public boolean runExclusive(String jobName, Duration holdFor, JobTask task) {
+        return runLocked(jobName, null, 1, holdFor, task);
+    }
+
+    // Split a job into partitions that nodes claim one by one, so several nodes can work on one run; returns how many ran here
+    public int runPartitioned(String jobName, int partitions, Duration holdFor, JobTask task) {
+        int count = Math.max(1, partitions);
+        // Start each node at a different partition so they don't all contend for the first one
+        int first = Math.floorMod(nodeId.hashCode(), count);
+        int ran = 0;
+        for (int i = 0; i < count; i++) {
+            if (runLocked(jobName, (first + i) % count, count, holdFor, task)) {
+                ran++;
+            }
+        }
+        return ran;
+    }
+
+    // Call inside a transaction: fails it unless this node still holds the lease, and blocks takeover until it commits
+    public void fence(JobContext context) {
+        if (leaseRepository.fence(context.getLockName(), context.getOwner(), context.getFencingToken(), now()) == 0) {
+            context.markLost();
+            throw new LeaseLostException("Lease on " + context.getLockName() + " (token " + context.getFencingToken()
+                    + ") is no longer held by " + context.getOwner());
+        }
+    }
+
+    public List<JobLease> getLeases() {
+        return leaseRepository.findAllByOrderByNameAsc();
+    }
+
+    public List<JobRun> getRuns(String jobName, int limit) {
+        PageRequest page = PageRequest.of(0, Math.max(1, Math.min(limit, 500)));
+        return jobName == null || jobName.isBlank()
+                ? runRepository.findAllByOrderByStartedAtDesc(page)
+                : runRepository.findByJobNameOrderByStartedAtDesc(jobName, page);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private boolean runLocked(String jobName, Integer partition, int partitionCount, Duration holdFor, JobTask task) {
+        String lockName = partition == null ? jobName : jobName + "#" + partition;
+        ensureLease(lockName);
+
+        LocalDateTime startedAt = now();
+        LocalDateTime leaseUntil = startedAt.plus(leaseDuration);
+        if (leaseRepository.tryAcquire(lockName, nodeId, startedAt, leaseUntil, holdFor.isZero()) == 0) {
+            return false;
+        }
+        JobLease lease = leaseRepository.findById(lockName).orElseThrow();
+        if (!nodeId.equals(lease.getOwner()) || !startedAt.equals(lease.getAcquiredAt())) {
+            // Our lease expired before we could even read it back
+            return false;
+        }
+        long token = lease.getFencingToken();
+
+        runRepository.markAbandoned(jobName, partition, token, JobRunStatus.RUNNING, JobRunStatus.ABANDONED);
+        JobRun run = runRepository.save(new JobRun(null, jobName, partition, nodeId, token, JobRunStatus.RUNNING,
+                startedAt, null, null));
+
+        JobContext context = new JobContext(jobName, lockName, partition == null ? 0 : partition, partitionCount,
+                nodeId, token, leaseUntil);
+        long renewEvery = leaseDuration.toMillis() / 3;
+        ScheduledFuture<?> heartbeat = renewer.scheduleAtFixedRate(() -> renew(context), renewEvery, renewEvery, TimeUnit.MILLISECONDS);
+
+        boolean succeeded = false;
+        try {
+            task.run(context);
+            succeeded = context.isLeaseHeld();
+            finish(run, succeeded ? JobRunStatus.SUCCEEDED : JobRunStatus.LEASE_LOST, null);
+        } catch (LeaseLostException e) {
+            finish(run, JobRunStatus.LEASE_LOST, e.getMessage());
+        } catch (Exception e) {
+            finish(run, JobRunStatus.FAILED, e.getMessage());
+            throw e instanceof RuntimeException runtime ? runtime : new RuntimeException("Job " + lockName + " failed", e);
+        } finally {
+            heartbeat.cancel(false);
+            // Only a successful run holds the job off; after a failure another node may retry straight away
+            leaseRepository.release(lockName, nodeId, token, now(), succeeded ? startedAt.plus(holdFor) : null);
+        }
+        return true;
+    }
+
+    private void renew(JobContext context) {
+        LocalDateTime now = now();
+        LocalDateTime until = now.plus(leaseDuration);
+        try {
+            if (leaseRepository.renew(context.getLockName(), nodeId, context.getFencingToken(), now, until) == 1) {
+                context.renewed(until);
+            } else {
+                context.markLost();
+            }
+        } catch (RuntimeException e) {
+            // The lease simply runs out if the database stays unreachable
+            System.err.println("Failed to renew lease " + context.getLockName() + ": " + e.getMessage());
+        }
+    }
+
+    private void finish(JobRun run, JobRunStatus status, String error) {
+        run.setStatus(status);
+        run.setFinishedAt(now());
+        run.setError(error == null || error.length() <= 1000 ? error : error.substring(0, 1000));
+        try {
+            runRepository.save(run);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to record run of job " + run.getJobName() + ": " + e.getMessage());
+        }
+    }
+
+    // Create the lease row the first time a job runs anywhere; losing the race to another node is fine
+    private void ensureLease(String lockName) {
+        if (leaseRepository.existsById(lockName)) {
+            return;
+        }
+        try {
+            leaseRepository.saveAndFlush(new JobLease(lockName, null, 0, NEVER, null, null, null));
+        } catch (DataIntegrityViolationException e) {
+            // Created concurrently
+        }
+    }
+
+    // DATETIME columns keep whole seconds, so compare and store at that precision
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown-host";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.examManagementBackend.jobs.service;
+
+// Thrown when a node finds it no longer holds the lease it was running a job under
+public class LeaseLostException extends RuntimeException {
+
+    public LeaseLostException(String message) {
+        super(message);
+    }
+}
@@ -1,21 +1,30 @@
 package com.example.examManagementBackend.paperWorkflows.controller;
 
+import com.example.examManagementBackend.paperWorkflows.crypto.DecryptedPaper;
 import com.example.examManagementBackend.paperWorkflows.dto.EncryptedPaperDTO;
 import com.example.examManagementBackend.paperWorkflows.dto.EncryptedPaperViewRequestDTO;
 import com.example.examManagementBackend.paperWorkflows.entity.CoursesEntity;
 import com.example.examManagementBackend.paperWorkflows.entity.EncryptedPaper;
 import com.example.examManagementBackend.paperWorkflows.entity.Enums.ExamPaperStatus;
+import com.example.examManagementBackend.paperWorkflows.entity.StoredBlob;
 import com.example.examManagementBackend.paperWorkflows.service.FileService;
 import com.example.examManagementBackend.userManagement.userManagementEntity.UserEntity;
 import com.example.examManagementBackend.utill.StandardResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @CrossOrigin
@@ -37,7 +46,8 @@ public class FileUploadController {
             @RequestParam("remarks") String remarks,
             @RequestParam("paperType") String paperType,
             @RequestParam("moderatorId") Long moderatorId,
-            @RequestParam("examinationId") Long examinationId) {
+            @RequestParam("examinationId") Long examinationId,
+            @RequestParam(value = "recipientIds", required = false) List<Long> recipientIds) {
         try {
             // Validate courseId
             CoursesEntity course = fileService.coursesRepository.findById(courseId)
@@ -61,9 +71,11 @@ public class FileUploadController {
                         .body(new StandardResponse(400, "Invalid file type. Only PDF files are allowed.", null));
             }
 
-            // Encrypt and save file
-            String encryptedFile = fileService.uploadAndEncryptFileForUsers(file, creatorId, moderatorId);
-            fileService.saveEncryptedPaper(encryptedFile, creatorId, file.getOriginalFilename(), moderatorId, courseId, remarks, examinationId, paperType);
+            // Encrypt into storage for the creator, the moderator and any extra recipients, then save the paper record
+            Set<Long> extraRecipientIds = validRecipients(recipientIds);
+            StoredBlob blob = fileService.uploadAndEncryptFileForUsers(file, paperRecipients(creatorId, moderatorId, extraRecipientIds));
+            fileService.saveEncryptedPaper(blob, creatorId, file.getOriginalFilename(), moderatorId, courseId, remarks, examinationId, paperType,
+                    extraRecipientIds);
 
             return ResponseEntity.ok()
                     .body(new StandardResponse(200, "File uploaded and encrypted successfully.", null));
@@ -82,7 +94,8 @@ public class FileUploadController {
     @GetMapping("/download/{id}")
     public ResponseEntity<?> downloadEncryptedFile(
             @PathVariable Long id,
-            @RequestParam("moderatorId") Long moderatorId) {
+            @RequestParam("moderatorId") Long moderatorId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) {
         try {
             EncryptedPaper encryptedPaper = fileService.getEncryptedPaperById(id);
 
@@ -91,11 +104,10 @@ public class FileUploadController {
                         .body(new StandardResponse(404, "Paper not found.", null));
             }
 
-            byte[] decryptedData = fileService.decryptFileForUser(moderatorId, encryptedPaper.getFilePath());
+            DecryptedPaper paper = fileService.openPaperForUser(moderatorId, encryptedPaper.getFilePath());
 
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=" + encryptedPaper.getFileName())
-                    .body(decryptedData);
+            return streamPaper(paper, range, MediaType.APPLICATION_OCTET_STREAM,
+                    "attachment; filename=" + encryptedPaper.getFileName());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new StandardResponse(500, "Error downloading file: " , null));
@@ -168,7 +180,8 @@ public class FileUploadController {
 
 
     @PostMapping("/view")
-    public ResponseEntity<?> viewEncryptedFile(@RequestBody EncryptedPaperViewRequestDTO request) {
+    public ResponseEntity<?> viewEncryptedFile(@RequestBody EncryptedPaperViewRequestDTO request,
+                                               @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) {
         try {
             EncryptedPaper encryptedPaper = fileService.getEncryptedPaperById(request.getId());
 
@@ -177,12 +190,10 @@ public class FileUploadController {
                         .body(new StandardResponse(404, "Paper not found.", null));
             }
 
-            byte[] decryptedData = fileService.decryptFileForUser(request.getModeratorId(), encryptedPaper.getFilePath());
+            DecryptedPaper paper = fileService.openPaperForUser(request.getModeratorId(), encryptedPaper.getFilePath());
 
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/pdf")
-                    .header("Content-Disposition", "inline; filename=" + encryptedPaper.getFileName())
-                    .body(decryptedData);
+            return streamPaper(paper, range, MediaType.APPLICATION_PDF,
+                    "inline; filename=" + encryptedPaper.getFileName());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new StandardResponse(500, "Error viewing file", null));
@@ -195,7 +206,8 @@ public class FileUploadController {
             @PathVariable Long fileId,
             @RequestParam("file") MultipartFile file,
             @RequestParam("fileName") String fileName,
-            @RequestParam("remarks") String remarks) {
+            @RequestParam("remarks") String remarks,
+            @RequestParam(value = "recipientIds", required = false) List<Long> recipientIds) {
 
         try {
             // Validate file type
@@ -222,11 +234,15 @@ public class FileUploadController {
             Long creatorId = existingPaper.getCreator().getUserId();
             Long moderatorId = existingPaper.getModerator().getUserId();
 
-            // Encrypt the file before saving it
-            String encryptedFile = fileService.uploadAndEncryptFileForUsers(file, creatorId, moderatorId);
+            // Keep the paper's extra recipients unless the request names a new set
+            Set<Long> extraRecipientIds = recipientIds == null
+                    ? existingPaper.getExtraRecipientIds() : validRecipients(recipientIds);
 
-            // Update the paper with the new file, file name, and remarks
-            fileService.updateEncryptedPaper(fileId, encryptedFile, fileName, remarks);
+            // Encrypt the file into storage before updating the record
+            StoredBlob blob = fileService.uploadAndEncryptFileForUsers(file, paperRecipients(creatorId, moderatorId, extraRecipientIds));
+
+            // Update the paper with the new file, file name, remarks and recipients
+            fileService.updateEncryptedPaper(fileId, blob, fileName, remarks, extraRecipientIds);
 
             return ResponseEntity.ok()
                     .body(new StandardResponse(200, "Paper updated successfully", null));
@@ -288,9 +304,89 @@ public class FileUploadController {
 
     }
 
+    @GetMapping("/key-cache/stats")
+    public ResponseEntity<StandardResponse> getKeyCacheStats() {
+        return ResponseEntity.ok(new StandardResponse(200, "Key cache statistics retrieved successfully", fileService.getKeyCacheStats()));
+    }
+
+    @GetMapping("/key-pool/stats")
+    public ResponseEntity<StandardResponse> getKeyPoolStats() {
+        return ResponseEntity.ok(new StandardResponse(200, "Key pool statistics retrieved successfully", fileService.getKeyPoolStats()));
+    }
+
+    @GetMapping("/compression/stats")
+    public ResponseEntity<StandardResponse> getCompressionStats() {
+        return ResponseEntity.ok(new StandardResponse(200, "Compression statistics retrieved successfully", fileService.getCompressionStats()));
+    }
+
     @GetMapping("/{id}/status")
     public ResponseEntity<StandardResponse> getPaperStatus(@PathVariable Long id) {
         ExamPaperStatus status = fileService.getPaperStatus(id);
         return ResponseEntity.ok(new StandardResponse(200, "Paper status retrieved successfully", status));
     }
+
+    // Creator and moderator always receive the paper key; co-creators, extra moderators or the coordinator may be added
+    private List<Long> paperRecipients(Long creatorId, Long moderatorId, Set<Long> extraRecipientIds) {
+        List<Long> recipients = new ArrayList<>(List.of(creatorId, moderatorId));
+        recipients.addAll(extraRecipientIds);
+        return recipients;
+    }
+
+    private Set<Long> validRecipients(List<Long> recipientIds) {
+        Set<Long> valid = new LinkedHashSet<>();
+        if (recipientIds != null) {
+            for (Long recipientId : recipientIds) {
+                fileService.userRepository.findById(recipientId)
+                        .orElseThrow(() -> new IllegalArgumentException("Invalid recipient ID: " + recipientId));
+                valid.add(recipientId);
+            }
+        }
+        return valid;
+    }
+
+    // Stream the decrypted paper; a single byte range gets a 206 and only the segments it covers are decrypted
+    private ResponseEntity<?> streamPaper(DecryptedPaper paper, String range, MediaType contentType, String contentDisposition) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+
+        // Legacy files have no known length until fully decrypted, so they are always sent whole
+        if (!paper.supportsRanges()) {
+            return ResponseEntity.ok().headers(headers).body((StreamingResponseBody) paper::writeTo);
+        }
+
+        long length = paper.length();
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        List<HttpRange> ranges = parseRanges(range);
+
+        // No range, or several ranges (which we don't serve as multipart), means the whole paper
+        if (ranges == null || ranges.size() != 1) {
+            headers.setContentLength(length);
+            return ResponseEntity.ok().headers(headers).body((StreamingResponseBody) paper::writeTo);
+        }
+
+        HttpRange requested = ranges.get(0);
+        if (length == 0 || requested.getRangeStart(length) >= length) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+        }
+        long first = requested.getRangeStart(length);
+        long last = requested.getRangeEnd(length);
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + first + "-" + last + "/" + length);
+        headers.setContentLength(last - first + 1);
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers)
+                .body((StreamingResponseBody) out -> paper.writeRange(first, last, out));
+    }
+
+    // Parse a Range header; a malformed one is ignored and the whole paper is sent, as RFC 9110 allows
+    private static List<HttpRange> parseRanges(String range) {
+        if (range == null || range.isBlank()) {
+            return null;
+        }
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
@@ -1,18 +1,30 @@
 package com.example.examManagementBackend.paperWorkflows.controller;
 
 import com.example.examManagementBackend.paperWorkflows.dto.FeedBackData.FeedBackDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.FeedbackPdfJobDTO;
 import com.example.examManagementBackend.paperWorkflows.dto.QuestionModerationDTO;
 import com.example.examManagementBackend.paperWorkflows.entity.EncryptedPaper;
 import com.example.examManagementBackend.paperWorkflows.entity.Enums.ExamPaperStatus;
+import com.example.examManagementBackend.paperWorkflows.service.FeedbackPdfJobService;
+import com.example.examManagementBackend.paperWorkflows.service.ModerationReportService;
 import com.example.examManagementBackend.paperWorkflows.service.ModerationService;
-import com.example.examManagementBackend.paperWorkflows.service.PdfGenrationService;
 import com.example.examManagementBackend.utill.StandardResponse;
-import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @CrossOrigin
 @RestController
@@ -20,13 +32,19 @@ import org.springframework.web.bind.annotation.*;
 public class ModerationController {
 
 
+    // How long /saveFeedBackData holds the connection open for its PDF before answering with the job instead
+    private static final long SYNC_RENDER_TIMEOUT_MS = 60000L;
+
     private final ModerationService moderationService;
-    private final PdfGenrationService pdfGenrationService;
+    private final FeedbackPdfJobService feedbackPdfJobService;
+    private final ModerationReportService moderationReportService;
 
 
-    public ModerationController(PdfGenrationService pdfGenrationService, ModerationService moderationService) {
-        this.pdfGenrationService = pdfGenrationService;
+    public ModerationController(FeedbackPdfJobService feedbackPdfJobService, ModerationService moderationService,
+                                ModerationReportService moderationReportService) {
+        this.feedbackPdfJobService = feedbackPdfJobService;
         this.moderationService = moderationService;
+        this.moderationReportService = moderationReportService;
     }
 
     @PostMapping("/question-with-hierarchy")
@@ -39,18 +57,109 @@ public class ModerationController {
         ));
 
     }
-    //generate the pdf and save data;
+    //generate the pdf and save data; the form is rendered by the feedback PDF queue and this request thread is released while it waits
     @PostMapping("/saveFeedBackData")
-    public ResponseEntity<byte[]> saveFeedBackData(@RequestBody FeedBackDTO dto, HttpServletRequest request) {
-       try{
-          return pdfGenrationService.genratePdf(dto,request);
-       }
-       catch(Exception e){
-           return new ResponseEntity<byte[]> (
-                   null,null,HttpStatus.INTERNAL_SERVER_ERROR
-           );
-       }
+    public DeferredResult<ResponseEntity<?>> saveFeedBackData(@RequestBody FeedBackDTO dto) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(SYNC_RENDER_TIMEOUT_MS);
+        FeedbackPdfJobService.Submission submission;
+        try {
+            submission = feedbackPdfJobService.submit(dto);
+        } catch (IllegalArgumentException e) {
+            result.setResult(ResponseEntity.badRequest().body(new StandardResponse(400, e.getMessage(), null)));
+            return result;
+        } catch (RejectedExecutionException e) {
+            result.setResult(queueFull());
+            return result;
+        }
+
+        FeedbackPdfJobDTO job = submission.job();
+        // Still rendering when the wait runs out: hand back the job so the client can poll for it
+        result.onTimeout(() -> result.setResult(ResponseEntity.accepted()
+                .header(HttpHeaders.LOCATION, "/api/v1/moderation/feedback-pdfs/" + job.getId())
+                .body(new StandardResponse(202, "Feedback PDF is still being rendered", job))));
+        submission.pdf().whenComplete((pdf, error) -> {
+            if (error != null) {
+                // The worker recorded the failure on the job before failing the future
+                FeedbackPdfJobDTO failed = feedbackPdfJobService.getJob(job.getId()).orElse(job);
+                String message = failed.getError() != null ? failed.getError() : error.getMessage();
+                result.setResult(ResponseEntity.internalServerError()
+                        .body(new StandardResponse(500, "Feedback PDF rendering failed: " + message, failed)));
+                return;
+            }
+            result.setResult(ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + job.getFileName() + "\"")
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .body(pdf));
+        });
+        return result;
+    }
+
+    // Queue a feedback form for rendering; poll the returned job and download the PDF once it has succeeded
+    @PostMapping("/feedback-pdfs")
+    public ResponseEntity<StandardResponse> submitFeedbackPdf(@RequestBody FeedBackDTO dto) {
+        try {
+            FeedbackPdfJobDTO job = feedbackPdfJobService.submit(dto).job();
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/api/v1/moderation/feedback-pdfs/" + job.getId())
+                    .body(new StandardResponse(202, "Feedback PDF queued", job));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new StandardResponse(400, e.getMessage(), null));
+        } catch (RejectedExecutionException e) {
+            return queueFull();
+        }
+    }
+
+    @GetMapping("/feedback-pdfs/{jobId}")
+    public ResponseEntity<StandardResponse> getFeedbackPdfJob(@PathVariable Long jobId) {
+        return feedbackPdfJobService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(new StandardResponse(200, "Feedback PDF job", job)))
+                .orElseGet(() -> ResponseEntity.status(404)
+                        .body(new StandardResponse(404, "Feedback PDF job not found with ID: " + jobId, null)));
+    }
+
+    @GetMapping("/feedback-pdfs/{jobId}/file")
+    public ResponseEntity<?> downloadFeedbackPdf(@PathVariable Long jobId) {
+        Optional<FeedbackPdfJobDTO> job = feedbackPdfJobService.getJob(jobId);
+        if (job.isEmpty()) {
+            return ResponseEntity.status(404).body(new StandardResponse(404, "Feedback PDF job not found with ID: " + jobId, null));
+        }
+        try {
+            Optional<InputStream> pdf = feedbackPdfJobService.openResult(jobId);
+            if (pdf.isEmpty()) {
+                // Not rendered yet, or rendering failed; the job says which
+                return ResponseEntity.status(409)
+                        .body(new StandardResponse(409, "Feedback PDF is " + job.get().getStatus(), job.get()));
+            }
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + job.get().getFileName() + "\"")
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .body(new InputStreamResource(pdf.get()));
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.status(404).body(new StandardResponse(404, "Feedback PDF is no longer in storage", null));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(new StandardResponse(500, e.getMessage(), null));
+        }
+    }
+
+    // Moderation reports of every course in the examination, merged into one bookmarked PDF with a contents page
+    @GetMapping("/examinations/{examinationId}/report")
+    public ResponseEntity<?> getExaminationReport(@PathVariable Long examinationId) {
+        ModerationReportService.ReportPlan plan;
+        try {
+            plan = moderationReportService.plan(examinationId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(404).body(new StandardResponse(404, e.getMessage(), null));
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"moderation-report-" + examinationId + ".pdf\"")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body((StreamingResponseBody) out -> moderationReportService.writeReport(plan, out));
+    }
 
+    private ResponseEntity<StandardResponse> queueFull() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(new StandardResponse(503, "Too many feedback forms are waiting to be rendered, please try again shortly", null));
     }
 
     @PatchMapping("/{id}/update")
@@ -1,23 +1,31 @@
 package com.example.examManagementBackend.paperWorkflows.controller;
 import com.example.examManagementBackend.utill.StandardResponse;
 import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSearchCriteria;
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSliceDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.FullTextHitDTO;
 import com.example.examManagementBackend.paperWorkflows.dto.UploadPaperRequestDTO;
+import com.example.examManagementBackend.paperWorkflows.entity.ArchiveRun;
+import com.example.examManagementBackend.paperWorkflows.service.ArchiveExportService;
 import com.example.examManagementBackend.paperWorkflows.service.PaperArchivingService;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.NoSuchFileException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @CrossOrigin
 @RestController
@@ -26,14 +34,25 @@ public class PaperArchivingController {
 
     private final PaperArchivingService paperArchivingService;
 
-    public PaperArchivingController(PaperArchivingService paperArchivingService) {
+    private final ArchiveExportService archiveExportService;
+
+    public PaperArchivingController(PaperArchivingService paperArchivingService, ArchiveExportService archiveExportService) {
         this.paperArchivingService = paperArchivingService;
+        this.archiveExportService = archiveExportService;
     }
 
+    // Offset pages as before; a cursor or mode=keyset switches to keyset slices, which stay fast deep into the archive
     @GetMapping("/archived")
     public ResponseEntity<StandardResponse> getArchivedPapers(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) String mode,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        if (isKeyset(cursor, mode)) {
+            ArchivedPaperSliceDTO papers = paperArchivingService.getArchivedPapersAfter(cursor, size, withTotal);
+            return ResponseEntity.ok(new StandardResponse(200, "Archived papers retrieved successfully", papers));
+        }
         Page<ArchivedPaperDTO> papers = paperArchivingService.getArchivedPapers(page, size);
         return ResponseEntity.ok(new StandardResponse(200, "Archived papers retrieved successfully", papers));
     }
@@ -47,8 +66,125 @@ public class PaperArchivingController {
 
     @PostMapping("/archive")
     public ResponseEntity<StandardResponse> archivePapersManually() {
-        paperArchivingService.archiveSharedPapers();
-        return ResponseEntity.ok(new StandardResponse(200, "Paper archiving triggered successfully", null));
+        List<ArchiveRun> runs = paperArchivingService.runArchiveJob(true);
+        if (runs == null) {
+            return ResponseEntity.status(409).body(new StandardResponse(409, "Paper archiving is already running", null));
+        }
+        if (runs.isEmpty()) {
+            return ResponseEntity.status(409).body(new StandardResponse(409, "Paper archiving is already running on another node", null));
+        }
+        return ResponseEntity.ok(new StandardResponse(200, "Paper archiving triggered successfully", runs));
+    }
+
+    // Every matching paper in one ZIP with a manifest.csv, streamed as it is written; at least one filter is required
+    @GetMapping("/archived/export")
+    public ResponseEntity<?> exportArchivedPapers(
+            @RequestParam(required = false) Long examinationId,
+            @RequestParam(required = false) String fileName,
+            @RequestParam(required = false) String creatorName,
+            @RequestParam(required = false) String moderatorName,
+            @RequestParam(required = false) String courseCode,
+            @RequestParam(required = false) String paperType,
+            @RequestParam(required = false) String degreeName,
+            @RequestParam(required = false) String year,
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) String semester,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+
+        ArchivedPaperSearchCriteria criteria = new ArchivedPaperSearchCriteria(fileName, creatorName, moderatorName,
+                courseCode, paperType, degreeName, year, level, semester, startDate, endDate);
+        if (examinationId == null && Stream.of(fileName, creatorName, moderatorName, courseCode, paperType, degreeName, year, level, semester)
+                .allMatch(value -> value == null || value.isBlank()) && startDate == null && endDate == null) {
+            return ResponseEntity.badRequest().body(new StandardResponse(400, "Choose an examination, course, degree or other filter to export", null));
+        }
+        try {
+            if (examinationId != null) {
+                archiveExportService.forExamination(criteria, examinationId);
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(404).body(new StandardResponse(404, e.getMessage(), null));
+        }
+        // The status can't change once the ZIP starts streaming, so an empty export is refused up front
+        if (!archiveExportService.hasMatches(criteria)) {
+            return ResponseEntity.status(404).body(new StandardResponse(404, "No archived papers match the filters", null));
+        }
+
+        String exportName = "archived-papers-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".zip";
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + exportName + "\"")
+                .body((StreamingResponseBody) out -> archiveExportService.writeZip(criteria, out));
+    }
+
+    @GetMapping("/archived/facets")
+    public ResponseEntity<StandardResponse> getArchiveFacets(
+            @RequestParam(required = false) String fileName,
+            @RequestParam(required = false) String creatorName,
+            @RequestParam(required = false) String moderatorName,
+            @RequestParam(required = false) String courseCode,
+            @RequestParam(required = false) String paperType,
+            @RequestParam(required = false) String degreeName,
+            @RequestParam(required = false) String year,
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) String semester,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "false") boolean fuzzy) {
+
+        ArchivedPaperSearchCriteria criteria = new ArchivedPaperSearchCriteria(fileName, creatorName, moderatorName,
+                courseCode, paperType, degreeName, year, level, semester, startDate, endDate);
+        try {
+            return ResponseEntity.ok(new StandardResponse(200, "Archive facets retrieved successfully",
+                    paperArchivingService.getArchiveFacets(criteria, q, fuzzy)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(503).body(new StandardResponse(503, e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("/archived/fulltext")
+    public ResponseEntity<StandardResponse> searchArchivedPaperText(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body(new StandardResponse(400, "A search query is required", null));
+        }
+        Page<FullTextHitDTO> hits = paperArchivingService.searchFullText(q, PageRequest.of(page, size));
+        return ResponseEntity.ok(new StandardResponse(200, "Matching papers retrieved successfully", hits));
+    }
+
+    @GetMapping("/archive/fulltext-index")
+    public ResponseEntity<StandardResponse> getFullTextIndexStats() {
+        return ResponseEntity.ok(new StandardResponse(200, "Full-text index stats retrieved successfully", paperArchivingService.getFullTextIndexStats()));
+    }
+
+    @GetMapping("/archive/search-index")
+    public ResponseEntity<StandardResponse> getSearchIndexStats() {
+        return ResponseEntity.ok(new StandardResponse(200, "Search index stats retrieved successfully", paperArchivingService.getSearchIndexStats()));
+    }
+
+    @GetMapping("/archive/runs/latest")
+    public ResponseEntity<StandardResponse> getLatestArchiveRun() {
+        return paperArchivingService.getLatestArchiveRun()
+                .map(run -> ResponseEntity.ok(new StandardResponse(200, "Latest archiving run retrieved successfully", run)))
+                .orElse(ResponseEntity.status(404).body(new StandardResponse(404, "No archiving run found", null)));
+    }
+
+    @GetMapping("/archive/quarantine")
+    public ResponseEntity<StandardResponse> getQuarantinedPapers() {
+        return ResponseEntity.ok(new StandardResponse(200, "Quarantined papers retrieved successfully", paperArchivingService.getQuarantinedPapers()));
+    }
+
+    @DeleteMapping("/archive/quarantine/{paperId}")
+    public ResponseEntity<StandardResponse> releaseQuarantinedPaper(@PathVariable Long paperId) {
+        try {
+            paperArchivingService.releaseQuarantinedPaper(paperId);
+            return ResponseEntity.ok(new StandardResponse(200, "Paper released for the next archiving run", null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(404).body(new StandardResponse(404, e.getMessage(), null));
+        }
     }
 
     @DeleteMapping("/archived/{id}")
@@ -59,25 +195,23 @@ public class PaperArchivingController {
 
     @GetMapping("/archived/{id}/download")
     public ResponseEntity<Resource> downloadArchivedPaper(@PathVariable Long id) {
-        Optional<String> filePathOpt = paperArchivingService.getArchivedFilePath(id);
+        Optional<ArchivedPaperDTO> paperOpt = paperArchivingService.getArchivedPaperById(id);
 
-        if (filePathOpt.isEmpty()) {
+        if (paperOpt.isEmpty()) {
             return ResponseEntity.status(404).body(null);
         }
 
         try {
-            Path filePath = Paths.get(filePathOpt.get());
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (!resource.exists() || !resource.isReadable()) {
-                return ResponseEntity.status(404).body(null);
-            }
+            Resource resource = new InputStreamResource(paperArchivingService.openArchivedFile(paperOpt.get().getFilePath()));
 
+            // Stored files are named by content hash, so the download name comes from the record
             return ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filePath.getFileName() + "\"")
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + paperOpt.get().getFileName() + "\"")
                     .body(resource);
 
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.status(404).body(null);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(null);
         }
@@ -110,16 +244,29 @@ public class PaperArchivingController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-
-        Page<ArchivedPaperDTO> papers = paperArchivingService.searchArchivedPapers(
-                fileName, creatorName, moderatorName, courseCode, paperType,
-                degreeName, year, level, semester, startDate, endDate,
-                Pageable.ofSize(size).withPage(page));
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) String mode,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "false") boolean fuzzy) {
 
-        return ResponseEntity.ok(new StandardResponse(200, "Filtered papers retrieved successfully", papers));
+        ArchivedPaperSearchCriteria criteria = new ArchivedPaperSearchCriteria(fileName, creatorName, moderatorName,
+                courseCode, paperType, degreeName, year, level, semester, startDate, endDate);
+        try {
+            // Relevance-ranked results have no id order to continue from, so a free-text query is always paged by offset
+            if (isKeyset(cursor, mode) && (q == null || q.isBlank())) {
+                ArchivedPaperSliceDTO papers = paperArchivingService.searchArchivedPapersAfter(criteria, fuzzy, cursor, size, withTotal);
+                return ResponseEntity.ok(new StandardResponse(200, "Filtered papers retrieved successfully", papers));
+            }
+            Page<ArchivedPaperDTO> papers = paperArchivingService.searchArchivedPapers(criteria, q, fuzzy, PageRequest.of(page, size));
+            return ResponseEntity.ok(new StandardResponse(200, "Filtered papers retrieved successfully", papers));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(503).body(new StandardResponse(503, e.getMessage(), null));
+        }
     }
 
-
-
+    private static boolean isKeyset(Long cursor, String mode) {
+        return cursor != null || "keyset".equalsIgnoreCase(mode);
+    }
 }
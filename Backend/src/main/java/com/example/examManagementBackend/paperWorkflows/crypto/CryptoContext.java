@@ -0,0 +1,109 @@
+package com.example.examManagementBackend.paperWorkflows.crypto;
+
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Reusable JCA objects for the paper encryption hot path. Provider lookups through
+ * {@code getInstance} are done once per thread instead of once per call, and all randomness comes
+ * from a single shared DRBG instead of a freshly seeded {@code SecureRandom} per IV.
+ *
+ * <p>Cipher, KeyFactory, KeyGenerator and MessageDigest are not thread-safe, so each thread gets its
+ * own; callers must fully re-initialise a cipher before every use and must not hold on to it across
+ * calls that could use the same object.
+ */
+@Component
+public class CryptoContext {
+
+    public static final String RSA_ALGORITHM = "RSA";
+    public static final String RSA_TRANSFORMATION = "RSA/ECB/OAEPWithSHA-1AndMGF1Padding";
+    public static final String AES_ALGORITHM = "AES";
+    public static final int AES_KEY_SIZE = 256;
+
+    private final SecureRandom random;
+
+    private final ThreadLocal<Cipher> rsaCipher = ThreadLocal.withInitial(() -> newCipher(RSA_TRANSFORMATION));
+    private final ThreadLocal<Cipher> aesCipher = ThreadLocal.withInitial(() -> newCipher(SegmentedAesGcm.TRANSFORMATION));
+    private final ThreadLocal<KeyFactory> rsaKeyFactory = ThreadLocal.withInitial(() -> {
+        try {
+            return KeyFactory.getInstance(RSA_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private final ThreadLocal<KeyGenerator> aesKeyGenerator = ThreadLocal.withInitial(this::newAesKeyGenerator);
+    private final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    public CryptoContext() {
+        SecureRandom drbg;
+        try {
+            // The DRBG implementation is thread-safe, so one instance serves every request thread
+            drbg = SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            drbg = new SecureRandom();
+        }
+        this.random = drbg;
+    }
+
+    public Cipher rsaCipher() {
+        return rsaCipher.get();
+    }
+
+    public Cipher aesCipher() {
+        return aesCipher.get();
+    }
+
+    public KeyFactory rsaKeyFactory() {
+        return rsaKeyFactory.get();
+    }
+
+    public SecretKey generateAesKey() {
+        return aesKeyGenerator.get().generateKey();
+    }
+
+    public byte[] sha256(byte[] input) {
+        return sha256.get().digest(input);
+    }
+
+    public byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    public SecureRandom random() {
+        return random;
+    }
+
+    private KeyGenerator newAesKeyGenerator() {
+        try {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance(AES_ALGORITHM);
+            keyGenerator.init(AES_KEY_SIZE, random);
+            return keyGenerator;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cipher " + transformation + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.examManagementBackend.paperWorkflows.crypto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A stored paper that has been opened for one user: the recipient check and key unwrap are already
+ * done, so writing the plaintext out can happen later, for example from a streaming response body.
+ * Segmented envelopes know their plaintext length up front and decrypt only the segments a byte
+ * range covers; legacy Base64 files have to be decrypted from the start, even for a range.
+ */
+public interface DecryptedPaper {
+
+    // Plaintext length in bytes, or -1 when it is only known after decrypting the whole file
+    long length();
+
+    default boolean supportsRanges() {
+        return length() >= 0;
+    }
+
+    // Decrypt the whole paper into the stream
+    void writeTo(OutputStream out) throws IOException;
+
+    // Decrypt plaintext bytes first..last (inclusive) into the stream
+    void writeRange(long first, long last, OutputStream out) throws IOException;
+}
@@ -0,0 +1,220 @@
+package com.example.examManagementBackend.paperWorkflows.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Segmented AES-GCM where every plaintext segment is deflated on its own before it is sealed, so a
+ * compressed paper can still be read by range: plaintext byte n is always in segment
+ * {@code n / segmentSize}. A segment that doesn't shrink is sealed as it is. Sealed segments then
+ * differ in length, so a table of their lengths follows them:
+ *
+ * <pre>
+ *   sealed segments
+ *   segment table   4 bytes per segment: sealed length
+ * </pre>
+ *
+ * The segment count follows from the plain length, so a reader fetches the table from the end of
+ * the file and then only the segments it needs. A segment that opens to the full length of its
+ * plaintext was stored raw, a shorter one is inflated. The table itself is not authenticated; a
+ * wrong entry only moves segment boundaries, which the tag of every segment then rejects.
+ */
+public final class DeflatedSegments {
+
+    // Plaintext read, and the deflated bytes that were sealed in its place
+    public record Written(long plainLength, long deflatedLength) {
+    }
+
+    private DeflatedSegments() {
+    }
+
+    // Deflate and seal everything the stream yields, then write the segment table
+    public static Written encrypt(Cipher cipher, SecretKey key, byte[] baseNonce, int segmentSize, Deflater deflater,
+                                  InputStream in, WritableByteChannel out) throws IOException, GeneralSecurityException {
+        byte[] current = new byte[segmentSize];
+        byte[] next = new byte[segmentSize];
+        byte[] deflated = new byte[segmentSize];
+        byte[] sealed = new byte[segmentSize + SegmentedAesGcm.TAG_LENGTH];
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+        DataOutputStream table = new DataOutputStream(tableBytes);
+
+        int currentLength = in.readNBytes(current, 0, segmentSize);
+        long plainLength = 0;
+        long deflatedLength = 0;
+        for (int index = 0; ; index++) {
+            // Read one segment ahead so the last segment can be flagged as final
+            int nextLength = currentLength == segmentSize ? in.readNBytes(next, 0, segmentSize) : 0;
+            boolean last = nextLength == 0;
+
+            int payloadLength = deflate(deflater, current, currentLength, deflated);
+            byte[] payload = payloadLength >= 0 ? deflated : current;
+            if (payloadLength < 0) {
+                payloadLength = currentLength;
+            }
+            int sealedLength = SegmentedAesGcm.sealSegment(cipher, key, baseNonce, index, last, payload, payloadLength, sealed);
+            SegmentedAesGcm.writeFully(out, ByteBuffer.wrap(sealed, 0, sealedLength));
+            table.writeInt(sealedLength);
+            plainLength += currentLength;
+            deflatedLength += payloadLength;
+
+            if (last) {
+                SegmentedAesGcm.writeFully(out, ByteBuffer.wrap(tableBytes.toByteArray()));
+                return new Written(plainLength, deflatedLength);
+            }
+            byte[] swap = current;
+            current = next;
+            next = swap;
+            currentLength = nextLength;
+        }
+    }
+
+    // An empty plaintext still has one segment
+    public static int segmentCount(long plainLength, int segmentSize) {
+        return (int) Math.max(1, (plainLength + segmentSize - 1) / segmentSize);
+    }
+
+    public static long tableLength(long plainLength, int segmentSize) {
+        return (long) segmentCount(plainLength, segmentSize) * Integer.BYTES;
+    }
+
+    // Offsets of every sealed segment plus the end of the last one, checked against the length of the sealed segments
+    public static long[] readTable(InputStream in, long plainLength, int segmentSize, long sealedLength) throws IOException {
+        DataInputStream table = new DataInputStream(in);
+        int count = segmentCount(plainLength, segmentSize);
+        long[] offsets = new long[count + 1];
+        for (int index = 0; index < count; index++) {
+            int length = table.readInt();
+            if (length < SegmentedAesGcm.TAG_LENGTH || length > segmentSize + SegmentedAesGcm.TAG_LENGTH) {
+                throw new IOException("Segment table of compressed paper is corrupt");
+            }
+            offsets[index + 1] = offsets[index] + length;
+        }
+        if (offsets[count] != sealedLength) {
+            throw new IOException("Segment table of compressed paper doesn't match its length");
+        }
+        return offsets;
+    }
+
+    // Decrypt and inflate every segment from a stream over all sealed segments
+    public static void decrypt(Cipher cipher, SecretKey key, byte[] baseNonce, int segmentSize, long plainLength,
+                               long[] offsets, InputStream in, OutputStream out) throws IOException, GeneralSecurityException {
+        Reader reader = new Reader(cipher, key, baseNonce, segmentSize, plainLength, offsets);
+        try {
+            for (int index = 0; index < offsets.length - 1; index++) {
+                out.write(reader.open(index, in), 0, reader.plainLength(index));
+            }
+        } finally {
+            reader.inflater.end();
+        }
+    }
+
+    // Decrypt and inflate only the segments covering plaintext bytes first..last (inclusive) and write exactly that range
+    public static void decryptRange(Cipher cipher, SecretKey key, byte[] baseNonce, int segmentSize, long plainLength,
+                                    long[] offsets, long first, long last, SegmentedAesGcm.CiphertextSource source,
+                                    OutputStream out) throws IOException, GeneralSecurityException {
+        if (first < 0 || last < first || last >= plainLength) {
+            throw new IllegalArgumentException("Range " + first + "-" + last + " is outside the paper");
+        }
+        int firstSegment = (int) (first / segmentSize);
+        int lastSegment = (int) (last / segmentSize);
+        Reader reader = new Reader(cipher, key, baseNonce, segmentSize, plainLength, offsets);
+        try (InputStream in = source.open(offsets[firstSegment], offsets[lastSegment + 1] - offsets[firstSegment])) {
+            for (int index = firstSegment; index <= lastSegment; index++) {
+                byte[] plain = reader.open(index, in);
+                long segmentStart = (long) index * segmentSize;
+                int from = index == firstSegment ? (int) (first - segmentStart) : 0;
+                int to = index == lastSegment ? (int) (last - segmentStart) + 1 : reader.plainLength(index);
+                out.write(plain, from, to - from);
+            }
+        } finally {
+            reader.inflater.end();
+        }
+    }
+
+    // Deflate one segment into out; -1 when it wouldn't come out shorter than it is
+    private static int deflate(Deflater deflater, byte[] in, int length, byte[] out) {
+        deflater.reset();
+        deflater.setInput(in, 0, length);
+        deflater.finish();
+        int written = 0;
+        while (!deflater.finished() && written < length) {
+            written += deflater.deflate(out, written, length - written);
+        }
+        return deflater.finished() && written < length ? written : -1;
+    }
+
+    // Buffers for opening one segment at a time
+    private static final class Reader {
+        private final Cipher cipher;
+        private final SecretKey key;
+        private final byte[] baseNonce;
+        private final int segmentSize;
+        private final long plainLength;
+        private final long[] offsets;
+        private final byte[] sealed;
+        private final byte[] payload;
+        private final byte[] plain;
+        private final Inflater inflater = new Inflater();
+
+        private Reader(Cipher cipher, SecretKey key, byte[] baseNonce, int segmentSize, long plainLength, long[] offsets) {
+            this.cipher = cipher;
+            this.key = key;
+            this.baseNonce = baseNonce;
+            this.segmentSize = segmentSize;
+            this.plainLength = plainLength;
+            this.offsets = offsets;
+            this.sealed = new byte[segmentSize + SegmentedAesGcm.TAG_LENGTH];
+            this.payload = new byte[segmentSize];
+            this.plain = new byte[segmentSize];
+        }
+
+        private int plainLength(int index) {
+            return (int) Math.min(segmentSize, plainLength - (long) index * segmentSize);
+        }
+
+        // Read the segment's sealed bytes from the stream and return a buffer starting with its plaintext
+        private byte[] open(int index, InputStream in) throws IOException, GeneralSecurityException {
+            int sealedLength = (int) (offsets[index + 1] - offsets[index]);
+            if (in.readNBytes(sealed, 0, sealedLength) != sealedLength) {
+                throw new IOException("Compressed paper is truncated");
+            }
+            int payloadLength = SegmentedAesGcm.openSegment(cipher, key, baseNonce, index, index == offsets.length - 2,
+                    sealed, sealedLength, payload);
+            int expected = plainLength(index);
+            if (payloadLength == expected) {
+                return payload;
+            }
+
+            inflater.reset();
+            inflater.setInput(payload, 0, payloadLength);
+            try {
+                int inflated = 0;
+                while (inflated < expected && !inflater.finished()) {
+                    int count = inflater.inflate(plain, inflated, expected - inflated);
+                    if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    inflated += count;
+                }
+                if (inflated != expected || !inflater.finished()) {
+                    throw new IOException("Compressed segment " + index + " is corrupt");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Compressed segment " + index + " is corrupt", e);
+            }
+            return plain;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.examManagementBackend.paperWorkflows.crypto;
+
+import java.security.KeyPair;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded, thread-safe cache of user RSA key pairs. Entries are evicted least recently used first,
+ * and concurrent misses for the same user share a single load instead of each parsing (or
+ * generating) the keys themselves.
+ */
+public class KeyPairCache {
+
+    private final int maximumSize;
+
+    // Access-ordered so the eldest entry is the least recently used; guarded by this
+    private final LinkedHashMap<Long, KeyPair> entries;
+
+    private final ConcurrentHashMap<Long, CompletableFuture<KeyPair>> loadsInFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public record Stats(long size, long maximumSize, long hits, long misses, double hitRate,
+                        long loads, long loadFailures, double averageLoadMillis, long evictions) {
+    }
+
+    public KeyPairCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, KeyPair> eldest) {
+                if (size() > KeyPairCache.this.maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Return the cached key pair, or load it once no matter how many threads ask at the same time
+    public KeyPair get(Long userId, Function<Long, KeyPair> loader) {
+        KeyPair cached = getIfPresent(userId);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        CompletableFuture<KeyPair> load = new CompletableFuture<>();
+        CompletableFuture<KeyPair> running = loadsInFlight.putIfAbsent(userId, load);
+        if (running != null) {
+            return await(running);
+        }
+
+        try {
+            // Another thread may have finished loading between our miss and claiming the load
+            KeyPair keyPair = getIfPresent(userId);
+            if (keyPair == null) {
+                long start = System.nanoTime();
+                try {
+                    keyPair = loader.apply(userId);
+                } catch (RuntimeException e) {
+                    loadFailures.increment();
+                    throw e;
+                } finally {
+                    totalLoadNanos.add(System.nanoTime() - start);
+                    loads.increment();
+                }
+                put(userId, keyPair);
+            }
+            load.complete(keyPair);
+            return keyPair;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadsInFlight.remove(userId, load);
+        }
+    }
+
+    public synchronized KeyPair getIfPresent(Long userId) {
+        return entries.get(userId);
+    }
+
+    public synchronized void put(Long userId, KeyPair keyPair) {
+        entries.put(userId, keyPair);
+    }
+
+    public synchronized void invalidate(Long userId) {
+        entries.remove(userId);
+    }
+
+    public Stats stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long loadCount = loads.sum();
+        long requests = hitCount + missCount;
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new Stats(
+                size,
+                maximumSize,
+                hitCount,
+                missCount,
+                requests == 0 ? 0 : (double) hitCount / requests,
+                loadCount,
+                loadFailures.sum(),
+                loadCount == 0 ? 0 : totalLoadNanos.sum() / 1_000_000.0 / loadCount,
+                evictions.sum()
+        );
+    }
+
+    private static KeyPair await(CompletableFuture<KeyPair> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
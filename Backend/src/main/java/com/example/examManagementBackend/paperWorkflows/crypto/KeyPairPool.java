@@ -0,0 +1,114 @@
+package com.example.examManagementBackend.paperWorkflows.crypto;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of pre-generated RSA key pairs. Generating a 2048-bit pair takes hundreds of
+ * milliseconds, so a single low-priority background thread keeps the pool topped up and a user's
+ * first paper submission just takes a ready pair. Only when the pool is empty is a pair generated
+ * inline on the calling thread.
+ */
+@Component
+public class KeyPairPool {
+
+    public static final int RSA_KEY_SIZE = 2048;
+
+    private final BlockingQueue<KeyPair> pool;
+    private final ExecutorService refiller;
+    private final AtomicBoolean refillRunning = new AtomicBoolean(false);
+    private final SecureRandom random;
+
+    private final LongAdder servedFromPool = new LongAdder();
+    private final LongAdder generatedInline = new LongAdder();
+    private final LongAdder generatedInBackground = new LongAdder();
+
+    public record Stats(int available, int capacity, long servedFromPool, long generatedInline, long generatedInBackground) {
+    }
+
+    public KeyPairPool(CryptoContext crypto, @Value("${encryption.key-pool.size:20}") int capacity) {
+        this.pool = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.refiller = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rsa-key-pool");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.random = crypto.random();
+    }
+
+    @PostConstruct
+    public void start() {
+        refill();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        refiller.shutdownNow();
+        refiller.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // Hand out a pre-generated pair, falling back to generating one inline when the pool is empty
+    public KeyPair take() {
+        KeyPair keyPair = pool.poll();
+        refill();
+        if (keyPair != null) {
+            servedFromPool.increment();
+            return keyPair;
+        }
+        generatedInline.increment();
+        return generate();
+    }
+
+    public Stats stats() {
+        return new Stats(pool.size(), pool.size() + pool.remainingCapacity(),
+                servedFromPool.sum(), generatedInline.sum(), generatedInBackground.sum());
+    }
+
+    private void refill() {
+        if (pool.remainingCapacity() == 0 || !refillRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refiller.execute(() -> {
+                try {
+                    while (pool.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()) {
+                        if (pool.offer(generate())) {
+                            generatedInBackground.increment();
+                        }
+                    }
+                } finally {
+                    refillRunning.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down, nothing left to top up
+            refillRunning.set(false);
+        }
+    }
+
+    private KeyPair generate() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(CryptoContext.RSA_ALGORITHM);
+            generator.initialize(RSA_KEY_SIZE, random);
+            return generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
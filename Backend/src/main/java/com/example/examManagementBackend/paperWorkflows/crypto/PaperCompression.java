@@ -0,0 +1,90 @@
+package com.example.examManagementBackend.paperWorkflows.crypto;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Decides whether a paper is deflated before it is encrypted. Ciphertext does not compress, so this
+ * is the only point where redundancy in uncompressed scans can be removed. The decision is made
+ * per paper from a deflate trial over the first {@link #SAMPLE_SIZE} bytes: PDFs whose streams are
+ * already compressed barely shrink and are stored as they are. Compressed papers are deflated one
+ * segment at a time by {@link DeflatedSegments}, so they can still be read by range.
+ */
+@Component
+public class PaperCompression {
+
+    public static final int SAMPLE_SIZE = 256 * 1024;
+    public static final int LEVEL = Deflater.DEFAULT_COMPRESSION;
+
+    // Below this the envelope and deflate overheads eat any saving
+    private static final int MIN_SAMPLE_SIZE = 4 * 1024;
+
+    private final boolean enabled;
+    private final double minSavings;
+
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    public record Stats(boolean enabled, double minSavings, long compressed, long skipped, long bytesIn, long bytesOut) {
+    }
+
+    public PaperCompression(@Value("${encryption.compression.enabled:true}") boolean enabled,
+                            @Value("${encryption.compression.min-savings:0.1}") double minSavings) {
+        this.enabled = enabled;
+        this.minSavings = minSavings;
+    }
+
+    // Trial-deflate the start of the stream and leave it where it was; the stream must support mark/reset
+    public boolean shouldCompress(InputStream in) throws IOException {
+        if (!enabled) {
+            return false;
+        }
+        in.mark(SAMPLE_SIZE);
+        byte[] sample = in.readNBytes(SAMPLE_SIZE);
+        in.reset();
+
+        boolean worthIt = sample.length >= MIN_SAMPLE_SIZE
+                && deflatedSize(sample) <= sample.length * (1 - minSavings);
+        if (!worthIt) {
+            skipped.increment();
+        }
+        return worthIt;
+    }
+
+    public Deflater newDeflater() {
+        return new Deflater(LEVEL);
+    }
+
+    // Record how much a compressed paper shrank
+    public void recordCompressed(long plainBytes, long deflatedBytes) {
+        compressed.increment();
+        bytesIn.add(plainBytes);
+        bytesOut.add(deflatedBytes);
+    }
+
+    public Stats stats() {
+        return new Stats(enabled, minSavings, compressed.sum(), skipped.sum(), bytesIn.sum(), bytesOut.sum());
+    }
+
+    private static long deflatedSize(byte[] sample) {
+        Deflater deflater = new Deflater(LEVEL);
+        try {
+            deflater.setInput(sample);
+            deflater.finish();
+            byte[] buffer = new byte[16 * 1024];
+            while (!deflater.finished()) {
+                deflater.deflate(buffer);
+            }
+            return deflater.getBytesWritten();
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.examManagementBackend.paperWorkflows.crypto;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Header of an encrypted paper file. The header is followed directly by the raw segmented
+ * ciphertext produced by {@link SegmentedAesGcm}, so no Base64 or intermediate copies are needed.
+ *
+ * <pre>
+ *   magic           4 bytes   0x89 'E' 'P' 'S'
+ *   version         1 byte
+ *   flags           1 byte    bit 0: each segment was deflated on its own, see {@link DeflatedSegments}
+ *   segment size    4 bytes
+ *   plain length    8 bytes   only when the deflate flag is set: length of the original paper
+ *   base nonce     12 bytes
+ *   recipient count 2 bytes
+ *   per recipient:  1 byte fingerprint length, recipient key fingerprint,
+ *                   2 byte wrapped key length, wrapped key
+ *   ciphertext      rest of the file
+ * </pre>
+ *
+ * Recipients are tagged with the fingerprint of their public key, so the reader can pick its
+ * wrapped key with a map lookup instead of trying every key with RSA.
+ *
+ * <p>With the deflate flag the segments hold compressed data rather than the paper itself. The
+ * plain length is not known until the whole paper has been compressed, so it is written as a
+ * placeholder and filled in by {@link #writePlainLength} afterwards.
+ */
+public class PaperEnvelope {
+
+    public static final byte VERSION = 1;
+    public static final byte FLAG_SEGMENT_DEFLATE = 0x01;
+
+    private static final byte[] MAGIC = {(byte) 0x89, 'E', 'P', 'S'};
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    private static final int PLAIN_LENGTH_OFFSET = MAGIC.length + 2 + Integer.BYTES;
+
+    private final byte flags;
+    private final int segmentSize;
+    private final byte[] baseNonce;
+    private final long plainLength;
+    private final List<Recipient> recipients;
+    private final Map<String, Recipient> recipientsByFingerprint;
+    private final long headerLength;
+
+    // A data key wrapped for one recipient, tagged with the fingerprint of the recipient's public key
+    public record Recipient(byte[] fingerprint, byte[] wrappedKey) {
+    }
+
+    // flags is 0, or FLAG_SEGMENT_DEFLATE for a paper written with DeflatedSegments
+    public PaperEnvelope(int segmentSize, byte[] baseNonce, List<Recipient> recipients, byte flags) {
+        this(flags, segmentSize, baseNonce, -1, recipients, -1);
+    }
+
+    private PaperEnvelope(byte flags, int segmentSize, byte[] baseNonce, long plainLength,
+                          List<Recipient> recipients, long headerLength) {
+        this.flags = flags;
+        this.segmentSize = segmentSize;
+        this.baseNonce = baseNonce;
+        this.plainLength = plainLength;
+        this.recipients = recipients;
+        this.recipientsByFingerprint = new HashMap<>();
+        for (Recipient recipient : recipients) {
+            recipientsByFingerprint.put(HexFormat.of().formatHex(recipient.fingerprint()), recipient);
+        }
+        this.headerLength = headerLength >= 0 ? headerLength : encodedLength();
+    }
+
+    // True when the stream starts with the envelope magic; legacy Base64 files never do. The stream is reset to where it was
+    public static boolean isEnvelope(InputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        byte[] magic = in.readNBytes(MAGIC.length);
+        in.reset();
+        return Arrays.equals(magic, MAGIC);
+    }
+
+    // Read the header, leaving the stream at the first ciphertext segment
+    public static PaperEnvelope read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not an encrypted paper envelope");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported encrypted paper version: " + version);
+        }
+
+        byte flags = in.readByte();
+        if ((flags & ~FLAG_SEGMENT_DEFLATE) != 0) {
+            throw new IOException("Unsupported encrypted paper flags: " + flags);
+        }
+        int segmentSize = in.readInt();
+        long plainLength = hasPlainLength(flags) ? in.readLong() : -1;
+        byte[] baseNonce = new byte[SegmentedAesGcm.NONCE_LENGTH];
+        in.readFully(baseNonce);
+        int recipientCount = in.readUnsignedShort();
+        long position = MAGIC.length + 2 + Integer.BYTES + SegmentedAesGcm.NONCE_LENGTH + Short.BYTES
+                + (hasPlainLength(flags) ? Long.BYTES : 0);
+
+        List<Recipient> recipients = new ArrayList<>(recipientCount);
+        for (int i = 0; i < recipientCount; i++) {
+            byte[] fingerprint = new byte[in.readUnsignedByte()];
+            in.readFully(fingerprint);
+            byte[] wrappedKey = new byte[in.readUnsignedShort()];
+            in.readFully(wrappedKey);
+            position += 1 + fingerprint.length + Short.BYTES + wrappedKey.length;
+
+            if (position > MAX_HEADER_SIZE) {
+                throw new IOException("Encrypted paper header is too large");
+            }
+            recipients.add(new Recipient(fingerprint, wrappedKey));
+        }
+        return new PaperEnvelope(flags, segmentSize, baseNonce, plainLength, recipients, position);
+    }
+
+    public void write(WritableByteChannel out) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate((int) encodedLength())
+                .put(MAGIC)
+                .put(VERSION)
+                .put(flags)
+                .putInt(segmentSize);
+        if (hasPlainLength(flags)) {
+            header.putLong(plainLength);
+        }
+        header.put(baseNonce)
+                .putShort((short) recipients.size());
+        for (Recipient recipient : recipients) {
+            header.put((byte) recipient.fingerprint().length).put(recipient.fingerprint())
+                    .putShort((short) recipient.wrappedKey().length).put(recipient.wrappedKey());
+        }
+        SegmentedAesGcm.writeFully(out, header.flip());
+    }
+
+    // Fill in the plain length of a compressed paper once it is known; the header must start at position 0
+    public static void writePlainLength(FileChannel out, long plainLength) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(plainLength).flip();
+        long position = PLAIN_LENGTH_OFFSET;
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer, position);
+        }
+    }
+
+    private long encodedLength() {
+        long length = MAGIC.length + 2 + Integer.BYTES + SegmentedAesGcm.NONCE_LENGTH + Short.BYTES
+                + (hasPlainLength(flags) ? Long.BYTES : 0);
+        for (Recipient recipient : recipients) {
+            length += 1 + recipient.fingerprint().length + Short.BYTES + recipient.wrappedKey().length;
+        }
+        return length;
+    }
+
+    private static boolean hasPlainLength(byte flags) {
+        return (flags & FLAG_SEGMENT_DEFLATE) != 0;
+    }
+
+    // Deflated segment by segment, followed by a segment table
+    public boolean isSegmentDeflated() {
+        return (flags & FLAG_SEGMENT_DEFLATE) != 0;
+    }
+
+    // Length of the original paper when it was deflated, -1 otherwise
+    public long getPlainLength() {
+        return plainLength;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public byte[] getBaseNonce() {
+        return baseNonce;
+    }
+
+    public List<Recipient> getRecipients() {
+        return recipients;
+    }
+
+    public Optional<Recipient> findRecipient(byte[] fingerprint) {
+        return Optional.ofNullable(recipientsByFingerprint.get(HexFormat.of().formatHex(fingerprint)));
+    }
+
+    // Offset of the first ciphertext segment in the file
+    public long getHeaderLength() {
+        return headerLength;
+    }
+}
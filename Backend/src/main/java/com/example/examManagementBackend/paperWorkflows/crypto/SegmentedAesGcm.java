@@ -0,0 +1,165 @@
+package com.example.examManagementBackend.paperWorkflows.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+
+/**
+ * AES-GCM over fixed-size plaintext segments. Every segment carries its own tag, so a file can be
+ * encrypted and decrypted with two segment buffers of heap regardless of its size. The segment index
+ * is folded into the nonce and the final segment is marked in the AAD, so segments can neither be
+ * reordered nor truncated without the tag check failing.
+ */
+public final class SegmentedAesGcm {
+
+    public static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    public static final int NONCE_LENGTH = 12;
+    public static final int TAG_LENGTH = 16;
+
+    private static final byte[] MIDDLE_SEGMENT = {0};
+    private static final byte[] FINAL_SEGMENT = {1};
+
+    private SegmentedAesGcm() {
+    }
+
+    // Encrypt everything the stream yields, writing sealed segments to the channel; returns the plaintext length
+    public static long encrypt(Cipher cipher, SecretKey key, byte[] baseNonce, int segmentSize,
+                               InputStream in, WritableByteChannel out) throws IOException, GeneralSecurityException {
+        byte[] current = new byte[segmentSize];
+        byte[] next = new byte[segmentSize];
+        byte[] sealed = new byte[segmentSize + TAG_LENGTH];
+
+        int currentLength = in.readNBytes(current, 0, segmentSize);
+        long plaintextLength = 0;
+        for (int index = 0; ; index++) {
+            // Read one segment ahead so the last segment can be flagged as final
+            int nextLength = currentLength == segmentSize ? in.readNBytes(next, 0, segmentSize) : 0;
+            boolean last = nextLength == 0;
+
+            int sealedLength = sealSegment(cipher, key, baseNonce, index, last, current, currentLength, sealed);
+            writeFully(out, ByteBuffer.wrap(sealed, 0, sealedLength));
+            plaintextLength += currentLength;
+
+            if (last) {
+                return plaintextLength;
+            }
+            byte[] swap = current;
+            current = next;
+            next = swap;
+            currentLength = nextLength;
+        }
+    }
+
+    // Opens a stream over part of the ciphertext, at an offset relative to its first segment
+    @FunctionalInterface
+    public interface CiphertextSource {
+        InputStream open(long offset, long length) throws IOException;
+    }
+
+    // Decrypt every segment the stream yields; the segment after which the stream ends must be the final one
+    public static void decrypt(Cipher cipher, SecretKey key, byte[] baseNonce, int segmentSize,
+                               InputStream in, OutputStream out) throws IOException, GeneralSecurityException {
+        byte[] current = new byte[segmentSize + TAG_LENGTH];
+        byte[] next = new byte[segmentSize + TAG_LENGTH];
+        byte[] plain = new byte[segmentSize];
+
+        int currentLength = in.readNBytes(current, 0, current.length);
+        for (int index = 0; ; index++) {
+            // Read one segment ahead so we know whether this one has to be the final segment
+            int nextLength = currentLength == current.length ? in.readNBytes(next, 0, next.length) : 0;
+            boolean last = nextLength == 0;
+
+            int plainLength = openSegment(cipher, key, baseNonce, index, last, current, currentLength, plain);
+            out.write(plain, 0, plainLength);
+
+            if (last) {
+                return;
+            }
+            byte[] swap = current;
+            current = next;
+            next = swap;
+            currentLength = nextLength;
+        }
+    }
+
+    // Decrypt only the segments covering plaintext bytes first..last (inclusive) and write exactly that range
+    public static void decryptRange(Cipher cipher, SecretKey key, byte[] baseNonce, int segmentSize, long ciphertextLength,
+                                    long first, long last, CiphertextSource source, OutputStream out)
+            throws IOException, GeneralSecurityException {
+        int segmentCount = segmentCount(ciphertextLength, segmentSize);
+        if (first < 0 || last < first || last >= plaintextLength(ciphertextLength, segmentSize)) {
+            throw new IllegalArgumentException("Range " + first + "-" + last + " is outside the paper");
+        }
+        int sealedSize = segmentSize + TAG_LENGTH;
+        byte[] sealed = new byte[sealedSize];
+        byte[] plain = new byte[segmentSize];
+
+        int firstSegment = (int) (first / segmentSize);
+        int lastSegment = (int) (last / segmentSize);
+        long offset = (long) firstSegment * sealedSize;
+        long end = Math.min(ciphertextLength, (long) (lastSegment + 1) * sealedSize);
+        try (InputStream in = source.open(offset, end - offset)) {
+            for (int index = firstSegment; index <= lastSegment; index++) {
+                int sealedLength = in.readNBytes(sealed, 0, (int) Math.min(sealedSize, ciphertextLength - (long) index * sealedSize));
+                int plainLength = openSegment(cipher, key, baseNonce, index, index == segmentCount - 1, sealed, sealedLength, plain);
+
+                long segmentStart = (long) index * segmentSize;
+                int from = index == firstSegment ? (int) (first - segmentStart) : 0;
+                int to = index == lastSegment ? (int) (last - segmentStart) + 1 : plainLength;
+                out.write(plain, from, to - from);
+            }
+        }
+    }
+
+    // Plaintext length of a ciphertext of the given length, known without decrypting anything
+    public static long plaintextLength(long ciphertextLength, int segmentSize) {
+        return ciphertextLength - (long) segmentCount(ciphertextLength, segmentSize) * TAG_LENGTH;
+    }
+
+    // Number of sealed segments in a ciphertext of the given length; an empty plaintext still has one
+    public static int segmentCount(long ciphertextLength, int segmentSize) {
+        long sealedSize = segmentSize + TAG_LENGTH;
+        if (ciphertextLength < TAG_LENGTH) {
+            throw new IllegalArgumentException("Ciphertext is shorter than a single segment tag");
+        }
+        return (int) ((ciphertextLength + sealedSize - 1) / sealedSize);
+    }
+
+    // Encrypt one segment of plaintext into sealed; returns the number of sealed bytes
+    public static int sealSegment(Cipher cipher, SecretKey key, byte[] baseNonce, int index, boolean last,
+                                  byte[] plain, int plainLength, byte[] sealed) throws GeneralSecurityException {
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, segmentNonce(baseNonce, index)));
+        cipher.updateAAD(last ? FINAL_SEGMENT : MIDDLE_SEGMENT);
+        return cipher.doFinal(plain, 0, plainLength, sealed, 0);
+    }
+
+    // Authenticate and decrypt one sealed segment into plain; returns the number of plaintext bytes
+    public static int openSegment(Cipher cipher, SecretKey key, byte[] baseNonce, int index, boolean last,
+                                   byte[] sealed, int sealedLength, byte[] plain) throws GeneralSecurityException {
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, segmentNonce(baseNonce, index)));
+        cipher.updateAAD(last ? FINAL_SEGMENT : MIDDLE_SEGMENT);
+        return cipher.doFinal(sealed, 0, sealedLength, plain, 0);
+    }
+
+    // Nonce for a segment: the base nonce with the segment index XORed into its last four bytes
+    static byte[] segmentNonce(byte[] baseNonce, int index) {
+        byte[] nonce = baseNonce.clone();
+        nonce[NONCE_LENGTH - 4] ^= (byte) (index >>> 24);
+        nonce[NONCE_LENGTH - 3] ^= (byte) (index >>> 16);
+        nonce[NONCE_LENGTH - 2] ^= (byte) (index >>> 8);
+        nonce[NONCE_LENGTH - 1] ^= (byte) index;
+        return nonce;
+    }
+
+    public static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
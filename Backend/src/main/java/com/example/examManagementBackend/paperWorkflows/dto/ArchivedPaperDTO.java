@@ -1,9 +1,13 @@
 package com.example.examManagementBackend.paperWorkflows.dto;
 
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.PaperType;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
 public class ArchivedPaperDTO {
     private Long id;
     private String fileName;
@@ -20,4 +24,26 @@ public class ArchivedPaperDTO {
     private String level;
     private String semester;
     private String degreeName;
+
+    // Used by the single-query projection in ArchivedPaperQueryRepositoryImpl
+    public ArchivedPaperDTO(Long id, String fileName, String filePath, String remarks, String creatorName,
+                            String moderatorName, LocalDateTime sharedAt, LocalDateTime createdAt, String courseCode,
+                            String courseName, PaperType paperType, String year, String level, String semester,
+                            String degreeName) {
+        this.id = id;
+        this.fileName = fileName;
+        this.filePath = filePath;
+        this.remarks = remarks;
+        this.creatorName = creatorName;
+        this.moderatorName = moderatorName;
+        this.sharedAt = sharedAt;
+        this.createdAt = createdAt;
+        this.courseCode = courseCode;
+        this.courseName = courseName;
+        this.paperType = String.valueOf(paperType);
+        this.year = year;
+        this.level = level;
+        this.semester = semester;
+        this.degreeName = degreeName;
+    }
 }
@@ -0,0 +1,25 @@
+package com.example.examManagementBackend.paperWorkflows.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Archive search filters; null or empty fields don't filter
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedPaperSearchCriteria {
+    private String fileName;
+    private String creatorName;
+    private String moderatorName;
+    private String courseCode;
+    private String paperType;
+    private String degreeName;
+    private String year;
+    private String level;
+    private String semester;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+}
@@ -0,0 +1,20 @@
+package com.example.examManagementBackend.paperWorkflows.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One keyset page of archived papers; pass nextCursor back as cursor to get the next one
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedPaperSliceDTO {
+    private List<ArchivedPaperDTO> content;
+    private int size;
+    private boolean hasNext;
+    private Long nextCursor;
+    // Only counted when asked for, since counting costs a scan of every match
+    private Long totalElements;
+}
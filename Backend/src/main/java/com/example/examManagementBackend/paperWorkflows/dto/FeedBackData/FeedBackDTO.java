@@ -18,6 +18,8 @@ public class FeedBackDTO {
     private String courseCode;
     private String courseName;
     private String examination;
+    // Optional; when absent the examination is looked up by name
+    private Long examinationId;
     private String agreeAndAddressed;
     private String notAgreeAndReasons;
 
@@ -0,0 +1,24 @@
+package com.example.examManagementBackend.paperWorkflows.dto;
+
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.FeedbackPdfJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Status of a feedback form rendering job; the PDF is downloadable once status is SUCCEEDED
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedbackPdfJobDTO {
+    private Long id;
+    private String courseCode;
+    private String fileName;
+    private FeedbackPdfJobStatus status;
+    private long size;
+    private String error;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,17 @@
+package com.example.examManagementBackend.paperWorkflows.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FullTextHitDTO {
+    private ArchivedPaperDTO paper;
+    private double score;
+    // Best matching pages first
+    private List<PageSnippetDTO> pages;
+}
@@ -0,0 +1,14 @@
+package com.example.examManagementBackend.paperWorkflows.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A page of an archived paper that matched a full-text search, with the text around the first hit
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageSnippetDTO {
+    private int page;
+    private String snippet;
+}
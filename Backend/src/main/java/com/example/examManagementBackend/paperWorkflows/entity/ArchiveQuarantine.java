@@ -0,0 +1,30 @@
+package com.example.examManagementBackend.paperWorkflows.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// An encrypted paper the archiving job could not archive; it is skipped until an admin releases it
+@Entity
+@Table(name = "archive_quarantine")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ArchiveQuarantine {
+
+    @Id
+    private Long paperId;
+
+    private String fileName;
+
+    @Column(length = 1000)
+    private String error;
+
+    private Long runId;
+
+    @Column(nullable = false, columnDefinition = "DATETIME")
+    private LocalDateTime quarantinedAt;
+}
@@ -0,0 +1,48 @@
+package com.example.examManagementBackend.paperWorkflows.entity;
+
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.ArchiveRunStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One pass of the archiving job; a run left RUNNING by a crash or restart is resumed from its checkpoint
+@Entity
+@Table(name = "archive_runs")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ArchiveRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Papers shared before this time belong to the run; fixed at start so a resumed run covers the same papers
+    @Column(nullable = false, columnDefinition = "DATETIME")
+    private LocalDateTime cutoff;
+
+    // Papers whose id modulo partitionCount equals partitionIndex; several nodes archive partitions in parallel
+    private int partitionIndex;
+
+    private int partitionCount;
+
+    // Checkpoint: every expired paper with an id up to this one has been archived or quarantined
+    private long lastPaperId;
+
+    private int archived;
+
+    private int quarantined;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ArchiveRunStatus status;
+
+    @Column(nullable = false, columnDefinition = "DATETIME")
+    private LocalDateTime startedAt;
+
+    @Column(columnDefinition = "DATETIME")
+    private LocalDateTime finishedAt;
+}
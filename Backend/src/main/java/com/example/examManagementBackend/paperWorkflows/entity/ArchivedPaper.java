@@ -26,6 +26,10 @@ public class ArchivedPaper {
     private String filePath;
     private String remarks;
 
+    // Blob store key of the file; null for papers stored before the blob store existed
+    @Column(length = 64)
+    private String contentHash;
+
     @ManyToOne
     @JoinColumn(name = "creator_id", nullable = false)
     private UserEntity creator;
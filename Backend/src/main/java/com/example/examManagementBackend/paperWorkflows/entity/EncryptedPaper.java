@@ -12,7 +12,9 @@ import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Entity
 @Table(
@@ -38,6 +40,10 @@ public class EncryptedPaper {
     @Column(nullable = false)
     private String filePath;
 
+    // Blob store key of the file; null for papers stored before the blob store existed
+    @Column(length = 64)
+    private String contentHash;
+
     @ManyToOne
     @JoinColumn(name = "creator_id", nullable = false)
     private UserEntity creator;
@@ -46,6 +52,12 @@ public class EncryptedPaper {
     @JoinColumn(name = "moderator_id", nullable = true)
     private UserEntity moderator;
 
+    // Users the file is also encrypted for besides the creator and moderator, kept for re-uploads and migration
+    @ElementCollection
+    @CollectionTable(name = "encrypted_paper_recipients", joinColumns = @JoinColumn(name = "paper_id"))
+    @Column(name = "user_id")
+    private Set<Long> extraRecipientIds = new HashSet<>();
+
     @Column(nullable = false)
     private boolean isShared = false;
 
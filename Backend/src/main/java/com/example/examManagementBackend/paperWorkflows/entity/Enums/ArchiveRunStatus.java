@@ -0,0 +1,6 @@
+package com.example.examManagementBackend.paperWorkflows.entity.Enums;
+
+public enum ArchiveRunStatus {
+    RUNNING,
+    COMPLETED
+}
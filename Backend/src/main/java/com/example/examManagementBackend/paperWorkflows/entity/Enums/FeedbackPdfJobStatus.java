@@ -0,0 +1,8 @@
+package com.example.examManagementBackend.paperWorkflows.entity.Enums;
+
+public enum FeedbackPdfJobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
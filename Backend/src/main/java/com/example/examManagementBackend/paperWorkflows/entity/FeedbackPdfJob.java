@@ -0,0 +1,53 @@
+package com.example.examManagementBackend.paperWorkflows.entity;
+
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.FeedbackPdfJobStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One moderation feedback form waiting for, or done with, rendering; the finished PDF lives in storage under storageKey
+@Entity
+@Table(name = "feedback_pdf_jobs")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class FeedbackPdfJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String courseCode;
+
+    // Examination the form reviews; null for forms submitted before it was recorded or naming no known examination
+    private Long examinationId;
+
+    // Name the PDF is downloaded as
+    @Column(nullable = false)
+    private String fileName;
+
+    // Set once the PDF has been rendered and stored
+    private String storageKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private FeedbackPdfJobStatus status;
+
+    private long size;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(nullable = false, columnDefinition = "DATETIME")
+    private LocalDateTime submittedAt;
+
+    @Column(columnDefinition = "DATETIME")
+    private LocalDateTime startedAt;
+
+    @Column(columnDefinition = "DATETIME")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,37 @@
+package com.example.examManagementBackend.paperWorkflows.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A content-addressed file in the blob store, shared by every paper record with the same content
+@Entity
+@Table(name = "stored_blobs")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class StoredBlob {
+
+    // Hex HMAC-SHA256 of the content (and, for encrypted blobs, of the recipient set), keyed with storage.blob-hash-secret
+    @Id
+    @Column(length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private String filePath;
+
+    private long size;
+
+    // Number of EncryptedPaper and ArchivedPaper rows pointing at this blob
+    private int refCount;
+
+    @Column(nullable = false, columnDefinition = "DATETIME")
+    private LocalDateTime createdAt;
+
+    // Last time the blob was created, acquired or released; garbage collection leaves recently touched blobs alone
+    @Column(nullable = false, columnDefinition = "DATETIME")
+    private LocalDateTime touchedAt;
+}
@@ -0,0 +1,13 @@
+package com.example.examManagementBackend.paperWorkflows.repository;
+
+import com.example.examManagementBackend.paperWorkflows.entity.ArchiveQuarantine;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ArchiveQuarantineRepository extends JpaRepository<ArchiveQuarantine, Long> {
+
+    List<ArchiveQuarantine> findAllByOrderByQuarantinedAtDesc();
+}
@@ -0,0 +1,17 @@
+package com.example.examManagementBackend.paperWorkflows.repository;
+
+import com.example.examManagementBackend.paperWorkflows.entity.ArchiveRun;
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.ArchiveRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ArchiveRunRepository extends JpaRepository<ArchiveRun, Long> {
+
+    Optional<ArchiveRun> findFirstByStatusAndPartitionIndexAndPartitionCountOrderByIdDesc(
+            ArchiveRunStatus status, int partitionIndex, int partitionCount);
+
+    Optional<ArchiveRun> findFirstByOrderByIdDesc();
+}
@@ -0,0 +1,21 @@
+package com.example.examManagementBackend.paperWorkflows.repository;
+
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSearchCriteria;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Archive listings read straight into DTOs with one joined query, instead of loading entities and their associations
+public interface ArchivedPaperQueryRepository {
+
+    // Matching papers newest first. With a cursor, only papers with a smaller id are returned (keyset paging) and offset should be 0
+    List<ArchivedPaperDTO> findProjected(ArchivedPaperSearchCriteria criteria, Long cursor, long offset, int limit);
+
+    long countProjected(ArchivedPaperSearchCriteria criteria);
+
+    Optional<ArchivedPaperDTO> findProjectedById(Long id);
+
+    List<ArchivedPaperDTO> findProjectedByIds(Collection<Long> ids);
+}
@@ -0,0 +1,104 @@
+package com.example.examManagementBackend.paperWorkflows.repository;
+
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSearchCriteria;
+import com.example.examManagementBackend.paperWorkflows.entity.ArchivedPaper;
+import com.example.examManagementBackend.paperWorkflows.specifications.ArchivedPaperSpecification;
+import com.example.examManagementBackend.paperWorkflows.specifications.ArchivedPaperSpecification.ArchivedPaperJoins;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public class ArchivedPaperQueryRepositoryImpl implements ArchivedPaperQueryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ArchivedPaperDTO> findProjected(ArchivedPaperSearchCriteria criteria, Long cursor, long offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ArchivedPaperDTO> query = cb.createQuery(ArchivedPaperDTO.class);
+        Root<ArchivedPaper> root = query.from(ArchivedPaper.class);
+        ArchivedPaperJoins joins = ArchivedPaperJoins.of(root);
+
+        List<Predicate> predicates = ArchivedPaperSpecification.predicates(criteria, cb, root, joins);
+        if (cursor != null) {
+            // Seek past the last row of the previous page on the primary key, so every page costs the same
+            predicates.add(cb.lessThan(root.get("id"), cursor));
+        }
+        query.select(projection(cb, root, joins))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(root.get("id")));
+
+        return entityManager.createQuery(query)
+                .setFirstResult((int) Math.min(offset, Integer.MAX_VALUE))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public long countProjected(ArchivedPaperSearchCriteria criteria) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<ArchivedPaper> root = query.from(ArchivedPaper.class);
+        ArchivedPaperJoins joins = ArchivedPaperJoins.of(root);
+
+        query.select(cb.count(root))
+                .where(ArchivedPaperSpecification.predicates(criteria, cb, root, joins).toArray(new Predicate[0]));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public Optional<ArchivedPaperDTO> findProjectedById(Long id) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ArchivedPaperDTO> query = cb.createQuery(ArchivedPaperDTO.class);
+        Root<ArchivedPaper> root = query.from(ArchivedPaper.class);
+        ArchivedPaperJoins joins = ArchivedPaperJoins.of(root);
+
+        query.select(projection(cb, root, joins)).where(cb.equal(root.get("id"), id));
+        return entityManager.createQuery(query).getResultStream().findFirst();
+    }
+
+    @Override
+    public List<ArchivedPaperDTO> findProjectedByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ArchivedPaperDTO> query = cb.createQuery(ArchivedPaperDTO.class);
+        Root<ArchivedPaper> root = query.from(ArchivedPaper.class);
+        ArchivedPaperJoins joins = ArchivedPaperJoins.of(root);
+
+        query.select(projection(cb, root, joins)).where(root.get("id").in(ids));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // Column order matches the projection constructor of ArchivedPaperDTO
+    private static CompoundSelection<ArchivedPaperDTO> projection(
+            CriteriaBuilder cb, Root<ArchivedPaper> root, ArchivedPaperJoins joins) {
+        return cb.construct(ArchivedPaperDTO.class,
+                root.get("id"),
+                root.get("fileName"),
+                root.get("filePath"),
+                root.get("remarks"),
+                joins.creator().get("username"),
+                joins.moderator().get("username"),
+                root.get("sharedAt"),
+                root.get("createdAt"),
+                joins.course().get("code"),
+                joins.course().get("name"),
+                root.get("paperType"),
+                joins.examination().get("year"),
+                joins.examination().get("level"),
+                joins.examination().get("semester"),
+                joins.degree().get("degreeName"));
+    }
+}
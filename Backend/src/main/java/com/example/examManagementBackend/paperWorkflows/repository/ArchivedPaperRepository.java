@@ -3,9 +3,29 @@ package com.example.examManagementBackend.paperWorkflows.repository;
 import com.example.examManagementBackend.paperWorkflows.entity.ArchivedPaper;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
-public interface ArchivedPaperRepository extends JpaRepository<ArchivedPaper, Long>, JpaSpecificationExecutor<ArchivedPaper> {
+public interface ArchivedPaperRepository extends JpaRepository<ArchivedPaper, Long>, JpaSpecificationExecutor<ArchivedPaper>, ArchivedPaperQueryRepository {
+
+    long countByContentHash(String contentHash);
+
+    @Query("SELECT p.contentHash, COUNT(p) FROM ArchivedPaper p WHERE p.contentHash IS NOT NULL GROUP BY p.contentHash")
+    List<Object[]> countByContentHashGrouped();
+
+    @Query("SELECT p.id FROM ArchivedPaper p")
+    List<Long> findAllIds();
+
+    // id, content hash and file path of each paper, for the full-text indexer
+    @Query("SELECT p.id, p.contentHash, p.filePath FROM ArchivedPaper p")
+    List<Object[]> findAllFileRefs();
+
+    @Query("SELECT p.id, p.contentHash, p.filePath FROM ArchivedPaper p WHERE p.id IN :ids")
+    List<Object[]> findFileRefsByIds(@Param("ids") Collection<Long> ids);
 }
 
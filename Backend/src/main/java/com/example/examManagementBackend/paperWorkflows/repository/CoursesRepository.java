@@ -18,6 +18,10 @@ public interface CoursesRepository extends JpaRepository<CoursesEntity, Long> {
     @Query("SELECT ce.id FROM CoursesEntity ce WHERE ce.code= :code")
     Long getCourseIdByCode(@Param("code") String code);
 
+    // id, code of every course, for the reference data cache
+    @Query("SELECT ce.id, ce.code FROM CoursesEntity ce")
+    List<Object[]> findAllCodes();
+
     @Query("SELECT c FROM CoursesEntity c WHERE c.id= :courseId")
     CoursesEntity findByCourseId(@Param("courseId") Long courseId);
 }
@@ -2,11 +2,17 @@ package com.example.examManagementBackend.paperWorkflows.repository;
 
 import com.example.examManagementBackend.paperWorkflows.entity.DegreeProgramsEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface DegreeProgramRepo extends JpaRepository<DegreeProgramsEntity, Long> {
     Optional<DegreeProgramsEntity> findById(Long id);
+
+    // id, name of every degree program, for the reference data cache
+    @Query("SELECT d.id, d.degreeName FROM DegreeProgramsEntity d")
+    List<Object[]> findAllNames();
 }
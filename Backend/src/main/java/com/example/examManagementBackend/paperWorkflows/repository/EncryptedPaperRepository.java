@@ -3,8 +3,11 @@ package com.example.examManagementBackend.paperWorkflows.repository;
 
 import com.example.examManagementBackend.paperWorkflows.entity.EncryptedPaper;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -15,5 +18,20 @@ public interface EncryptedPaperRepository extends JpaRepository<EncryptedPaper,
     EncryptedPaper findByFileName(String fileName);
     List<EncryptedPaper> findBySharedAtBefore(LocalDateTime date);
 
+    // Next chunk of expired papers in one archiving partition, in id order after its checkpoint, leaving out quarantined papers
+    @Query("SELECT p.id FROM EncryptedPaper p WHERE p.sharedAt < :cutoff AND p.id > :afterId " +
+            "AND MOD(p.id, :partitionCount) = :partition " +
+            "AND NOT EXISTS (SELECT q FROM ArchiveQuarantine q WHERE q.paperId = p.id) ORDER BY p.id")
+    List<Long> findArchivableIds(@Param("cutoff") LocalDateTime cutoff, @Param("afterId") long afterId,
+                                 @Param("partition") int partition, @Param("partitionCount") int partitionCount, Pageable pageable);
+
+    long countByContentHash(String contentHash);
+
+    @Query("SELECT r FROM EncryptedPaper p JOIN p.extraRecipientIds r WHERE p.id = :paperId")
+    List<Long> findExtraRecipientIds(@Param("paperId") Long paperId);
+
+    @Query("SELECT p.contentHash, COUNT(p) FROM EncryptedPaper p WHERE p.contentHash IS NOT NULL GROUP BY p.contentHash")
+    List<Object[]> countByContentHashGrouped();
+
 }
 
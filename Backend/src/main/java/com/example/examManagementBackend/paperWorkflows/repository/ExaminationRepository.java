@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -26,5 +27,14 @@ public interface ExaminationRepository extends JpaRepository<ExaminationEntity,
                                                    @Param("level") String level,
                                                    @Param("semester") String semester);
 
+    // id, year, level, semester, degree name of every examination, for the reference data cache
+    @Query("SELECT e.id, e.year, e.level, e.semester, d.degreeName FROM ExaminationEntity e JOIN e.degreeProgramsEntity d")
+    List<Object[]> findAllNameParts();
+
+    // When the degree program's next examination after the given time started, or null if none has
+    @Query("SELECT MIN(e.examProcessStartDate) FROM ExaminationEntity e " +
+            "WHERE e.degreeProgramsEntity.id = :degreeProgramId AND e.examProcessStartDate > :after")
+    LocalDateTime findNextStartDate(@Param("degreeProgramId") Long degreeProgramId, @Param("after") LocalDateTime after);
+
 
 }
@@ -0,0 +1,34 @@
+package com.example.examManagementBackend.paperWorkflows.repository;
+
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.FeedbackPdfJobStatus;
+import com.example.examManagementBackend.paperWorkflows.entity.FeedbackPdfJob;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface FeedbackPdfJobRepository extends JpaRepository<FeedbackPdfJob, Long> {
+
+    // Latest rendered evaluation form of a course for an examination
+    Optional<FeedbackPdfJob> findFirstByCourseCodeAndStatusAndExaminationIdOrderByIdDesc(
+            String courseCode, FeedbackPdfJobStatus status, Long examinationId);
+
+    // Latest rendered form of a course with no recorded examination, submitted in [since, until)
+    Optional<FeedbackPdfJob> findFirstByCourseCodeAndStatusAndExaminationIdIsNullAndSubmittedAtGreaterThanEqualAndSubmittedAtLessThanOrderByIdDesc(
+            String courseCode, FeedbackPdfJobStatus status, LocalDateTime since, LocalDateTime until);
+
+    // Fail jobs that were queued or running on a node that went away before finishing them
+    @Transactional
+    @Modifying
+    @Query("UPDATE FeedbackPdfJob j SET j.status = :failed, j.error = :error, j.finishedAt = :now " +
+            "WHERE j.status IN :pending AND j.submittedAt < :before")
+    int failAbandoned(@Param("pending") Collection<FeedbackPdfJobStatus> pending, @Param("before") LocalDateTime before,
+                      @Param("failed") FeedbackPdfJobStatus failed, @Param("error") String error, @Param("now") LocalDateTime now);
+}
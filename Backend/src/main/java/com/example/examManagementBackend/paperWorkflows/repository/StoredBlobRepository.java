@@ -0,0 +1,58 @@
+package com.example.examManagementBackend.paperWorkflows.repository;
+
+import com.example.examManagementBackend.paperWorkflows.entity.StoredBlob;
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount + 1, b.touchedAt = :now WHERE b.contentHash = :hash")
+    int acquire(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount - 1, b.touchedAt = :now WHERE b.contentHash = :hash AND b.refCount > 0")
+    int release(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    // Record a blob whose file was just written, or take a reference if another writer recorded it first
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO stored_blobs (content_hash, file_path, size, ref_count, created_at, touched_at) " +
+            "VALUES (:hash, :path, :size, 1, :now, :now) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, touched_at = :now", nativeQuery = true)
+    int insertOrAcquire(@Param("hash") String hash, @Param("path") String path, @Param("size") long size, @Param("now") LocalDateTime now);
+
+    // Locks the row until the transaction ends, so nothing can take a reference while garbage collection decides
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StoredBlob b WHERE b.contentHash = :hash")
+    Optional<StoredBlob> findForUpdate(@Param("hash") String hash);
+
+    // Only blobs untouched since cutoff, so a count a writer has just raised is never overwritten
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = :refCount WHERE b.contentHash = :hash AND b.touchedAt < :cutoff")
+    int updateRefCount(@Param("hash") String hash, @Param("refCount") int refCount, @Param("cutoff") LocalDateTime cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StoredBlob b WHERE b.contentHash = :hash AND b.refCount = 0 AND b.touchedAt < :cutoff")
+    int deleteIfUnreferenced(@Param("hash") String hash, @Param("cutoff") LocalDateTime cutoff);
+
+    List<StoredBlob> findByTouchedAtBefore(LocalDateTime time);
+
+    @Query("SELECT b.filePath FROM StoredBlob b")
+    List<String> findAllFilePaths();
+}
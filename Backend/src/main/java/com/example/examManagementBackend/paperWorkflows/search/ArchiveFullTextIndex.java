@@ -0,0 +1,580 @@
+package com.example.examManagementBackend.paperWorkflows.search;
+
+import com.example.examManagementBackend.paperWorkflows.repository.ArchivedPaperRepository;
+import com.example.examManagementBackend.storage.PaperStorage;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Full-text search over the contents of archived papers. Page text is pulled out of each PDF with
+ * iText on a small worker pool and kept in {@link PaperTextStore}; the postings built from it are
+ * held in memory as packed {@code long}s (document, page, term frequency) and scored per page with
+ * BM25, so a query over thousands of papers takes a few milliseconds. Snippets are cut from the
+ * stored text of the pages that scored best.
+ *
+ * <p>A document is one archived file, keyed by content hash, and may back several papers. Newly
+ * archived or uploaded papers are queued by {@link #index(Collection)}; {@link #reconcile()}
+ * backfills anything missing in parallel, which after a restart only reads the stored text. A
+ * deleted document leaves its postings behind as a tombstone until the nightly {@link #compact()},
+ * which also deletes stored text no paper uses any more, such as that of papers deleted while the
+ * node was down.
+ */
+@Component
+public class ArchiveFullTextIndex {
+
+    // BM25 term frequency saturation and page length normalisation
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final int MAX_PAGES = 0xFFFF;
+    private static final int MAX_QUERY_TERMS = 32;
+    private static final int SNIPPET_PAGES = 3;
+    private static final int SNIPPET_LENGTH = 200;
+    private static final int SNIPPET_LEAD = 60;
+
+    private final ArchivedPaperRepository archivedPaperRepository;
+
+    private final PaperStorage paperStorage;
+
+    private final PaperTextStore textStore;
+
+    private final ExecutorService indexers;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment segment = new Segment();
+    private final Map<String, Set<Long>> papersByKey = new HashMap<>();
+    private final Map<Long, String> keyByPaper = new HashMap<>();
+    private final Map<String, String> filePathByKey = new HashMap<>();
+
+    // Documents queued or being read, so a backfill and a fresh archive don't both extract one
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final LongAdder extracted = new LongAdder();
+    private final LongAdder unreadable = new LongAdder();
+    // Until the first reconcile the maps don't know every paper, so no stored text can be called orphaned
+    private volatile boolean reconciled;
+
+    public record PageHit(int page, String snippet) {
+    }
+
+    public record Hit(long paperId, double score, List<PageHit> pages) {
+    }
+
+    public record Result(List<Hit> hits, int total) {
+    }
+
+    public record Stats(int papers, int documents, long pages, int terms, int pending, long extracted, long unreadable) {
+    }
+
+    public ArchiveFullTextIndex(ArchivedPaperRepository archivedPaperRepository, PaperStorage paperStorage, PaperTextStore textStore,
+                                @Value("${fulltext.workers:2}") int workerCount) {
+        this.archivedPaperRepository = archivedPaperRepository;
+        this.paperStorage = paperStorage;
+        this.textStore = textStore;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.indexers = Executors.newFixedThreadPool(Math.max(1, workerCount), runnable -> {
+            Thread thread = new Thread(runnable, "fulltext-indexer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        indexers.shutdownNow();
+    }
+
+    // Queue newly archived or uploaded papers; their text is extracted in the background
+    public void index(Collection<Long> paperIds) {
+        if (paperIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> refs = archivedPaperRepository.findFileRefsByIds(paperIds);
+        lock.writeLock().lock();
+        try {
+            for (Object[] ref : refs) {
+                assign((Long) ref[0], keyFor((Long) ref[0], (String) ref[1]), (String) ref[2]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleMissing();
+    }
+
+    public void remove(Long paperId) {
+        String dropped;
+        lock.writeLock().lock();
+        try {
+            dropped = unassign(paperId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        deleteText(dropped);
+    }
+
+    @Scheduled(initialDelay = 30000, fixedDelay = 300000) // Thirty seconds after startup, then every five minutes
+    public void reconcile() {
+        // Match the papers to the table, which also picks up papers archived or deleted by other nodes
+        Map<Long, Object[]> stored = new HashMap<>();
+        for (Object[] ref : archivedPaperRepository.findAllFileRefs()) {
+            stored.put((Long) ref[0], ref);
+        }
+        List<String> dropped = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (Long paperId : new ArrayList<>(keyByPaper.keySet())) {
+                if (!stored.containsKey(paperId)) {
+                    dropped.add(unassign(paperId));
+                }
+            }
+            for (Object[] ref : stored.values()) {
+                assign((Long) ref[0], keyFor((Long) ref[0], (String) ref[1]), (String) ref[2]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reconciled = true;
+        dropped.forEach(this::deleteText);
+        scheduleMissing();
+    }
+
+    @Scheduled(cron = "0 45 3 * * ?") // Nightly, to drop the postings and stored text of deleted documents
+    public void compact() {
+        dropOrphanedTexts();
+        Set<String> live;
+        lock.readLock().lock();
+        try {
+            if (segment.removed.isEmpty()) {
+                return;
+            }
+            live = new HashSet<>(papersByKey.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Re-read the stored text into a fresh segment while searches keep using the current one
+        Segment compacted = new Segment();
+        for (String key : live) {
+            try {
+                textStore.read(key).ifPresent(pages -> compacted.add(key, tokenizePages(pages)));
+            } catch (IOException e) {
+                System.err.println("Failed to read stored text of " + key + ": " + e.getMessage());
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            for (String key : live) {
+                if (!papersByKey.containsKey(key)) {
+                    compacted.remove(key);
+                }
+            }
+            segment = compacted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Anything archived while the segment was rebuilt is read in again
+        scheduleMissing();
+    }
+
+    // Delete stored text of documents no paper uses; removals this node saw already did, this catches the rest
+    private void dropOrphanedTexts() {
+        if (!reconciled) {
+            return;
+        }
+        List<String> orphans = new ArrayList<>();
+        try {
+            List<String> stored = textStore.keys();
+            lock.readLock().lock();
+            try {
+                for (String key : stored) {
+                    if (!papersByKey.containsKey(key)) {
+                        orphans.add(key);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to list stored texts: " + e.getMessage());
+            return;
+        }
+        int dropped = 0;
+        for (String key : orphans) {
+            // Checked again under the lock, so a paper archived meanwhile with the same content keeps its text
+            lock.writeLock().lock();
+            try {
+                if (!papersByKey.containsKey(key) && !pending.contains(key)) {
+                    textStore.delete(key);
+                    dropped++;
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to delete stored text of " + key + ": " + e.getMessage());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (dropped > 0) {
+            System.out.println("Deleted stored text of " + dropped + " documents no archived paper uses");
+        }
+    }
+
+    // Papers ranked by how well their pages match the query, with snippets of the best pages
+    public Result search(String query, int offset, int limit) {
+        List<String> terms = queryTerms(query);
+        if (terms.isEmpty()) {
+            return new Result(List.of(), 0);
+        }
+
+        // Hits of the requested page, with the document key and best page indexes of each at the same position
+        List<Hit> slice = new ArrayList<>();
+        List<String> sliceKeys = new ArrayList<>();
+        List<int[]> slicePages = new ArrayList<>();
+        int total;
+        lock.readLock().lock();
+        try {
+            Segment current = segment;
+            Map<Long, Double> pageScores = new HashMap<>();
+            Map<Integer, Integer> matchedTerms = new HashMap<>();
+            double averageLength = current.averagePageLength();
+            for (int t = 0; t < terms.size(); t++) {
+                PostingList postings = current.postings.get(terms.get(t));
+                if (postings == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (current.livePages - postings.size + 0.5) / (postings.size + 0.5));
+                int termBit = 1 << t;
+                for (int i = 0; i < postings.size; i++) {
+                    long entry = postings.entries[i];
+                    int ordinal = (int) (entry >>> 32);
+                    if (current.removed.get(ordinal)) {
+                        continue;
+                    }
+                    int page = (int) ((entry >>> 16) & 0xFFFF);
+                    int tf = (int) (entry & 0xFFFF);
+                    int length = current.pageLengths.get(ordinal)[page];
+                    double score = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+                    pageScores.merge(((long) ordinal << 16) | page, score, Double::sum);
+                    matchedTerms.merge(ordinal, termBit, (a, b) -> a | b);
+                }
+            }
+
+            // A document scores the sum of its pages, scaled by the share of query terms it contains anywhere
+            Map<Integer, Double> documentScores = new HashMap<>();
+            Map<Integer, List<Long>> documentPages = new HashMap<>();
+            pageScores.forEach((pageKey, score) -> {
+                int ordinal = (int) (pageKey >>> 16);
+                documentScores.merge(ordinal, score, Double::sum);
+                documentPages.computeIfAbsent(ordinal, o -> new ArrayList<>()).add(pageKey);
+            });
+            documentScores.replaceAll((ordinal, score) ->
+                    score * Integer.bitCount(matchedTerms.get(ordinal)) / terms.size());
+            List<Integer> ranked = new ArrayList<>(documentScores.keySet());
+            ranked.sort(Comparator.comparingDouble((Integer ordinal) -> documentScores.get(ordinal)).reversed());
+
+            int position = 0;
+            for (int ordinal : ranked) {
+                String key = current.keys.get(ordinal);
+                Set<Long> paperIds = papersByKey.getOrDefault(key, Set.of());
+                for (Long paperId : paperIds.stream().sorted(Comparator.reverseOrder()).toList()) {
+                    if (position >= offset && slice.size() < limit) {
+                        slice.add(new Hit(paperId, documentScores.get(ordinal), new ArrayList<>()));
+                        sliceKeys.add(key);
+                        slicePages.add(documentPages.get(ordinal).stream()
+                                .sorted(Comparator.comparingDouble((Long pageKey) -> pageScores.get(pageKey)).reversed())
+                                .limit(SNIPPET_PAGES)
+                                .mapToInt(pageKey -> (int) (pageKey & 0xFFFF))
+                                .toArray());
+                    }
+                    position++;
+                }
+            }
+            total = position;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Snippets are read from the stored text outside the lock, only for the page being returned
+        Pattern hitPattern = Pattern.compile("(?<![\\p{L}\\p{N}])(" + terms.stream().map(Pattern::quote).collect(Collectors.joining("|")) + ")",
+                Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        Map<String, List<String>> texts = new HashMap<>();
+        for (int i = 0; i < slice.size(); i++) {
+            List<String> pages = texts.computeIfAbsent(sliceKeys.get(i), k -> {
+                try {
+                    return textStore.read(k).orElse(List.of());
+                } catch (IOException e) {
+                    return List.of();
+                }
+            });
+            for (int page : slicePages.get(i)) {
+                slice.get(i).pages().add(new PageHit(page + 1, page < pages.size() ? snippet(pages.get(page), hitPattern) : ""));
+            }
+        }
+        return new Result(slice, total);
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            return new Stats(keyByPaper.size(), segment.keys.size() - segment.removed.cardinality(), segment.livePages,
+                    segment.postings.size(), pending.size(), extracted.sum(), unreadable.sum());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private void assign(Long paperId, String key, String filePath) {
+        String previous = keyByPaper.get(paperId);
+        if (key.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            deleteText(unassign(paperId));
+        }
+        keyByPaper.put(paperId, key);
+        papersByKey.computeIfAbsent(key, k -> new HashSet<>()).add(paperId);
+        filePathByKey.put(key, filePath);
+    }
+
+    // Caller holds the write lock; returns the key of a document no paper uses any more
+    private String unassign(Long paperId) {
+        String key = keyByPaper.remove(paperId);
+        if (key == null) {
+            return null;
+        }
+        Set<Long> paperIds = papersByKey.get(key);
+        paperIds.remove(paperId);
+        if (!paperIds.isEmpty()) {
+            return null;
+        }
+        papersByKey.remove(key);
+        filePathByKey.remove(key);
+        segment.remove(key);
+        return key;
+    }
+
+    // Queue every assigned document that has no postings yet
+    private void scheduleMissing() {
+        Map<String, String> missing = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            filePathByKey.forEach((key, filePath) -> {
+                if (!segment.contains(key) && !pending.contains(key)) {
+                    missing.put(key, filePath);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        missing.forEach((key, filePath) -> {
+            if (!pending.add(key)) {
+                return;
+            }
+            try {
+                indexers.execute(() -> {
+                    try {
+                        load(key, filePath);
+                    } catch (Exception e) {
+                        // Left unindexed; the next reconcile tries again
+                        System.err.println("Failed to index text of archived file " + filePath + ": " + e.getMessage());
+                    } finally {
+                        pending.remove(key);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pending.remove(key);
+            }
+        });
+    }
+
+    private void load(String key, String filePath) throws IOException {
+        List<String> pages = textStore.read(key).orElse(null);
+        if (pages == null) {
+            pages = extract(filePath);
+            textStore.write(key, pages);
+            extracted.increment();
+        }
+        List<Map<String, Integer>> termCounts = tokenizePages(pages);
+
+        lock.writeLock().lock();
+        try {
+            // The paper may have been deleted while its text was read
+            if (papersByKey.containsKey(key) && !segment.contains(key)) {
+                segment.add(key, termCounts);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Text of every page; a file iText cannot parse is kept as a document without pages
+    private List<String> extract(String filePath) throws IOException {
+        byte[] content;
+        try (InputStream in = paperStorage.get(filePath)) {
+            content = in.readAllBytes();
+        }
+        try (PdfDocument pdf = new PdfDocument(new PdfReader(new ByteArrayInputStream(content)))) {
+            int pageCount = Math.min(pdf.getNumberOfPages(), MAX_PAGES);
+            List<String> pages = new ArrayList<>(pageCount);
+            for (int page = 1; page <= pageCount; page++) {
+                pages.add(PdfTextExtractor.getTextFromPage(pdf.getPage(page)));
+            }
+            return pages;
+        } catch (RuntimeException | IOException e) {
+            unreadable.increment();
+            System.err.println("Could not extract text from archived file " + filePath + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    private void deleteText(String key) {
+        if (key == null) {
+            return;
+        }
+        try {
+            textStore.delete(key);
+        } catch (IOException e) {
+            System.err.println("Failed to delete stored text of " + key + ": " + e.getMessage());
+        }
+    }
+
+    private static String keyFor(Long paperId, String contentHash) {
+        // Papers archived before the blob store have no hash and get a document of their own
+        return contentHash != null ? contentHash : "file-" + paperId;
+    }
+
+    private static List<Map<String, Integer>> tokenizePages(List<String> pages) {
+        List<Map<String, Integer>> termCounts = new ArrayList<>(pages.size());
+        for (String page : pages) {
+            Map<String, Integer> counts = new HashMap<>();
+            for (String token : ArchiveSearchIndex.tokenize(page)) {
+                if (token.length() > 1) {
+                    counts.merge(token, 1, Integer::sum);
+                }
+            }
+            termCounts.add(counts);
+        }
+        return termCounts;
+    }
+
+    private static List<String> queryTerms(String query) {
+        return ArchiveSearchIndex.tokenize(query).stream()
+                .filter(token -> token.length() > 1)
+                .collect(Collectors.toCollection(LinkedHashSet::new))
+                .stream()
+                .limit(MAX_QUERY_TERMS)
+                .toList();
+    }
+
+    // About SNIPPET_LENGTH characters of the page starting a little before the first hit, cut at word boundaries
+    private static String snippet(String pageText, Pattern hitPattern) {
+        String text = pageText.replaceAll("\\s+", " ").trim();
+        Matcher matcher = hitPattern.matcher(text);
+        int hit = matcher.find() ? matcher.start() : 0;
+        int start = Math.max(0, hit - SNIPPET_LEAD);
+        if (start > 0) {
+            int space = text.indexOf(' ', start);
+            start = space >= 0 && space < hit ? space + 1 : start;
+        }
+        int end = Math.min(text.length(), start + SNIPPET_LENGTH);
+        if (end < text.length()) {
+            int space = text.lastIndexOf(' ', end);
+            end = space > start ? space : end;
+        }
+        return (start > 0 ? "…" : "") + text.substring(start, end) + (end < text.length() ? "…" : "");
+    }
+
+    // Postings of (document ordinal << 32 | page << 16 | term frequency), appended in document order
+    private static final class PostingList {
+        private long[] entries = new long[4];
+        private int size;
+
+        private void add(long entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+    }
+
+    // Postings and page lengths of a set of documents; replaced as a whole by compact()
+    private static final class Segment {
+        private final Map<String, PostingList> postings = new HashMap<>();
+        private final List<String> keys = new ArrayList<>();
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final List<int[]> pageLengths = new ArrayList<>();
+        private final BitSet removed = new BitSet();
+        private long livePages;
+        private long liveTokens;
+
+        private boolean contains(String key) {
+            return ordinals.containsKey(key);
+        }
+
+        private void add(String key, List<Map<String, Integer>> termCounts) {
+            int ordinal = keys.size();
+            int[] lengths = new int[termCounts.size()];
+            for (int page = 0; page < termCounts.size(); page++) {
+                for (Map.Entry<String, Integer> term : termCounts.get(page).entrySet()) {
+                    int tf = Math.min(term.getValue(), 0xFFFF);
+                    postings.computeIfAbsent(term.getKey(), t -> new PostingList())
+                            .add(((long) ordinal << 32) | ((long) page << 16) | tf);
+                    lengths[page] += term.getValue();
+                }
+                liveTokens += lengths[page];
+            }
+            keys.add(key);
+            ordinals.put(key, ordinal);
+            pageLengths.add(lengths);
+            livePages += lengths.length;
+        }
+
+        // Tombstone a document; its postings are skipped until the segment is rebuilt
+        private void remove(String key) {
+            Integer ordinal = ordinals.remove(key);
+            if (ordinal == null) {
+                return;
+            }
+            removed.set(ordinal);
+            int[] lengths = pageLengths.get(ordinal);
+            livePages -= lengths.length;
+            for (int length : lengths) {
+                liveTokens -= length;
+            }
+        }
+
+        private double averagePageLength() {
+            return livePages == 0 ? 1 : Math.max(1.0, (double) liveTokens / livePages);
+        }
+    }
+}
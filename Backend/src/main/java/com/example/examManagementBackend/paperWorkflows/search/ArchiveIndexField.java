@@ -0,0 +1,48 @@
+package com.example.examManagementBackend.paperWorkflows.search;
+
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperDTO;
+
+import java.util.function.Function;
+
+// Archived paper metadata covered by the search index. Keyword fields, the ones with a facet name, also take exact
+// case-insensitive filters and are counted as facets
+public enum ArchiveIndexField {
+    FILE_NAME(3, null, ArchivedPaperDTO::getFileName),
+    CREATOR(2, null, ArchivedPaperDTO::getCreatorName),
+    MODERATOR(2, null, ArchivedPaperDTO::getModeratorName),
+    COURSE_CODE(3, "courseCode", ArchivedPaperDTO::getCourseCode),
+    COURSE_NAME(2, null, ArchivedPaperDTO::getCourseName),
+    DEGREE(1, "degreeName", ArchivedPaperDTO::getDegreeName),
+    YEAR(1, "year", ArchivedPaperDTO::getYear),
+    LEVEL(1, "level", ArchivedPaperDTO::getLevel),
+    SEMESTER(1, "semester", ArchivedPaperDTO::getSemester),
+    // The projection turns a missing paper type into "null"
+    PAPER_TYPE(1, "paperType", paper -> "null".equals(paper.getPaperType()) ? null : paper.getPaperType());
+
+    private final int weight;
+    private final String facetName;
+    private final Function<ArchivedPaperDTO, String> value;
+
+    ArchiveIndexField(int weight, String facetName, Function<ArchivedPaperDTO, String> value) {
+        this.weight = weight;
+        this.facetName = facetName;
+        this.value = value;
+    }
+
+    public int weight() {
+        return weight;
+    }
+
+    public boolean isKeyword() {
+        return facetName != null;
+    }
+
+    // Named like the matching search parameter
+    public String facetName() {
+        return facetName;
+    }
+
+    public String valueOf(ArchivedPaperDTO paper) {
+        return value.apply(paper);
+    }
+}
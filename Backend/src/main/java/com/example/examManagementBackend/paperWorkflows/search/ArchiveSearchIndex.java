@@ -0,0 +1,476 @@
+package com.example.examManagementBackend.paperWorkflows.search;
+
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSearchCriteria;
+import com.example.examManagementBackend.paperWorkflows.repository.ArchivedPaperRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over archived paper metadata, so archive searches are answered without
+ * joining five tables and scanning {@code LIKE '%x%'} in MySQL. Every field is split into lower-cased
+ * letter/digit tokens kept in one sorted term dictionary keyed {@code FIELD:token}, which makes a
+ * prefix a contiguous key range; fuzzy matching walks a field's terms with a bounded edit distance.
+ * Keyword fields also keep exact values for facet filters.
+ *
+ * <p>Archiving, uploads and deletes update the index as they commit. Changes made by other backend
+ * nodes are picked up by {@link #reconcile()} every few minutes, and renamed users or courses by the
+ * nightly {@link #rebuild()}. Until the first build finishes, {@link #isReady()} is false and callers
+ * fall back to the database.
+ */
+@Component
+public class ArchiveSearchIndex {
+
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    // Scores per field weight; a whole-token match beats a prefix, which beats a near miss
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int FUZZY_SCORE = 1;
+
+    // Shorter tokens have too many neighbours for edit distance to mean anything
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    private final ArchivedPaperRepository archivedPaperRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Sorted by id, so a keyset page walks down from its cursor
+    private final NavigableMap<Long, ArchivedPaperDTO> documents = new TreeMap<>();
+    private final NavigableMap<String, Set<Long>> postings = new TreeMap<>();
+    private final Map<ArchiveIndexField, Map<String, Set<Long>>> keywords = new EnumMap<>(ArchiveIndexField.class);
+    // Spelling of each keyword value as first indexed, for facet labels
+    private final Map<ArchiveIndexField, Map<String, String>> labels = new EnumMap<>(ArchiveIndexField.class);
+
+    private volatile boolean ready;
+
+    public record Stats(boolean ready, int papers, int terms) {
+    }
+
+    public record Facets(int total, Map<String, Map<String, Integer>> facets) {
+    }
+
+    public ArchiveSearchIndex(ArchivedPaperRepository archivedPaperRepository) {
+        this.archivedPaperRepository = archivedPaperRepository;
+        for (ArchiveIndexField field : ArchiveIndexField.values()) {
+            if (field.isKeyword()) {
+                keywords.put(field, new HashMap<>());
+                labels.put(field, new HashMap<>());
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            return new Stats(ready, documents.size(), postings.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Papers matching the criteria and every token of the free-text query, best match first; newest first without a query
+    public List<ArchivedPaperDTO> search(ArchivedPaperSearchCriteria criteria, String query, boolean fuzzy) {
+        List<String> queryTokens = tokenize(query);
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> scores = new HashMap<>();
+            List<ArchivedPaperDTO> matches = match(criteria, queryTokens, fuzzy, scores);
+            Comparator<ArchivedPaperDTO> newestFirst = Comparator.comparing(ArchivedPaperDTO::getId).reversed();
+            matches.sort(queryTokens.isEmpty() ? newestFirst
+                    : Comparator.<ArchivedPaperDTO>comparingInt(paper -> scores.getOrDefault(paper.getId(), 0)).reversed()
+                    .thenComparing(newestFirst));
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The newest papers matching the criteria with an id below the cursor, at most limit of them. Walks the ids down from
+    // the cursor and stops once the page is full, rather than collecting and sorting every match
+    public List<ArchivedPaperDTO> searchAfter(ArchivedPaperSearchCriteria criteria, boolean fuzzy, Long cursor, int limit) {
+        lock.readLock().lock();
+        try {
+            Set<Long> candidates = candidates(criteria, List.of(), fuzzy, new HashMap<>());
+            NavigableMap<Long, ArchivedPaperDTO> below = cursor == null ? documents : documents.headMap(cursor, false);
+            // With a filter, only its own ids need sorting; otherwise the whole archive is walked in id order
+            Iterable<Long> ids = candidates == null ? below.descendingKeySet()
+                    : candidates.stream().filter(below::containsKey).sorted(Comparator.reverseOrder()).toList();
+            List<ArchivedPaperDTO> page = new ArrayList<>();
+            for (Long id : ids) {
+                if (page.size() >= limit) {
+                    break;
+                }
+                ArchivedPaperDTO paper = below.get(id);
+                if (withinDates(paper, criteria.getStartDate(), criteria.getEndDate())) {
+                    page.add(paper);
+                }
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Number of papers matching the criteria, for keyset pages that ask for a total
+    public int count(ArchivedPaperSearchCriteria criteria, boolean fuzzy) {
+        lock.readLock().lock();
+        try {
+            return match(criteria, List.of(), fuzzy, new HashMap<>()).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Number of matching papers per value of every facet field, most common value first. Without filters the counts
+    // are read from the keyword postings, which are kept current as papers come and go; otherwise they are counted
+    // in one pass over the matches
+    public Facets facets(ArchivedPaperSearchCriteria criteria, String query, boolean fuzzy) {
+        List<String> queryTokens = tokenize(query);
+        Map<ArchiveIndexField, Map<String, Integer>> counts = new EnumMap<>(ArchiveIndexField.class);
+        int total;
+        lock.readLock().lock();
+        try {
+            if (queryTokens.isEmpty() && isUnfiltered(criteria)) {
+                keywords.forEach((field, values) -> {
+                    Map<String, Integer> fieldCounts = new HashMap<>();
+                    values.forEach((value, ids) -> fieldCounts.put(labels.get(field).get(value), ids.size()));
+                    counts.put(field, fieldCounts);
+                });
+                total = documents.size();
+            } else {
+                keywords.keySet().forEach(field -> counts.put(field, new HashMap<>()));
+                List<ArchivedPaperDTO> matches = match(criteria, queryTokens, fuzzy, new HashMap<>());
+                for (ArchivedPaperDTO paper : matches) {
+                    counts.forEach((field, fieldCounts) -> {
+                        String value = field.valueOf(paper);
+                        if (value != null) {
+                            fieldCounts.merge(labels.get(field).get(normalize(value)), 1, Integer::sum);
+                        }
+                    });
+                }
+                total = matches.size();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        counts.forEach((field, fieldCounts) -> {
+            Map<String, Integer> sorted = new LinkedHashMap<>();
+            fieldCounts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+            facets.put(field.facetName(), sorted);
+        });
+        return new Facets(total, facets);
+    }
+
+    // Caller holds the read lock; fills scores with the free-text score of each match
+    private List<ArchivedPaperDTO> match(ArchivedPaperSearchCriteria criteria, List<String> queryTokens, boolean fuzzy,
+                                         Map<Long, Integer> scores) {
+        Set<Long> candidates = candidates(criteria, queryTokens, fuzzy, scores);
+        List<ArchivedPaperDTO> matches = new ArrayList<>();
+        for (Long id : candidates == null ? documents.keySet() : candidates) {
+            ArchivedPaperDTO paper = documents.get(id);
+            if (paper != null && withinDates(paper, criteria.getStartDate(), criteria.getEndDate())) {
+                matches.add(paper);
+            }
+        }
+        return matches;
+    }
+
+    // Ids passing every filter and query token, before the date range is applied; null when nothing narrows them down
+    private Set<Long> candidates(ArchivedPaperSearchCriteria criteria, List<String> queryTokens, boolean fuzzy,
+                                 Map<Long, Integer> scores) {
+        Set<Long> candidates = null;
+        candidates = filterKeyword(candidates, ArchiveIndexField.COURSE_CODE, criteria.getCourseCode());
+        candidates = filterKeyword(candidates, ArchiveIndexField.PAPER_TYPE, criteria.getPaperType());
+        candidates = filterKeyword(candidates, ArchiveIndexField.DEGREE, criteria.getDegreeName());
+        candidates = filterKeyword(candidates, ArchiveIndexField.YEAR, criteria.getYear());
+        candidates = filterKeyword(candidates, ArchiveIndexField.LEVEL, criteria.getLevel());
+        candidates = filterKeyword(candidates, ArchiveIndexField.SEMESTER, criteria.getSemester());
+        candidates = filterText(candidates, ArchiveIndexField.FILE_NAME, criteria.getFileName(), fuzzy);
+        candidates = filterText(candidates, ArchiveIndexField.CREATOR, criteria.getCreatorName(), fuzzy);
+        candidates = filterText(candidates, ArchiveIndexField.MODERATOR, criteria.getModeratorName(), fuzzy);
+
+        for (String token : queryTokens) {
+            Map<Long, Integer> tokenScores = scoreToken(List.of(ArchiveIndexField.values()), token, fuzzy);
+            candidates = intersect(candidates, tokenScores.keySet());
+            tokenScores.forEach((id, score) -> scores.merge(id, score, Integer::sum));
+        }
+        return candidates;
+    }
+
+    private static boolean isUnfiltered(ArchivedPaperSearchCriteria criteria) {
+        return Stream.of(criteria.getFileName(), criteria.getCreatorName(), criteria.getModeratorName(), criteria.getCourseCode(),
+                        criteria.getPaperType(), criteria.getDegreeName(), criteria.getYear(), criteria.getLevel(), criteria.getSemester())
+                .allMatch(value -> value == null || value.isBlank())
+                && criteria.getStartDate() == null && criteria.getEndDate() == null;
+    }
+
+    // Index, or re-index, the given papers as they are now in the database; ids that no longer exist are dropped
+    public void refresh(Collection<Long> paperIds) {
+        if (paperIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(paperIds);
+        for (int from = 0; from < ids.size(); from += LOAD_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(ids.size(), from + LOAD_BATCH_SIZE));
+            List<ArchivedPaperDTO> papers = archivedPaperRepository.findProjectedByIds(batch);
+            Set<Long> found = new HashSet<>();
+            lock.writeLock().lock();
+            try {
+                for (ArchivedPaperDTO paper : papers) {
+                    put(paper);
+                    found.add(paper.getId());
+                }
+                for (Long id : batch) {
+                    if (!found.contains(id)) {
+                        remove(id);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public void delete(Long paperId) {
+        lock.writeLock().lock();
+        try {
+            remove(paperId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(initialDelay = 10000, fixedDelay = 300000) // Ten seconds after startup, then every five minutes
+    public void reconcile() {
+        if (!ready) {
+            rebuild();
+            return;
+        }
+        // Pick up papers archived or deleted by other nodes
+        Set<Long> stored = new HashSet<>(archivedPaperRepository.findAllIds());
+        List<Long> changed = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : stored) {
+                if (!documents.containsKey(id)) {
+                    changed.add(id);
+                }
+            }
+            for (Long id : documents.keySet()) {
+                if (!stored.contains(id)) {
+                    changed.add(id);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        refresh(changed);
+    }
+
+    @Scheduled(cron = "0 30 3 * * ?") // Nightly, to pick up renamed users, courses and degrees
+    public void rebuild() {
+        // Load newest first by id so each batch is a cheap keyset query; searches keep using the old index meanwhile
+        List<ArchivedPaperDTO> papers = new ArrayList<>();
+        ArchivedPaperSearchCriteria everything = new ArchivedPaperSearchCriteria();
+        List<ArchivedPaperDTO> batch;
+        Long cursor = null;
+        while (!(batch = archivedPaperRepository.findProjected(everything, cursor, 0, LOAD_BATCH_SIZE)).isEmpty()) {
+            papers.addAll(batch);
+            cursor = batch.get(batch.size() - 1).getId();
+        }
+
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+            keywords.values().forEach(Map::clear);
+            labels.values().forEach(Map::clear);
+            papers.forEach(this::put);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("Archive search index built with " + papers.size() + " papers.");
+    }
+
+    // Caller holds the write lock
+    private void put(ArchivedPaperDTO paper) {
+        remove(paper.getId());
+        documents.put(paper.getId(), paper);
+        for (ArchiveIndexField field : ArchiveIndexField.values()) {
+            String value = field.valueOf(paper);
+            for (String token : tokenize(value)) {
+                postings.computeIfAbsent(termKey(field, token), key -> new HashSet<>()).add(paper.getId());
+            }
+            if (field.isKeyword() && value != null) {
+                keywords.get(field).computeIfAbsent(normalize(value), key -> new HashSet<>()).add(paper.getId());
+                labels.get(field).putIfAbsent(normalize(value), value.trim());
+            }
+        }
+    }
+
+    // Caller holds the write lock
+    private void remove(Long paperId) {
+        ArchivedPaperDTO paper = documents.remove(paperId);
+        if (paper == null) {
+            return;
+        }
+        for (ArchiveIndexField field : ArchiveIndexField.values()) {
+            String value = field.valueOf(paper);
+            for (String token : tokenize(value)) {
+                removePosting(postings, termKey(field, token), paperId);
+            }
+            if (field.isKeyword() && value != null) {
+                removePosting(keywords.get(field), normalize(value), paperId);
+                if (!keywords.get(field).containsKey(normalize(value))) {
+                    labels.get(field).remove(normalize(value));
+                }
+            }
+        }
+    }
+
+    private Set<Long> filterKeyword(Set<Long> candidates, ArchiveIndexField field, String value) {
+        if (value == null || value.isBlank()) {
+            return candidates;
+        }
+        return intersect(candidates, keywords.get(field).getOrDefault(normalize(value), Set.of()));
+    }
+
+    // Every token of the filter has to match a token of the field
+    private Set<Long> filterText(Set<Long> candidates, ArchiveIndexField field, String value, boolean fuzzy) {
+        for (String token : tokenize(value)) {
+            candidates = intersect(candidates, scoreToken(List.of(field), token, fuzzy).keySet());
+        }
+        return candidates;
+    }
+
+    // Best score of each paper with a term in one of the fields equal to, starting with or, when fuzzy, close to the token
+    private Map<Long, Integer> scoreToken(List<ArchiveIndexField> fields, String token, boolean fuzzy) {
+        Map<Long, Integer> scores = new HashMap<>();
+        int maxEdits = token.length() >= 8 ? 2 : 1;
+        for (ArchiveIndexField field : fields) {
+            String key = termKey(field, token);
+            for (Map.Entry<String, Set<Long>> term : postings.subMap(key, true, key + Character.MAX_VALUE, true).entrySet()) {
+                int score = (term.getKey().length() == key.length() ? EXACT_SCORE : PREFIX_SCORE) * field.weight();
+                term.getValue().forEach(id -> scores.merge(id, score, Math::max));
+            }
+            if (!fuzzy || token.length() < MIN_FUZZY_LENGTH) {
+                continue;
+            }
+            String fieldPrefix = termKey(field, "");
+            int score = FUZZY_SCORE * field.weight();
+            for (Map.Entry<String, Set<Long>> term : postings.subMap(fieldPrefix, true, fieldPrefix + Character.MAX_VALUE, true).entrySet()) {
+                String candidate = term.getKey().substring(fieldPrefix.length());
+                if (!candidate.startsWith(token) && withinEditDistance(token, candidate, maxEdits)) {
+                    term.getValue().forEach(id -> scores.merge(id, score, Math::max));
+                }
+            }
+        }
+        return scores;
+    }
+
+    // Levenshtein distance of at most maxEdits, giving up as soon as a row can no longer get there
+    private static boolean withinEditDistance(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) {
+            return false;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+
+    private static boolean withinDates(ArchivedPaperDTO paper, LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate == null && endDate == null) {
+            return true;
+        }
+        LocalDateTime sharedAt = paper.getSharedAt();
+        return sharedAt != null
+                && (startDate == null || !sharedAt.isBefore(startDate))
+                && (endDate == null || !sharedAt.isAfter(endDate));
+    }
+
+    // Null means no filter yet, so the first set is taken as it is
+    private static Set<Long> intersect(Set<Long> candidates, Set<Long> ids) {
+        Set<Long> smaller = candidates == null || ids.size() < candidates.size() ? ids : candidates;
+        Set<Long> larger = smaller == ids ? candidates : ids;
+        Set<Long> result = new HashSet<>();
+        for (Long id : smaller) {
+            if (larger == null || larger.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static void removePosting(Map<String, Set<Long>> map, String key, Long paperId) {
+        Set<Long> ids = map.get(key);
+        if (ids != null && ids.remove(paperId) && ids.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    private static String termKey(ArchiveIndexField field, String token) {
+        return field.name() + ':' + token;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Lower-cased runs of letters and digits; ArchiveFullTextIndex splits PDF text the same way
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : normalize(text).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.examManagementBackend.paperWorkflows.search;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Text extracted from archived PDFs, one gzip file per document under {@code fulltext.index-dir}.
+ * Documents are keyed by the content hash of the archived blob, so papers sharing a file share
+ * its text, and a PDF is only ever parsed once per node: after a restart the full-text index is
+ * rebuilt from these files. A document that could not be parsed is stored with no pages, so it is
+ * not retried on every pass.
+ */
+@Component
+public class PaperTextStore {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String SUFFIX = ".txt.gz";
+
+    private final Path root;
+
+    public PaperTextStore(@Value("${fulltext.index-dir:fulltext-index}") String rootDir) throws IOException {
+        this.root = Paths.get(rootDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+    }
+
+    // Page texts in page order, or empty when the document has never been extracted
+    public Optional<List<String>> read(String key) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(pathFor(key)))))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            int pageCount = in.readInt();
+            List<String> pages = new ArrayList<>(pageCount);
+            for (int i = 0; i < pageCount; i++) {
+                pages.add(new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8));
+            }
+            return Optional.of(pages);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Written to a temporary file and moved into place, so readers never see half a document
+    public void write(String key, List<String> pages) throws IOException {
+        Path target = pathFor(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), key, ".part");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(pages.size());
+                for (String page : pages) {
+                    byte[] bytes = page.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(pathFor(key));
+    }
+
+    // Keys of every stored document
+    public List<String> keys() throws IOException {
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(name -> name.substring(0, name.length() - SUFFIX.length()))
+                    .toList();
+        }
+    }
+
+    // Keys are content hashes or "file-<paper id>", so they are safe as file names; the first two characters fan out the directories
+    private Path pathFor(String key) {
+        if (!key.matches("[A-Za-z0-9-]+")) {
+            throw new IllegalArgumentException("Invalid text store key: " + key);
+        }
+        return root.resolve(key.substring(0, Math.min(2, key.length()))).resolve(key + SUFFIX);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSearchCriteria;
+import com.example.examManagementBackend.paperWorkflows.entity.ExaminationEntity;
+import com.example.examManagementBackend.paperWorkflows.repository.ArchivedPaperRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.storage.PaperStorage;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams archived papers as one ZIP. The matching papers are read from the database once, a keyset
+ * page at a time, and each file is copied from storage straight into its entry. Manifest rows are
+ * spooled to a temporary file as the papers go in and {@code manifest.csv} is written last, so it
+ * lists exactly the entries in the ZIP. No more than a page of rows or a copy buffer is held in
+ * memory, so exporting a whole year takes the same memory as exporting one course.
+ */
+@Service
+public class ArchiveExportService {
+
+    private static final int PAGE_SIZE = 200;
+    private static final String MANIFEST = "manifest.csv";
+    private static final String MISSING = "missing.txt";
+
+    private final ArchivedPaperRepository archivedPaperRepository;
+
+    private final ExaminationRepository examinationRepository;
+
+    private final PaperStorage paperStorage;
+
+    public ArchiveExportService(ArchivedPaperRepository archivedPaperRepository, ExaminationRepository examinationRepository,
+                                PaperStorage paperStorage) {
+        this.archivedPaperRepository = archivedPaperRepository;
+        this.examinationRepository = examinationRepository;
+        this.paperStorage = paperStorage;
+    }
+
+    // Narrow the criteria to one examination, which is identified by its degree, year, level and semester
+    public ArchivedPaperSearchCriteria forExamination(ArchivedPaperSearchCriteria criteria, Long examinationId) {
+        ExaminationEntity examination = examinationRepository.findById(examinationId)
+                .orElseThrow(() -> new IllegalArgumentException("Examination not found with ID: " + examinationId));
+        criteria.setDegreeName(examination.getDegreeProgramsEntity().getDegreeName());
+        criteria.setYear(examination.getYear());
+        criteria.setLevel(examination.getLevel());
+        criteria.setSemester(examination.getSemester());
+        return criteria;
+    }
+
+    public boolean hasMatches(ArchivedPaperSearchCriteria criteria) {
+        return !archivedPaperRepository.findProjected(criteria, null, 0, 1).isEmpty();
+    }
+
+    // Write every matching paper and then the manifest to out as a ZIP; papers whose file has gone are listed in missing.txt
+    public void writeZip(ArchivedPaperSearchCriteria criteria, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        // Papers are mostly PDFs whose streams are compressed already, so don't spend CPU squeezing them again
+        zip.setLevel(Deflater.BEST_SPEED);
+
+        Path rows = Files.createTempFile("manifest", ".part");
+        try {
+            List<String> missing = new ArrayList<>();
+            try (Writer manifest = Files.newBufferedWriter(rows, StandardCharsets.UTF_8)) {
+                forEachPaper(criteria, paper -> {
+                    try (InputStream in = paperStorage.get(paper.getFilePath())) {
+                        zip.putNextEntry(new ZipEntry(entryName(paper)));
+                        in.transferTo(zip);
+                        zip.closeEntry();
+                    } catch (NoSuchFileException e) {
+                        missing.add(paper.getId() + " " + paper.getFileName());
+                        return;
+                    }
+                    manifest.write(manifestRow(paper));
+                });
+            }
+
+            zip.putNextEntry(new ZipEntry(MANIFEST));
+            zip.write("id,entry,file_name,course_code,course_name,degree,year,level,semester,paper_type,creator,moderator,shared_at,remarks\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            Files.copy(rows, zip);
+            zip.closeEntry();
+
+            if (!missing.isEmpty()) {
+                zip.putNextEntry(new ZipEntry(MISSING));
+                zip.write((String.join("\n", missing) + "\n").getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        } finally {
+            Files.deleteIfExists(rows);
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    private static String manifestRow(ArchivedPaperDTO paper) {
+        return String.join(",", csv(String.valueOf(paper.getId())), csv(entryName(paper)),
+                csv(paper.getFileName()), csv(paper.getCourseCode()), csv(paper.getCourseName()), csv(paper.getDegreeName()),
+                csv(paper.getYear()), csv(paper.getLevel()), csv(paper.getSemester()), csv(paper.getPaperType()),
+                csv(paper.getCreatorName()), csv(paper.getModeratorName()),
+                csv(paper.getSharedAt() == null ? null : paper.getSharedAt().toString()), csv(paper.getRemarks())) + "\n";
+    }
+
+    // Visit matching papers newest first, a page at a time
+    private void forEachPaper(ArchivedPaperSearchCriteria criteria, PaperVisitor visitor) throws IOException {
+        Long cursor = null;
+        List<ArchivedPaperDTO> page;
+        while (!(page = archivedPaperRepository.findProjected(criteria, cursor, 0, PAGE_SIZE)).isEmpty()) {
+            for (ArchivedPaperDTO paper : page) {
+                visitor.visit(paper);
+            }
+            cursor = page.get(page.size() - 1).getId();
+        }
+    }
+
+    @FunctionalInterface
+    private interface PaperVisitor {
+        void visit(ArchivedPaperDTO paper) throws IOException;
+    }
+
+    // course/id-file name, so entries are grouped by course and never collide
+    private static String entryName(ArchivedPaperDTO paper) {
+        String name = paper.getFileName() == null || paper.getFileName().isBlank() ? "paper" : paper.getFileName();
+        if (!name.toLowerCase(Locale.ROOT).endsWith(".pdf")) {
+            name = name + ".pdf";
+        }
+        return safe(paper.getCourseCode() == null ? "unknown-course" : paper.getCourseCode()) + "/" + paper.getId() + "-" + safe(name);
+    }
+
+    // Keep entry names to one path segment of printable characters, so nothing can unpack outside its folder
+    private static String safe(String name) {
+        return name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").replaceAll("^\\.+", "_");
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.matches("(?s).*[\",\\r\\n].*")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -0,0 +1,372 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.jobs.service.JobCoordinator;
+import com.example.examManagementBackend.paperWorkflows.entity.StoredBlob;
+import com.example.examManagementBackend.paperWorkflows.repository.ArchivedPaperRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.EncryptedPaperRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.StoredBlobRepository;
+import com.example.examManagementBackend.storage.PaperStorage;
+import com.example.examManagementBackend.storage.StorageKeys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Content-addressed store for paper files. A blob lives at {@code Blobs/ab/cd/abcd...} in {@link PaperStorage}, named by the hex
+ * HMAC-SHA256 of its content, and the {@code stored_blobs} table counts how many EncryptedPaper and
+ * ArchivedPaper rows point at it. Storing content that is already present only bumps that count.
+ * The HMAC key ({@code storage.blob-hash-secret}) never leaves the servers, so someone who can list the
+ * store or read the table cannot confirm a guess at a paper by hashing it themselves.
+ *
+ * <p>Encrypted blobs also hash the sorted recipient ids, because the envelope is only readable by
+ * those users: the same PDF sent to a different moderator is a different blob. Unreferenced blobs,
+ * and files left behind by failed writes, are removed by {@link #collectGarbage()} once they have not
+ * been touched for an hour.
+ *
+ * <p>Several nodes share the table and the files. The collector decides on a blob with its row locked,
+ * so a writer on any node either takes its reference before that and keeps the blob, or finds the
+ * row gone afterwards and writes the file again.
+ */
+@Service
+public class BlobStoreService {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final Duration GC_GRACE_PERIOD = Duration.ofHours(1);
+    private static final String KEY_PREFIX = "Blobs/";
+    private static final String HASH_ALGORITHM = "HmacSHA256";
+
+    // Writes the content of a blob; lets callers decrypt or copy straight into the store
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    private final PaperStorage paperStorage;
+
+    private final StoredBlobRepository blobRepository;
+
+    private final EncryptedPaperRepository encryptedPaperRepository;
+
+    private final ArchivedPaperRepository archivedPaperRepository;
+
+    private final EncryptionService encryptionService;
+
+    private final JobCoordinator jobCoordinator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final SecretKeySpec hashKey;
+
+    // Writers and the collector for the same hash serialise on one of these
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public BlobStoreService(PaperStorage paperStorage, StoredBlobRepository blobRepository,
+                            EncryptedPaperRepository encryptedPaperRepository, ArchivedPaperRepository archivedPaperRepository,
+                            EncryptionService encryptionService, JobCoordinator jobCoordinator,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${storage.blob-hash-secret:}") String hashSecret) {
+        if (hashSecret.isBlank()) {
+            throw new IllegalStateException("storage.blob-hash-secret must be set; blobs are named by an HMAC keyed with it");
+        }
+        this.hashKey = new SecretKeySpec(hashSecret.getBytes(StandardCharsets.UTF_8), HASH_ALGORITHM);
+        this.paperStorage = paperStorage;
+        this.jobCoordinator = jobCoordinator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.blobRepository = blobRepository;
+        this.encryptedPaperRepository = encryptedPaperRepository;
+        this.archivedPaperRepository = archivedPaperRepository;
+        this.encryptionService = encryptionService;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // Store content encrypted for exactly these recipients; a duplicate upload for the same recipients only takes a reference.
+    // The upload is read once: it is hashed on its way into the cipher, and the encrypted temp file is dropped if the blob exists
+    public StoredBlob storeEncrypted(InputStreamSource source, Collection<Long> recipientIds) throws Exception {
+        List<Long> recipients = new ArrayList<>(new TreeSet<>(recipientIds));
+        Mac mac = hmac();
+        mac.update(("recipients:" + recipients + "\n").getBytes(StandardCharsets.UTF_8));
+        Path temp = Files.createTempFile("blob", ".part");
+        try {
+            try (InputStream in = new MacInputStream(source.getInputStream(), mac);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                encryptionService.encryptStreamForUsers(recipients, in, out);
+            }
+            return storeTemp(HexFormat.of().formatHex(mac.doFinal()), temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Store plaintext content, written to a local temporary file while it is hashed and then handed to storage
+    public StoredBlob storePlain(ContentWriter writer) throws Exception {
+        Path temp = Files.createTempFile("blob", ".part");
+        try {
+            Mac mac = hmac();
+            try (OutputStream out = new MacOutputStream(Files.newOutputStream(temp), mac)) {
+                writer.writeTo(out);
+            }
+            return storeTemp(HexFormat.of().formatHex(mac.doFinal()), temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Take a reference to the blob if it is already stored, otherwise hand the temp file to storage and record it
+    private StoredBlob storeTemp(String hash, Path temp) throws IOException {
+        synchronized (lockFor(hash)) {
+            Optional<StoredBlob> existing = acquireExisting(hash);
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+
+            String key = blobKey(hash);
+            paperStorage.put(key, temp);
+            return record(hash, key);
+        }
+    }
+
+    // Drop one reference; the file itself is removed by the next garbage collection
+    public void release(String contentHash) {
+        if (contentHash != null) {
+            blobRepository.release(contentHash, LocalDateTime.now());
+        }
+    }
+
+    // Release a paper's file, deleting it directly when it predates the blob store
+    public void releaseFile(String contentHash, String filePath) throws IOException {
+        if (contentHash != null) {
+            release(contentHash);
+        } else if (filePath != null) {
+            paperStorage.delete(filePath);
+        }
+    }
+
+    @Scheduled(initialDelay = 300000, fixedDelay = 21600000) // Five minutes after startup, then every six hours
+    public void scheduledCollectGarbage() {
+        // One node sweeps the shared store per period
+        jobCoordinator.runExclusive("blob-garbage-collection", Duration.ofHours(5), context -> collectGarbage());
+    }
+
+    public void collectGarbage() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(GC_GRACE_PERIOD);
+        Map<String, Long> references = countReferences();
+
+        int deleted = 0;
+        for (StoredBlob blob : blobRepository.findByTouchedAtBefore(cutoff)) {
+            long referenced = references.getOrDefault(blob.getContentHash(), 0L);
+            if (referenced == blob.getRefCount() && referenced > 0) {
+                continue;
+            }
+            try {
+                if (reconcile(blob.getContentHash(), cutoff)) {
+                    deleted++;
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Failed to delete blob " + blob.getContentHash() + ": " + e.getMessage());
+            }
+        }
+
+        int orphans = deleteOrphanFiles(cutoff);
+        if (deleted > 0 || orphans > 0) {
+            System.out.println("Blob store cleanup removed " + deleted + " unreferenced blobs and " + orphans + " orphaned files.");
+        }
+    }
+
+    // Fix a blob's count from the paper tables and delete it when nothing points at it; true when deleted.
+    // The row stays locked from the count to the delete, so a reference taken on another node in between
+    // waits and then finds the row gone
+    private boolean reconcile(String hash, LocalDateTime cutoff) {
+        synchronized (lockFor(hash)) {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                StoredBlob blob = blobRepository.findForUpdate(hash).orElse(null);
+                if (blob == null || !blob.getTouchedAt().isBefore(cutoff)) {
+                    return false;
+                }
+                long referenced = encryptedPaperRepository.countByContentHash(hash) + archivedPaperRepository.countByContentHash(hash);
+                if (referenced > 0) {
+                    if (referenced != blob.getRefCount()) {
+                        blobRepository.updateRefCount(hash, (int) referenced, cutoff);
+                    }
+                    return false;
+                }
+                if (blobRepository.deleteIfUnreferenced(hash, cutoff) == 0) {
+                    return false;
+                }
+                try {
+                    paperStorage.delete(blob.getFilePath());
+                } catch (IOException e) {
+                    // Keep the row, so the next collection tries the file again
+                    status.setRollbackOnly();
+                    System.err.println("Failed to delete blob " + hash + ": " + e.getMessage());
+                    return false;
+                }
+                return true;
+            }));
+        }
+    }
+
+    // Remove stored objects under the blob prefix that no blob row owns, such as leftovers from interrupted writes
+    private int deleteOrphanFiles(LocalDateTime cutoff) {
+        Set<String> owned = blobRepository.findAllFilePaths().stream()
+                .map(StorageKeys::toKey)
+                .collect(Collectors.toSet());
+        Instant cutoffInstant = cutoff.atZone(ZoneId.systemDefault()).toInstant();
+
+        int deleted = 0;
+        try {
+            for (PaperStorage.StoredObject object : paperStorage.list(KEY_PREFIX)) {
+                if (owned.contains(object.key()) || !object.lastModified().isBefore(cutoffInstant)) {
+                    continue;
+                }
+                // A blob may have been recorded since the owned paths were listed
+                String name = object.key().substring(object.key().lastIndexOf('/') + 1);
+                if (name.length() == 64 && blobRepository.existsById(name)) {
+                    continue;
+                }
+                paperStorage.delete(object.key());
+                deleted++;
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to sweep the blob store: " + e.getMessage());
+        }
+        return deleted;
+    }
+
+    private Map<String, Long> countReferences() {
+        Map<String, Long> references = new HashMap<>();
+        for (Object[] row : encryptedPaperRepository.countByContentHashGrouped()) {
+            references.merge((String) row[0], (Long) row[1], Long::sum);
+        }
+        for (Object[] row : archivedPaperRepository.countByContentHashGrouped()) {
+            references.merge((String) row[0], (Long) row[1], Long::sum);
+        }
+        return references;
+    }
+
+    // Take a reference to a blob that is recorded and whose file is present; empty when it has to be written,
+    // including when garbage collection removed the row after it was read
+    private Optional<StoredBlob> acquireExisting(String hash) throws IOException {
+        Optional<StoredBlob> existing = blobRepository.findById(hash);
+        if (existing.isEmpty() || paperStorage.stat(existing.get().getFilePath()).isEmpty()) {
+            return Optional.empty();
+        }
+        if (blobRepository.acquire(hash, LocalDateTime.now()) == 0) {
+            return Optional.empty();
+        }
+        return existing;
+    }
+
+    // Record a freshly written file, or take a reference if another node recorded the same blob meanwhile
+    private StoredBlob record(String hash, String key) throws IOException {
+        long size = paperStorage.stat(key).map(PaperStorage.StoredObject::size).orElse(0L);
+        blobRepository.insertOrAcquire(hash, key, size, LocalDateTime.now());
+        return blobRepository.findById(hash)
+                .orElseThrow(() -> new IllegalStateException("Blob " + hash + " vanished right after it was stored"));
+    }
+
+    // Two levels of fan-out keep every directory to at most 256 entries
+    private static String blobKey(String hash) {
+        return KEY_PREFIX + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+    }
+
+    private Object lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private Mac hmac() {
+        try {
+            Mac mac = Mac.getInstance(HASH_ALGORITHM);
+            mac.init(hashKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Feeds everything read through it into the MAC
+    private static final class MacInputStream extends FilterInputStream {
+
+        private final Mac mac;
+
+        private MacInputStream(InputStream in, Mac mac) {
+            super(in);
+            this.mac = mac;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                mac.update((byte) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                mac.update(b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            return 0;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    // Feeds everything written through it into the MAC
+    private static final class MacOutputStream extends FilterOutputStream {
+
+        private final Mac mac;
+
+        private MacOutputStream(OutputStream out, Mac mac) {
+            super(out);
+            this.mac = mac;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            mac.update((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            mac.update(b, off, len);
+        }
+    }
+}
@@ -24,9 +24,12 @@ public class CourseService {
 
     private final DegreeProgramRepo degreeProgramRepo;
 
-    public CourseService(CoursesRepository coursesRepository, DegreeProgramRepo degreeProgramRepo) {
+    private final ReferenceDataCache referenceDataCache;
+
+    public CourseService(CoursesRepository coursesRepository, DegreeProgramRepo degreeProgramRepo, ReferenceDataCache referenceDataCache) {
         this.coursesRepository = coursesRepository;
         this.degreeProgramRepo = degreeProgramRepo;
+        this.referenceDataCache = referenceDataCache;
     }
 
     /**
@@ -71,7 +74,9 @@ public class CourseService {
         course.setCourseType(CoursesEntity.CourseType.valueOf(dto.getCourseType())); // Convert string to enum
         course.setDegreeProgramsEntity(degreeProgram);
 
-        return coursesRepository.save(course);
+        CoursesEntity saved = coursesRepository.save(course);
+        referenceDataCache.invalidate();
+        return saved;
     }
 
     /**
@@ -117,6 +122,7 @@ public class CourseService {
                 .orElseThrow(() -> new RuntimeException("Course not found with ID: " + id));
 
         coursesRepository.delete(course);
+        referenceDataCache.invalidate();
     }
     public ResponseEntity<StandardResponse> getCourseByDegreeProgram(String degreeProgram) {
         List<CoursesEntity> coursesEntity=coursesRepository.getdataByDegreeName(degreeProgram);
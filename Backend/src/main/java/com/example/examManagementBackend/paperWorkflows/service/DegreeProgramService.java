@@ -14,8 +14,11 @@ public class DegreeProgramService {
 
     private final DegreeProgramRepo degreeProgramRepo;
 
-    public DegreeProgramService(DegreeProgramRepo degreeProgramRepo) {
+    private final ReferenceDataCache referenceDataCache;
+
+    public DegreeProgramService(DegreeProgramRepo degreeProgramRepo, ReferenceDataCache referenceDataCache) {
         this.degreeProgramRepo = degreeProgramRepo;
+        this.referenceDataCache = referenceDataCache;
     }
 
     /**
@@ -38,6 +41,7 @@ public class DegreeProgramService {
         entity.setUpdatedAt(null); // Initially null for new records
 
         DegreeProgramsEntity savedEntity = degreeProgramRepo.save(entity);
+        referenceDataCache.invalidate();
         return convertToDTO(savedEntity);
     }
 
@@ -62,6 +66,7 @@ public class DegreeProgramService {
         existingProgram.setUpdatedAt(LocalDateTime.now());
 
         DegreeProgramsEntity updatedEntity = degreeProgramRepo.save(existingProgram);
+        referenceDataCache.invalidate();
         return convertToDTO(updatedEntity);
     }
 
@@ -73,6 +78,7 @@ public class DegreeProgramService {
                 .orElseThrow(() -> new RuntimeException("Degree Program not found with ID: " + id));
 
         degreeProgramRepo.delete(existingProgram);
+        referenceDataCache.invalidate();
     }
 
     /**
@@ -1,177 +1,412 @@
 package com.example.examManagementBackend.paperWorkflows.service;
 
+import com.example.examManagementBackend.paperWorkflows.crypto.CryptoContext;
+import com.example.examManagementBackend.paperWorkflows.crypto.DecryptedPaper;
+import com.example.examManagementBackend.paperWorkflows.crypto.DeflatedSegments;
+import com.example.examManagementBackend.paperWorkflows.crypto.KeyPairCache;
+import com.example.examManagementBackend.paperWorkflows.crypto.KeyPairPool;
+import com.example.examManagementBackend.paperWorkflows.crypto.PaperCompression;
+import com.example.examManagementBackend.paperWorkflows.crypto.PaperEnvelope;
+import com.example.examManagementBackend.paperWorkflows.crypto.SegmentedAesGcm;
+import com.example.examManagementBackend.storage.PaperStorage;
 import com.example.examManagementBackend.userManagement.userManagementEntity.UserEntity;
 import com.example.examManagementBackend.userManagement.userManagementRepo.UserManagementRepo;
-import jakarta.annotation.PostConstruct;
-import org.apache.tomcat.util.http.fileupload.ByteArrayOutputStream;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.Cipher;
-import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.*;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.*;
+import java.util.zip.Deflater;
 
 @Service
 public class EncryptionService {
 
 
     private final UserManagementRepo userEntityRepository;
-    public EncryptionService(UserManagementRepo userEntityRepository) {
+    public EncryptionService(UserManagementRepo userEntityRepository, CryptoContext crypto, KeyPairPool keyPairPool,
+                             PaperStorage paperStorage, PaperCompression compression,
+                             @Value("${encryption.key-cache.max-size:1000}") int keyCacheSize) {
         this.userEntityRepository = userEntityRepository;
+        this.crypto = crypto;
+        this.keyPairPool = keyPairPool;
+        this.paperStorage = paperStorage;
+        this.compression = compression;
+        this.userKeyPairs = new KeyPairCache(keyCacheSize);
     }
 
-    private static final String RSA_ALGORITHM = "RSA";
-    private static final String AES_ALGORITHM = "AES";
+    private static final String AES_ALGORITHM = CryptoContext.AES_ALGORITHM;
     private static final int RSA_KEY_SIZE = 2048;
-    private static final int AES_KEY_SIZE = 256;
 
-    private final Map<Long, KeyPair> userKeyPairs = new HashMap<>();
+    public static final int SEGMENT_SIZE = 64 * 1024;
+    private static final int LEGACY_IV_LENGTH = 16;
 
-    // Generate a new key pair for the user if it doesn't already exist
-    public void generateKeyPairForUser(Long userId) throws NoSuchAlgorithmException {
-        UserEntity userEntity = userEntityRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    private final KeyPairCache userKeyPairs;
 
-        if (userEntity.getPublicKey() != null && userEntity.getPrivateKey() != null) {
-            return; // Keys already exist
-        }
+    private final CryptoContext crypto;
 
-        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(RSA_ALGORITHM);
-        keyPairGenerator.initialize(RSA_KEY_SIZE);
-        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+    private final KeyPairPool keyPairPool;
 
-        String publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
-        String privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+    private final PaperStorage paperStorage;
 
-        userEntity.setPublicKey(publicKey);
-        userEntity.setPrivateKey(privateKey);
-        userEntityRepository.save(userEntity);
+    private final PaperCompression compression;
 
-        userKeyPairs.put(userId, keyPair);
+    // Generate a new key pair for the user if it doesn't already exist
+    public void generateKeyPairForUser(Long userId) throws NoSuchAlgorithmException {
+        getKeyPairForUser(userId);
     }
 
     // Ensure that the user's key pair exists, if not, generate a new one
     public void ensureKeyPairExists(Long userId) throws NoSuchAlgorithmException {
-        if (!userKeyPairs.containsKey(userId)) {
-            generateKeyPairForUser(userId);
-        }
+        getKeyPairForUser(userId);
     }
 
-    // Retrieve the key pair for a user from cache or database
+    // Retrieve the key pair for a user from cache, loading or generating it on first use
     public KeyPair getKeyPairForUser(Long userId) {
-        if (!userKeyPairs.containsKey(userId)) {
-            UserEntity userEntity = userEntityRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            try {
-                byte[] publicKeyBytes = Base64.getDecoder().decode(userEntity.getPublicKey());
-                byte[] privateKeyBytes = Base64.getDecoder().decode(userEntity.getPrivateKey());
+        return userKeyPairs.get(userId, this::loadKeyPair);
+    }
 
-                PublicKey publicKey = KeyFactory.getInstance(RSA_ALGORITHM).generatePublic(new X509EncodedKeySpec(publicKeyBytes));
-                PrivateKey privateKey = KeyFactory.getInstance(RSA_ALGORITHM).generatePrivate(new PKCS8EncodedKeySpec(privateKeyBytes));
-                KeyPair keyPair = new KeyPair(publicKey, privateKey);
-                userKeyPairs.put(userId, keyPair); // Cache the key pair
+    public KeyPairCache.Stats getKeyCacheStats() {
+        return userKeyPairs.stats();
+    }
+
+    public KeyPairPool.Stats getKeyPoolStats() {
+        return keyPairPool.stats();
+    }
+
+    public PaperCompression.Stats getCompressionStats() {
+        return compression.stats();
+    }
+
+    // Parse the user's stored keys, generating and saving a new pair if they have none yet
+    private KeyPair loadKeyPair(Long userId) {
+        UserEntity userEntity = userEntityRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        try {
+            if (userEntity.getPublicKey() == null || userEntity.getPrivateKey() == null) {
+                // Take a pre-generated pair so the user's first submission doesn't pay for RSA key generation
+                KeyPair keyPair = keyPairPool.take();
+
+                userEntity.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+                userEntity.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+                userEntityRepository.save(userEntity);
                 return keyPair;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to load keys from database", e);
             }
+
+            byte[] publicKeyBytes = Base64.getDecoder().decode(userEntity.getPublicKey());
+            byte[] privateKeyBytes = Base64.getDecoder().decode(userEntity.getPrivateKey());
+            KeyFactory keyFactory = crypto.rsaKeyFactory();
+            PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(publicKeyBytes));
+            PrivateKey privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(privateKeyBytes));
+            return new KeyPair(publicKey, privateKey);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Failed to load keys from database", e);
         }
-        return userKeyPairs.get(userId);
     }
 
-    // Encrypt data for multiple users (creator and moderator) and return as String
-    public String encryptForMultipleUsers(Long creatorId, Long moderatorId, byte[] data) throws Exception {
-        ensureKeyPairExists(creatorId);
-        ensureKeyPairExists(moderatorId);
+    // Encrypt a stream for every recipient into a local temporary file, then hand the finished file to storage
+    public void encryptToStorage(Collection<Long> recipientIds, InputStream in, String key) throws Exception {
+        Path partialPath = Files.createTempFile("paper", ".part");
+        try {
+            try (FileChannel out = FileChannel.open(partialPath, StandardOpenOption.WRITE)) {
+                encryptStreamForUsers(recipientIds, in, out);
+            }
+            // Only replace the stored paper once the new one is completely written
+            paperStorage.put(key, partialPath);
+        } finally {
+            Files.deleteIfExists(partialPath);
+        }
+    }
+
+    // Encrypt a stream segment by segment, wrapping the data key once per recipient, and write an envelope to the channel.
+    // Papers that deflate well are compressed segment by segment; the envelope flag tells readers to inflate after decrypting
+    public void encryptStreamForUsers(Collection<Long> recipientIds, InputStream in, FileChannel out) throws Exception {
+        if (recipientIds.isEmpty()) {
+            throw new IllegalArgumentException("A paper needs at least one recipient");
+        }
 
-        KeyPair creatorKeyPair = userKeyPairs.get(creatorId);
-        KeyPair moderatorKeyPair = userKeyPairs.get(moderatorId);
+        SecretKey aesKey = crypto.generateAesKey();
+        byte[] baseNonce = crypto.randomBytes(SegmentedAesGcm.NONCE_LENGTH);
 
-        // Generate AES key and IV
-        KeyGenerator keyGen = KeyGenerator.getInstance(AES_ALGORITHM);
-        keyGen.init(AES_KEY_SIZE);
-        SecretKey aesKey = keyGen.generateKey();
-        byte[] iv = new byte[16];
-        new SecureRandom().nextBytes(iv);
-        IvParameterSpec ivSpec = new IvParameterSpec(iv);
+        // Wrap the AES key for each distinct recipient, tagged with the fingerprint of their public key
+        Cipher rsaCipher = crypto.rsaCipher();
+        List<PaperEnvelope.Recipient> recipients = new ArrayList<>();
+        for (Long recipientId : new LinkedHashSet<>(recipientIds)) {
+            PublicKey publicKey = getKeyPairForUser(recipientId).getPublic();
+            rsaCipher.init(Cipher.ENCRYPT_MODE, publicKey);
+            recipients.add(new PaperEnvelope.Recipient(fingerprint(publicKey), rsaCipher.doFinal(aesKey.getEncoded())));
+        }
 
-        // Encrypt AES key with creator's and moderator's public key
-        Cipher rsaCipher = Cipher.getInstance("RSA/ECB/OAEPWithSHA-1AndMGF1Padding");
-        rsaCipher.init(Cipher.ENCRYPT_MODE, creatorKeyPair.getPublic());
-        byte[] encryptedAesKeyForCreator = rsaCipher.doFinal(aesKey.getEncoded());
+        BufferedInputStream plain = new BufferedInputStream(in, SEGMENT_SIZE);
+        boolean deflate = compression.shouldCompress(plain);
+        new PaperEnvelope(SEGMENT_SIZE, baseNonce, recipients, deflate ? PaperEnvelope.FLAG_SEGMENT_DEFLATE : 0).write(out);
 
-        rsaCipher.init(Cipher.ENCRYPT_MODE, moderatorKeyPair.getPublic());
-        byte[] encryptedAesKeyForModerator = rsaCipher.doFinal(aesKey.getEncoded());
+        Cipher aesCipher = crypto.aesCipher();
+        if (!deflate) {
+            SegmentedAesGcm.encrypt(aesCipher, aesKey, baseNonce, SEGMENT_SIZE, plain, out);
+            return;
+        }
+
+        Deflater deflater = compression.newDeflater();
+        try {
+            DeflatedSegments.Written written = DeflatedSegments.encrypt(aesCipher, aesKey, baseNonce, SEGMENT_SIZE,
+                    deflater, plain, out);
+            PaperEnvelope.writePlainLength(out, written.plainLength());
+            compression.recordCompressed(written.plainLength(), written.deflatedLength());
+        } finally {
+            deflater.end();
+        }
+    }
 
-        // Encrypt data with AES
-        Cipher aesCipher = Cipher.getInstance("AES/GCM/NoPadding");
-        GCMParameterSpec gcmSpec = new GCMParameterSpec(128, iv);
-        aesCipher.init(Cipher.ENCRYPT_MODE, aesKey, gcmSpec);
-        byte[] encryptedData = aesCipher.doFinal(data);
+    // Decrypt a stored paper for a user into the output stream, accepting both envelopes and legacy Base64 files
+    public void decryptFileForUser(Long userId, String key, OutputStream out) throws Exception {
+        openPaperForUser(userId, key).writeTo(out);
+    }
 
-        // Combine IV, encrypted AES keys, and encrypted data
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        outputStream.write(iv);
-        outputStream.write(encryptedAesKeyForCreator); // Creator's encrypted AES key
-        outputStream.write(encryptedAesKeyForModerator); // Moderator's encrypted AES key
-        outputStream.write(encryptedData);
+    // Check the user is a recipient and unwrap the paper key now, leaving the bulk decryption for whenever the caller writes it out
+    public DecryptedPaper openPaperForUser(Long userId, String key) throws Exception {
+        PaperEnvelope envelope;
+        try (InputStream in = new BufferedInputStream(paperStorage.get(key))) {
+            if (!PaperEnvelope.isEnvelope(in)) {
+                return openLegacyPaperForUser(userId, key, in);
+            }
+            envelope = PaperEnvelope.read(in);
+        }
 
-        // Return the combined data as Base64 String
-        return Base64.getEncoder().encodeToString(outputStream.toByteArray());
+        SecretKey aesKey = unwrapKeyForUser(userId, envelope);
+        long size = paperStorage.stat(key).orElseThrow(() -> new NoSuchFileException(key)).size();
+        return new EnvelopePaper(key, envelope, aesKey, size - envelope.getHeaderLength());
     }
 
-    // Decrypt data for a specific user (creator or moderator) using String input
-    public byte[] decryptForUser(Long userId, String encryptedData) throws Exception {
-        ensureKeyPairExists(userId);
-        KeyPair keyPair = userKeyPairs.get(userId);
+    // True when the stored paper is still a legacy Base64 file
+    public boolean needsMigration(String key) throws IOException {
+        try (InputStream in = new BufferedInputStream(paperStorage.get(key))) {
+            return !PaperEnvelope.isEnvelope(in);
+        }
+    }
 
-        byte[] decodedData = Base64.getDecoder().decode(encryptedData);
+    // Legacy files are Base64 text of IV, creator key, moderator key and one GCM ciphertext; only the key is unwrapped here
+    private DecryptedPaper openLegacyPaperForUser(Long userId, String key, InputStream stored) throws Exception {
+        InputStream in = Base64.getDecoder().wrap(stored);
+        byte[] iv = readExactly(in, LEGACY_IV_LENGTH);
+        byte[] encryptedAesKeyForCreator = readExactly(in, RSA_KEY_SIZE / 8);
+        byte[] encryptedAesKeyForModerator = readExactly(in, RSA_KEY_SIZE / 8);
+        SecretKey aesKey = tryUnwrapKeyForUser(userId, List.of(encryptedAesKeyForCreator, encryptedAesKeyForModerator));
+        return new LegacyPaper(key, iv, aesKey);
+    }
 
-        // Extract IV, encrypted AES keys, and encrypted file data
-        byte[] iv = Arrays.copyOfRange(decodedData, 0, 16);
-        byte[] encryptedAesKeyForCreator = Arrays.copyOfRange(decodedData, 16, 16 + RSA_KEY_SIZE / 8);
-        byte[] encryptedAesKeyForModerator = Arrays.copyOfRange(decodedData, 16 + RSA_KEY_SIZE / 8, 16 + 2 * RSA_KEY_SIZE / 8);
-        byte[] encryptedFileData = Arrays.copyOfRange(decodedData, 16 + 2 * RSA_KEY_SIZE / 8, decodedData.length);
+    // Pick the user's wrapped key by fingerprint, so unwrapping costs exactly one RSA operation
+    private SecretKey unwrapKeyForUser(Long userId, PaperEnvelope envelope) throws Exception {
+        KeyPair keyPair = getKeyPairForUser(userId);
+        PaperEnvelope.Recipient recipient = envelope.findRecipient(fingerprint(keyPair.getPublic()))
+                .orElseThrow(() -> new GeneralSecurityException("Paper is not encrypted for user " + userId));
 
-        // Decrypt AES key with the user's private key (either creator or moderator)
-        Cipher rsaCipher = Cipher.getInstance("RSA/ECB/OAEPWithSHA-1AndMGF1Padding");
+        Cipher rsaCipher = crypto.rsaCipher();
         rsaCipher.init(Cipher.DECRYPT_MODE, keyPair.getPrivate());
-        byte[] aesKeyBytes;
-        try {
-            aesKeyBytes = rsaCipher.doFinal(encryptedAesKeyForCreator); // Try creator's key
-        } catch (Exception e) {
-            aesKeyBytes = rsaCipher.doFinal(encryptedAesKeyForModerator); // Fallback to moderator's key
+        return new SecretKeySpec(rsaCipher.doFinal(recipient.wrappedKey()), AES_ALGORITHM);
+    }
+
+    // Legacy files have no fingerprints: try each wrapped key with the user's private key until one unwraps
+    private SecretKey tryUnwrapKeyForUser(Long userId, List<byte[]> wrappedKeys) throws Exception {
+        PrivateKey privateKey = getKeyPairForUser(userId).getPrivate();
+        Cipher rsaCipher = crypto.rsaCipher();
+        GeneralSecurityException lastFailure = null;
+        for (byte[] wrappedKey : wrappedKeys) {
+            try {
+                rsaCipher.init(Cipher.DECRYPT_MODE, privateKey);
+                return new SecretKeySpec(rsaCipher.doFinal(wrappedKey), AES_ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                lastFailure = e;
+            }
         }
+        throw new GeneralSecurityException("Paper is not encrypted for user " + userId, lastFailure);
+    }
 
-        SecretKey aesKey = new SecretKeySpec(aesKeyBytes, AES_ALGORITHM);
-        GCMParameterSpec gcmSpec = new GCMParameterSpec(128, iv);
+    // SHA-256 of the X.509 encoding of a public key
+    private byte[] fingerprint(PublicKey publicKey) {
+        return crypto.sha256(publicKey.getEncoded());
+    }
 
-        // Decrypt data with AES
-        Cipher aesCipher = Cipher.getInstance("AES/GCM/NoPadding");
-        aesCipher.init(Cipher.DECRYPT_MODE, aesKey, gcmSpec);
-        return aesCipher.doFinal(encryptedFileData);
+    private static byte[] readExactly(InputStream in, int length) throws IOException {
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new IOException("Encrypted file is truncated");
+        }
+        return bytes;
     }
 
-    @PostConstruct
-    public void loadAllUserKeys() {
-        userEntityRepository.findAll().forEach(userEntity -> {
+    // Segmented envelope: the plaintext length is known up front and any byte range fetches and decrypts just the segments it covers
+    private final class EnvelopePaper implements DecryptedPaper {
+
+        private final String key;
+        private final PaperEnvelope envelope;
+        private final SecretKey aesKey;
+        private final long ciphertextLength;
+        // Where each sealed segment of a segment-deflated paper starts, read on first use
+        private long[] segmentOffsets;
+
+        private EnvelopePaper(String key, PaperEnvelope envelope, SecretKey aesKey, long ciphertextLength) {
+            this.key = key;
+            this.envelope = envelope;
+            this.aesKey = aesKey;
+            this.ciphertextLength = ciphertextLength;
+        }
+
+        @Override
+        public long length() {
+            if (envelope.isSegmentDeflated()) {
+                return envelope.getPlainLength();
+            }
+            return SegmentedAesGcm.plaintextLength(ciphertextLength, envelope.getSegmentSize());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            if (envelope.isSegmentDeflated()) {
+                long[] offsets = segmentOffsets();
+                try (InputStream in = paperStorage.getRange(key, envelope.getHeaderLength(), offsets[offsets.length - 1])) {
+                    DeflatedSegments.decrypt(crypto.aesCipher(), aesKey, envelope.getBaseNonce(), envelope.getSegmentSize(),
+                            envelope.getPlainLength(), offsets, in, out);
+                } catch (GeneralSecurityException e) {
+                    throw new IOException("Failed to decrypt paper " + key, e);
+                }
+                return;
+            }
+            try (InputStream in = paperStorage.getRange(key, envelope.getHeaderLength(), ciphertextLength)) {
+                SegmentedAesGcm.decrypt(crypto.aesCipher(), aesKey, envelope.getBaseNonce(), envelope.getSegmentSize(), in, out);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Failed to decrypt paper " + key, e);
+            }
+        }
+
+        @Override
+        public void writeRange(long first, long last, OutputStream out) throws IOException {
+            SegmentedAesGcm.CiphertextSource source =
+                    (offset, length) -> paperStorage.getRange(key, envelope.getHeaderLength() + offset, length);
             try {
-                byte[] publicKeyBytes = Base64.getDecoder().decode(userEntity.getPublicKey());
-                byte[] privateKeyBytes = Base64.getDecoder().decode(userEntity.getPrivateKey());
-                PublicKey publicKey = KeyFactory.getInstance(RSA_ALGORITHM).generatePublic(new X509EncodedKeySpec(publicKeyBytes));
-                PrivateKey privateKey = KeyFactory.getInstance(RSA_ALGORITHM).generatePrivate(new PKCS8EncodedKeySpec(privateKeyBytes));
-                userKeyPairs.put(userEntity.getUserId(), new KeyPair(publicKey, privateKey));
-            } catch (Exception e) {
-                // Log and handle error
+                if (envelope.isSegmentDeflated()) {
+                    DeflatedSegments.decryptRange(crypto.aesCipher(), aesKey, envelope.getBaseNonce(), envelope.getSegmentSize(),
+                            envelope.getPlainLength(), segmentOffsets(), first, last, source, out);
+                } else {
+                    SegmentedAesGcm.decryptRange(crypto.aesCipher(), aesKey, envelope.getBaseNonce(), envelope.getSegmentSize(),
+                            ciphertextLength, first, last, source, out);
+                }
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Failed to decrypt paper " + key, e);
+            }
+        }
+
+        // The segment table sits at the end of the file
+        private long[] segmentOffsets() throws IOException {
+            if (segmentOffsets == null) {
+                long tableLength = DeflatedSegments.tableLength(envelope.getPlainLength(), envelope.getSegmentSize());
+                long sealedLength = ciphertextLength - tableLength;
+                if (sealedLength < 0) {
+                    throw new IOException("Compressed paper " + key + " is truncated");
+                }
+                try (InputStream in = paperStorage.getRange(key, envelope.getHeaderLength() + sealedLength, tableLength)) {
+                    segmentOffsets = DeflatedSegments.readTable(in, envelope.getPlainLength(), envelope.getSegmentSize(), sealedLength);
+                }
             }
-        });
+            return segmentOffsets;
+        }
     }
 
+    // Legacy file: one GCM ciphertext behind a Base64 layer, so it can only be decoded front to back
+    private final class LegacyPaper implements DecryptedPaper {
 
+        private static final int HEADER_LENGTH = LEGACY_IV_LENGTH + 2 * (RSA_KEY_SIZE / 8);
 
+        private final String key;
+        private final byte[] iv;
+        private final SecretKey aesKey;
+
+        private LegacyPaper(String key, byte[] iv, SecretKey aesKey) {
+            this.key = key;
+            this.iv = iv;
+            this.aesKey = aesKey;
+        }
+
+        @Override
+        public long length() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            try (InputStream in = Base64.getDecoder().wrap(new BufferedInputStream(paperStorage.get(key)))) {
+                in.skipNBytes(HEADER_LENGTH);
+                Cipher aesCipher = crypto.aesCipher();
+                aesCipher.init(Cipher.DECRYPT_MODE, aesKey, new GCMParameterSpec(128, iv));
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    byte[] plain = aesCipher.update(buffer, 0, read);
+                    if (plain != null) {
+                        out.write(plain);
+                    }
+                }
+                out.write(aesCipher.doFinal());
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Failed to decrypt paper " + key, e);
+            }
+        }
+
+        // Nothing to seek to, so decrypt from the start and pass on only bytes first..last; the tag is still checked at the end
+        @Override
+        public void writeRange(long first, long last, OutputStream out) throws IOException {
+            if (first < 0 || last < first) {
+                throw new IllegalArgumentException("Range " + first + "-" + last + " is outside the paper");
+            }
+            RangeOutputStream range = new RangeOutputStream(out, first, last);
+            writeTo(range);
+            if (range.position <= last) {
+                throw new IllegalArgumentException("Range " + first + "-" + last + " is outside the paper");
+            }
+        }
+    }
+
+    // Passes on only the bytes written at positions first..last (inclusive)
+    private static final class RangeOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final long first;
+        private final long last;
+        private long position;
+
+        private RangeOutputStream(OutputStream out, long first, long last) {
+            this.out = out;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = Math.max(position, first);
+            long end = Math.min(position + len, last + 1);
+            if (start < end) {
+                out.write(b, off + (int) (start - position), (int) (end - start));
+            }
+            position += len;
+        }
+    }
 }
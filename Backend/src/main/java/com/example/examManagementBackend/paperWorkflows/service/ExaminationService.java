@@ -38,13 +38,16 @@ public class ExaminationService {
     private final UserRolesRepository userRolesRepository;
     private final DegreeProgramRepo degreeProgramsRepository;
     private final RoleAssignmentRepository roleAssignmentRepository;
+    private final ReferenceDataCache referenceDataCache;
 
-    public ExaminationService(ExaminationRepository examinationRepository, ExaminationTimeTableRepository examinationTimeTableRepository,UserRolesRepository userRolesRepository, DegreeProgramRepo degreeProgramsRepository, RoleAssignmentRepository roleAssignmentRepository) {
+    public ExaminationService(ExaminationRepository examinationRepository, ExaminationTimeTableRepository examinationTimeTableRepository,UserRolesRepository userRolesRepository, DegreeProgramRepo degreeProgramsRepository, RoleAssignmentRepository roleAssignmentRepository,
+                              ReferenceDataCache referenceDataCache) {
         this.examinationRepository = examinationRepository;
         this.examinationTimeTableRepository = examinationTimeTableRepository;
         this.userRolesRepository = userRolesRepository;
         this.degreeProgramsRepository = degreeProgramsRepository;
         this.roleAssignmentRepository = roleAssignmentRepository;
+        this.referenceDataCache = referenceDataCache;
     }
 
 
@@ -67,6 +70,7 @@ public class ExaminationService {
         entity.setMarkingCompleteDate(examinationDTO.getMarkingCompleteDate());
 
         ExaminationEntity savedEntity = examinationRepository.save(entity);
+        referenceDataCache.invalidate();
 
         return mapToDTO(savedEntity);
     }
@@ -104,6 +108,7 @@ public class ExaminationService {
         entity.setMarkingCompleteDate(examinationDTO.getMarkingCompleteDate());
 
         ExaminationEntity updatedEntity = examinationRepository.save(entity);
+        referenceDataCache.invalidate();
         updateGrantAtDates(updatedEntity);
 
         return mapToDTO(updatedEntity);
@@ -115,6 +120,7 @@ public class ExaminationService {
             throw new RuntimeException("Examination not found");
         }
         examinationRepository.deleteById(id);
+        referenceDataCache.invalidate();
     }
 
     private ExaminationDTO mapToDTO(ExaminationEntity entity) {
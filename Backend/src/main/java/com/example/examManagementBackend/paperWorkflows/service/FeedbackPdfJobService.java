@@ -0,0 +1,192 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.jobs.service.JobCoordinator;
+import com.example.examManagementBackend.paperWorkflows.dto.FeedBackData.FeedBackDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.FeedbackPdfJobDTO;
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.FeedbackPdfJobStatus;
+import com.example.examManagementBackend.paperWorkflows.entity.FeedbackPdfJob;
+import com.example.examManagementBackend.paperWorkflows.repository.FeedbackPdfJobRepository;
+import com.example.examManagementBackend.storage.PaperStorage;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders moderation feedback forms off the request thread. Submitted forms wait in a bounded
+ * queue for a small pool of renderer threads; when the queue is full a submission is refused
+ * straight away instead of piling up, so a burst of moderators at the deadline costs neither
+ * Tomcat threads nor unbounded memory. Each job is a row in {@code feedback_pdf_jobs} and its PDF
+ * is kept in storage, so status and downloads work from any backend node.
+ */
+@Service
+public class FeedbackPdfJobService {
+
+    private static final String STORAGE_PREFIX = "moderatorsFeedBacks/";
+    // Rendering takes well under a second; a job still pending after this was on a node that stopped
+    private static final Duration ABANDONED_AFTER = Duration.ofMinutes(15);
+
+    private final PdfGenrationService pdfGenrationService;
+
+    private final FeedbackPdfJobRepository jobRepository;
+
+    private final PaperStorage paperStorage;
+
+    private final JobCoordinator jobCoordinator;
+
+    private final ReferenceDataCache referenceDataCache;
+
+    private final ThreadPoolExecutor renderers;
+
+    // The saved job, and the rendered PDF once its worker finishes
+    public record Submission(FeedbackPdfJobDTO job, CompletableFuture<byte[]> pdf) {
+    }
+
+    public FeedbackPdfJobService(PdfGenrationService pdfGenrationService, FeedbackPdfJobRepository jobRepository,
+                                 PaperStorage paperStorage, JobCoordinator jobCoordinator, ReferenceDataCache referenceDataCache,
+                                 @Value("${pdf.render.workers:2}") int workerCount,
+                                 @Value("${pdf.render.queue-capacity:200}") int queueCapacity) {
+        this.pdfGenrationService = pdfGenrationService;
+        this.jobRepository = jobRepository;
+        this.paperStorage = paperStorage;
+        this.jobCoordinator = jobCoordinator;
+        this.referenceDataCache = referenceDataCache;
+        int workers = Math.max(1, workerCount);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.renderers = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+            Thread thread = new Thread(runnable, "feedback-pdf-renderer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        renderers.shutdownNow();
+    }
+
+    // Queue a form for rendering. Throws IllegalArgumentException for an incomplete form and
+    // RejectedExecutionException when the queue is full, in which case no job is recorded
+    public Submission submit(FeedBackDTO feedBackDTO) {
+        pdfGenrationService.validate(feedBackDTO);
+        if (renderers.getQueue().remainingCapacity() == 0) {
+            throw new RejectedExecutionException("Feedback PDF queue is full");
+        }
+
+        FeedbackPdfJob job = new FeedbackPdfJob();
+        job.setCourseCode(feedBackDTO.getCourseCode());
+        job.setExaminationId(examinationOf(feedBackDTO));
+        job.setFileName(pdfGenrationService.fileNameFor(feedBackDTO));
+        job.setStatus(FeedbackPdfJobStatus.QUEUED);
+        job.setSubmittedAt(LocalDateTime.now());
+        FeedbackPdfJob saved = jobRepository.save(job);
+        // Taken before the worker starts changing the entity
+        FeedbackPdfJobDTO queued = toDTO(saved);
+
+        CompletableFuture<byte[]> pdf = new CompletableFuture<>();
+        try {
+            renderers.execute(() -> render(saved, feedBackDTO, pdf));
+        } catch (RejectedExecutionException e) {
+            // Lost the race for the last queue slot
+            jobRepository.deleteById(saved.getId());
+            throw e;
+        }
+        return new Submission(queued, pdf);
+    }
+
+    // The examination is typed in as free text, so a name that matches none, or several, leaves it unknown
+    private Long examinationOf(FeedBackDTO feedBackDTO) {
+        if (feedBackDTO.getExaminationId() != null) {
+            return feedBackDTO.getExaminationId();
+        }
+        try {
+            return referenceDataCache.examinationId(feedBackDTO.getExamination());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public Optional<FeedbackPdfJobDTO> getJob(Long id) {
+        return jobRepository.findById(id).map(this::toDTO);
+    }
+
+    // The stored PDF of a finished job; empty while it is pending, or when it failed
+    public Optional<InputStream> openResult(Long id) throws IOException {
+        Optional<FeedbackPdfJob> job = jobRepository.findById(id);
+        if (job.isEmpty() || job.get().getStatus() != FeedbackPdfJobStatus.SUCCEEDED) {
+            return Optional.empty();
+        }
+        return Optional.of(paperStorage.get(job.get().getStorageKey()));
+    }
+
+    public int getQueuedCount() {
+        return renderers.getQueue().size();
+    }
+
+    @Scheduled(initialDelay = 120000, fixedDelay = 600000) // Two minutes after startup, then every ten minutes, on one node of the cluster
+    public void failAbandonedJobs() {
+        jobCoordinator.runExclusive("feedback-pdf-job-sweep", Duration.ofMinutes(9), context -> {
+            int failed = jobRepository.failAbandoned(List.of(FeedbackPdfJobStatus.QUEUED, FeedbackPdfJobStatus.RUNNING),
+                    LocalDateTime.now().minus(ABANDONED_AFTER), FeedbackPdfJobStatus.FAILED,
+                    "Abandoned: the node rendering it stopped", LocalDateTime.now());
+            if (failed > 0) {
+                System.out.println("Marked " + failed + " abandoned feedback PDF job(s) as failed");
+            }
+        });
+    }
+
+    private void render(FeedbackPdfJob job, FeedBackDTO feedBackDTO, CompletableFuture<byte[]> pdf) {
+        try {
+            job.setStatus(FeedbackPdfJobStatus.RUNNING);
+            job.setStartedAt(LocalDateTime.now());
+            jobRepository.save(job);
+
+            byte[] bytes = pdfGenrationService.render(feedBackDTO);
+            // The job id keeps forms for the same course and month from overwriting each other
+            String storageKey = STORAGE_PREFIX + job.getSubmittedAt().getYear() + "/"
+                    + job.getFileName().replaceFirst("\\.pdf$", "") + "_" + job.getId() + ".pdf";
+            paperStorage.put(storageKey, bytes);
+
+            job.setStorageKey(storageKey);
+            job.setSize(bytes.length);
+            job.setStatus(FeedbackPdfJobStatus.SUCCEEDED);
+            job.setFinishedAt(LocalDateTime.now());
+            jobRepository.save(job);
+            pdf.complete(bytes);
+        } catch (Exception e) {
+            System.err.println("Rendering feedback PDF job " + job.getId() + " failed: " + e.getMessage());
+            job.setStatus(FeedbackPdfJobStatus.FAILED);
+            job.setError(e.getMessage() == null ? e.getClass().getSimpleName() : truncate(e.getMessage()));
+            job.setFinishedAt(LocalDateTime.now());
+            try {
+                jobRepository.save(job);
+            } catch (RuntimeException saveFailure) {
+                System.err.println("Could not record failure of feedback PDF job " + job.getId() + ": " + saveFailure.getMessage());
+            }
+            pdf.completeExceptionally(e);
+        }
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+
+    private FeedbackPdfJobDTO toDTO(FeedbackPdfJob job) {
+        return new FeedbackPdfJobDTO(job.getId(), job.getCourseCode(), job.getFileName(), job.getStatus(), job.getSize(),
+                job.getError(), job.getSubmittedAt(), job.getStartedAt(), job.getFinishedAt());
+    }
+}
@@ -1,10 +1,15 @@
 package com.example.examManagementBackend.paperWorkflows.service;
 
+import com.example.examManagementBackend.paperWorkflows.crypto.DecryptedPaper;
+import com.example.examManagementBackend.paperWorkflows.crypto.KeyPairCache;
+import com.example.examManagementBackend.paperWorkflows.crypto.KeyPairPool;
+import com.example.examManagementBackend.paperWorkflows.crypto.PaperCompression;
 import com.example.examManagementBackend.paperWorkflows.entity.Enums.PaperType;
 import com.example.examManagementBackend.paperWorkflows.entity.ExaminationEntity;
 import com.example.examManagementBackend.paperWorkflows.entity.CoursesEntity;
 import com.example.examManagementBackend.paperWorkflows.entity.EncryptedPaper;
 import com.example.examManagementBackend.paperWorkflows.entity.Enums.ExamPaperStatus;
+import com.example.examManagementBackend.paperWorkflows.entity.StoredBlob;
 import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
 import com.example.examManagementBackend.paperWorkflows.repository.CoursesRepository;
 import com.example.examManagementBackend.paperWorkflows.repository.EncryptedPaperRepository;
@@ -14,11 +19,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class FileService {
@@ -34,96 +37,91 @@ public class FileService {
     final
     ExaminationRepository examinationRepository;
 
-    private final String UPLOAD_DIR = "src/main/resources/Encrypted_Papers/";
+    private final BlobStoreService blobStoreService;
 
-    public FileService(EncryptionService encryptionService, EncryptedPaperRepository encryptedPaperRepository, UserManagementRepo userRepository, CoursesRepository coursesRepository, ExaminationRepository examinationRepository) {
+    public FileService(EncryptionService encryptionService, EncryptedPaperRepository encryptedPaperRepository, UserManagementRepo userRepository, CoursesRepository coursesRepository, ExaminationRepository examinationRepository, BlobStoreService blobStoreService) {
         this.encryptionService = encryptionService;
+        this.blobStoreService = blobStoreService;
         this.encryptedPaperRepository = encryptedPaperRepository;
         this.userRepository = userRepository;
         this.coursesRepository = coursesRepository;
         this.examinationRepository = examinationRepository;
     }
 
-    public void saveEncryptedPaper(String encryptedFile, Long creatorId, String fileName, Long moderatorId, Long courseId, String remarks, Long examinationId, String paperType) {
-        // Validate courseId
-        CoursesEntity course = coursesRepository.findById(courseId)
-                .orElseThrow(() -> new IllegalArgumentException("Course with ID " + courseId + " not found."));
-
-        // Validate examinationId
-        ExaminationEntity examination = examinationRepository.findById(examinationId)
-                .orElseThrow(() -> new RuntimeException("Academic year with ID " + examinationId + " not found."));
-
-        // Create and populate the EncryptedPaper entity
-        EncryptedPaper encryptedPaper = new EncryptedPaper();
-        encryptedPaper.setFileName(fileName);
-
-        // Save the file to the storage location and set the path
-        String filePath = saveFileToStorage(encryptedFile, fileName);
-        encryptedPaper.setFilePath(filePath);
-
-        // Fetch and set creator
-        encryptedPaper.setCreator(userRepository.findById(creatorId)
-                .orElseThrow(() -> new RuntimeException("Creator not found.")));
-
-        // Fetch and set moderator
-        encryptedPaper.setModerator(userRepository.findById(moderatorId)
-                .orElseThrow(() -> new RuntimeException("Moderator not found.")));
-
-        encryptedPaper.setRemarks(remarks);
-        encryptedPaper.setExamination(examination);
-        encryptedPaper.setPaperType(PaperType.valueOf(paperType));
-        encryptedPaper.setCourse(course);
-        // Save the EncryptedPaper entity
-        encryptedPaperRepository.save(encryptedPaper);
-
-    }
-
-    public void updateEncryptedPaper(Long paperId, String encryptedFile, String fileName, String remarks) {
-        // Retrieve the existing paper
-        EncryptedPaper existingPaper = encryptedPaperRepository.findById(paperId)
-                .orElseThrow(() -> new RuntimeException("Paper not found with ID: " + paperId));
-
-        // If the file name is different, delete the old file from the system
-        if (!existingPaper.getFileName().equals(fileName)) {
-            try {
-                Files.deleteIfExists(Paths.get(existingPaper.getFilePath()));
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to delete existing file: " + e.getMessage());
-            }
+    public void saveEncryptedPaper(StoredBlob blob, Long creatorId, String fileName, Long moderatorId, Long courseId, String remarks, Long examinationId, String paperType,
+                                   Set<Long> extraRecipientIds) {
+        try {
+            // Validate courseId
+            CoursesEntity course = coursesRepository.findById(courseId)
+                    .orElseThrow(() -> new IllegalArgumentException("Course with ID " + courseId + " not found."));
+
+            // Validate examinationId
+            ExaminationEntity examination = examinationRepository.findById(examinationId)
+                    .orElseThrow(() -> new RuntimeException("Academic year with ID " + examinationId + " not found."));
+
+            // Create and populate the EncryptedPaper entity
+            EncryptedPaper encryptedPaper = new EncryptedPaper();
+            encryptedPaper.setFileName(fileName);
+
+            // The encrypted file is already in the blob store, just record which blob
+            encryptedPaper.setFilePath(blob.getFilePath());
+            encryptedPaper.setContentHash(blob.getContentHash());
+
+            // Fetch and set creator
+            encryptedPaper.setCreator(userRepository.findById(creatorId)
+                    .orElseThrow(() -> new RuntimeException("Creator not found.")));
+
+            // Fetch and set moderator
+            encryptedPaper.setModerator(userRepository.findById(moderatorId)
+                    .orElseThrow(() -> new RuntimeException("Moderator not found.")));
+
+            encryptedPaper.setExtraRecipientIds(new HashSet<>(extraRecipientIds));
+            encryptedPaper.setRemarks(remarks);
+            encryptedPaper.setExamination(examination);
+            encryptedPaper.setPaperType(PaperType.valueOf(paperType));
+            encryptedPaper.setCourse(course);
+            // Save the EncryptedPaper entity
+            encryptedPaperRepository.save(encryptedPaper);
+        } catch (RuntimeException e) {
+            // No record points at the blob, give back the reference taken by the upload
+            blobStoreService.release(blob.getContentHash());
+            throw e;
         }
-
-        // Save the new file to the storage and get the path
-        String filePath = saveFileToStorage(encryptedFile, fileName);
-
-        // Update the paper fields
-        existingPaper.setFileName(fileName);
-        existingPaper.setFilePath(filePath);
-        existingPaper.setRemarks(remarks);
-
-        // Save the updated paper record
-        encryptedPaperRepository.save(existingPaper);
     }
 
-
-    private String saveFileToStorage(String encryptedFile, String fileName) {
-        // Validate the file name to prevent path traversal
-        if (fileName.contains("..") || fileName.contains("/") || fileName.contains("\\")) {
-            throw new IllegalArgumentException("Invalid file name");
+    public void updateEncryptedPaper(Long paperId, StoredBlob blob, String fileName, String remarks, Set<Long> extraRecipientIds) {
+        String oldContentHash;
+        String oldFilePath;
+        try {
+            // Retrieve the existing paper
+            EncryptedPaper existingPaper = encryptedPaperRepository.findById(paperId)
+                    .orElseThrow(() -> new RuntimeException("Paper not found with ID: " + paperId));
+            oldContentHash = existingPaper.getContentHash();
+            oldFilePath = existingPaper.getFilePath();
+
+            // Update the paper fields
+            existingPaper.setFileName(fileName);
+            existingPaper.setFilePath(blob.getFilePath());
+            existingPaper.setContentHash(blob.getContentHash());
+            existingPaper.setExtraRecipientIds(new HashSet<>(extraRecipientIds));
+            existingPaper.setRemarks(remarks);
+
+            // Save the updated paper record
+            encryptedPaperRepository.save(existingPaper);
+        } catch (RuntimeException e) {
+            blobStoreService.release(blob.getContentHash());
+            throw e;
         }
 
-        // Store the encrypted file to a location and return the file path
+        // Then let go of the old file; an unchanged re-upload simply took and dropped a reference to the same blob
         try {
-            Path path = Paths.get(UPLOAD_DIR).resolve(fileName).normalize();
-            if (!path.startsWith(Paths.get(UPLOAD_DIR).normalize())) {
-                throw new IllegalArgumentException("Invalid file name");
-            }
-            Files.write(path, encryptedFile.getBytes()); // Save file bytes
-            return path.toString(); // Return file path
+            blobStoreService.releaseFile(oldContentHash, oldFilePath);
         } catch (IOException e) {
-            throw new RuntimeException("Failed to save file: " + e.getMessage());
+            throw new RuntimeException("Failed to delete existing file: " + e.getMessage());
         }
     }
 
+
     public EncryptedPaper getEncryptedPaperById(Long id) {
         return encryptedPaperRepository.findById(id).orElse(null);
     }
@@ -136,34 +134,38 @@ public class FileService {
         EncryptedPaper encryptedPaper = encryptedPaperRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Paper not found"));
 
-        // Delete the file from the file system
+        // Delete the database record
+        encryptedPaperRepository.deleteById(id);
+
+        // Release the stored file; the blob is removed once no other paper uses it
         try {
-            Files.deleteIfExists(Paths.get(encryptedPaper.getFilePath()));
+            blobStoreService.releaseFile(encryptedPaper.getContentHash(), encryptedPaper.getFilePath());
         } catch (IOException e) {
             throw new RuntimeException("Failed to delete file: " + e.getMessage());
         }
+    }
 
-        // Delete the database record
-        encryptedPaperRepository.deleteById(id);
+
+    // Encrypt the upload into the blob store, or just reference the existing blob when the same file was already stored for these recipients
+    public StoredBlob uploadAndEncryptFileForUsers(MultipartFile file, List<Long> recipientIds) throws Exception {
+        return blobStoreService.storeEncrypted(file, recipientIds);
     }
 
+    // Open a stored paper for a user; the caller streams the plaintext, whole or by byte range
+    public DecryptedPaper openPaperForUser(Long userId, String filePath) throws Exception {
+        return encryptionService.openPaperForUser(userId, filePath);
+    }
 
-    public String uploadAndEncryptFileForUsers(MultipartFile file, Long creatorId, Long moderatorId) throws Exception {
+    public KeyPairCache.Stats getKeyCacheStats() {
+        return encryptionService.getKeyCacheStats();
+    }
 
-        byte[] fileBytes = file.getBytes();
-        return encryptionService.encryptForMultipleUsers(creatorId, moderatorId, fileBytes);
+    public KeyPairPool.Stats getKeyPoolStats() {
+        return encryptionService.getKeyPoolStats();
     }
 
-    public byte[] decryptFileForUser(Long userId, String filePath) throws Exception {
-        try {
-            // Read the file content
-            byte[] fileBytes = Files.readAllBytes(Paths.get(filePath));
-            String base64EncodedFile = new String(fileBytes, StandardCharsets.UTF_8);
-            // Decrypt the file content
-            return encryptionService.decryptForUser(userId, base64EncodedFile);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read the file: " + e.getMessage());
-        }
+    public PaperCompression.Stats getCompressionStats() {
+        return encryptionService.getCompressionStats();
     }
 
     public ExamPaperStatus getPaperStatus(Long id) {
@@ -0,0 +1,387 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.paperWorkflows.entity.CoursesEntity;
+import com.example.examManagementBackend.paperWorkflows.entity.EncryptedPaper;
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.FeedbackPdfJobStatus;
+import com.example.examManagementBackend.paperWorkflows.entity.ExaminationEntity;
+import com.example.examManagementBackend.paperWorkflows.entity.FeedbackPdfJob;
+import com.example.examManagementBackend.paperWorkflows.entity.QuestionStructureEntity;
+import com.example.examManagementBackend.paperWorkflows.entity.SubQuestionEntity;
+import com.example.examManagementBackend.paperWorkflows.entity.SubSubQuestionEntity;
+import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.FeedbackPdfJobRepository;
+import com.example.examManagementBackend.resultManagement.entities.ExamTimeTablesEntity;
+import com.example.examManagementBackend.storage.PaperStorage;
+import com.example.examManagementBackend.userManagement.userManagementEntity.UserEntity;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.colors.DeviceRgb;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.CompressionConstants;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfOutline;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.WriterProperties;
+import com.itextpdf.kernel.pdf.navigation.PdfExplicitDestination;
+import com.itextpdf.kernel.utils.PdfMerger;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.borders.Border;
+import com.itextpdf.layout.borders.SolidBorder;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.properties.TextAlignment;
+import com.itextpdf.layout.properties.UnitValue;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One PDF with the moderation report of every course in an examination. The examination is read
+ * from the database once into plain records; each course section (paper status, question-level
+ * moderation and the course's latest evaluation form from storage) is then rendered on its own
+ * thread, and the sections are merged in course order behind a table of contents, with a bookmark
+ * per course. The merged file is written with object streams and full compression, and identical
+ * resources such as the fonts of every section are stored once.
+ */
+@Service
+public class ModerationReportService {
+
+    private static final Border CELL_BORDER = new SolidBorder(DeviceRgb.BLACK, 0.5f);
+    private static final float[] QUESTION_COLUMNS = {60f, 50f, 80f, 350f};
+    private static final float[] TOC_COLUMNS = {480f, 60f};
+
+    private final ExaminationRepository examinationRepository;
+
+    private final FeedbackPdfJobRepository feedbackPdfJobRepository;
+
+    private final PaperStorage paperStorage;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ExecutorService renderers;
+
+    // Everything a report needs, detached from the persistence context so sections can render on other threads
+    public record ReportPlan(Long examinationId, String title, List<CourseSection> courses) {
+    }
+
+    public record CourseSection(String courseCode, String courseName, List<PaperSummary> papers, String feedbackFormKey) {
+    }
+
+    public record PaperSummary(Long id, String paperType, String status, String creator, String moderator, String feedback,
+                               List<QuestionRow> questions) {
+    }
+
+    public record QuestionRow(String number, float marks, String status, String comment) {
+    }
+
+    // A rendered course: its summary pages, then its evaluation form when there is one
+    private record RenderedSection(CourseSection course, byte[] summary, int summaryPages, byte[] form, int formPages) {
+        int pages() {
+            return summaryPages + formPages;
+        }
+    }
+
+    public ModerationReportService(ExaminationRepository examinationRepository, FeedbackPdfJobRepository feedbackPdfJobRepository,
+                                   PaperStorage paperStorage, PlatformTransactionManager transactionManager,
+                                   @Value("${moderation.report.workers:0}") int workerCount) {
+        this.examinationRepository = examinationRepository;
+        this.feedbackPdfJobRepository = feedbackPdfJobRepository;
+        this.paperStorage = paperStorage;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Rendering is CPU bound, so by default one thread per core
+        int workers = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.renderers = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "moderation-report-renderer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        renderers.shutdownNow();
+    }
+
+    // Read the examination, its courses, papers and moderation, and each course's latest evaluation form
+    public ReportPlan plan(Long examinationId) {
+        return readOnlyTransaction.execute(status -> {
+            ExaminationEntity examination = examinationRepository.findById(examinationId)
+                    .orElseThrow(() -> new IllegalArgumentException("Examination not found with ID: " + examinationId));
+
+            // Courses with a paper or a timetable slot in this examination, by course code
+            Map<String, CoursesEntity> courses = new TreeMap<>();
+            Map<String, List<EncryptedPaper>> papersByCourse = new TreeMap<>();
+            if (examination.getEncryptedPapers() != null) {
+                for (EncryptedPaper paper : examination.getEncryptedPapers()) {
+                    if (paper.getCourse() != null) {
+                        courses.putIfAbsent(paper.getCourse().getCode(), paper.getCourse());
+                        papersByCourse.computeIfAbsent(paper.getCourse().getCode(), code -> new ArrayList<>()).add(paper);
+                    }
+                }
+            }
+            if (examination.getExamTimeTables() != null) {
+                for (ExamTimeTablesEntity slot : examination.getExamTimeTables()) {
+                    if (slot.getCourse() != null) {
+                        courses.putIfAbsent(slot.getCourse().getCode(), slot.getCourse());
+                    }
+                }
+            }
+
+            // Forms whose examination wasn't recorded count when they were submitted between this
+            // examination's start and the start of the degree program's next one
+            LocalDateTime since = examination.getExamProcessStartDate() != null ? examination.getExamProcessStartDate()
+                    : examination.getCreatedAt() != null ? examination.getCreatedAt() : LocalDateTime.of(1970, 1, 1, 0, 0);
+            LocalDateTime nextStart = examination.getDegreeProgramsEntity() == null ? null
+                    : examinationRepository.findNextStartDate(examination.getDegreeProgramsEntity().getId(), since);
+            LocalDateTime until = nextStart != null ? nextStart : LocalDateTime.of(9999, 12, 31, 0, 0);
+
+            List<CourseSection> sections = new ArrayList<>();
+            for (CoursesEntity course : courses.values()) {
+                List<PaperSummary> papers = papersByCourse.getOrDefault(course.getCode(), List.of()).stream()
+                        .sorted(Comparator.comparing(EncryptedPaper::getId))
+                        .map(ModerationReportService::summarise)
+                        .toList();
+                String formKey = feedbackPdfJobRepository
+                        .findFirstByCourseCodeAndStatusAndExaminationIdOrderByIdDesc(
+                                course.getCode(), FeedbackPdfJobStatus.SUCCEEDED, examinationId)
+                        .or(() -> feedbackPdfJobRepository
+                                .findFirstByCourseCodeAndStatusAndExaminationIdIsNullAndSubmittedAtGreaterThanEqualAndSubmittedAtLessThanOrderByIdDesc(
+                                        course.getCode(), FeedbackPdfJobStatus.SUCCEEDED, since, until))
+                        .map(FeedbackPdfJob::getStorageKey)
+                        .orElse(null);
+                sections.add(new CourseSection(course.getCode(), course.getName(), papers, formKey));
+            }
+
+            String title = (examination.getDegreeProgramsEntity() == null ? "" : examination.getDegreeProgramsEntity().getDegreeName() + " ")
+                    + examination.getYear() + " - Level " + examination.getLevel() + ", Semester " + examination.getSemester();
+            return new ReportPlan(examinationId, title, sections);
+        });
+    }
+
+    // Render every course section in parallel and write the merged, bookmarked report to out, which is left open
+    public void writeReport(ReportPlan plan, OutputStream out) throws IOException {
+        List<CompletableFuture<RenderedSection>> pending = plan.courses().stream()
+                .map(course -> CompletableFuture.supplyAsync(() -> renderSection(course), renderers))
+                .toList();
+        List<RenderedSection> sections = new ArrayList<>(pending.size());
+        try {
+            for (CompletableFuture<RenderedSection> section : pending) {
+                sections.add(section.join());
+            }
+        } catch (CompletionException e) {
+            pending.forEach(section -> section.cancel(true));
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+
+        // The contents pages come first, so their length decides where every section starts
+        int tocPages = 1;
+        byte[] toc = renderContents(plan, sections, tocPages);
+        int actualTocPages = pageCount(toc);
+        if (actualTocPages != tocPages) {
+            tocPages = actualTocPages;
+            toc = renderContents(plan, sections, tocPages);
+        }
+
+        PdfWriter writer = new PdfWriter(out, new WriterProperties()
+                .setFullCompressionMode(true)
+                .setCompressionLevel(CompressionConstants.BEST_COMPRESSION)
+                .useSmartMode());
+        writer.setCloseStream(false);
+        PdfDocument merged = new PdfDocument(writer);
+        merged.getCatalog().setPageMode(PdfName.UseOutlines);
+        PdfMerger merger = new PdfMerger(merged, false, false);
+        PdfOutline root = merged.getOutlines(false);
+
+        append(merger, toc);
+        root.addOutline("Contents").addDestination(PdfExplicitDestination.createFit(merged.getPage(1)));
+
+        for (RenderedSection section : sections) {
+            int start = merged.getNumberOfPages() + 1;
+            append(merger, section.summary());
+            PdfOutline courseOutline = root.addOutline(heading(section.course()));
+            courseOutline.addDestination(PdfExplicitDestination.createFit(merged.getPage(start)));
+            if (section.form() != null) {
+                int formStart = merged.getNumberOfPages() + 1;
+                append(merger, section.form());
+                courseOutline.addOutline("Evaluation form")
+                        .addDestination(PdfExplicitDestination.createFit(merged.getPage(formStart)));
+            }
+        }
+        merged.close();
+    }
+
+    private RenderedSection renderSection(CourseSection course) {
+        try {
+            byte[] summary = renderSummary(course);
+            byte[] form = null;
+            if (course.feedbackFormKey() != null) {
+                try (InputStream in = paperStorage.get(course.feedbackFormKey())) {
+                    form = in.readAllBytes();
+                } catch (NoSuchFileException e) {
+                    System.err.println("Evaluation form " + course.feedbackFormKey() + " is no longer in storage");
+                }
+            }
+            return new RenderedSection(course, summary, pageCount(summary), form, form == null ? 0 : pageCount(form));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] renderSummary(CourseSection course) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+        Document document = new Document(new PdfDocument(new PdfWriter(buffer)), PageSize.A4);
+        PdfFont font = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+        PdfFont bold = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
+        document.setFont(font);
+
+        document.add(new Paragraph(heading(course)).setFont(bold).setFontSize(16));
+        if (course.papers().isEmpty()) {
+            document.add(new Paragraph("No paper has been submitted for this course."));
+        }
+        for (PaperSummary paper : course.papers()) {
+            document.add(new Paragraph("Paper " + paper.id() + (paper.paperType() == null ? "" : " (" + paper.paperType() + ")")
+                    + " - " + paper.status()).setFont(bold).setFontSize(12).setMarginTop(12));
+            document.add(new Paragraph("Examiner: " + orDash(paper.creator()) + "    Moderator: " + orDash(paper.moderator())));
+            if (paper.feedback() != null && !paper.feedback().isBlank()) {
+                document.add(new Paragraph("Moderator feedback: " + paper.feedback()));
+            }
+            if (paper.questions().isEmpty()) {
+                document.add(new Paragraph("No question structure recorded."));
+                continue;
+            }
+            Table table = new Table(UnitValue.createPointArray(QUESTION_COLUMNS));
+            for (String header : new String[]{"Question", "Marks", "Status", "Moderator comment"}) {
+                table.addHeaderCell(cell(header).setFont(bold));
+            }
+            for (QuestionRow row : paper.questions()) {
+                table.addCell(cell(row.number()));
+                table.addCell(cell(row.marks() == 0 ? "" : formatMarks(row.marks())).setTextAlignment(TextAlignment.RIGHT));
+                table.addCell(cell(row.status()));
+                table.addCell(cell(row.comment()));
+            }
+            document.add(table);
+        }
+        if (course.feedbackFormKey() == null) {
+            document.add(new Paragraph("No evaluation form has been submitted for this course.").setMarginTop(12));
+        }
+        document.close();
+        return buffer.toByteArray();
+    }
+
+    // Contents page(s), listing the page each course starts on once tocPages pages of contents precede it
+    private byte[] renderContents(ReportPlan plan, List<RenderedSection> sections, int tocPages) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8 * 1024);
+        Document document = new Document(new PdfDocument(new PdfWriter(buffer)), PageSize.A4);
+        PdfFont font = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+        PdfFont bold = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
+        document.setFont(font);
+
+        document.add(new Paragraph("Moderation Report").setFont(bold).setFontSize(18).setTextAlignment(TextAlignment.CENTER));
+        document.add(new Paragraph(plan.title()).setFontSize(13).setTextAlignment(TextAlignment.CENTER));
+        document.add(new Paragraph("Contents").setFont(bold).setFontSize(14).setMarginTop(16));
+        if (sections.isEmpty()) {
+            document.add(new Paragraph("This examination has no courses."));
+        }
+        Table table = new Table(UnitValue.createPointArray(TOC_COLUMNS));
+        int page = tocPages + 1;
+        for (RenderedSection section : sections) {
+            table.addCell(new Cell().add(new Paragraph(heading(section.course()))).setBorder(Border.NO_BORDER));
+            table.addCell(new Cell().add(new Paragraph(String.valueOf(page))).setBorder(Border.NO_BORDER)
+                    .setTextAlignment(TextAlignment.RIGHT));
+            page += section.pages();
+        }
+        document.add(table);
+        document.close();
+        return buffer.toByteArray();
+    }
+
+    private static void append(PdfMerger merger, byte[] pdf) throws IOException {
+        PdfDocument source = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf)));
+        merger.merge(source, 1, source.getNumberOfPages());
+        source.close();
+    }
+
+    private static int pageCount(byte[] pdf) throws IOException {
+        try (PdfDocument document = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf)))) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    private static Cell cell(String text) {
+        return new Cell().add(new Paragraph(text == null ? "" : text).setFontSize(10)).setBorder(CELL_BORDER).setPadding(3);
+    }
+
+    private static String heading(CourseSection course) {
+        return course.courseCode() + (course.courseName() == null ? "" : " - " + course.courseName());
+    }
+
+    private static String orDash(String value) {
+        return value == null || value.isBlank() ? "-" : value;
+    }
+
+    private static String formatMarks(float marks) {
+        return marks == Math.rint(marks) ? String.valueOf((int) marks) : String.valueOf(marks);
+    }
+
+    private static PaperSummary summarise(EncryptedPaper paper) {
+        List<QuestionRow> rows = new ArrayList<>();
+        List<QuestionStructureEntity> questions = paper.getQuestionStructures() == null ? List.of() : paper.getQuestionStructures();
+        for (QuestionStructureEntity question : questions.stream().sorted(Comparator.comparingInt(QuestionStructureEntity::getQuestionNumber)).toList()) {
+            String number = String.valueOf(question.getQuestionNumber());
+            rows.add(new QuestionRow(number, question.getTotalMarks(), String.valueOf(question.getStatus()), question.getModeratorComment()));
+            List<SubQuestionEntity> subQuestions = question.getSubQuestions() == null ? List.of() : question.getSubQuestions();
+            for (SubQuestionEntity sub : subQuestions.stream().sorted(Comparator.comparingInt(SubQuestionEntity::getSubQuestionNumber)).toList()) {
+                String subNumber = number + "." + sub.getSubQuestionNumber();
+                rows.add(new QuestionRow(subNumber, sub.getMarks(), String.valueOf(sub.getStatus()), sub.getModeratorComment()));
+                List<SubSubQuestionEntity> subSubQuestions = sub.getSubSubQuestions() == null ? List.of() : sub.getSubSubQuestions();
+                for (SubSubQuestionEntity subSub : subSubQuestions.stream()
+                        .sorted(Comparator.comparingInt(SubSubQuestionEntity::getSubSubQuestionNumber)).toList()) {
+                    rows.add(new QuestionRow(subNumber + "." + subSub.getSubSubQuestionNumber(), subSub.getMarks(),
+                            String.valueOf(subSub.getStatus()), subSub.getModeratorComment()));
+                }
+            }
+        }
+        return new PaperSummary(paper.getId(), paper.getPaperType() == null ? null : paper.getPaperType().name(),
+                String.valueOf(paper.getStatus()), displayName(paper.getCreator()), displayName(paper.getModerator()),
+                paper.getFeedback(), rows);
+    }
+
+    private static String displayName(UserEntity user) {
+        if (user == null) {
+            return null;
+        }
+        String name = ((user.getFirstName() == null ? "" : user.getFirstName()) + " "
+                + (user.getLastName() == null ? "" : user.getLastName())).trim();
+        return name.isEmpty() ? user.getUsername() : name;
+    }
+}
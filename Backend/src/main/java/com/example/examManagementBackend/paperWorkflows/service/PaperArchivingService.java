@@ -1,40 +1,71 @@
 package com.example.examManagementBackend.paperWorkflows.service;
 
 import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSearchCriteria;
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSliceDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.FullTextHitDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.PageSnippetDTO;
 import com.example.examManagementBackend.paperWorkflows.dto.UploadPaperRequestDTO;
+import com.example.examManagementBackend.paperWorkflows.entity.ArchiveQuarantine;
+import com.example.examManagementBackend.paperWorkflows.entity.ArchiveRun;
 import com.example.examManagementBackend.paperWorkflows.entity.ArchivedPaper;
 import com.example.examManagementBackend.paperWorkflows.entity.CoursesEntity;
 import com.example.examManagementBackend.paperWorkflows.entity.EncryptedPaper;
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.ArchiveRunStatus;
 import com.example.examManagementBackend.paperWorkflows.entity.ExaminationEntity;
+import com.example.examManagementBackend.paperWorkflows.entity.StoredBlob;
+import com.example.examManagementBackend.paperWorkflows.repository.ArchiveQuarantineRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.ArchiveRunRepository;
 import com.example.examManagementBackend.paperWorkflows.repository.ArchivedPaperRepository;
 import com.example.examManagementBackend.paperWorkflows.repository.CoursesRepository;
 import com.example.examManagementBackend.paperWorkflows.repository.EncryptedPaperRepository;
 import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
-import com.example.examManagementBackend.paperWorkflows.specifications.ArchivedPaperSpecification;
+import com.example.examManagementBackend.paperWorkflows.search.ArchiveFullTextIndex;
+import com.example.examManagementBackend.paperWorkflows.search.ArchiveSearchIndex;
+import com.example.examManagementBackend.jobs.service.JobContext;
+import com.example.examManagementBackend.jobs.service.JobCoordinator;
+import com.example.examManagementBackend.jobs.service.LeaseLostException;
+import com.example.examManagementBackend.storage.PaperStorage;
 import com.example.examManagementBackend.userManagement.userManagementEntity.UserEntity;
 import com.example.examManagementBackend.userManagement.userManagementRepo.UserManagementRepo;
-import jakarta.transaction.Transactional;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class PaperArchivingService {
 
-    private final Path storagePath = Paths.get("src/main/resources/Archived_Papers/");
+    private static final String ARCHIVE_JOB = "paper-archiving";
+
+    // Keeps other nodes from re-running the midnight job once a node has finished a partition
+    private static final Duration ARCHIVE_HOLD = Duration.ofHours(1);
 
     private final EncryptedPaperRepository encryptedPaperRepository;
 
@@ -48,83 +79,303 @@ public class PaperArchivingService {
 
     private final CoursesRepository coursesRepository;
 
+    private final BlobStoreService blobStoreService;
+
+    private final PaperStorage paperStorage;
+
+    private final ArchiveRunRepository archiveRunRepository;
+
+    private final ArchiveQuarantineRepository archiveQuarantineRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    // Decrypts and stores files for the archiving job; the chunk size bounds how much work is queued at once
+    private final ExecutorService archiveWorkers;
+
+    private final int archiveBatchSize;
+
+    private final int archivePartitions;
+
+    private final JobCoordinator jobCoordinator;
+
+    private final ArchiveSearchIndex archiveSearchIndex;
+
+    private final ArchiveFullTextIndex archiveFullTextIndex;
+
+    // The scheduler and the manual trigger must not run two archiving passes at once
+    private final AtomicBoolean archiving = new AtomicBoolean(false);
 
-    public PaperArchivingService(EncryptedPaperRepository encryptedPaperRepository, ArchivedPaperRepository archivedPaperRepository, EncryptionService encryptionService, UserManagementRepo userRepository, ExaminationRepository examinationRepository, CoursesRepository coursesRepository) {
+
+    public PaperArchivingService(EncryptedPaperRepository encryptedPaperRepository, ArchivedPaperRepository archivedPaperRepository, EncryptionService encryptionService, UserManagementRepo userRepository, ExaminationRepository examinationRepository, CoursesRepository coursesRepository, BlobStoreService blobStoreService, PaperStorage paperStorage,
+                                 ArchiveRunRepository archiveRunRepository, ArchiveQuarantineRepository archiveQuarantineRepository, PlatformTransactionManager transactionManager,
+                                 JobCoordinator jobCoordinator, ArchiveSearchIndex archiveSearchIndex, ArchiveFullTextIndex archiveFullTextIndex,
+                                 @Value("${archive.workers:4}") int archiveWorkerCount, @Value("${archive.batch-size:50}") int archiveBatchSize,
+                                 @Value("${archive.partitions:1}") int archivePartitions) {
         this.encryptedPaperRepository = encryptedPaperRepository;
         this.archivedPaperRepository = archivedPaperRepository;
         this.encryptionService = encryptionService;
         this.userRepository = userRepository;
         this.examinationRepository = examinationRepository;
         this.coursesRepository = coursesRepository;
+        this.blobStoreService = blobStoreService;
+        this.paperStorage = paperStorage;
+        this.archiveRunRepository = archiveRunRepository;
+        this.archiveQuarantineRepository = archiveQuarantineRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archiveBatchSize = Math.max(1, archiveBatchSize);
+        this.archivePartitions = Math.max(1, archivePartitions);
+        this.jobCoordinator = jobCoordinator;
+        this.archiveSearchIndex = archiveSearchIndex;
+        this.archiveFullTextIndex = archiveFullTextIndex;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.archiveWorkers = Executors.newFixedThreadPool(Math.max(1, archiveWorkerCount), runnable -> {
+            Thread thread = new Thread(runnable, "paper-archiver-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stopArchiveWorkers() {
+        archiveWorkers.shutdownNow();
     }
 
-    //@Scheduled(fixedRate = 86400000) // Runs once every 24 hours
-    @Transactional
-    @Scheduled(cron = "0 0 0 * * ?") // Runs daily at midnight
+    // Runs daily at midnight; also triggered manually through POST /api/v1/papers/archive
+    @Scheduled(cron = "0 0 0 * * ?")
     public void archiveSharedPapers() {
-        LocalDateTime now = LocalDateTime.now();
+        runArchiveJob(false);
+    }
+
+    // Archive every paper whose sharedAt has passed. The papers are split by id into partitions that the backend
+    // nodes claim through the job coordinator. Returns the runs of the partitions this node archived, or null
+    // when this node is already archiving
+    public List<ArchiveRun> runArchiveJob(boolean manual) {
+        if (!archiving.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            List<ArchiveRun> runs = new ArrayList<>();
+            jobCoordinator.runPartitioned(ARCHIVE_JOB, archivePartitions, manual ? Duration.ZERO : ARCHIVE_HOLD,
+                    context -> runs.add(archivePartition(context)));
+            return runs;
+        } finally {
+            archiving.set(false);
+        }
+    }
+
+    // Archive one partition a chunk at a time, resuming an interrupted run of it from its checkpoint
+    private ArchiveRun archivePartition(JobContext context) {
+        int partition = context.getPartition();
+        int partitionCount = context.getPartitionCount();
+        ArchiveRun run = archiveRunRepository
+                .findFirstByStatusAndPartitionIndexAndPartitionCountOrderByIdDesc(ArchiveRunStatus.RUNNING, partition, partitionCount)
+                .orElseGet(() -> archiveRunRepository.save(new ArchiveRun(null, LocalDateTime.now(), partition, partitionCount,
+                        0, 0, 0, ArchiveRunStatus.RUNNING, LocalDateTime.now(), null)));
+
+        List<Long> paperIds;
+        while (!(paperIds = encryptedPaperRepository.findArchivableIds(run.getCutoff(), run.getLastPaperId(),
+                partition, partitionCount, PageRequest.of(0, archiveBatchSize))).isEmpty()) {
+            context.checkLease();
+            archiveChunk(context, run, paperIds);
+        }
 
-        // Find papers whose sharedAt date has passed
-        List<EncryptedPaper> expiredPapers = encryptedPaperRepository.findBySharedAtBefore(now);
+        context.checkLease();
+        run.setStatus(ArchiveRunStatus.COMPLETED);
+        run.setFinishedAt(LocalDateTime.now());
+        return archiveRunRepository.save(run);
+    }
 
-        for (EncryptedPaper encryptedPaper : expiredPapers) {
+    // Decrypt a chunk's files on the worker pool, then archive its rows and move the checkpoint in one transaction
+    private void archiveChunk(JobContext context, ArchiveRun run, List<Long> paperIds) {
+        List<EncryptedPaper> papers = encryptedPaperRepository.findAllById(paperIds);
+        List<Future<StoredBlob>> pending = new ArrayList<>();
+        for (EncryptedPaper paper : papers) {
+            pending.add(archiveWorkers.submit(() -> saveDecryptedFile(paper)));
+        }
+
+        // Papers that fail to decrypt are quarantined along with the chunk, behind the same fence. Identity maps, because
+        // the papers are detached here and their generated hashCode would try to load lazy collections
+        Map<EncryptedPaper, StoredBlob> decrypted = new IdentityHashMap<>();
+        Map<EncryptedPaper, Throwable> unreadable = new IdentityHashMap<>();
+        for (int i = 0; i < papers.size(); i++) {
+            try {
+                decrypted.put(papers.get(i), pending.get(i).get());
+            } catch (ExecutionException e) {
+                unreadable.put(papers.get(i), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pending.forEach(future -> future.cancel(true));
+                decrypted.values().forEach(blob -> blobStoreService.release(blob.getContentHash()));
+                throw new RuntimeException("Archiving was interrupted", e);
+            }
+        }
+
+        long checkpoint = Collections.max(paperIds);
+        int archivedBefore = run.getArchived();
+        int quarantinedBefore = run.getQuarantined();
+        List<EncryptedPaper> archived = new ArrayList<>(decrypted.keySet());
+        List<Long> archivedIds = new ArrayList<>();
+        LeaseLostException leaseLost = null;
+        try {
+            archivedIds.addAll(transactionTemplate.execute(status -> {
+                jobCoordinator.fence(context);
+                unreadable.forEach((paper, cause) -> quarantine(run, paper, cause));
+                List<Long> ids = new ArrayList<>();
+                decrypted.forEach((paper, blob) -> ids.add(saveArchivedPaper(paper, blob)));
+                saveCheckpoint(run, checkpoint, archivedBefore + decrypted.size());
+                return ids;
+            }));
+        } catch (LeaseLostException e) {
+            // Another node owns this partition now and will redo the chunk
+            run.setQuarantined(quarantinedBefore);
+            decrypted.values().forEach(blob -> blobStoreService.release(blob.getContentHash()));
+            throw e;
+        } catch (RuntimeException chunkFailure) {
+            // One bad row shouldn't sink the chunk: retry paper by paper and quarantine only the ones that fail
+            run.setQuarantined(quarantinedBefore);
+            archived.clear();
+            for (Map.Entry<EncryptedPaper, Throwable> entry : unreadable.entrySet()) {
+                if (leaseLost == null) {
+                    leaseLost = quarantineFenced(context, run, entry.getKey(), entry.getValue());
+                }
+            }
+            for (Map.Entry<EncryptedPaper, StoredBlob> entry : decrypted.entrySet()) {
+                if (leaseLost != null) {
+                    blobStoreService.release(entry.getValue().getContentHash());
+                    continue;
+                }
+                try {
+                    archivedIds.add(transactionTemplate.execute(status -> {
+                        jobCoordinator.fence(context);
+                        return saveArchivedPaper(entry.getKey(), entry.getValue());
+                    }));
+                    archived.add(entry.getKey());
+                } catch (LeaseLostException e) {
+                    blobStoreService.release(entry.getValue().getContentHash());
+                    leaseLost = e;
+                } catch (RuntimeException e) {
+                    blobStoreService.release(entry.getValue().getContentHash());
+                    leaseLost = quarantineFenced(context, run, entry.getKey(), e);
+                }
+            }
+            if (leaseLost == null) {
+                int archivedCount = archivedBefore + archived.size();
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jobCoordinator.fence(context);
+                        saveCheckpoint(run, checkpoint, archivedCount);
+                    });
+                } catch (LeaseLostException e) {
+                    leaseLost = e;
+                }
+            }
+        }
+
+        archiveSearchIndex.refresh(archivedIds);
+        archiveFullTextIndex.index(archivedIds);
+
+        // Release the encrypted files; each blob goes once no other paper uses it
+        for (EncryptedPaper paper : archived) {
             try {
-                // Decrypt the file
-                byte[] decryptedFile = encryptionService.decryptForUser(
-                        encryptedPaper.getCreator().getUserId(),
-                        Files.readString(Paths.get(encryptedPaper.getFilePath()), StandardCharsets.UTF_8)
-                );
-
-                // Save decrypted file in a new location
-                String newFilePath = saveDecryptedFile(decryptedFile, encryptedPaper.getFileName());
-
-                // Create and save an archived paper entry
-                ArchivedPaper archivedPaper = new ArchivedPaper();
-                archivedPaper.setFileName(encryptedPaper.getFileName());
-                archivedPaper.setFilePath(newFilePath);
-                archivedPaper.setRemarks(encryptedPaper.getRemarks());
-                archivedPaper.setCreator(encryptedPaper.getCreator());
-                archivedPaper.setModerator(encryptedPaper.getModerator());
-                archivedPaper.setShared(encryptedPaper.isShared());
-                archivedPaper.setSharedAt(encryptedPaper.getSharedAt());
-                archivedPaper.setCreatedAt(encryptedPaper.getCreatedAt());
-                archivedPaper.setUpdatedAt(encryptedPaper.getUpdatedAt());
-                archivedPaper.setExamination(encryptedPaper.getExamination());
-                archivedPaper.setCourse(encryptedPaper.getCourse());
-                archivedPaper.setPaperType(encryptedPaper.getPaperType());
-
-                archivedPaperRepository.save(archivedPaper);
-                archivedPaperRepository.flush(); // Forces the entity to be persisted
-
-                // Delete the encrypted paper record
-                encryptedPaperRepository.delete(encryptedPaper);
-                encryptedPaperRepository.flush(); // Commit the deletion to the database
-
-                // Delete the encrypted file from storage
-                Files.deleteIfExists(Paths.get(encryptedPaper.getFilePath()));
-
-            } catch (Exception e) {
-                throw new RuntimeException("Error archiving paper: " + encryptedPaper.getId(), e);
+                blobStoreService.releaseFile(paper.getContentHash(), paper.getFilePath());
+            } catch (IOException e) {
+                System.err.println("Failed to release file of archived paper " + paper.getId() + ": " + e.getMessage());
             }
         }
+
+        // Without the checkpoint the new holder of the partition picks up whatever is left of the chunk
+        if (leaseLost != null) {
+            throw leaseLost;
+        }
+    }
+
+    // Replace an encrypted paper with its archived copy and return the new id; runs inside the chunk's transaction
+    private Long saveArchivedPaper(EncryptedPaper encryptedPaper, StoredBlob blob) {
+        ArchivedPaper archivedPaper = new ArchivedPaper();
+        archivedPaper.setFileName(encryptedPaper.getFileName());
+        archivedPaper.setFilePath(blob.getFilePath());
+        archivedPaper.setContentHash(blob.getContentHash());
+        archivedPaper.setRemarks(encryptedPaper.getRemarks());
+        archivedPaper.setCreator(encryptedPaper.getCreator());
+        archivedPaper.setModerator(encryptedPaper.getModerator());
+        archivedPaper.setShared(encryptedPaper.isShared());
+        archivedPaper.setSharedAt(encryptedPaper.getSharedAt());
+        archivedPaper.setCreatedAt(encryptedPaper.getCreatedAt());
+        archivedPaper.setUpdatedAt(encryptedPaper.getUpdatedAt());
+        archivedPaper.setExamination(encryptedPaper.getExamination());
+        // The paper was loaded outside this transaction; the course association cascades, so it needs a managed course
+        archivedPaper.setCourse(coursesRepository.getReferenceById(encryptedPaper.getCourse().getId()));
+        archivedPaper.setPaperType(encryptedPaper.getPaperType());
+
+        Long archivedId = archivedPaperRepository.save(archivedPaper).getId();
+        encryptedPaperRepository.delete(encryptedPaper);
+        return archivedId;
     }
 
-    private String saveDecryptedFile(byte[] decryptedFile, String fileName) throws IOException {
-        Path outputPath = Paths.get("src/main/resources/Archived_Papers/").resolve(fileName);
-        Files.write(outputPath, decryptedFile);
-        return outputPath.toString();
+    private void saveCheckpoint(ArchiveRun run, long lastPaperId, int archived) {
+        run.setLastPaperId(lastPaperId);
+        run.setArchived(archived);
+        archiveRunRepository.save(run);
+    }
+
+    // Quarantine a paper in its own transaction after checking the lease; returns the exception when the lease is gone
+    private LeaseLostException quarantineFenced(JobContext context, ArchiveRun run, EncryptedPaper paper, Throwable cause) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jobCoordinator.fence(context);
+                quarantine(run, paper, cause);
+            });
+            return null;
+        } catch (LeaseLostException e) {
+            return e;
+        }
+    }
+
+    // Park a paper that could not be archived so the rest of the run carries on without it
+    private void quarantine(ArchiveRun run, EncryptedPaper paper, Throwable cause) {
+        String error = String.valueOf(cause.getMessage());
+        System.err.println("Quarantined paper " + paper.getId() + " during archiving: " + error);
+        archiveQuarantineRepository.save(new ArchiveQuarantine(paper.getId(), paper.getFileName(),
+                error.length() > 1000 ? error.substring(0, 1000) : error, run.getId(), LocalDateTime.now()));
+        run.setQuarantined(run.getQuarantined() + 1);
+    }
+
+    public List<ArchiveQuarantine> getQuarantinedPapers() {
+        return archiveQuarantineRepository.findAllByOrderByQuarantinedAtDesc();
+    }
+
+    // Let a quarantined paper be picked up again by the next archiving run
+    public void releaseQuarantinedPaper(Long paperId) {
+        if (!archiveQuarantineRepository.existsById(paperId)) {
+            throw new IllegalArgumentException("No quarantined paper with ID: " + paperId);
+        }
+        archiveQuarantineRepository.deleteById(paperId);
+    }
+
+    public Optional<ArchiveRun> getLatestArchiveRun() {
+        return archiveRunRepository.findFirstByOrderByIdDesc();
+    }
+
+    private StoredBlob saveDecryptedFile(EncryptedPaper encryptedPaper) throws Exception {
+        return blobStoreService.storePlain(out -> encryptionService.decryptFileForUser(
+                encryptedPaper.getCreator().getUserId(),
+                encryptedPaper.getFilePath(),
+                out
+        ));
     }
 
 
     public Page<ArchivedPaperDTO> getArchivedPapers(int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<ArchivedPaper> archivedPapers = archivedPaperRepository.findAll(pageable);
+        return searchArchivedPapers(new ArchivedPaperSearchCriteria(), PageRequest.of(page, size));
+    }
 
-        return archivedPapers.map(this::convertToDTO);
+    // Keyset page of the whole archive, newest first
+    public ArchivedPaperSliceDTO getArchivedPapersAfter(Long cursor, int size, boolean withTotal) {
+        return searchArchivedPapersAfter(new ArchivedPaperSearchCriteria(), cursor, size, withTotal);
     }
 
     public Optional<ArchivedPaperDTO> getArchivedPaperById(Long id) {
-        return archivedPaperRepository.findById(id).map(this::convertToDTO);
+        return archivedPaperRepository.findProjectedById(id);
     }
 
     public void deleteArchivedPaper(Long id) {
@@ -132,84 +383,127 @@ public class PaperArchivingService {
         if (archivedPaperOptional.isPresent()) {
             ArchivedPaper archivedPaper = archivedPaperOptional.get();
 
-            // Delete the file from the local storage
+            // Delete the record from the database
+            archivedPaperRepository.delete(archivedPaper);
+            archiveSearchIndex.delete(id);
+            archiveFullTextIndex.remove(id);
+
+            // Release the file; the blob is removed once no other paper uses it
             try {
-                Path filePath = Paths.get(archivedPaper.getFilePath());
-                Files.deleteIfExists(filePath);  // Delete the file from local storage
+                blobStoreService.releaseFile(archivedPaper.getContentHash(), archivedPaper.getFilePath());
             } catch (IOException e) {
                 throw new RuntimeException("Error deleting file from storage: " + archivedPaper.getFilePath(), e);
             }
-
-            // Delete the record from the database
-            archivedPaperRepository.delete(archivedPaper);
         } else {
             throw new IllegalArgumentException("Archived paper not found with ID: " + id);
         }
     }
 
 
-    public Page<ArchivedPaperDTO> searchArchivedPapers(
-            String fileName, String creatorName, String moderatorName,
-            String courseCode, String paperType, String degreeName,
-            String year, String level, String semester,
-            LocalDateTime startDate, LocalDateTime endDate,
-            Pageable pageable) {
+    public Page<ArchivedPaperDTO> searchArchivedPapers(ArchivedPaperSearchCriteria criteria, Pageable pageable) {
+        return searchArchivedPapers(criteria, null, false, pageable);
+    }
 
-        Specification<ArchivedPaper> spec = ArchivedPaperSpecification.filterByCriteria(
-                fileName, creatorName, moderatorName, courseCode, paperType,
-                degreeName, year, level, semester, startDate, endDate
-        );
+    // Offset page of matching papers, answered from the search index once it is built. Without a free-text query the
+    // newest come first; with one, the best matches. Before the index is ready, criteria searches go to the database
+    public Page<ArchivedPaperDTO> searchArchivedPapers(ArchivedPaperSearchCriteria criteria, String query, boolean fuzzy, Pageable pageable) {
+        if (archiveSearchIndex.isReady()) {
+            List<ArchivedPaperDTO> matches = archiveSearchIndex.search(criteria, query, fuzzy);
+            int from = (int) Math.min(pageable.getOffset(), matches.size());
+            int to = Math.min(matches.size(), from + pageable.getPageSize());
+            return new PageImpl<>(new ArrayList<>(matches.subList(from, to)), pageable, matches.size());
+        }
+        requireIndexFor(query, fuzzy);
 
-        return archivedPaperRepository.findAll(spec, pageable).map(this::convertToDTO);
+        // The count query only runs when the page size does not already reveal the total
+        List<ArchivedPaperDTO> content = archivedPaperRepository.findProjected(
+                criteria, null, pageable.getOffset(), pageable.getPageSize());
+        return PageableExecutionUtils.getPage(content, pageable, () -> archivedPaperRepository.countProjected(criteria));
     }
 
-
-    private ArchivedPaperDTO convertToDTO(ArchivedPaper archivedPaper) {
-        ArchivedPaperDTO dto = new ArchivedPaperDTO();
-        dto.setId(archivedPaper.getId());
-        dto.setFileName(archivedPaper.getFileName());
-        dto.setFilePath(archivedPaper.getFilePath());
-        dto.setRemarks(archivedPaper.getRemarks());
-        dto.setCreatorName(archivedPaper.getCreator().getUsername());
-        dto.setModeratorName(archivedPaper.getModerator().getUsername());
-        dto.setSharedAt(archivedPaper.getSharedAt());
-        dto.setCreatedAt(archivedPaper.getCreatedAt());
-        dto.setPaperType(String.valueOf(archivedPaper.getPaperType()));
-        dto.setCourseCode(archivedPaper.getCourse().getCode());
-        dto.setCourseName(archivedPaper.getCourse().getName());
-        dto.setYear(archivedPaper.getExamination().getYear());
-        dto.setLevel(archivedPaper.getExamination().getLevel());
-        dto.setSemester(archivedPaper.getExamination().getSemester());
-        dto.setDegreeName(archivedPaper.getExamination().getDegreeProgramsEntity().getDegreeName());
-        return dto;
+    public ArchivedPaperSliceDTO searchArchivedPapersAfter(ArchivedPaperSearchCriteria criteria, Long cursor, int size, boolean withTotal) {
+        return searchArchivedPapersAfter(criteria, false, cursor, size, withTotal);
     }
 
-    public Optional<String> getArchivedFilePath(Long id) {
-        return archivedPaperRepository.findById(id).map(ArchivedPaper::getFilePath);
+    // Keyset page of matching papers, newest first: the rows after the cursor id, plus one extra row to tell whether more follow
+    public ArchivedPaperSliceDTO searchArchivedPapersAfter(ArchivedPaperSearchCriteria criteria, boolean fuzzy, Long cursor, int size, boolean withTotal) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        List<ArchivedPaperDTO> rows;
+        Long total = null;
+        if (archiveSearchIndex.isReady()) {
+            rows = archiveSearchIndex.searchAfter(criteria, fuzzy, cursor, size + 1);
+            total = withTotal ? (long) archiveSearchIndex.count(criteria, fuzzy) : null;
+        } else {
+            requireIndexFor(null, fuzzy);
+            rows = archivedPaperRepository.findProjected(criteria, cursor, 0, size + 1);
+            total = withTotal ? archivedPaperRepository.countProjected(criteria) : null;
+        }
+        boolean hasNext = rows.size() > size;
+        List<ArchivedPaperDTO> content = hasNext ? rows.subList(0, size) : rows;
+        Long nextCursor = hasNext ? content.get(content.size() - 1).getId() : null;
+        return new ArchivedPaperSliceDTO(new ArrayList<>(content), content.size(), hasNext, nextCursor, total);
     }
 
-    public void uploadArchivedPaper(MultipartFile file, UploadPaperRequestDTO uploadRequest) throws IOException {
-        if (file.isEmpty()) {
-            throw new IllegalArgumentException("File is empty.");
+    // Papers whose text best matches the query, with snippets of their best pages; papers still being indexed are not found yet
+    public Page<FullTextHitDTO> searchFullText(String query, Pageable pageable) {
+        ArchiveFullTextIndex.Result result = archiveFullTextIndex.search(query,
+                (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE), pageable.getPageSize());
+        Map<Long, ArchivedPaperDTO> papers = new HashMap<>();
+        List<Long> ids = result.hits().stream().map(ArchiveFullTextIndex.Hit::paperId).toList();
+        for (ArchivedPaperDTO paper : archivedPaperRepository.findProjectedByIds(ids)) {
+            papers.put(paper.getId(), paper);
         }
 
-        // Ensure storage directory exists
-        if (!Files.exists(storagePath)) {
-            Files.createDirectories(storagePath);
+        List<FullTextHitDTO> content = new ArrayList<>();
+        for (ArchiveFullTextIndex.Hit hit : result.hits()) {
+            ArchivedPaperDTO paper = papers.get(hit.paperId());
+            if (paper != null) {
+                content.add(new FullTextHitDTO(paper, hit.score(), hit.pages().stream()
+                        .map(page -> new PageSnippetDTO(page.page(), page.snippet()))
+                        .toList()));
+            }
         }
+        return new PageImpl<>(content, pageable, result.total());
+    }
+
+    public ArchiveFullTextIndex.Stats getFullTextIndexStats() {
+        return archiveFullTextIndex.stats();
+    }
 
-        // Validate filename to prevent path traversal attacks
-        String originalFilename = file.getOriginalFilename();
-        if (originalFilename.contains("..") || originalFilename.contains("/") || originalFilename.contains("\\")) {
-            throw new IllegalArgumentException("Invalid filename");
+    // Counts per year, level, semester, degree, course and paper type for the papers a search would return
+    public ArchiveSearchIndex.Facets getArchiveFacets(ArchivedPaperSearchCriteria criteria, String query, boolean fuzzy) {
+        if (!archiveSearchIndex.isReady()) {
+            throw new IllegalStateException("The archive search index is still being built, try again shortly");
         }
+        return archiveSearchIndex.facets(criteria, query, fuzzy);
+    }
+
+    public ArchiveSearchIndex.Stats getSearchIndexStats() {
+        return archiveSearchIndex.stats();
+    }
 
-        // Save file to storage
-        Path filePath = storagePath.resolve(originalFilename).normalize();
-        if (!filePath.startsWith(storagePath)) {
-            throw new IllegalArgumentException("Invalid file path");
+    // Free-text and fuzzy matching only exist in the search index
+    private void requireIndexFor(String query, boolean fuzzy) {
+        if (fuzzy || (query != null && !query.isBlank())) {
+            throw new IllegalStateException("The archive search index is still being built, try again shortly");
+        }
+    }
+
+    public Optional<String> getArchivedFilePath(Long id) {
+        return archivedPaperRepository.findById(id).map(ArchivedPaper::getFilePath);
+    }
+
+    // Open an archived paper's file in storage; throws NoSuchFileException when it is missing
+    public InputStream openArchivedFile(String filePath) throws IOException {
+        return paperStorage.get(filePath);
+    }
+
+    public void uploadArchivedPaper(MultipartFile file, UploadPaperRequestDTO uploadRequest) throws Exception {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("File is empty.");
         }
-        Files.write(filePath, file.getBytes());
 
         // Fetch associated entities
         UserEntity creator = userRepository.findById(uploadRequest.getCreatorId())
@@ -221,10 +515,18 @@ public class PaperArchivingService {
         CoursesEntity course = coursesRepository.findById(uploadRequest.getCourseId())
                 .orElseThrow(() -> new IllegalArgumentException("Invalid course ID."));
 
+        // Save file to the blob store; re-uploading an archived PDF only adds a reference
+        StoredBlob blob = blobStoreService.storePlain(out -> {
+            try (InputStream in = file.getInputStream()) {
+                in.transferTo(out);
+            }
+        });
+
         // Save to database
         ArchivedPaper archivedPaper = new ArchivedPaper();
         archivedPaper.setFileName(uploadRequest.getFileName());
-        archivedPaper.setFilePath(filePath.toString());
+        archivedPaper.setFilePath(blob.getFilePath());
+        archivedPaper.setContentHash(blob.getContentHash());
         archivedPaper.setRemarks(uploadRequest.getRemarks());
         archivedPaper.setCreator(creator);
         archivedPaper.setModerator(moderator);
@@ -234,7 +536,14 @@ public class PaperArchivingService {
         archivedPaper.setPaperType(uploadRequest.getPaperType());
         archivedPaper.setShared(true);
 
-        archivedPaperRepository.save(archivedPaper);
+        try {
+            archivedPaperRepository.save(archivedPaper);
+        } catch (RuntimeException e) {
+            blobStoreService.release(blob.getContentHash());
+            throw e;
+        }
+        archiveSearchIndex.refresh(List.of(archivedPaper.getId()));
+        archiveFullTextIndex.index(List.of(archivedPaper.getId()));
     }
 
 
@@ -0,0 +1,101 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.jobs.service.JobCoordinator;
+import com.example.examManagementBackend.paperWorkflows.entity.EncryptedPaper;
+import com.example.examManagementBackend.paperWorkflows.repository.EncryptedPaperRepository;
+import com.example.examManagementBackend.storage.PaperStorage;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Rewrites papers still stored as legacy Base64 text into the binary envelope format
+@Service
+public class PaperEnvelopeMigrator {
+
+    private static final int PAGE_SIZE = 50;
+
+    private final EncryptedPaperRepository encryptedPaperRepository;
+
+    private final EncryptionService encryptionService;
+
+    private final PaperStorage paperStorage;
+
+    private final JobCoordinator jobCoordinator;
+
+    public PaperEnvelopeMigrator(EncryptedPaperRepository encryptedPaperRepository, EncryptionService encryptionService, PaperStorage paperStorage,
+                                 JobCoordinator jobCoordinator) {
+        this.encryptedPaperRepository = encryptedPaperRepository;
+        this.encryptionService = encryptionService;
+        this.paperStorage = paperStorage;
+        this.jobCoordinator = jobCoordinator;
+    }
+
+    @Scheduled(initialDelay = 60000, fixedDelay = 3600000) // A minute after startup, then hourly, on one node of the cluster
+    public void scheduledMigration() {
+        jobCoordinator.runExclusive("envelope-migration", Duration.ofMinutes(55), context -> migrateLegacyPapers());
+    }
+
+    public void migrateLegacyPapers() {
+        int migrated = 0;
+        Page<EncryptedPaper> page;
+        int pageNumber = 0;
+        do {
+            page = encryptedPaperRepository.findAll(PageRequest.of(pageNumber++, PAGE_SIZE));
+            for (EncryptedPaper paper : page) {
+                try {
+                    if (migratePaper(paper)) {
+                        migrated++;
+                    }
+                } catch (Exception e) {
+                    // Leave the old file in place, it is still readable and will be retried next run
+                    System.err.println("Failed to migrate encrypted paper " + paper.getId() + ": " + e.getMessage());
+                }
+            }
+        } while (page.hasNext());
+
+        if (migrated > 0) {
+            System.out.println("Migrated " + migrated + " encrypted papers to the binary envelope format.");
+        }
+    }
+
+    private boolean migratePaper(EncryptedPaper paper) throws Exception {
+        String key = paper.getFilePath();
+        Optional<PaperStorage.StoredObject> stored = paperStorage.stat(key);
+        if (stored.isEmpty() || !encryptionService.needsMigration(key) || paper.getModerator() == null) {
+            return false;
+        }
+
+        // The file is replaced in place, so the plaintext goes through a temp file rather than memory
+        Path plain = Files.createTempFile("migrate", ".part");
+        try {
+            Long creatorId = paper.getCreator().getUserId();
+            try (OutputStream out = Files.newOutputStream(plain)) {
+                encryptionService.decryptFileForUser(creatorId, key, out);
+            }
+
+            // Skip the paper if it was re-uploaded while we were decrypting it
+            if (!stored.equals(paperStorage.stat(key))) {
+                return false;
+            }
+            // Encrypt for the same people as before, including any extra recipients recorded with the paper
+            List<Long> recipients = new ArrayList<>(List.of(creatorId, paper.getModerator().getUserId()));
+            recipients.addAll(encryptedPaperRepository.findExtraRecipientIds(paper.getId()));
+            try (InputStream in = Files.newInputStream(plain)) {
+                encryptionService.encryptToStorage(recipients, in, key);
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(plain);
+        }
+    }
+}
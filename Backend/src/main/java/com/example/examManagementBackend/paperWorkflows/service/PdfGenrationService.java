@@ -18,260 +18,292 @@ import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.element.Text;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.VerticalAlignment;
-import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StreamUtils;
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
 @Service
 public class PdfGenrationService {
+
+    // Borders are only read while rendering, so one instance serves every cell of every form; never mutate it
+    private static final Border CELL_BORDER = new SolidBorder(DeviceRgb.BLACK, 1);
+
+    // A form is a few KB; each rendering thread reuses its buffer rather than growing a new one per form
+    private static final int INITIAL_BUFFER = 32 * 1024;
+    private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+    private static final ThreadLocal<ByteArrayOutputStream> RENDER_BUFFER =
+            ThreadLocal.withInitial(() -> new ByteArrayOutputStream(INITIAL_BUFFER));
+
     private final EncryptionService encryptionService;
 
     public PdfGenrationService(EncryptionService encryptionService) {
         this.encryptionService = encryptionService;
     }
 
-    public ResponseEntity<byte[]> genratePdf(FeedBackDTO feedBackDTO, HttpServletRequest request) throws IOException {
-        questionData[] Question = feedBackDTO.getQuestion();
-        if(Question != null) {
-            String timeStamp = new SimpleDateFormat("yyyy_MM").format(new Date());
-            String year = new SimpleDateFormat("yyyy").format(new Date());
-            String sanitizedCourseCode = feedBackDTO.getCourseCode().replaceAll("[^a-zA-Z0-9_-]", "_");
+    // Download name of the form, course code sanitised so it is safe in a header and as a storage key segment
+    public String fileNameFor(FeedBackDTO feedBackDTO) {
+        String timeStamp = new SimpleDateFormat("yyyy_MM").format(new Date());
+        String sanitizedCourseCode = feedBackDTO.getCourseCode().replaceAll("[^a-zA-Z0-9_-]", "_");
+        return sanitizedCourseCode + "_" + timeStamp + "_feedback.pdf";
+    }
 
-            // Construct the file path securely
-            Path basePath = Paths.get("src/main/resources/moderatorsFeedBacks", year);
-            Path filePath = basePath.resolve(sanitizedCourseCode + "_" + timeStamp + "_feedback.pdf");
+    // Reject a form that cannot be rendered before it is queued
+    public void validate(FeedBackDTO feedBackDTO) {
+        questionData[] Question = feedBackDTO.getQuestion();
+        if (Question == null || Question.length < 9) {
+            throw new IllegalArgumentException("The evaluation form needs answers to all 9 questions");
+        }
+        if (feedBackDTO.getCourseCode() == null || feedBackDTO.getCourseCode().isBlank()) {
+            throw new IllegalArgumentException("Course code is required");
+        }
+    }
 
-            // Create the directory if it doesn't exist
-            File directory = basePath.toFile();
-            if (!directory.exists() && !directory.mkdirs()) {
-                throw new IllegalStateException("Failed to create directory: " + basePath);
+    // Render the evaluation form in memory; callers decide where the bytes go
+    public byte[] render(FeedBackDTO feedBackDTO) throws IOException {
+        ByteArrayOutputStream buffer = RENDER_BUFFER.get();
+        buffer.reset();
+        try {
+            render(feedBackDTO, buffer);
+            return buffer.toByteArray();
+        } finally {
+            // Keep the buffer for the next form on this thread, unless an unusually long form grew it
+            if (buffer.size() > MAX_RETAINED_BUFFER) {
+                RENDER_BUFFER.remove();
             }
+        }
+    }
 
-            // Ensure the file path is within the expected directory
-            if (!filePath.toAbsolutePath().startsWith(basePath.toAbsolutePath())) {
-                throw new IllegalArgumentException("Invalid file path: " + filePath);
-            }
+    // Render the evaluation form straight into out, which is left open
+    public void render(FeedBackDTO feedBackDTO, OutputStream out) throws IOException {
+        render(feedBackDTO, out, CellStyling.SHARED);
+    }
 
-            // Use the file path safely
-            String fileName = filePath.toString();
-            PdfWriter writer = new PdfWriter(fileName);
-            PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf, PageSize.A4);
-            float colSize1=190f;
-            float colsize2=250f;
-            float colsize3=100f;
-            float[] questionTableSize ={50f,250f,40f,200f};
-            float[] examineTable={270f,270f};
-            float[] moderatorSign={colSize1,colsize2,colsize3};
-            float[] actionSign={180f,180f,180f};
-            float[] fullColumn={540f};
+    // As above, with the question table's cells styled the given way
+    public void render(FeedBackDTO feedBackDTO, OutputStream out, CellStyling styling) throws IOException {
+        validate(feedBackDTO);
+        PdfWriter writer = new PdfWriter(out);
+        writer.setCloseStream(false);
+        // Closed even when laying out fails, which releases the writer; an error closing a half-built
+        // document is then suppressed rather than hiding the one that stopped the layout
+        try (Document document = new Document(new PdfDocument(writer), PageSize.A4)) {
+            layOut(document, feedBackDTO, new FormStyle(styling));
+        }
+    }
 
-            // Add title
-            Paragraph title = new Paragraph("Evaluation Form for Moderation of Examination papers\n" +
-                    "Department of Computer Science-University of Ruhuna")
+    private void layOut(Document document, FeedBackDTO feedBackDTO, FormStyle style) {
+        questionData[] Question = feedBackDTO.getQuestion();
+        document.setFont(style.font);
+        float colSize1=190f;
+        float colsize2=250f;
+        float colsize3=100f;
+        float[] questionTableSize ={50f,250f,40f,200f};
+        float[] examineTable={270f,270f};
+        float[] moderatorSign={colSize1,colsize2,colsize3};
+        float[] actionSign={180f,180f,180f};
+        float[] fullColumn={540f};
 
-                    .setFontSize(18)
-                    .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER);
-            document.add(title);
+        // Add title
+        Paragraph title = new Paragraph("Evaluation Form for Moderation of Examination papers\n" +
+                "Department of Computer Science-University of Ruhuna")
 
-            // Add metadata or custom fields as in the form (Degree Program, Course Name, etc.)
-            document.add(new Paragraph("Degree Program: " + feedBackDTO.getDegreeProgram()));
-            document.add(new Paragraph("Examination: " + feedBackDTO.getExamination()));
-            document.add(new Paragraph("Course Name: " + feedBackDTO.getCourseName()));
-            document.add(new Paragraph("Course Code: " + feedBackDTO.getCourseCode()));
+                .setFontSize(18)
+                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER);
+        document.add(title);
 
-            // Table for the main questions
-            Table table = new Table(questionTableSize); // 5 columns
+        // Add metadata or custom fields as in the form (Degree Program, Course Name, etc.)
+        document.add(new Paragraph("Degree Program: " + feedBackDTO.getDegreeProgram()));
+        document.add(new Paragraph("Examination: " + feedBackDTO.getExamination()));
+        document.add(new Paragraph("Course Name: " + feedBackDTO.getCourseName()));
+        document.add(new Paragraph("Course Code: " + feedBackDTO.getCourseCode()));
 
-            // Set the table header
-            table.addCell(createStyledCell("Row No."));
-            table.addCell(createStyledCell("Question"));
-            table.addCell(createStyledCell("Answer"));
-            table.addCell(createStyledCell("Specific Comment"));
+        // Table for the main questions
+        Table table = new Table(questionTableSize); // 5 columns
 
-            // Add rows
-            for (int i = 0; i < 7; i++) {
-                table.addCell(createStyledCell(String.valueOf(i + 1)));
-                table.addCell(createStyledCell(Question[i].getQuestion()));
-                table.addCell(createStyledCell(Question[i].getAnswer()));
-                table.addCell(createStyledCell(Question[i].getComment()));
-            }
-            Cell commentCell = new Cell(1, 5); // 1 row, 5 columns
-            commentCell.add(new Paragraph("Comment on Marking Scheme")
-                    .setBold()
-                    .setFontSize(14)
-                    .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
-            commentCell.setBorder(new SolidBorder(new DeviceRgb(0, 0, 0), 1)); // Optional: Add a border
-            commentCell.setPadding(5);
-            table.addCell(commentCell);
+        // Set the table header
+        table.addCell(style.cell("Row No."));
+        table.addCell(style.cell("Question"));
+        table.addCell(style.cell("Answer"));
+        table.addCell(style.cell("Specific Comment"));
 
-            for(int i=7;i<9;i++){
-                table.addCell(createStyledCell(String.valueOf(i + 1)));
-                table.addCell(createStyledCell(Question[i].getQuestion()));
-                table.addCell(createStyledCell(Question[i].getAnswer()));
-                table.addCell(createStyledCell(Question[i].getComment()));
-            }
-            Cell commentCell1 = new Cell(1, 5);
-            commentCell1.add(new Paragraph("General Comment on Question Paper and Marking Scheme")
-                    .setBold()
-                    .setFontSize(14)
-                    .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
-            commentCell1.setBorder(new SolidBorder(new DeviceRgb(0, 0, 0), 1));
-            commentCell1.setPadding(10);
-            PdfFont font = PdfFontFactory.createFont(StandardFonts.HELVETICA); // Use Helvetica font
-            commentCell1.setFont(font);
-            table.addCell(commentCell1);
-            commentCell1.add(new Paragraph(feedBackDTO.getGeneralComment()));
-            document.add(table);
-            Table table1 = new Table(moderatorSign);
-            Cell namesCell = new Cell();
-            namesCell.add(new Paragraph("---------------------")
-                    .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
-            namesCell.add(new Paragraph("Name")
-                    .setBold()
-                    .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
-            namesCell.setVerticalAlignment(VerticalAlignment.BOTTOM);
-            namesCell.setPadding(10);
-            namesCell.setBorder(Border.NO_BORDER); // Add border for separation
-            table1.addCell(namesCell);
+        // Add rows
+        for (int i = 0; i < 7; i++) {
+            table.addCell(style.cell(String.valueOf(i + 1)));
+            table.addCell(style.cell(Question[i].getQuestion()));
+            table.addCell(style.cell(Question[i].getAnswer()));
+            table.addCell(style.cell(Question[i].getComment()));
+        }
+        Cell commentCell = new Cell(1, 5); // 1 row, 5 columns
+        commentCell.add(new Paragraph("Comment on Marking Scheme")
+                .setBold()
+                .setFontSize(14)
+                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
+        commentCell.setBorder(CELL_BORDER); // Optional: Add a border
+        commentCell.setPadding(5);
+        table.addCell(commentCell);
+
+        for(int i=7;i<9;i++){
+            table.addCell(style.cell(String.valueOf(i + 1)));
+            table.addCell(style.cell(Question[i].getQuestion()));
+            table.addCell(style.cell(Question[i].getAnswer()));
+            table.addCell(style.cell(Question[i].getComment()));
+        }
+        Cell commentCell1 = new Cell(1, 5);
+        commentCell1.add(new Paragraph("General Comment on Question Paper and Marking Scheme")
+                .setBold()
+                .setFontSize(14)
+                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
+        commentCell1.setBorder(CELL_BORDER);
+        commentCell1.setPadding(10);
+        commentCell1.setFont(style.font);
+        table.addCell(commentCell1);
+        commentCell1.add(new Paragraph(feedBackDTO.getGeneralComment()));
+        document.add(table);
+        Table table1 = new Table(moderatorSign);
+        Cell namesCell = new Cell();
+        namesCell.add(new Paragraph("---------------------")
+                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
+        namesCell.add(new Paragraph("Name")
+                .setBold()
+                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
+        namesCell.setVerticalAlignment(VerticalAlignment.BOTTOM);
+        namesCell.setPadding(10);
+        namesCell.setBorder(Border.NO_BORDER); // Add border for separation
+        table1.addCell(namesCell);
 
 // Signature Cell
-            Cell signatureCell = new Cell();
-            signatureCell.add(new Paragraph("---------------------")
-                    .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
-            signatureCell.add(new Paragraph("Signature")
-                    .setBold()
-                    .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
-            signatureCell.setVerticalAlignment(VerticalAlignment.BOTTOM);
-            signatureCell.setPadding(10);
-            signatureCell.setBorder(Border.NO_BORDER); // Add border for separation
-            table1.addCell(signatureCell);
+        Cell signatureCell = new Cell();
+        signatureCell.add(new Paragraph("---------------------")
+                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
+        signatureCell.add(new Paragraph("Signature")
+                .setBold()
+                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
+        signatureCell.setVerticalAlignment(VerticalAlignment.BOTTOM);
+        signatureCell.setPadding(10);
+        signatureCell.setBorder(Border.NO_BORDER); // Add border for separation
+        table1.addCell(signatureCell);
 
 // Date Cell
-            Cell dateCell = new Cell();
-            dateCell.add(new Paragraph("-------------------")
-                    .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
-            dateCell.add(new Paragraph("Date")
-                    .setBold()
-                    .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
-            dateCell.setVerticalAlignment(VerticalAlignment.BOTTOM);
-            dateCell.setPadding(10);
-            dateCell.setBorder(Border.NO_BORDER); // Add border for separation
-            table1.addCell(dateCell);
-            document.add(table1.setBorder(new SolidBorder(new DeviceRgb(0, 0, 0), 1)));
-            Table examinerTitle = new Table(examineTable);
-            Cell namesCell1 = new Cell(1,2);
-            namesCell1.add(new Paragraph("Follow Up Action by Examiner/s"))
-                    .setBold()
-                    .setFontSize(14)
-                    .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER);
-            namesCell1.setBorder(Border.NO_BORDER);
-            namesCell1.setPadding(10);
-            PdfFont examineFont = PdfFontFactory.createFont(StandardFonts.HELVETICA);
-            namesCell1.setFont(examineFont);
-            examinerTitle.addCell(namesCell1);
-            Cell agreeCell = new Cell();
-            agreeCell.add(new Paragraph()
-                    .add(new Text("(a) Agree and Adressed: \n").setBold())
-                    .add(new Text(feedBackDTO.getAgreeAndAddressed()))
-                    )
-                    .setFontSize(12)
-                    .setTextAlignment(TextAlignment.LEFT);
-            agreeCell.setBorder(new SolidBorder(new DeviceRgb(0, 0, 0), 1));
-            agreeCell.setPadding(4);
-           agreeCell.setFont(examineFont);
-           examinerTitle.addCell(agreeCell);
-           Cell disagreeCell = new Cell();
-           disagreeCell.add(new Paragraph()
-                   .add(new Text("(b) Not Agree and Reasson: \n").setBold()).add(new Text("\t"+feedBackDTO.getAgreeAndAddressed()))
-
-                   )
-                    .setFontSize(12)
-                    .setTextAlignment(TextAlignment.LEFT);
+        Cell dateCell = new Cell();
+        dateCell.add(new Paragraph("-------------------")
+                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
+        dateCell.add(new Paragraph("Date")
+                .setBold()
+                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER));
+        dateCell.setVerticalAlignment(VerticalAlignment.BOTTOM);
+        dateCell.setPadding(10);
+        dateCell.setBorder(Border.NO_BORDER); // Add border for separation
+        table1.addCell(dateCell);
+        document.add(table1.setBorder(CELL_BORDER));
+        Table examinerTitle = new Table(examineTable);
+        Cell namesCell1 = new Cell(1,2);
+        namesCell1.add(new Paragraph("Follow Up Action by Examiner/s"))
+                .setBold()
+                .setFontSize(14)
+                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER);
+        namesCell1.setBorder(Border.NO_BORDER);
+        namesCell1.setPadding(10);
+        namesCell1.setFont(style.font);
+        examinerTitle.addCell(namesCell1);
+        Cell agreeCell = new Cell();
+        agreeCell.add(new Paragraph()
+                .add(new Text("(a) Agree and Adressed: \n").setBold())
+                .add(new Text(feedBackDTO.getAgreeAndAddressed()))
+                )
+                .setFontSize(12)
+                .setTextAlignment(TextAlignment.LEFT);
+        agreeCell.setBorder(CELL_BORDER);
+        agreeCell.setPadding(4);
+       agreeCell.setFont(style.font);
+       examinerTitle.addCell(agreeCell);
+       Cell disagreeCell = new Cell();
+       disagreeCell.add(new Paragraph()
+               .add(new Text("(b) Not Agree and Reasson: \n").setBold()).add(new Text("\t"+feedBackDTO.getAgreeAndAddressed()))
 
-            agreeCell.setBorder(new SolidBorder(new DeviceRgb(0, 0, 0), 1));
-           disagreeCell.setPadding(4);
-           disagreeCell.setFont(examineFont);
-           examinerTitle.addCell(disagreeCell);
-           document.add(examinerTitle.setBorder(Border.NO_BORDER));
-           Table examinersTable = new Table(actionSign);
-           examinersTable.addCell(new Cell().add(new Paragraph("Name")).setBorder(Border.NO_BORDER));
-           examinersTable.addCell(new Cell().add(new Paragraph("Signature")).setBorder(Border.NO_BORDER));
-           examinersTable.addCell(new Cell().add(new Paragraph("Date")).setBorder(Border.NO_BORDER));
-           for(int i=0;i<12;i++){
-               examinersTable.addCell(new Cell().add(new Paragraph("---------------------------")).setBorder(Border.NO_BORDER));
-           }
-           document.add(examinersTable.setBorder(new SolidBorder(new DeviceRgb(0, 0, 0), 1)));
-           Table endTable=new Table(fullColumn);
-           Cell learningOutcomeCell = new Cell();
-           learningOutcomeCell.add(new Paragraph( )
-                   .add(new Text("Learning Outcomes:\n").setBold())
-                   .add(feedBackDTO.getLearningOutcomes())
-                   .setFontSize(14)
-                   .setTextAlignment(TextAlignment.LEFT)
-           );
-           learningOutcomeCell.setBorder(Border.NO_BORDER);
-           endTable.addCell(learningOutcomeCell);
-            Cell CourseContent = new Cell();
-            CourseContent.add(new Paragraph( )
-                    .add(new Text("Course Content:\n").setBold())
-                    .add(feedBackDTO.getCourseContent())
-                    .setFontSize(14)
-                    .setTextAlignment(TextAlignment.LEFT)
-            );
-            CourseContent.setBorder(Border.NO_BORDER);
-            endTable.addCell(CourseContent);
-            document.add(endTable.setBorder(new SolidBorder(new DeviceRgb(0, 0, 0), 1)));
+               )
+                .setFontSize(12)
+                .setTextAlignment(TextAlignment.LEFT);
 
-            document.close();
-            File file = new File(fileName);
-            FileInputStream fis = new FileInputStream(file);
-            byte[] pdfBytes = StreamUtils.copyToByteArray(fis);
-            fis.close();
-
-
-            // Set headers for file download
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName);
-            headers.add(HttpHeaders.CONTENT_TYPE, "application/pdf");
-            return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
-
-        }
-        return new ResponseEntity<>(
-                null, null, HttpStatus.EXPECTATION_FAILED
+        agreeCell.setBorder(CELL_BORDER);
+       disagreeCell.setPadding(4);
+       disagreeCell.setFont(style.font);
+       examinerTitle.addCell(disagreeCell);
+       document.add(examinerTitle.setBorder(Border.NO_BORDER));
+       Table examinersTable = new Table(actionSign);
+       examinersTable.addCell(new Cell().add(new Paragraph("Name")).setBorder(Border.NO_BORDER));
+       examinersTable.addCell(new Cell().add(new Paragraph("Signature")).setBorder(Border.NO_BORDER));
+       examinersTable.addCell(new Cell().add(new Paragraph("Date")).setBorder(Border.NO_BORDER));
+       for(int i=0;i<12;i++){
+           examinersTable.addCell(new Cell().add(new Paragraph("---------------------------")).setBorder(Border.NO_BORDER));
+       }
+       document.add(examinersTable.setBorder(CELL_BORDER));
+       Table endTable=new Table(fullColumn);
+       Cell learningOutcomeCell = new Cell();
+       learningOutcomeCell.add(new Paragraph( )
+               .add(new Text("Learning Outcomes:\n").setBold())
+               .add(feedBackDTO.getLearningOutcomes())
+               .setFontSize(14)
+               .setTextAlignment(TextAlignment.LEFT)
+       );
+       learningOutcomeCell.setBorder(Border.NO_BORDER);
+       endTable.addCell(learningOutcomeCell);
+        Cell CourseContent = new Cell();
+        CourseContent.add(new Paragraph( )
+                .add(new Text("Course Content:\n").setBold())
+                .add(feedBackDTO.getCourseContent())
+                .setFontSize(14)
+                .setTextAlignment(TextAlignment.LEFT)
         );
+        CourseContent.setBorder(Border.NO_BORDER);
+        endTable.addCell(CourseContent);
+        document.add(endTable.setBorder(CELL_BORDER));
     }
 
-    private Cell createStyledCell(String text) throws IOException {
-        // Create a new cell
-        Cell cell = new Cell();
+    // How the question table's cells get their font and border. Forms are rendered with SHARED;
+    // PER_CELL creates both for every cell, as forms used to be rendered, so the two can be measured
+    public enum CellStyling {
+        SHARED,
+        PER_CELL
+    }
 
-        // Add text as a Paragraph to the cell
-        cell.add(new Paragraph(text));
+    // Styles shared by every cell of one document. iText binds a font to the document it is used in,
+    // so each form gets its own Helvetica, created once instead of once per cell
+    private static final class FormStyle {
 
-        // Set a solid black border with a width of 1
-        cell.setBorder(new SolidBorder(new DeviceRgb(0, 0, 0), 1));
+        private final PdfFont font;
 
-        // Set padding
-        cell.setPadding(5);
+        private final CellStyling styling;
 
-        // Set the font to Helvetica
-        PdfFont font = PdfFontFactory.createFont(StandardFonts.HELVETICA); // Use Helvetica font
-        cell.setFont(font);
+        private FormStyle(CellStyling styling) throws IOException {
+            this.font = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+            this.styling = styling;
+        }
 
-        // Return the styled cell
-        return cell;
-    }
+        // A bordered, padded cell holding one line of text
+        private Cell cell(String text) {
+            Cell cell = new Cell();
+            cell.add(new Paragraph(text));
+            cell.setPadding(5);
+            if (styling == CellStyling.PER_CELL) {
+                cell.setBorder(new SolidBorder(new DeviceRgb(0, 0, 0), 1));
+                cell.setFont(newFont());
+            } else {
+                cell.setBorder(CELL_BORDER);
+                cell.setFont(font);
+            }
+            return cell;
+        }
 
+        private static PdfFont newFont() {
+            try {
+                return PdfFontFactory.createFont(StandardFonts.HELVETICA);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
 
 }
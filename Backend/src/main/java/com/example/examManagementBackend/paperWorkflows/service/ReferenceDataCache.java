@@ -0,0 +1,242 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.paperWorkflows.repository.CoursesRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.DegreeProgramRepo;
+import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.resultManagement.entities.Enums.ExamTypesName;
+import com.example.examManagementBackend.resultManagement.repo.ExamTypeRepo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory ids of courses, examinations, exam types and degree programs, so that resolving the names
+ * on a marking sheet costs no queries. Everything is held in one immutable snapshot tagged with a
+ * version; writes through the course, examination and degree program services bump the version, and
+ * the next lookup loads a fresh snapshot. Snapshots also expire after reference-data.max-age, which
+ * covers changes made elsewhere. A name missing from the snapshot is still looked up in the database,
+ * and if it exists there the snapshot is reloaded.
+ */
+@Service
+public class ReferenceDataCache {
+
+    private final CoursesRepository coursesRepository;
+    private final ExaminationRepository examinationRepository;
+    private final ExamTypeRepo examTypeRepo;
+    private final DegreeProgramRepo degreeProgramRepo;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long maxAgeNanos;
+
+    private final AtomicLong version = new AtomicLong(1);
+
+    // Version 0 never matches, so the first lookup loads
+    private volatile Snapshot snapshot = new Snapshot(0, 0, null, Map.of(), Map.of(), Map.of(), Map.of(), Map.of());
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    // examinationIdsByTerm is keyed by year, level and semester alone, for names whose degree part doesn't match
+    private record Snapshot(long version, long loadedAtNanos, LocalDateTime loadedAt,
+                            Map<String, Long> courseIds,
+                            Map<String, Long> examinationIdsByName,
+                            Map<String, List<Long>> examinationIdsByTerm,
+                            Map<ExamTypesName, Long> examTypeIds,
+                            Map<String, Long> degreeProgramIds) {
+    }
+
+    public record Stats(long version, LocalDateTime loadedAt, int courses, int examinations, int examTypes, int degreePrograms,
+                        long hits, long misses, double hitRate, long loads, double averageLoadMillis, long invalidations) {
+    }
+
+    public ReferenceDataCache(CoursesRepository coursesRepository, ExaminationRepository examinationRepository,
+                              ExamTypeRepo examTypeRepo, DegreeProgramRepo degreeProgramRepo,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${reference-data.max-age:PT10M}") Duration maxAge) {
+        this.coursesRepository = coursesRepository;
+        this.examinationRepository = examinationRepository;
+        this.examTypeRepo = examTypeRepo;
+        this.degreeProgramRepo = degreeProgramRepo;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxAgeNanos = maxAge.toNanos();
+    }
+
+    public Long courseId(String code) {
+        Long id = code == null ? null : current().courseIds().get(code);
+        if (id != null) {
+            hits.increment();
+            return id;
+        }
+        misses.increment();
+        return code == null ? null : loaded(coursesRepository.getCourseIdByCode(code));
+    }
+
+    // examName is "<year>-<degree>-Level <n>-Semester <n>", as the examination list shows it
+    public Long examinationId(String examName) {
+        if (examName == null) {
+            throw new IllegalArgumentException("Unrecognised examination name: null");
+        }
+        Snapshot current = current();
+        Long id = current.examinationIdsByName().get(examName);
+        if (id != null) {
+            hits.increment();
+            return id;
+        }
+
+        String[] examDetails = examName.split("-");
+        if (examDetails.length < 4 || examDetails[2].split(" ").length < 2 || examDetails[3].split(" ").length < 2) {
+            throw new IllegalArgumentException("Unrecognised examination name: " + examName);
+        }
+        String year = examDetails[0];
+        String level = examDetails[2].split(" ")[1];
+        String semester = examDetails[3].split(" ")[1];
+        List<Long> ids = current.examinationIdsByTerm().get(termKey(year, level, semester));
+        if (ids != null) {
+            hits.increment();
+            // Several degree programs sit the same term; without the degree the name doesn't say which
+            return ids.size() == 1 ? ids.get(0) : null;
+        }
+        misses.increment();
+        return loaded(examinationRepository.getExaminationIdByYearAndSemesterAndLevel(year, level, semester));
+    }
+
+    public Long examTypeId(ExamTypesName examType) {
+        Long id = examType == null ? null : current().examTypeIds().get(examType);
+        if (id != null) {
+            hits.increment();
+            return id;
+        }
+        misses.increment();
+        return examType == null ? null : loaded(examTypeRepo.getExamTypeIdByExamTypeName(examType));
+    }
+
+    public Long degreeProgramId(String degreeName) {
+        Long id = degreeName == null ? null : current().degreeProgramIds().get(degreeName);
+        if (id != null) {
+            hits.increment();
+            return id;
+        }
+        misses.increment();
+        return null;
+    }
+
+    // Drop the snapshot after a write; inside a transaction it is dropped again once the write commits,
+    // so a load that ran in between can't keep the old rows
+    public void invalidate() {
+        version.incrementAndGet();
+        invalidations.increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    public Stats stats() {
+        Snapshot current = snapshot;
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long loadCount = loads.sum();
+        long requests = hitCount + missCount;
+        return new Stats(
+                current.version(),
+                current.loadedAt(),
+                current.courseIds().size(),
+                current.examinationIdsByName().size(),
+                current.examTypeIds().size(),
+                current.degreeProgramIds().size(),
+                hitCount,
+                missCount,
+                requests == 0 ? 0 : (double) hitCount / requests,
+                loadCount,
+                loadCount == 0 ? 0 : totalLoadNanos.sum() / 1_000_000.0 / loadCount,
+                invalidations.sum()
+        );
+    }
+
+    // Something the snapshot didn't know about exists now, so the next lookup should reload
+    private Long loaded(Long id) {
+        if (id != null) {
+            invalidate();
+        }
+        return id;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current.version() == version.get() && System.nanoTime() - current.loadedAtNanos() < maxAgeNanos) {
+            return current;
+        }
+        return reload();
+    }
+
+    // One thread loads while the others wait for its snapshot
+    private synchronized Snapshot reload() {
+        Snapshot current = snapshot;
+        long target = version.get();
+        if (current.version() == target && System.nanoTime() - current.loadedAtNanos() < maxAgeNanos) {
+            return current;
+        }
+
+        long start = System.nanoTime();
+        Snapshot loaded = readOnlyTransaction.execute(status -> {
+            Map<String, Long> courseIds = new HashMap<>();
+            for (Object[] row : coursesRepository.findAllCodes()) {
+                courseIds.put((String) row[1], (Long) row[0]);
+            }
+
+            Map<String, Long> examinationIdsByName = new HashMap<>();
+            Map<String, List<Long>> examinationIdsByTerm = new HashMap<>();
+            for (Object[] row : examinationRepository.findAllNameParts()) {
+                Long id = (Long) row[0];
+                String year = (String) row[1];
+                String level = (String) row[2];
+                String semester = (String) row[3];
+                examinationIdsByName.put(year + "-" + row[4] + "-Level " + level + "-Semester " + semester, id);
+                examinationIdsByTerm.computeIfAbsent(termKey(year, level, semester), key -> new ArrayList<>()).add(id);
+            }
+            examinationIdsByTerm.replaceAll((key, ids) -> List.copyOf(ids));
+
+            Map<ExamTypesName, Long> examTypeIds = new EnumMap<>(ExamTypesName.class);
+            for (Object[] row : examTypeRepo.findAllNames()) {
+                if (row[1] != null) {
+                    examTypeIds.put((ExamTypesName) row[1], (Long) row[0]);
+                }
+            }
+
+            Map<String, Long> degreeProgramIds = new HashMap<>();
+            for (Object[] row : degreeProgramRepo.findAllNames()) {
+                degreeProgramIds.put((String) row[1], (Long) row[0]);
+            }
+            return new Snapshot(target, System.nanoTime(), LocalDateTime.now(), Map.copyOf(courseIds), Map.copyOf(examinationIdsByName),
+                    Map.copyOf(examinationIdsByTerm), examTypeIds, Map.copyOf(degreeProgramIds));
+        });
+        totalLoadNanos.add(System.nanoTime() - start);
+        loads.increment();
+        snapshot = loaded;
+        return loaded;
+    }
+
+    private static String termKey(String year, String level, String semester) {
+        return year + "\n" + level + "\n" + semester;
+    }
+}
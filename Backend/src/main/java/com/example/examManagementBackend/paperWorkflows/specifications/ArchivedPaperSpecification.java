@@ -1,67 +1,85 @@
 package com.example.examManagementBackend.paperWorkflows.specifications;
 
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSearchCriteria;
 import com.example.examManagementBackend.paperWorkflows.entity.ArchivedPaper;
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.PaperType;
+import com.example.examManagementBackend.paperWorkflows.search.ArchiveSearchIndex;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
-import org.springframework.data.jpa.domain.Specification;
+import jakarta.persistence.criteria.Root;
 
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
+// Criteria filters for the database fallback of archive searches; they match the way ArchiveSearchIndex does, so
+// results don't change once the index is built
 public class ArchivedPaperSpecification {
 
-    public static Specification<ArchivedPaper> filterByCriteria(
-            String fileName, String creatorName, String moderatorName,
-            String courseCode, String paperType, String degreeName,
-            String year, String level, String semester,
-            LocalDateTime startDate, LocalDateTime endDate) {
+    // The joins every archive filter and projection needs; the moderator is optional on an archived paper
+    public record ArchivedPaperJoins(Join<Object, Object> creator, Join<Object, Object> moderator,
+                                     Join<Object, Object> course, Join<Object, Object> examination,
+                                     Join<Object, Object> degree) {
 
-        return (root, query, criteriaBuilder) -> {
-            List<Predicate> predicates = new ArrayList<>();
-
-            // Join related tables
-            Join<Object, Object> creatorJoin = root.join("creator");
-            Join<Object, Object> moderatorJoin = root.join("moderator");
-            Join<Object, Object> courseJoin = root.join("course");
+        public static ArchivedPaperJoins of(Root<ArchivedPaper> root) {
             Join<Object, Object> examJoin = root.join("examination");
-            Join<Object, Object> degreeJoin = examJoin.join("degreeProgramsEntity");
+            return new ArchivedPaperJoins(root.join("creator"), root.join("moderator", JoinType.LEFT),
+                    root.join("course"), examJoin, examJoin.join("degreeProgramsEntity"));
+        }
+    }
 
-            if (fileName != null && !fileName.isEmpty()) {
-                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get("fileName")), "%" + fileName.toLowerCase() + "%"));
-            }
-            if (creatorName != null && !creatorName.isEmpty()) {
-                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(creatorJoin.get("username")), "%" + creatorName.toLowerCase() + "%"));
-            }
-            if (moderatorName != null && !moderatorName.isEmpty()) {
-                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(moderatorJoin.get("username")), "%" + moderatorName.toLowerCase() + "%"));
-            }
-            if (courseCode != null && !courseCode.isEmpty()) {
-                predicates.add(criteriaBuilder.equal(courseJoin.get("code"), courseCode));
-            }
-            if (paperType != null && !paperType.isEmpty()) {
-                predicates.add(criteriaBuilder.equal(root.get("paperType"), paperType));
-            }
-            if (degreeName != null && !degreeName.isEmpty()) {
-                predicates.add(criteriaBuilder.equal(degreeJoin.get("degreeName"), degreeName));
-            }
-            if (year != null && !year.isEmpty()) {
-                predicates.add(criteriaBuilder.equal(examJoin.get("year"), year));
-            }
-            if (level != null && !level.isEmpty()) {
-                predicates.add(criteriaBuilder.equal(examJoin.get("level"), level));
-            }
-            if (semester != null && !semester.isEmpty()) {
-                predicates.add(criteriaBuilder.equal(examJoin.get("semester"), semester));
-            }
-            if (startDate != null) {
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("sharedAt"), startDate));
-            }
-            if (endDate != null) {
-                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("sharedAt"), endDate));
+    public static List<Predicate> predicates(ArchivedPaperSearchCriteria criteria, CriteriaBuilder criteriaBuilder,
+                                             Root<ArchivedPaper> root, ArchivedPaperJoins joins) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        addWordPrefixes(predicates, criteriaBuilder, root.get("fileName"), criteria.getFileName());
+        addWordPrefixes(predicates, criteriaBuilder, joins.creator().get("username"), criteria.getCreatorName());
+        addWordPrefixes(predicates, criteriaBuilder, joins.moderator().get("username"), criteria.getModeratorName());
+        addKeyword(predicates, criteriaBuilder, joins.course().get("code"), criteria.getCourseCode());
+        if (hasText(criteria.getPaperType())) {
+            try {
+                predicates.add(criteriaBuilder.equal(root.get("paperType"),
+                        PaperType.valueOf(criteria.getPaperType().trim().toUpperCase(Locale.ROOT))));
+            } catch (IllegalArgumentException e) {
+                // Not a paper type, so nothing can match
+                predicates.add(criteriaBuilder.disjunction());
             }
+        }
+        addKeyword(predicates, criteriaBuilder, joins.degree().get("degreeName"), criteria.getDegreeName());
+        addKeyword(predicates, criteriaBuilder, joins.examination().get("year"), criteria.getYear());
+        addKeyword(predicates, criteriaBuilder, joins.examination().get("level"), criteria.getLevel());
+        addKeyword(predicates, criteriaBuilder, joins.examination().get("semester"), criteria.getSemester());
+        if (criteria.getStartDate() != null) {
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("sharedAt"), criteria.getStartDate()));
+        }
+        if (criteria.getEndDate() != null) {
+            predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("sharedAt"), criteria.getEndDate()));
+        }
+
+        return predicates;
+    }
+
+    // Every token of the filter has to start a word of the column, like a non-fuzzy filter on the search index. The
+    // pattern is bound as a parameter, and tokens are only letters and digits, so nothing in it needs escaping
+    private static void addWordPrefixes(List<Predicate> predicates, CriteriaBuilder criteriaBuilder, Expression<String> column, String value) {
+        for (String token : ArchiveSearchIndex.tokenize(value)) {
+            predicates.add(criteriaBuilder.isTrue(criteriaBuilder.function("regexp_like", Boolean.class,
+                    criteriaBuilder.lower(column), criteriaBuilder.literal("(^|[^\\p{L}\\p{N}])" + token))));
+        }
+    }
+
+    // Whole value, ignoring case and surrounding spaces
+    private static void addKeyword(List<Predicate> predicates, CriteriaBuilder criteriaBuilder, Expression<String> column, String value) {
+        if (hasText(value)) {
+            predicates.add(criteriaBuilder.equal(criteriaBuilder.lower(criteriaBuilder.trim(column)),
+                    value.trim().toLowerCase(Locale.ROOT)));
+        }
+    }
 
-            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
-        };
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
     }
 }
@@ -1,19 +1,43 @@
 package com.example.examManagementBackend.resultManagement.controllers;
 
+import com.example.examManagementBackend.paperWorkflows.service.ReferenceDataCache;
+import com.example.examManagementBackend.resultManagement.dto.MarkImportReportDTO;
 import com.example.examManagementBackend.resultManagement.dto.ResultDTO;
 import com.example.examManagementBackend.resultManagement.entities.Enums.ExamTypesName;
+import com.example.examManagementBackend.resultManagement.services.FinalMarkService;
+import com.example.examManagementBackend.resultManagement.services.MarkSheetImportService;
+import com.example.examManagementBackend.resultManagement.services.ResultExportService;
 import com.example.examManagementBackend.resultManagement.services.ResultService;
+import com.example.examManagementBackend.resultManagement.sheets.SheetWriter;
 import com.example.examManagementBackend.utill.StandardResponse;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/result")
 public class ResultController {
     private final ResultService resultService;
-    public ResultController(ResultService resultService) {
+    private final MarkSheetImportService markSheetImportService;
+    private final ResultExportService resultExportService;
+    private final ReferenceDataCache referenceDataCache;
+    private final FinalMarkService finalMarkService;
+    public ResultController(ResultService resultService, MarkSheetImportService markSheetImportService, ResultExportService resultExportService,
+                            ReferenceDataCache referenceDataCache, FinalMarkService finalMarkService) {
         this.resultService = resultService;
+        this.markSheetImportService = markSheetImportService;
+        this.resultExportService = resultExportService;
+        this.referenceDataCache = referenceDataCache;
+        this.finalMarkService = finalMarkService;
     }
 
     @PostMapping("/firstMarking")
@@ -26,6 +50,81 @@ public class ResultController {
     public ResponseEntity<StandardResponse> getFirstMarkings(@RequestParam  String examName,@RequestParam String courseCode,@RequestParam ExamTypesName examType){
         return resultService.getFirstMarking(courseCode,examName,examType);
     }
+    // Upload a CSV or .xlsx mark sheet; rows are validated and saved in batches, and the rows that were not saved are reported
+    @PostMapping("/import")
+    public ResponseEntity<StandardResponse> importMarkSheet(@RequestParam("file") MultipartFile file,
+                                                            @RequestParam(required = false) String examName,
+                                                            @RequestParam(required = false) String courseCode,
+                                                            @RequestParam(required = false) ExamTypesName examType,
+                                                            HttpServletRequest request) {
+        try {
+            MarkImportReportDTO report = markSheetImportService.importSheet(file, examName, courseCode, examType,
+                    resultService.getApproverId(request));
+            return ResponseEntity.ok(new StandardResponse(200, report.getImported() + " of " + report.getRows() + " rows imported", report));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new StandardResponse(400, e.getMessage(), null));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(new StandardResponse(400, "The mark sheet could not be read: " + e.getMessage(), null));
+        }
+    }
+
+    // Stream results as csv, xlsx or jsonl; leave out examinationId, courseCode or examType to export across them
+    @GetMapping("/export")
+    public ResponseEntity<?> exportResults(@RequestParam(defaultValue = "csv") String format,
+                                           @RequestParam(required = false) Long examinationId,
+                                           @RequestParam(required = false) String courseCode,
+                                           @RequestParam(required = false) ExamTypesName examType) {
+        SheetWriter.Format sheetFormat;
+        ResultExportService.ExportFilter filter;
+        try {
+            sheetFormat = SheetWriter.Format.of(format);
+            filter = resultExportService.filter(examinationId, courseCode, examType);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new StandardResponse(400, e.getMessage(), null));
+        }
+
+        String exportName = "results-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + "." + sheetFormat.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(sheetFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + exportName + "\"")
+                .body((StreamingResponseBody) out -> resultExportService.writeResults(filter, sheetFormat, out));
+    }
+
+    // Compute the final marks of every course in an examination from the course weightages
+    @PostMapping("/final-marks")
+    public ResponseEntity<StandardResponse> computeFinalMarks(@RequestParam Long examinationId) {
+        try {
+            return ResponseEntity.ok(new StandardResponse(200, "Final marks computed", finalMarkService.computeExamination(examinationId)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new StandardResponse(400, e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("/weightages")
+    public ResponseEntity<StandardResponse> getWeightages(@RequestParam String courseCode) {
+        try {
+            return ResponseEntity.ok(new StandardResponse(200, "Weightages retrieved successfully", finalMarkService.getWeightages(courseCode)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new StandardResponse(400, e.getMessage(), null));
+        }
+    }
+
+    // Replace a course's weightages, e.g. {"THEORY": 60, "CA": 40}; final marks of that course are recomputed
+    @PutMapping("/weightages")
+    public ResponseEntity<StandardResponse> setWeightages(@RequestParam String courseCode, @RequestBody Map<ExamTypesName, Float> weightages) {
+        try {
+            return ResponseEntity.ok(new StandardResponse(200, "Weightages saved and final marks recomputed",
+                    finalMarkService.setWeightages(courseCode, weightages)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new StandardResponse(400, e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("/reference-cache/stats")
+    public ResponseEntity<StandardResponse> getReferenceCacheStats() {
+        return ResponseEntity.ok(new StandardResponse(200, "Reference data cache statistics retrieved successfully", referenceDataCache.stats()));
+    }
+
     @PostMapping("/secondMarking")
     public ResponseEntity<StandardResponse> saveSecondMarking(@RequestBody ResultDTO results, HttpServletRequest request){
         return resultService.saveMarkingResults(results,request);
@@ -0,0 +1,23 @@
+package com.example.examManagementBackend.resultManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Outcome of computing final marks for an examination
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class FinalMarkReportDTO {
+    private Long examinationId;
+    private int courses;
+    // Courses left as they were because no weightages are set for them
+    private List<String> coursesWithoutWeightages;
+    private int results;
+    private int updated;
+    // Published results keep the final mark they were published with
+    private int publishedUnchanged;
+    private long millis;
+}
@@ -0,0 +1,15 @@
+package com.example.examManagementBackend.resultManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A mark sheet row that was not imported; row is the line or spreadsheet row number
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class MarkImportErrorDTO {
+    private int row;
+    private String studentNumber;
+    private String message;
+}
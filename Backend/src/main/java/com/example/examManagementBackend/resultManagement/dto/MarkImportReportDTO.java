@@ -0,0 +1,19 @@
+package com.example.examManagementBackend.resultManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class MarkImportReportDTO {
+    private int rows;
+    private int imported;
+    private int failed;
+    // Only the first errors are listed; failed counts all of them
+    private boolean errorsTruncated;
+    private List<MarkImportErrorDTO> errors;
+}
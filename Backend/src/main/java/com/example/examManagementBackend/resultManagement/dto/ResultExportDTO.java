@@ -0,0 +1,29 @@
+package com.example.examManagementBackend.resultManagement.dto;
+
+import com.example.examManagementBackend.resultManagement.entities.Enums.ResultStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One result row as exported, with the names it refers to joined in
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ResultExportDTO {
+    private String year;
+    private String level;
+    private String semester;
+    private String degreeName;
+    private String courseCode;
+    private String courseName;
+    private String examType;
+    private String studentNumber;
+    private String studentName;
+    private float firstMarking;
+    private float secondMarking;
+    private float finalMarks;
+    private ResultStatus status;
+    private LocalDateTime publishAt;
+}
@@ -11,8 +11,9 @@ import java.time.LocalDateTime;
 
 import static com.example.examManagementBackend.resultManagement.entities.Enums.ResultStatus.FIRST_MARKING_COMPLETE;
 
+// A marking sheet looks up the results of its students within one course, examination and exam type
 @Entity
-@Table(name="result")
+@Table(name="result", indexes = @Index(columnList = "student_id, course_id, examination_id, exam_type"))
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
@@ -8,12 +8,18 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 @EnableJpaRepositories
 public interface ExamTypeRepo extends JpaRepository<ExamTypesEntity,Long> {
     @Query("SELECT et.id FROM ExamTypesEntity et WHERE et.name= :name")
     Long getExamTypeIdByExamTypeName(@Param("name") ExamTypesName examTypeName);
 
+    // id, name of every exam type, for the reference data cache
+    @Query("SELECT et.id, et.name FROM ExamTypesEntity et")
+    List<Object[]> findAllNames();
+
     @Query("SELECT et FROM ExamTypesEntity et where et.id = :id")
     ExamTypesEntity getUsingId( @Param("id") long id);
 }
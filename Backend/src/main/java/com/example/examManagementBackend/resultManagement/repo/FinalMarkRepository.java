@@ -0,0 +1,158 @@
+package com.example.examManagementBackend.resultManagement.repo;
+
+import com.example.examManagementBackend.resultManagement.entities.Enums.ExamTypesName;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Course weightages and the marks final marks are computed from, read and written with plain JDBC so a whole
+// examination's results never become entities. course_evaluation is written here rather than through JPA because
+// its entity cascades every operation, removal included, to the course
+@Repository
+public class FinalMarkRepository {
+
+    // Rows per JDBC batch
+    private static final int BATCH_SIZE = 500;
+
+    // Rows fetched per round trip while reading marks
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public FinalMarkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    // One result row, passed as primitives so reading a large examination doesn't box every value
+    @FunctionalInterface
+    public interface MarkRowHandler {
+        void row(long resultId, long courseId, long studentId, long examTypeId, float firstMarking, float secondMarking,
+                 boolean secondMarked, boolean published, float finalMarks);
+    }
+
+    // Visit the results of one examination, limited to courseIds unless that is null, ordered by course, student and
+    // exam type with the oldest row first, the row marking sheets keep updating when a student has duplicates
+    public void forEachMark(Long examinationId, Collection<Long> courseIds, MarkRowHandler handler) {
+        StringBuilder sql = new StringBuilder("SELECT result_id, course_id, student_id, exam_type, first_marking, second_marking, " +
+                "status, final_marks FROM result WHERE examination_id = ?");
+        List<Long> params = new ArrayList<>();
+        params.add(examinationId);
+        if (courseIds != null) {
+            sql.append(" AND course_id IN (").append(String.join(", ", Collections.nCopies(courseIds.size(), "?"))).append(")");
+            params.addAll(courseIds);
+        }
+        sql.append(" ORDER BY course_id, student_id, exam_type, result_id");
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < params.size(); i++) {
+                statement.setLong(i + 1, params.get(i));
+            }
+            return statement;
+        }, row -> {
+            String status = row.getString("status");
+            handler.row(row.getLong("result_id"), row.getLong("course_id"), row.getLong("student_id"), row.getLong("exam_type"),
+                    row.getFloat("first_marking"), row.getFloat("second_marking"),
+                    "SECOND_MARKING_COMPLETE".equals(status) || "PUBLISHED".equals(status),
+                    "PUBLISHED".equals(status), row.getFloat("final_marks"));
+        });
+    }
+
+    // Weightage of each exam type by course, for the given courses or, when null, every course with results in the examination
+    public Map<Long, Map<Long, Float>> findWeightages(Long examinationId, Collection<Long> courseIds) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("examinationId", examinationId);
+        String sql;
+        if (courseIds == null) {
+            sql = "SELECT course_id, exam_type, weightage FROM course_evaluation " +
+                    "WHERE course_id IN (SELECT DISTINCT course_id FROM result WHERE examination_id = :examinationId)";
+        } else if (courseIds.isEmpty()) {
+            return Map.of();
+        } else {
+            sql = "SELECT course_id, exam_type, weightage FROM course_evaluation WHERE course_id IN (:courseIds)";
+            parameters.addValue("courseIds", courseIds);
+        }
+        Map<Long, Map<Long, Float>> weightages = new HashMap<>();
+        namedJdbcTemplate.query(sql, parameters, row -> {
+            if (row.getObject("exam_type") != null) {
+                weightages.computeIfAbsent(row.getLong("course_id"), key -> new HashMap<>())
+                        .put(row.getLong("exam_type"), row.getFloat("weightage"));
+            }
+        });
+        return weightages;
+    }
+
+    public Map<ExamTypesName, Float> findWeightagesByCourse(Long courseId) {
+        Map<ExamTypesName, Float> weightages = new EnumMap<>(ExamTypesName.class);
+        jdbcTemplate.query("SELECT t.name, ce.weightage FROM course_evaluation ce JOIN exam_types t ON t.id = ce.exam_type " +
+                "WHERE ce.course_id = ?", row -> {
+            weightages.put(ExamTypesName.valueOf(row.getString("name")), row.getFloat("weightage"));
+        }, courseId);
+        return weightages;
+    }
+
+    // Replace a course's weightages; call inside a transaction
+    public void replaceWeightages(Long courseId, Map<Long, Float> weightageByExamTypeId) {
+        jdbcTemplate.update("DELETE FROM course_evaluation WHERE course_id = ?", courseId);
+        jdbcTemplate.batchUpdate("INSERT INTO course_evaluation (course_id, exam_type, weightage) VALUES (?, ?, ?)",
+                new ArrayList<>(weightageByExamTypeId.entrySet()), BATCH_SIZE, (statement, weightage) -> {
+                    statement.setLong(1, courseId);
+                    statement.setLong(2, weightage.getKey());
+                    statement.setFloat(3, weightage.getValue());
+                });
+    }
+
+    // Examinations that have results for the course
+    public List<Long> findExaminationIdsWithCourse(Long courseId) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT examination_id FROM result WHERE course_id = ? ORDER BY examination_id",
+                Long.class, courseId);
+    }
+
+    public Map<Long, String> findCourseCodes(Collection<Long> courseIds) {
+        Map<Long, String> codes = new HashMap<>();
+        if (!courseIds.isEmpty()) {
+            namedJdbcTemplate.query("SELECT id, code FROM courses WHERE id IN (:courseIds)",
+                    new MapSqlParameterSource("courseIds", courseIds),
+                    row -> {
+                        codes.put(row.getLong("id"), row.getString("code"));
+                    });
+        }
+        return codes;
+    }
+
+    // Set final_marks of the first count rows, BATCH_SIZE rows per JDBC batch
+    public void updateFinalMarks(long[] resultIds, float[] finalMarks, int count) {
+        for (int from = 0; from < count; from += BATCH_SIZE) {
+            int offset = from;
+            int size = Math.min(BATCH_SIZE, count - from);
+            jdbcTemplate.batchUpdate("UPDATE result SET final_marks = ? WHERE result_id = ?", new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    statement.setFloat(1, finalMarks[offset + i]);
+                    statement.setLong(2, resultIds[offset + i]);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.examManagementBackend.resultManagement.repo;
+
+import com.example.examManagementBackend.resultManagement.entities.Enums.ResultStatus;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Marks for a whole course written with a few batched JDBC statements instead of several queries per student.
+// Call inside a transaction so a sheet is saved completely or not at all
+public interface MarkingResultBatchRepository {
+
+    // A mark for an existing result row
+    record MarkUpdate(Long resultId, float marks) {
+    }
+
+    // Insert students that are new and rename the others; returns every student's id by student number
+    Map<String, Long> upsertStudents(Map<String, String> namesByNumber);
+
+    // Existing result ids of one course, examination and exam type, by student id
+    Map<Long, Long> findResultIds(Long examinationId, Long courseId, Long examTypeId, Collection<Long> studentIds);
+
+    void insertFirstMarkings(Long examinationId, Long courseId, Long examTypeId, Long approvedBy, Map<Long, Float> marksByStudentId);
+
+    void updateFirstMarkings(List<MarkUpdate> updates, Long approvedBy, ResultStatus status);
+
+    void updateSecondMarkings(List<MarkUpdate> updates, Long approvedBy, ResultStatus status);
+}
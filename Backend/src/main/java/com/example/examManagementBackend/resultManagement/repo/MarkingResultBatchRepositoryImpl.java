@@ -0,0 +1,148 @@
+package com.example.examManagementBackend.resultManagement.repo;
+
+import com.example.examManagementBackend.resultManagement.entities.Enums.ResultStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class MarkingResultBatchRepositoryImpl implements MarkingResultBatchRepository {
+
+    // Rows per JDBC batch, and ids per IN list
+    private static final int BATCH_SIZE = 500;
+
+    // student_number is unique, so an existing student turns the insert into a rename
+    private static final String UPSERT_STUDENT = "INSERT INTO students_details (student_number, student_name, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE student_name = VALUES(student_name)";
+
+    private static final String INSERT_RESULT = "INSERT INTO result (examination_id, course_id, exam_type, student_id, " +
+            "first_marking, second_marking, final_marks, status, approved_by) VALUES (?, ?, ?, ?, ?, 0, 0, ?, ?)";
+
+    private static final String UPDATE_FIRST_MARKING = "UPDATE result SET first_marking = ?, approved_by = ?, status = ? WHERE result_id = ?";
+
+    private static final String UPDATE_SECOND_MARKING = "UPDATE result SET second_marking = ?, approved_by = ?, status = ? WHERE result_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public MarkingResultBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    public Map<String, Long> upsertStudents(Map<String, String> namesByNumber) {
+        // Students already on the roll under the same name need no write, which is every student of a sheet
+        // entered again for its second marking
+        Map<String, Long> ids = new HashMap<>();
+        Map<String, String> names = new HashMap<>();
+        findStudents(namesByNumber.keySet(), ids, names);
+        List<Map.Entry<String, String>> changed = new ArrayList<>();
+        for (Map.Entry<String, String> student : namesByNumber.entrySet()) {
+            if (!ids.containsKey(student.getKey()) || !Objects.equals(names.get(student.getKey()), student.getValue())) {
+                changed.add(student);
+            }
+        }
+        if (changed.isEmpty()) {
+            return ids;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_STUDENT, changed, BATCH_SIZE, (statement, student) -> {
+            statement.setString(1, student.getKey());
+            statement.setString(2, student.getValue());
+            statement.setTimestamp(3, now);
+            statement.setTimestamp(4, now);
+        });
+        List<String> inserted = changed.stream().map(Map.Entry::getKey).filter(number -> !ids.containsKey(number)).toList();
+        findStudents(inserted, ids, names);
+        return ids;
+    }
+
+    private void findStudents(Collection<String> numbers, Map<String, Long> ids, Map<String, String> names) {
+        for (List<String> chunk : chunks(numbers)) {
+            namedJdbcTemplate.query("SELECT student_id, student_number, student_name FROM students_details WHERE student_number IN (:numbers)",
+                    new MapSqlParameterSource("numbers", chunk),
+                    row -> {
+                        ids.put(row.getString("student_number"), row.getLong("student_id"));
+                        names.put(row.getString("student_number"), row.getString("student_name"));
+                    });
+        }
+    }
+
+    @Override
+    public Map<Long, Long> findResultIds(Long examinationId, Long courseId, Long examTypeId, Collection<Long> studentIds) {
+        Map<Long, Long> ids = new HashMap<>();
+        for (List<Long> chunk : chunks(studentIds)) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("examinationId", examinationId)
+                    .addValue("courseId", courseId)
+                    .addValue("examTypeId", examTypeId)
+                    .addValue("studentIds", chunk);
+            // Oldest row first, so a student with duplicate rows keeps getting the same one
+            namedJdbcTemplate.query("SELECT result_id, student_id FROM result WHERE examination_id = :examinationId " +
+                            "AND course_id = :courseId AND exam_type = :examTypeId AND student_id IN (:studentIds) ORDER BY result_id",
+                    parameters,
+                    row -> {
+                        ids.putIfAbsent(row.getLong("student_id"), row.getLong("result_id"));
+                    });
+        }
+        return ids;
+    }
+
+    @Override
+    public void insertFirstMarkings(Long examinationId, Long courseId, Long examTypeId, Long approvedBy, Map<Long, Float> marksByStudentId) {
+        if (marksByStudentId.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_RESULT, new ArrayList<>(marksByStudentId.entrySet()), BATCH_SIZE, (statement, mark) -> {
+            statement.setLong(1, examinationId);
+            statement.setLong(2, courseId);
+            statement.setLong(3, examTypeId);
+            statement.setLong(4, mark.getKey());
+            statement.setFloat(5, mark.getValue());
+            statement.setString(6, ResultStatus.FIRST_MARKING_COMPLETE.name());
+            statement.setObject(7, approvedBy);
+        });
+    }
+
+    @Override
+    public void updateFirstMarkings(List<MarkUpdate> updates, Long approvedBy, ResultStatus status) {
+        update(UPDATE_FIRST_MARKING, updates, approvedBy, status);
+    }
+
+    @Override
+    public void updateSecondMarkings(List<MarkUpdate> updates, Long approvedBy, ResultStatus status) {
+        update(UPDATE_SECOND_MARKING, updates, approvedBy, status);
+    }
+
+    private void update(String sql, List<MarkUpdate> updates, Long approvedBy, ResultStatus status) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, updates, BATCH_SIZE, (statement, update) -> {
+            statement.setFloat(1, update.marks());
+            statement.setObject(2, approvedBy);
+            statement.setString(3, status.name());
+            statement.setLong(4, update.resultId());
+        });
+    }
+
+    private static <T> List<List<T>> chunks(Collection<T> values) {
+        List<T> all = new ArrayList<>(values);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += BATCH_SIZE) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + BATCH_SIZE)));
+        }
+        return chunks;
+    }
+}
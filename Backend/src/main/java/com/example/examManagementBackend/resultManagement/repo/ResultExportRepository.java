@@ -0,0 +1,76 @@
+package com.example.examManagementBackend.resultManagement.repo;
+
+import com.example.examManagementBackend.resultManagement.dto.ResultExportDTO;
+import com.example.examManagementBackend.resultManagement.entities.Enums.ResultStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Repository
+public class ResultExportRepository {
+
+    // Rows fetched from the server per round trip; with useCursorFetch the driver holds no more than this
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String SELECT_RESULTS = "SELECT e.year, e.level, e.semester, d.degree_name, c.code, c.name, t.name AS exam_type, " +
+            "s.student_number, s.student_name, r.first_marking, r.second_marking, r.final_marks, r.status, r.publish_at " +
+            "FROM result r " +
+            "JOIN examinations e ON e.id = r.examination_id " +
+            "JOIN degree_programs d ON d.id = e.degree_program_id " +
+            "JOIN courses c ON c.id = r.course_id " +
+            "JOIN exam_types t ON t.id = r.exam_type " +
+            "JOIN students_details s ON s.student_id = r.student_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ResultExportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Pass each matching result to visitor in examination, course, exam type and student order, reading through a
+    // forward-only cursor; a null filter matches everything. An exception from visitor stops the read and is rethrown
+    public void forEachResult(Long examinationId, Long courseId, Long examTypeId, Consumer<ResultExportDTO> visitor) {
+        StringBuilder sql = new StringBuilder(SELECT_RESULTS);
+        List<Long> params = new ArrayList<>();
+        String joiner = " WHERE ";
+        if (examinationId != null) {
+            sql.append(joiner).append("r.examination_id = ?");
+            params.add(examinationId);
+            joiner = " AND ";
+        }
+        if (courseId != null) {
+            sql.append(joiner).append("r.course_id = ?");
+            params.add(courseId);
+            joiner = " AND ";
+        }
+        if (examTypeId != null) {
+            sql.append(joiner).append("r.exam_type = ?");
+            params.add(examTypeId);
+        }
+        sql.append(" ORDER BY r.examination_id, c.code, t.name, s.student_number");
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < params.size(); i++) {
+                statement.setLong(i + 1, params.get(i));
+            }
+            return statement;
+        }, row -> {
+            Timestamp publishAt = row.getTimestamp("publish_at");
+            String status = row.getString("status");
+            visitor.accept(new ResultExportDTO(row.getString("year"), row.getString("level"), row.getString("semester"),
+                    row.getString("degree_name"), row.getString("code"), row.getString("name"), row.getString("exam_type"),
+                    row.getString("student_number"), row.getString("student_name"), row.getFloat("first_marking"),
+                    row.getFloat("second_marking"), row.getFloat("final_marks"),
+                    status == null ? null : ResultStatus.valueOf(status),
+                    publishAt == null ? null : publishAt.toLocalDateTime()));
+        });
+    }
+}
@@ -15,7 +15,7 @@ import java.util.List;
 
 @Repository
 @EnableJpaRepositories
-public interface ResultRepo extends JpaRepository<ResultEntity, Long> {
+public interface ResultRepo extends JpaRepository<ResultEntity, Long>, MarkingResultBatchRepository {
     @Query("SELECT COUNT(r) FROM ResultEntity r WHERE r.examination.id = :examId " +
             "AND r.course.id = :courseId " +
             "AND r.examType.id = :examTypeId " +
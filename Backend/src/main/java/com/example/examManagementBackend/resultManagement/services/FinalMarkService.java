@@ -0,0 +1,294 @@
+package com.example.examManagementBackend.resultManagement.services;
+
+import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.paperWorkflows.service.ReferenceDataCache;
+import com.example.examManagementBackend.resultManagement.dto.FinalMarkReportDTO;
+import com.example.examManagementBackend.resultManagement.entities.Enums.ExamTypesName;
+import com.example.examManagementBackend.resultManagement.repo.FinalMarkRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes final marks from the course weightages in course_evaluation. A result's mark for an exam type is
+ * its first marking, or the mean of the first and second marking once the second is entered. A student's final
+ * mark for a course is the weighted sum of those marks over the sum of the course's weightages, so weightages
+ * may be given as percentages or fractions, and an exam type the student has no result for counts as 0. The
+ * final mark is stored on each of the student's results for the course.
+ *
+ * <p>An examination's marks are read once into primitive arrays per course, the courses are computed in
+ * parallel, and only results whose final mark changes are written, in JDBC batches. Changing a course's
+ * weightages recomputes just that course, in every examination that has results for it. Published results
+ * are never changed.
+ */
+@Service
+public class FinalMarkService {
+
+    private final FinalMarkRepository finalMarkRepository;
+    private final ExaminationRepository examinationRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workers;
+
+    public FinalMarkService(FinalMarkRepository finalMarkRepository, ExaminationRepository examinationRepository,
+                            ReferenceDataCache referenceDataCache, PlatformTransactionManager transactionManager,
+                            @Value("${final-marks.workers:0}") int workerCount) {
+        this.finalMarkRepository = finalMarkRepository;
+        this.examinationRepository = examinationRepository;
+        this.referenceDataCache = referenceDataCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // The computation is CPU bound, so by default one thread per core
+        int threads = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "final-mark-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+    }
+
+    // One course's results in student, exam type, oldest-first order, as parallel arrays
+    static final class CourseMarks {
+        final long courseId;
+        int size;
+        long[] resultIds = new long[64];
+        long[] studentIds = new long[64];
+        int[] types = new int[64];
+        float[] marks = new float[64];
+        float[] finals = new float[64];
+        boolean[] published = new boolean[64];
+
+        CourseMarks(long courseId) {
+            this.courseId = courseId;
+        }
+
+        void add(long resultId, long studentId, int type, float mark, float finalMark, boolean isPublished) {
+            if (size == resultIds.length) {
+                int capacity = size * 2;
+                resultIds = Arrays.copyOf(resultIds, capacity);
+                studentIds = Arrays.copyOf(studentIds, capacity);
+                types = Arrays.copyOf(types, capacity);
+                marks = Arrays.copyOf(marks, capacity);
+                finals = Arrays.copyOf(finals, capacity);
+                published = Arrays.copyOf(published, capacity);
+            }
+            resultIds[size] = resultId;
+            studentIds[size] = studentId;
+            types[size] = type;
+            marks[size] = mark;
+            finals[size] = finalMark;
+            published[size] = isPublished;
+            size++;
+        }
+
+        // Final marks that differ from the stored ones; weights is indexed like types
+        CourseFinals compute(float[] weights) {
+            float totalWeight = 0;
+            for (float weight : weights) {
+                totalWeight += weight;
+            }
+            long[] changedIds = new long[size];
+            float[] changedMarks = new float[size];
+            int changed = 0;
+            int publishedUnchanged = 0;
+            boolean[] seen = new boolean[weights.length];
+
+            int start = 0;
+            while (start < size) {
+                long studentId = studentIds[start];
+                int end = start;
+                float weighted = 0;
+                Arrays.fill(seen, false);
+                for (; end < size && studentIds[end] == studentId; end++) {
+                    // A duplicate result for the same exam type doesn't count twice; the oldest one is used
+                    if (!seen[types[end]]) {
+                        seen[types[end]] = true;
+                        weighted += weights[types[end]] * marks[end];
+                    }
+                }
+                float finalMark = Math.round(weighted / totalWeight * 100f) / 100f;
+                for (int i = start; i < end; i++) {
+                    if (Float.compare(finals[i], finalMark) == 0) {
+                        continue;
+                    }
+                    if (published[i]) {
+                        publishedUnchanged++;
+                        continue;
+                    }
+                    changedIds[changed] = resultIds[i];
+                    changedMarks[changed] = finalMark;
+                    changed++;
+                }
+                start = end;
+            }
+            return new CourseFinals(courseId, size, changedIds, changedMarks, changed, publishedUnchanged);
+        }
+    }
+
+    record CourseFinals(long courseId, int results, long[] resultIds, float[] finalMarks, int changed, int publishedUnchanged) {
+    }
+
+    public FinalMarkReportDTO computeExamination(Long examinationId) {
+        if (examinationId == null || !examinationRepository.existsById(examinationId)) {
+            throw new IllegalArgumentException("Examination not found with id " + examinationId);
+        }
+        return compute(examinationId, null);
+    }
+
+    public Map<ExamTypesName, Float> getWeightages(String courseCode) {
+        return finalMarkRepository.findWeightagesByCourse(requireCourse(courseCode));
+    }
+
+    // Replace a course's weightages and recompute that course's final marks in every examination it has results in
+    public List<FinalMarkReportDTO> setWeightages(String courseCode, Map<ExamTypesName, Float> weightages) {
+        Long courseId = requireCourse(courseCode);
+        if (weightages == null || weightages.isEmpty()) {
+            throw new IllegalArgumentException("Give the weightage of at least one exam type");
+        }
+        Map<Long, Float> byExamTypeId = new HashMap<>();
+        float total = 0;
+        for (Map.Entry<ExamTypesName, Float> weightage : weightages.entrySet()) {
+            Float value = weightage.getValue();
+            if (value == null || !Float.isFinite(value) || value < 0) {
+                throw new IllegalArgumentException("Weightage of " + weightage.getKey() + " must be a number of at least 0");
+            }
+            Long examTypeId = referenceDataCache.examTypeId(weightage.getKey());
+            if (examTypeId == null) {
+                throw new IllegalArgumentException("Exam type not set up: " + weightage.getKey());
+            }
+            byExamTypeId.put(examTypeId, value);
+            total += value;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("At least one weightage must be above 0");
+        }
+
+        transactionTemplate.executeWithoutResult(status -> finalMarkRepository.replaceWeightages(courseId, byExamTypeId));
+        List<FinalMarkReportDTO> reports = new ArrayList<>();
+        for (Long examinationId : finalMarkRepository.findExaminationIdsWithCourse(courseId)) {
+            reports.add(compute(examinationId, List.of(courseId)));
+        }
+        return reports;
+    }
+
+    private Long requireCourse(String courseCode) {
+        Long courseId = referenceDataCache.courseId(courseCode);
+        if (courseId == null) {
+            throw new IllegalArgumentException("Course not found: " + courseCode);
+        }
+        return courseId;
+    }
+
+    // Compute the given courses of an examination, or all of them when courseIds is null
+    private FinalMarkReportDTO compute(Long examinationId, Collection<Long> courseIds) {
+        long start = System.nanoTime();
+        Map<Long, Map<Long, Float>> weightages = finalMarkRepository.findWeightages(examinationId, courseIds);
+
+        ExamTypeIndex types = new ExamTypeIndex();
+        weightages.values().forEach(byType -> byType.keySet().forEach(types::of));
+
+        List<CourseMarks> courses = new ArrayList<>();
+        finalMarkRepository.forEachMark(examinationId, courseIds,
+                (resultId, courseId, studentId, examTypeId, firstMarking, secondMarking, secondMarked, published, finalMarks) -> {
+                    CourseMarks course = courses.isEmpty() ? null : courses.get(courses.size() - 1);
+                    if (course == null || course.courseId != courseId) {
+                        course = new CourseMarks(courseId);
+                        courses.add(course);
+                    }
+                    float mark = secondMarked ? (firstMarking + secondMarking) / 2 : firstMarking;
+                    course.add(resultId, studentId, types.of(examTypeId), mark, finalMarks, published);
+                });
+
+        List<Long> withoutWeightages = new ArrayList<>();
+        List<CompletableFuture<CourseFinals>> pending = new ArrayList<>();
+        for (CourseMarks course : courses) {
+            float[] weights = new float[types.size()];
+            float total = 0;
+            for (Map.Entry<Long, Float> weightage : weightages.getOrDefault(course.courseId, Map.of()).entrySet()) {
+                weights[types.of(weightage.getKey())] = weightage.getValue();
+                total += weightage.getValue();
+            }
+            if (total <= 0) {
+                withoutWeightages.add(course.courseId);
+                continue;
+            }
+            pending.add(CompletableFuture.supplyAsync(() -> course.compute(weights), workers));
+        }
+
+        List<CourseFinals> finals = new ArrayList<>(pending.size());
+        try {
+            for (CompletableFuture<CourseFinals> course : pending) {
+                finals.add(course.join());
+            }
+        } catch (CompletionException e) {
+            pending.forEach(course -> course.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (CourseFinals course : finals) {
+                finalMarkRepository.updateFinalMarks(course.resultIds(), course.finalMarks(), course.changed());
+            }
+        });
+
+        int results = 0;
+        int updated = 0;
+        int publishedUnchanged = 0;
+        for (CourseFinals course : finals) {
+            results += course.results();
+            updated += course.changed();
+            publishedUnchanged += course.publishedUnchanged();
+        }
+        List<String> withoutWeightageCodes = new ArrayList<>(new TreeSet<>(finalMarkRepository.findCourseCodes(withoutWeightages).values()));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Final marks for examination " + examinationId + ": " + updated + " of " + results + " results updated across "
+                + finals.size() + " courses in " + millis + " ms");
+        return new FinalMarkReportDTO(examinationId, courses.size(), withoutWeightageCodes, results, updated, publishedUnchanged, millis);
+    }
+
+    // Exam type ids numbered densely in the order they turn up, so a course's weights fit in a short array
+    private static final class ExamTypeIndex {
+        private final long[] ids = new long[ExamTypesName.values().length];
+        private int count;
+
+        int of(long id) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            if (count == ids.length) {
+                throw new IllegalStateException("More exam types than ExamTypesName defines");
+            }
+            ids[count] = id;
+            return count++;
+        }
+
+        int size() {
+            return count;
+        }
+    }
+}
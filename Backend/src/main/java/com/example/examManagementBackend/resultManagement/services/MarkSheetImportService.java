@@ -0,0 +1,268 @@
+package com.example.examManagementBackend.resultManagement.services;
+
+import com.example.examManagementBackend.resultManagement.dto.MarkImportErrorDTO;
+import com.example.examManagementBackend.resultManagement.dto.MarkImportReportDTO;
+import com.example.examManagementBackend.resultManagement.dto.StudentDTO;
+import com.example.examManagementBackend.resultManagement.entities.Enums.ExamTypesName;
+import com.example.examManagementBackend.resultManagement.services.ResultService.MarkingTarget;
+import com.example.examManagementBackend.resultManagement.sheets.CsvSheetReader;
+import com.example.examManagementBackend.resultManagement.sheets.SheetReader;
+import com.example.examManagementBackend.resultManagement.sheets.XlsxSheetReader;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Imports a CSV or .xlsx mark sheet. Rows are read one at a time and validated, and valid rows are
+ * written through {@link ResultService#writeMarks} in batches of {@value #BATCH_SIZE} per course.
+ * At most {@value #MAX_PENDING_ROWS} rows wait across all courses; when a sheet spreads over many
+ * of them the largest batch goes out early, so the memory an import takes doesn't grow with the
+ * sheet. A sheet may hold marks for several courses or examinations when it has courseCode,
+ * examName and examType columns; otherwise they come with the request. Each batch commits on its
+ * own, so a bad row never holds back the rest, and the report lists the rows that were not imported.
+ */
+@Service
+public class MarkSheetImportService {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_PENDING_ROWS = 5000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final ResultService resultService;
+
+    public MarkSheetImportService(ResultService resultService) {
+        this.resultService = resultService;
+    }
+
+    // Column values of one sheet row; defaults fill in course, examination and exam type when the sheet has no such column
+    private record Columns(Map<String, Integer> index) {
+        String get(List<String> row, String column) {
+            Integer position = index.get(column);
+            return position == null || position >= row.size() ? "" : row.get(position);
+        }
+
+        boolean has(String column) {
+            return index.containsKey(column);
+        }
+    }
+
+    // Rows waiting to be written for one course, examination and exam type
+    private static final class Batch {
+        private final Map<String, StudentDTO> students = new LinkedHashMap<>();
+        private final Map<String, Integer> rows = new HashMap<>();
+    }
+
+    private final class Import {
+        private final Long approvedById;
+        private final Map<String, Object> targets = new HashMap<>();
+        private final Map<MarkingTarget, Batch> pending = new HashMap<>();
+        private final List<MarkImportErrorDTO> errors = new ArrayList<>();
+        private int pendingRows;
+        private int rows;
+        private int imported;
+        private int failed;
+
+        private Import(Long approvedById) {
+            this.approvedById = approvedById;
+        }
+
+        private void fail(int row, String studentNumber, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new MarkImportErrorDTO(row, studentNumber, message));
+            }
+        }
+
+        // Resolved once per distinct course/examination/type; a failed lookup is remembered as its message
+        private Object target(String examName, String courseCode, ExamTypesName examType) {
+            return targets.computeIfAbsent(examName + "\n" + courseCode + "\n" + examType, key -> {
+                try {
+                    return resultService.resolveTarget(examName, courseCode, examType);
+                } catch (IllegalArgumentException e) {
+                    return e.getMessage();
+                }
+            });
+        }
+
+        private void add(MarkingTarget target, StudentDTO student, int row) {
+            Batch batch = pending.computeIfAbsent(target, key -> new Batch());
+            // A student listed again replaces their earlier row, as a later save would
+            if (batch.students.put(student.getStudentNumber(), student) == null) {
+                pendingRows++;
+            }
+            batch.rows.put(student.getStudentNumber(), row);
+            if (batch.students.size() >= BATCH_SIZE) {
+                flush(target);
+            } else if (pendingRows >= MAX_PENDING_ROWS) {
+                flush(largestBatch());
+            }
+        }
+
+        private MarkingTarget largestBatch() {
+            MarkingTarget largest = null;
+            int size = 0;
+            for (Map.Entry<MarkingTarget, Batch> entry : pending.entrySet()) {
+                if (entry.getValue().students.size() > size) {
+                    largest = entry.getKey();
+                    size = entry.getValue().students.size();
+                }
+            }
+            return largest;
+        }
+
+        private void flush(MarkingTarget target) {
+            Batch batch = pending.remove(target);
+            pendingRows -= batch.students.size();
+            write(target, batch);
+        }
+
+        private void write(MarkingTarget target, Batch batch) {
+            try {
+                List<String> incomplete = resultService.writeMarks(target, batch.students.values(), approvedById, false);
+                for (String studentNumber : incomplete) {
+                    fail(batch.rows.get(studentNumber), studentNumber, "No first marking, and the student has no result for this course yet");
+                }
+                imported += batch.students.size() - incomplete.size();
+            } catch (RuntimeException e) {
+                // Database, transaction or any other failure: only this batch's rows are lost
+                System.err.println("Saving a batch of " + batch.students.size() + " imported marks failed: " + e.getMessage());
+                String cause = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                for (Map.Entry<String, Integer> row : batch.rows.entrySet()) {
+                    fail(row.getValue(), row.getKey(), "Could not be saved: " + cause);
+                }
+            }
+        }
+
+        private void flushAll() {
+            pending.forEach(this::write);
+            pending.clear();
+            pendingRows = 0;
+        }
+    }
+
+    public MarkImportReportDTO importSheet(MultipartFile file, String examName, String courseCode, ExamTypesName examType,
+                                           Long approvedById) throws IOException {
+        String name = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            try (SheetReader reader = new CsvSheetReader(file.getInputStream())) {
+                return importRows(reader, examName, courseCode, examType, approvedById);
+            }
+        }
+        if (name.endsWith(".xlsx")) {
+            // The workbook is read with random access, so it goes to a temporary file first
+            Path temp = Files.createTempFile("mark-sheet-", ".xlsx");
+            try {
+                file.transferTo(temp);
+                try (SheetReader reader = new XlsxSheetReader(temp.toFile())) {
+                    return importRows(reader, examName, courseCode, examType, approvedById);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        throw new IllegalArgumentException("Mark sheets must be .csv or .xlsx files; save .xls workbooks as .xlsx first");
+    }
+
+    private MarkImportReportDTO importRows(SheetReader reader, String examName, String courseCode, ExamTypesName examType,
+                                           Long approvedById) throws IOException {
+        List<String> header = reader.next();
+        if (header == null) {
+            throw new IllegalArgumentException("The mark sheet is empty");
+        }
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            index.putIfAbsent(columnKey(header.get(i)), i);
+        }
+        Columns columns = new Columns(index);
+        if (!columns.has("studentnumber") || !(columns.has("firstmarking") || columns.has("secondmarking"))) {
+            throw new IllegalArgumentException("The first row must name the columns: studentNumber, studentName and firstMarking and/or secondMarking");
+        }
+
+        Import run = new Import(approvedById);
+        List<String> row;
+        while ((row = reader.next()) != null) {
+            run.rows++;
+            int rowNumber = reader.rowNumber();
+            String studentNumber = columns.get(row, "studentnumber");
+            if (studentNumber.isEmpty()) {
+                run.fail(rowNumber, null, "Missing student number");
+                continue;
+            }
+            String studentName = columns.get(row, "studentname");
+            if (studentName.isEmpty()) {
+                run.fail(rowNumber, studentNumber, "Missing student name");
+                continue;
+            }
+
+            Float firstMarking;
+            Float secondMarking;
+            try {
+                firstMarking = mark(columns.get(row, "firstmarking"));
+                secondMarking = mark(columns.get(row, "secondmarking"));
+            } catch (IllegalArgumentException e) {
+                run.fail(rowNumber, studentNumber, e.getMessage());
+                continue;
+            }
+            if (firstMarking == null && secondMarking == null) {
+                run.fail(rowNumber, studentNumber, "No marks given");
+                continue;
+            }
+
+            String rowExamName = columns.has("examname") ? columns.get(row, "examname") : examName;
+            String rowCourseCode = columns.has("coursecode") ? columns.get(row, "coursecode") : courseCode;
+            ExamTypesName rowExamType = examType;
+            if (columns.has("examtype")) {
+                try {
+                    rowExamType = ExamTypesName.valueOf(columns.get(row, "examtype").toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    run.fail(rowNumber, studentNumber, "Unknown exam type: " + columns.get(row, "examtype"));
+                    continue;
+                }
+            }
+            if (rowExamName == null || rowExamName.isEmpty() || rowCourseCode == null || rowCourseCode.isEmpty() || rowExamType == null) {
+                run.fail(rowNumber, studentNumber, "Course code, examination and exam type are needed, in the sheet or with the upload");
+                continue;
+            }
+            Object target = run.target(rowExamName, rowCourseCode, rowExamType);
+            if (target instanceof String message) {
+                run.fail(rowNumber, studentNumber, message);
+                continue;
+            }
+
+            run.add((MarkingTarget) target, new StudentDTO(studentNumber, studentName, firstMarking, secondMarking, null), rowNumber);
+        }
+        run.flushAll();
+        return new MarkImportReportDTO(run.rows, run.imported, run.failed, run.failed > run.errors.size(), run.errors);
+    }
+
+    // "Student Number", "student_number" and "studentNumber" all name the same column
+    private static String columnKey(String header) {
+        return header.replaceAll("[^A-Za-z0-9]", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static Float mark(String text) {
+        if (text.isEmpty()) {
+            return null;
+        }
+        float mark;
+        try {
+            mark = Float.parseFloat(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a mark: " + text);
+        }
+        if (!Float.isFinite(mark) || mark < 0) {
+            throw new IllegalArgumentException("Not a mark: " + text);
+        }
+        return mark;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.examManagementBackend.resultManagement.services;
+
+import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.paperWorkflows.service.ReferenceDataCache;
+import com.example.examManagementBackend.resultManagement.dto.ResultExportDTO;
+import com.example.examManagementBackend.resultManagement.entities.Enums.ExamTypesName;
+import com.example.examManagementBackend.resultManagement.entities.Enums.ResultStatus;
+import com.example.examManagementBackend.resultManagement.repo.ResultExportRepository;
+import com.example.examManagementBackend.resultManagement.sheets.SheetWriter;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Exports results for exam boards as CSV, XLSX or JSON lines. Rows are read through a database cursor and
+ * written to the response as they arrive, so an export of every result takes the same memory as one of a
+ * single course. The columns match what the mark sheet import reads, so an export can be corrected and
+ * uploaded again.
+ */
+@Service
+public class ResultExportService {
+
+    private static final List<String> COLUMNS = List.of("examName", "courseCode", "courseName", "examType", "studentNumber",
+            "studentName", "firstMarking", "secondMarking", "finalMarks", "status", "publishAt");
+
+    private final ResultExportRepository resultExportRepository;
+    private final ExaminationRepository examinationRepo;
+    private final ReferenceDataCache referenceDataCache;
+
+    public ResultExportService(ResultExportRepository resultExportRepository, ExaminationRepository examinationRepo,
+                               ReferenceDataCache referenceDataCache) {
+        this.resultExportRepository = resultExportRepository;
+        this.examinationRepo = examinationRepo;
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    // Which results to export; a null id leaves that filter out
+    public record ExportFilter(Long examinationId, Long courseId, Long examTypeId) {
+    }
+
+    // Resolve the filters before anything is streamed, so an unknown one is still a plain error response
+    public ExportFilter filter(Long examinationId, String courseCode, ExamTypesName examType) {
+        if (examinationId != null && !examinationRepo.existsById(examinationId)) {
+            throw new IllegalArgumentException("Examination not found with id " + examinationId);
+        }
+        Long courseId = null;
+        if (courseCode != null && !courseCode.isBlank()) {
+            courseId = referenceDataCache.courseId(courseCode);
+            if (courseId == null) {
+                throw new IllegalArgumentException("Course not found: " + courseCode);
+            }
+        }
+        Long examTypeId = null;
+        if (examType != null) {
+            examTypeId = referenceDataCache.examTypeId(examType);
+            if (examTypeId == null) {
+                throw new IllegalArgumentException("Exam type not set up: " + examType);
+            }
+        }
+        return new ExportFilter(examinationId, courseId, examTypeId);
+    }
+
+    public void writeResults(ExportFilter filter, SheetWriter.Format format, OutputStream out) throws IOException {
+        SheetWriter writer = format.open(out, COLUMNS);
+        try {
+            resultExportRepository.forEachResult(filter.examinationId(), filter.courseId(), filter.examTypeId(), result -> {
+                try {
+                    writer.row(values(result));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; closing the cursor early doesn't read the remaining rows
+            throw e.getCause();
+        }
+        writer.finish();
+    }
+
+    private static Object[] values(ResultExportDTO result) {
+        // examName in the "<year>-<degree>-Level <n>-Semester <n>" form the marking screens use
+        String examName = result.getYear() + "-" + result.getDegreeName() + "-Level " + result.getLevel() + "-Semester " + result.getSemester();
+        // A second marking of 0 before the second marking is entered means there isn't one yet
+        Float secondMarking = result.getStatus() == ResultStatus.FIRST_MARKING_COMPLETE ? null : result.getSecondMarking();
+        return new Object[]{examName, result.getCourseCode(), result.getCourseName(), result.getExamType(), result.getStudentNumber(),
+                result.getStudentName(), result.getFirstMarking(), secondMarking, result.getFinalMarks(),
+                result.getStatus() == null ? null : result.getStatus().name(),
+                result.getPublishAt() == null ? null : result.getPublishAt().toString()};
+    }
+}
@@ -1,19 +1,13 @@
 package com.example.examManagementBackend.resultManagement.services;
 
-import com.example.examManagementBackend.paperWorkflows.entity.CoursesEntity;
-import com.example.examManagementBackend.paperWorkflows.entity.ExaminationEntity;
-import com.example.examManagementBackend.paperWorkflows.repository.CoursesRepository;
-import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.paperWorkflows.service.ReferenceDataCache;
 import com.example.examManagementBackend.resultManagement.dto.ResultDTO;
 import com.example.examManagementBackend.resultManagement.dto.StudentDTO;
 import com.example.examManagementBackend.resultManagement.entities.Enums.ExamTypesName;
 import com.example.examManagementBackend.resultManagement.entities.Enums.ResultStatus;
-import com.example.examManagementBackend.resultManagement.entities.ExamTypesEntity;
 import com.example.examManagementBackend.resultManagement.entities.ResultEntity;
-import com.example.examManagementBackend.resultManagement.entities.StudentsEntity;
-import com.example.examManagementBackend.resultManagement.repo.ExamTypeRepo;
+import com.example.examManagementBackend.resultManagement.repo.MarkingResultBatchRepository;
 import com.example.examManagementBackend.resultManagement.repo.ResultRepo;
-import com.example.examManagementBackend.resultManagement.repo.StudentRepo;
 import com.example.examManagementBackend.userManagement.userManagementEntity.UserEntity;
 import com.example.examManagementBackend.userManagement.userManagementRepo.UserManagementRepo;
 import com.example.examManagementBackend.userManagement.userManagementServices.JwtService;
@@ -22,73 +16,50 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Service
 public class ResultService {
-    private final StudentRepo studentRepo;
     private final ResultRepo resultRepo;
-    private final ExaminationRepository examinationRepo;
-    private final CoursesRepository coursesRepo;
-    private final ExamTypeRepo examTypeRepo;
+    private final ReferenceDataCache referenceDataCache;
     private final JwtService jwtService;
     private final UserManagementRepo userManagementRepo;
+    private final TransactionTemplate transactionTemplate;
 
-    public ResultService(StudentRepo studentRepo, ResultRepo resultRepo, ExaminationRepository examinationRepo, CoursesRepository coursesRepo, ExamTypeRepo examTypeRepo,JwtService jwtService, UserManagementRepo userManagementRepo) {
-        this.studentRepo = studentRepo;
+    public ResultService(ResultRepo resultRepo, ReferenceDataCache referenceDataCache, JwtService jwtService, UserManagementRepo userManagementRepo,
+                         PlatformTransactionManager transactionManager) {
         this.resultRepo = resultRepo;
-        this.examinationRepo = examinationRepo;
-        this.coursesRepo=coursesRepo;
-        this.examTypeRepo=examTypeRepo;
+        this.referenceDataCache = referenceDataCache;
         this.jwtService=jwtService;
         this.userManagementRepo = userManagementRepo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
+    // Save a marking sheet for one course in one transaction, see writeMarks
     public ResponseEntity<StandardResponse> saveMarkingResults(ResultDTO results, HttpServletRequest request){
         try{
             if(results.getExamName()!=null && results.getCourseCode()!=null && results.getStudentsData()!=null && !results.getStudentsData().isEmpty()) {
-                Object[] data=jwtService.getUserNameAndToken(request);
-                String username = data[0].toString();
-                UserEntity approvedBy=userManagementRepo.findByUsername(username);
-                String[] examDetails=results.getExamName().split("-");
-                String[] level=examDetails[2].split(" ");
-                String[] semester=examDetails[3].split(" ");
-                Long courseId=getCourseCodeId(results.getCourseCode());
-                Long examinationId=getExaminationNameId(examDetails[0],level[1],semester[1]);
-                Long examinationTypeId=getExaminationTypeId(results.getExamType());
-                for(StudentDTO student: results.getStudentsData()){
-                    Long studentId=getStudentsTableId(student.getStudentNumber());
-                    saveStudentsDetails(student);
-                    ResultEntity resultEntity = new ResultEntity();
-                    if(resultRepo.isEmpty(examinationId,studentId,examinationTypeId,courseId)==0){
-                        StudentsEntity studentsEntity=studentRepo.findByStudentNumber(student.getStudentNumber());
-                        CoursesEntity  coursesEntity=coursesRepo.findByCourseId(courseId);
-                        ExamTypesEntity examTypes=examTypeRepo.getUsingId(examinationTypeId);
-                        ExaminationEntity examinationEntity=examinationRepo.findById(examinationId).orElse(null);
-                        resultEntity.setStudent(studentsEntity);
-                        resultEntity.setCourse(coursesEntity);
-                        resultEntity.setExamType(examTypes);
-                        resultEntity.setExamination(examinationEntity);
-                        resultEntity.setFirstMarking(student.getFirstMarking());
-                        resultEntity.setApprovedBy(approvedBy);
-                        resultRepo.save(resultEntity);
+                Long approvedById = getApproverId(request);
+                MarkingTarget target = resolveTarget(results.getExamName(), results.getCourseCode(), results.getExamType());
 
+                // A student listed twice keeps the last row, as when the rows were saved one after another
+                Map<String, StudentDTO> students = new LinkedHashMap<>();
+                for (StudentDTO student : results.getStudentsData()) {
+                    if (student.getStudentNumber() == null || student.getStudentNumber().isBlank()) {
+                        throw new IllegalArgumentException("Every row needs a student number");
                     }
-                    else if(resultRepo.isEmpty(examinationId,studentId,examinationTypeId,courseId)>0){
-                        Long resultId= resultRepo.getResultIdIfExists(examinationId,studentId,examinationTypeId,courseId);
-                        if(student.getSecondMarking()!=null){
-                            resultRepo.updateSecondMarkingResults(student.getSecondMarking(),approvedBy,resultId,ResultStatus.SECOND_MARKING_COMPLETE);
-
-                        }
-                        else{
-                            resultRepo.updateFirstMarkingResults(student.getFirstMarking(),approvedBy,resultId,ResultStatus.FIRST_MARKING_COMPLETE);
-                        }
-                    }
-
+                    students.put(student.getStudentNumber(), student);
                 }
+                writeMarks(target, students.values(), approvedById, true);
                 return new ResponseEntity<StandardResponse>(
                         new StandardResponse(201,"sucess",null), HttpStatus.CREATED
                 );
@@ -100,6 +71,11 @@ public class ResultService {
             }
 
         }
+        catch(IllegalArgumentException e){
+            return new ResponseEntity<StandardResponse>(
+                    new StandardResponse(400,e.getMessage(),null), HttpStatus.BAD_REQUEST
+            );
+        }
         catch(Exception e){
             e.printStackTrace();
             return new ResponseEntity<StandardResponse>(
@@ -108,40 +84,70 @@ public class ResultService {
         }
     }
 
-    private Long getCourseCodeId(String code){
-        return coursesRepo.getCourseIdByCode(code);
+    // Ids of the examination, course and exam type a marking sheet is entered for
+    public record MarkingTarget(Long examinationId, Long courseId, Long examTypeId) {
     }
-    private Long getExaminationNameId(String year,String level,String semester){
-        return examinationRepo.getExaminationIdByYearAndSemesterAndLevel(year,level,semester);
-    }
-    private Long getStudentsTableId(String studentNumber ){
-        return studentRepo.getIdBystudentNumber(studentNumber);
+
+    // examName is "<year>-<degree>-Level <n>-Semester <n>", as the examination list shows it
+    public MarkingTarget resolveTarget(String examName, String courseCode, ExamTypesName examType) {
+        Long examinationId=referenceDataCache.examinationId(examName);
+        Long courseId=referenceDataCache.courseId(courseCode);
+        Long examinationTypeId=referenceDataCache.examTypeId(examType);
+        if (courseId == null || examinationId == null || examinationTypeId == null) {
+            throw new IllegalArgumentException("Unknown course, examination or exam type");
+        }
+        return new MarkingTarget(examinationId, courseId, examinationTypeId);
     }
 
-    private Long getExaminationTypeId(ExamTypesName examinationType){
-            return examTypeRepo.getExamTypeIdByExamTypeName(examinationType);
+    // User id of the marker saving the sheet, recorded as the results' approver
+    public Long getApproverId(HttpServletRequest request) {
+        Object[] data=jwtService.getUserNameAndToken(request);
+        UserEntity approvedBy=userManagementRepo.findByUsername(data[0].toString());
+        return approvedBy == null ? null : approvedBy.getUserId();
     }
 
-    public void saveStudentsDetails(StudentDTO student){
-        if(studentRepo.IsEmpty(student.getStudentNumber())==0){
-            StudentsEntity studentsEntity=new StudentsEntity();
-            studentsEntity.setStudentName(student.getStudentName());
-            studentsEntity.setStudentNumber(student.getStudentNumber());
-            studentRepo.save(studentsEntity);
-        }
-        else{
-            studentRepo.updateStudentName(student.getStudentNumber(),student.getStudentName());
-        }
+    // Write the marks of students with distinct numbers in one transaction, with a fixed number of batched statements:
+    // a new result takes the first marking, an existing one gets the second marking when it is given, otherwise the first.
+    // Students that need a first marking and have none are skipped and returned; with rejectIncomplete nothing is written instead
+    public List<String> writeMarks(MarkingTarget target, Collection<StudentDTO> students, Long approvedById, boolean rejectIncomplete) {
+        return transactionTemplate.execute(status -> {
+            Map<String, String> names = new LinkedHashMap<>();
+            students.forEach(student -> names.put(student.getStudentNumber(), student.getStudentName()));
+            Map<String, Long> studentIds = resultRepo.upsertStudents(names);
+            Map<Long, Long> resultIds = resultRepo.findResultIds(target.examinationId(), target.courseId(), target.examTypeId(), studentIds.values());
+
+            List<String> incomplete = new ArrayList<>();
+            Map<Long, Float> firstMarkings = new LinkedHashMap<>();
+            List<MarkingResultBatchRepository.MarkUpdate> firstUpdates = new ArrayList<>();
+            List<MarkingResultBatchRepository.MarkUpdate> secondUpdates = new ArrayList<>();
+            for (StudentDTO student : students) {
+                Long studentId = studentIds.get(student.getStudentNumber());
+                Long resultId = resultIds.get(studentId);
+                if (resultId != null && student.getSecondMarking() != null) {
+                    secondUpdates.add(new MarkingResultBatchRepository.MarkUpdate(resultId, student.getSecondMarking()));
+                } else if (student.getFirstMarking() == null) {
+                    incomplete.add(student.getStudentNumber());
+                } else if (resultId == null) {
+                    firstMarkings.put(studentId, student.getFirstMarking());
+                } else {
+                    firstUpdates.add(new MarkingResultBatchRepository.MarkUpdate(resultId, student.getFirstMarking()));
+                }
+            }
+            if (rejectIncomplete && !incomplete.isEmpty()) {
+                throw new IllegalArgumentException("Missing first marking for student " + incomplete.get(0));
+            }
+            resultRepo.insertFirstMarkings(target.examinationId(), target.courseId(), target.examTypeId(), approvedById, firstMarkings);
+            resultRepo.updateFirstMarkings(firstUpdates, approvedById, ResultStatus.FIRST_MARKING_COMPLETE);
+            resultRepo.updateSecondMarkings(secondUpdates, approvedById, ResultStatus.SECOND_MARKING_COMPLETE);
+            return incomplete;
+        });
     }
 
     public ResponseEntity<StandardResponse> getFirstMarking(String courseCode,String examName,ExamTypesName examType) {
         try{
-            String[] examDetails=examName.split("-");
-            String[] level=examDetails[2].split(" ");
-            String[] semester=examDetails[3].split(" ");
-            Long courseId=getCourseCodeId(courseCode);
-            Long examinationId=getExaminationNameId(examDetails[0],level[1],semester[1]);
-            Long examinationTypeId=getExaminationTypeId(examType);
+            Long courseId=referenceDataCache.courseId(courseCode);
+            Long examinationId=referenceDataCache.examinationId(examName);
+            Long examinationTypeId=referenceDataCache.examTypeId(examType);
             Set<StudentDTO> studentDTOS=new HashSet<StudentDTO>();
             List<ResultEntity> resultEntities=resultRepo.getResults(courseId,examinationId,examinationTypeId);
             if(resultEntities!=null){
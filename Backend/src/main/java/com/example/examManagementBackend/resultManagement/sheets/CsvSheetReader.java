@@ -0,0 +1,96 @@
+package com.example.examManagementBackend.resultManagement.sheets;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// RFC 4180 CSV: comma separated, fields optionally in double quotes with "" for a quote; quoted fields may span lines
+public class CsvSheetReader implements SheetReader {
+
+    private final Reader reader;
+
+    private int line = 1;
+
+    private int rowNumber;
+
+    private boolean ended;
+
+    public CsvSheetReader(InputStream in) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        // Spreadsheet programs often start a UTF-8 CSV with a byte order mark
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+    }
+
+    @Override
+    public List<String> next() throws IOException {
+        while (!ended) {
+            rowNumber = line;
+            List<String> row = readRow();
+            // Blank lines are skipped rather than reported as rows with no student number
+            if (row.size() > 1 || !row.get(0).isEmpty()) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int rowNumber() {
+        return rowNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private List<String> readRow() throws IOException {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            int c = reader.read();
+            if (c == -1) {
+                ended = true;
+                break;
+            }
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        cell.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    cell.append((char) c);
+                }
+            } else if (c == '"' && cell.toString().isBlank()) {
+                cell.setLength(0);
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString().trim());
+                cell.setLength(0);
+            } else if (c == '\n') {
+                line++;
+                break;
+            } else if (c != '\r') {
+                cell.append((char) c);
+            }
+        }
+        cells.add(cell.toString().trim());
+        return cells;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.examManagementBackend.resultManagement.sheets;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+// One JSON object per line, keyed by the column names; empty cells are null
+public class JsonLinesSheetWriter implements SheetWriter {
+
+    private static final JsonFactory JSON = JsonFactory.builder().disable(StreamWriteFeature.AUTO_CLOSE_TARGET).build();
+
+    private final JsonGenerator generator;
+
+    private final String[] columns;
+
+    public JsonLinesSheetWriter(OutputStream out, List<String> columns) throws IOException {
+        this.generator = JSON.createGenerator(out);
+        // Rows are separated by the newline alone, not Jackson's default space between root values
+        this.generator.setRootValueSeparator(null);
+        this.columns = columns.toArray(new String[0]);
+    }
+
+    @Override
+    public void row(Object... values) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < columns.length; i++) {
+            Object value = i < values.length ? values[i] : null;
+            generator.writeFieldName(columns[i]);
+            if (value == null) {
+                generator.writeNull();
+            } else if (value instanceof Float number) {
+                generator.writeNumber(number);
+            } else if (value instanceof Double number) {
+                generator.writeNumber(number);
+            } else if (value instanceof Number number) {
+                generator.writeNumber(number.longValue());
+            } else {
+                generator.writeString(value.toString());
+            }
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        generator.flush();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.examManagementBackend.resultManagement.sheets;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+// Reads an uploaded sheet one row at a time, so a sheet of any length takes the memory of a single row
+public interface SheetReader extends Closeable {
+
+    // Cell texts of the next row, trimmed, with "" for empty cells; null after the last row
+    List<String> next() throws IOException;
+
+    // 1-based line or row number of the row last returned, as the user sees it in their editor or spreadsheet
+    int rowNumber();
+}
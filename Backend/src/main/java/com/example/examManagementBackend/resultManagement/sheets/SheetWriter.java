@@ -0,0 +1,56 @@
+package com.example.examManagementBackend.resultManagement.sheets;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes a table one row at a time, without holding earlier rows. Values are strings, numbers or null
+ * for an empty cell. The column names are written first and, for JSON lines, name each row's fields.
+ * {@link #finish()} completes the file but leaves the underlying stream open.
+ */
+public interface SheetWriter {
+
+    void row(Object... values) throws IOException;
+
+    void finish() throws IOException;
+
+    enum Format {
+        CSV("text/csv", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx"),
+        JSONL("application/x-ndjson", "jsonl");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format of(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown export format: " + name + "; use csv, xlsx or jsonl");
+            }
+        }
+
+        public SheetWriter open(OutputStream out, List<String> columns) throws IOException {
+            return switch (this) {
+                case CSV -> new CsvSheetWriter(out, columns);
+                case XLSX -> new XlsxSheetWriter(out, columns);
+                case JSONL -> new JsonLinesSheetWriter(out, columns);
+            };
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.examManagementBackend.resultManagement.sheets;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The first worksheet of an .xlsx workbook, streamed with StAX. A workbook is a ZIP of XML parts;
+ * only the shared string table is held in memory (cells that hold text refer to it by index), the
+ * worksheet itself is read a row at a time. The file is opened as a {@link ZipFile} because Excel
+ * usually stores the shared strings after the worksheets.
+ */
+public class XlsxSheetReader implements SheetReader {
+
+    private static final String RELATIONSHIP_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    // Shared strings are decompressed into memory, so cap them well above any real mark sheet
+    private static final long MAX_SHARED_STRING_CHARS = 64L * 1024 * 1024;
+
+    private final ZipFile zip;
+
+    private final InputStream sheetStream;
+
+    private final XMLStreamReader sheet;
+
+    private final List<String> sharedStrings;
+
+    private int rowNumber;
+
+    public XlsxSheetReader(File file) throws IOException {
+        this.zip = new ZipFile(file);
+        try {
+            this.sharedStrings = readSharedStrings();
+            ZipEntry sheetEntry = zip.getEntry(firstSheetPath());
+            if (sheetEntry == null) {
+                throw new IOException("The workbook has no worksheet");
+            }
+            this.sheetStream = zip.getInputStream(sheetEntry);
+            this.sheet = xmlFactory().createXMLStreamReader(sheetStream);
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            zip.close();
+            throw e instanceof IOException io ? io : new IOException("Not a readable .xlsx workbook", e);
+        }
+    }
+
+    @Override
+    public List<String> next() throws IOException {
+        try {
+            while (sheet.hasNext()) {
+                if (sheet.next() == XMLStreamConstants.START_ELEMENT && sheet.getLocalName().equals("row")) {
+                    String r = sheet.getAttributeValue(null, "r");
+                    rowNumber = r == null ? rowNumber + 1 : Integer.parseInt(r);
+                    List<String> row = readRow();
+                    if (row.stream().anyMatch(cell -> !cell.isEmpty())) {
+                        return row;
+                    }
+                }
+            }
+            return null;
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("Worksheet row " + rowNumber + " could not be read", e);
+        }
+    }
+
+    @Override
+    public int rowNumber() {
+        return rowNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sheet.close();
+        } catch (XMLStreamException ignored) {
+            // Closing the zip below releases the stream either way
+        } finally {
+            sheetStream.close();
+            zip.close();
+        }
+    }
+
+    // Cells up to the end of the current <row>; cells the sheet leaves out (empty ones) are filled with ""
+    private List<String> readRow() throws XMLStreamException {
+        List<String> cells = new ArrayList<>();
+        while (sheet.hasNext()) {
+            int event = sheet.next();
+            if (event == XMLStreamConstants.END_ELEMENT && sheet.getLocalName().equals("row")) {
+                break;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT && sheet.getLocalName().equals("c")) {
+                String reference = sheet.getAttributeValue(null, "r");
+                int column = reference == null ? cells.size() : columnIndex(reference);
+                String value = readCell(sheet.getAttributeValue(null, "t"));
+                while (cells.size() < column) {
+                    cells.add("");
+                }
+                if (cells.size() == column) {
+                    cells.add(value);
+                }
+            }
+        }
+        return cells;
+    }
+
+    // Text of the current <c>, resolving shared strings and normalising numbers Excel wrote in exponent form
+    private String readCell(String type) throws XMLStreamException {
+        StringBuilder value = new StringBuilder();
+        StringBuilder inline = new StringBuilder();
+        while (sheet.hasNext()) {
+            int event = sheet.next();
+            if (event == XMLStreamConstants.END_ELEMENT && sheet.getLocalName().equals("c")) {
+                break;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT && sheet.getLocalName().equals("v")) {
+                value.append(sheet.getElementText());
+            } else if (event == XMLStreamConstants.START_ELEMENT && sheet.getLocalName().equals("t")) {
+                inline.append(sheet.getElementText());
+            }
+        }
+        if ("inlineStr".equals(type)) {
+            return inline.toString().trim();
+        }
+        String text = value.toString().trim();
+        if ("s".equals(type)) {
+            int index = Integer.parseInt(text);
+            return index < sharedStrings.size() ? sharedStrings.get(index).trim() : "";
+        }
+        if (type == null || "n".equals(type)) {
+            return plainNumber(text);
+        }
+        return text;
+    }
+
+    private List<String> readSharedStrings() throws IOException, XMLStreamException {
+        List<String> strings = new ArrayList<>();
+        ZipEntry entry = zip.getEntry("xl/sharedStrings.xml");
+        if (entry == null) {
+            return strings;
+        }
+        long total = 0;
+        try (InputStream in = zip.getInputStream(entry)) {
+            XMLStreamReader xml = xmlFactory().createXMLStreamReader(in);
+            StringBuilder current = null;
+            // Phonetic runs (<rPh>) are reading aids, not part of the text
+            int phoneticDepth = 0;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "si" -> current = new StringBuilder();
+                        case "rPh" -> phoneticDepth++;
+                        case "t" -> {
+                            String text = xml.getElementText();
+                            if (current != null && phoneticDepth == 0) {
+                                current.append(text);
+                                total += text.length();
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (xml.getLocalName().equals("rPh")) {
+                        phoneticDepth--;
+                    } else if (xml.getLocalName().equals("si") && current != null) {
+                        strings.add(current.toString());
+                        current = null;
+                    }
+                }
+                if (total > MAX_SHARED_STRING_CHARS) {
+                    throw new IOException("The workbook's text is too large to import");
+                }
+            }
+            xml.close();
+        }
+        return strings;
+    }
+
+    // Path of the first sheet in workbook order, through the workbook's relationships; sheet1.xml if they can't be read
+    private String firstSheetPath() throws IOException, XMLStreamException {
+        String relationshipId = null;
+        ZipEntry workbook = zip.getEntry("xl/workbook.xml");
+        if (workbook != null) {
+            try (InputStream in = zip.getInputStream(workbook)) {
+                XMLStreamReader xml = xmlFactory().createXMLStreamReader(in);
+                while (xml.hasNext() && relationshipId == null) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("sheet")) {
+                        relationshipId = xml.getAttributeValue(RELATIONSHIP_NS, "id");
+                    }
+                }
+                xml.close();
+            }
+        }
+        ZipEntry relationships = zip.getEntry("xl/_rels/workbook.xml.rels");
+        if (relationshipId != null && relationships != null) {
+            Map<String, String> targets = new HashMap<>();
+            try (InputStream in = zip.getInputStream(relationships)) {
+                XMLStreamReader xml = xmlFactory().createXMLStreamReader(in);
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("Relationship")) {
+                        targets.put(xml.getAttributeValue(null, "Id"), xml.getAttributeValue(null, "Target"));
+                    }
+                }
+                xml.close();
+            }
+            String target = targets.get(relationshipId);
+            if (target != null) {
+                return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+            }
+        }
+        return "xl/worksheets/sheet1.xml";
+    }
+
+    // "AB12" -> 27
+    private static int columnIndex(String reference) {
+        int column = 0;
+        for (int i = 0; i < reference.length() && Character.isLetter(reference.charAt(i)); i++) {
+            column = column * 26 + (Character.toUpperCase(reference.charAt(i)) - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    private static String plainNumber(String text) {
+        if (text.isEmpty()) {
+            return text;
+        }
+        try {
+            return new BigDecimal(text).stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException e) {
+            return text;
+        }
+    }
+
+    // Uploads are untrusted: no DTDs, so no external entities or entity expansion
+    private static XMLInputFactory xmlFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+}
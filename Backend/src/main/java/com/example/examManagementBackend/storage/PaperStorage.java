@@ -0,0 +1,48 @@
+package com.example.examManagementBackend.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Where the application keeps its files: encrypted and archived papers, moderation feedback PDFs and
+ * profile images. Objects are named by relative, '/'-separated keys such as
+ * {@code Blobs/ab/cd/abcd...}, so every backend node configured with the same storage sees the same
+ * files. Paths recorded before this abstraction existed are accepted as keys too, see
+ * {@link StorageKeys#toKey(String)}.
+ *
+ * <p>Writes replace the whole object at once; readers never observe a partially written object.
+ */
+public interface PaperStorage {
+
+    record StoredObject(String key, long size, Instant lastModified) {
+    }
+
+    // Store exactly length bytes from the stream under the key, replacing any existing object
+    void put(String key, InputStream in, long length) throws IOException;
+
+    // Store a local file under the key; the storage takes ownership and may move the file into place
+    void put(String key, Path file) throws IOException;
+
+    default void put(String key, byte[] content) throws IOException {
+        put(key, new ByteArrayInputStream(content), content.length);
+    }
+
+    // Whole object; throws NoSuchFileException when there is no object under the key
+    InputStream get(String key) throws IOException;
+
+    // length bytes starting at offset; throws NoSuchFileException when there is no object under the key
+    InputStream getRange(String key, long offset, long length) throws IOException;
+
+    Optional<StoredObject> stat(String key) throws IOException;
+
+    // True when an object was removed
+    boolean delete(String key) throws IOException;
+
+    // Every object whose key starts with the prefix
+    List<StoredObject> list(String prefix) throws IOException;
+}
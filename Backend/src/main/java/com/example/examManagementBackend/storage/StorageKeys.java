@@ -0,0 +1,37 @@
+package com.example.examManagementBackend.storage;
+
+// Normalises and validates storage keys
+public final class StorageKeys {
+
+    // Files used to live in directories under the source tree and their rows hold that path
+    private static final String LEGACY_ROOT = "src/main/resources/";
+
+    private StorageKeys() {
+    }
+
+    /**
+     * Turn a key, or a file path recorded before the storage abstraction, into a normalised key.
+     * Old rows hold paths such as {@code src/main/resources/Encrypted_Papers/x.pdf} or an absolute path
+     * ending in the same directories; they map to {@code Encrypted_Papers/x.pdf}, which is where the
+     * local backend with its default root finds them.
+     */
+    public static String toKey(String keyOrPath) {
+        if (keyOrPath == null || keyOrPath.isBlank()) {
+            throw new IllegalArgumentException("Storage key is empty");
+        }
+        String key = keyOrPath.replace('\\', '/');
+        int legacyRoot = key.lastIndexOf(LEGACY_ROOT);
+        if (legacyRoot >= 0) {
+            key = key.substring(legacyRoot + LEGACY_ROOT.length());
+        }
+        while (key.startsWith("/")) {
+            key = key.substring(1);
+        }
+        for (String segment : key.split("/")) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                throw new IllegalArgumentException("Invalid storage key: " + keyOrPath);
+            }
+        }
+        return key;
+    }
+}
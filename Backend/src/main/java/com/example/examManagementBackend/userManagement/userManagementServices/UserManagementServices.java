@@ -1,5 +1,6 @@
 package com.example.examManagementBackend.userManagement.userManagementServices;
 
+import com.example.examManagementBackend.jobs.service.JobCoordinator;
 import com.example.examManagementBackend.userManagement.userManagementDTO.MailBody;
 import com.example.examManagementBackend.userManagement.userManagementDTO.UserDTO;
 import com.example.examManagementBackend.userManagement.userManagementEntity.RolesEntity;
@@ -17,6 +18,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
 
 
@@ -27,13 +29,15 @@ public class UserManagementServices {
     private final UserRolesRepository userRolesRepo;
     private final RoleRepository roleRepository;
     private final MailService mailService;
+    private final JobCoordinator jobCoordinator;
 
-    public UserManagementServices(UserManagementRepo userManagementRepo, PasswordEncoder passwordEncoder,UserRolesRepository userRolesRepo, RoleRepository roleRepository, MailService mailService) {
+    public UserManagementServices(UserManagementRepo userManagementRepo, PasswordEncoder passwordEncoder,UserRolesRepository userRolesRepo, RoleRepository roleRepository, MailService mailService, JobCoordinator jobCoordinator) {
         this.userManagementRepo = userManagementRepo;
         this.passwordEncoder = passwordEncoder;
         this.userRolesRepo = userRolesRepo;
         this.roleRepository = roleRepository;
         this.mailService = mailService;
+        this.jobCoordinator = jobCoordinator;
     }
 
 
@@ -311,14 +315,16 @@ public class UserManagementServices {
         );
     }
 
-    @Scheduled(fixedRate = 86400000) // Runs once every 24 hours
+    @Scheduled(fixedRate = 86400000) // Runs once every 24 hours, on one node of the cluster
     public void removeExpiredRoles() {
-        List<UserRoles> allRoles = userRolesRepo.findAll();
+        jobCoordinator.runExclusive("expired-role-cleanup", Duration.ofHours(23), context -> {
+            List<UserRoles> allRoles = userRolesRepo.findAll();
 
-        for (UserRoles userRole : allRoles) {
-            if (userRole.isRoleExpired()) {
-                userRolesRepo.delete(userRole); // Remove the expired role
+            for (UserRoles userRole : allRoles) {
+                if (userRole.isRoleExpired()) {
+                    userRolesRepo.delete(userRole); // Remove the expired role
+                }
             }
-        }
+        });
     }
 }
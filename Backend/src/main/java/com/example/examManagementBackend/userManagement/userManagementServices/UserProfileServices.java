@@ -2,18 +2,20 @@ package com.example.examManagementBackend.userManagement.userManagementServices;
 import com.example.examManagementBackend.userManagement.userManagementDTO.UserProfileDTO;
 import com.example.examManagementBackend.userManagement.userManagementEntity.UserEntity;
 import com.example.examManagementBackend.userManagement.userManagementRepo.UserManagementRepo;
+import com.example.examManagementBackend.storage.PaperStorage;
 import io.micrometer.common.util.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Paths;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -23,12 +25,20 @@ public class UserProfileServices {
 
     private final UserManagementRepo userManagementRepo;
 
-    public UserProfileServices(UserManagementRepo userManagementRepo) {
+    private final PaperStorage paperStorage;
+
+    // Profile images are kept in the shared storage under this prefix
+    private static final String PROFILE_IMAGE_PREFIX = "Profile_Images/";
+
+    // Directory profile images were written to before the shared storage; rows still hold paths inside it
+    private final String legacyUploadDir;
+
+    public UserProfileServices(UserManagementRepo userManagementRepo, PaperStorage paperStorage,
+                               @Value("${profile.image.upload-dir:}") String legacyUploadDir) {
         this.userManagementRepo = userManagementRepo;
+        this.paperStorage = paperStorage;
+        this.legacyUploadDir = legacyUploadDir.replace('\\', '/').replaceAll("/+$", "");
     }
-    // Inject your storage path for profile images (can be a directory or cloud service)
-    @Value("${profile.image.upload-dir}")
-    private String uploadDir;
 
     // Existing method to update user profile info (name, email, contact, bio)
     public String updateUserProfile(Long userId, UserProfileDTO updatedProfile) {
@@ -68,17 +78,11 @@ public class UserProfileServices {
                 throw new IllegalArgumentException("Invalid filename");
             }
             String sanitizedFileName = originalFileName.replaceAll("[^a-zA-Z0-9._-]", "_");
-            Path targetPath = Paths.get(uploadDir).resolve(userId + "_" + sanitizedFileName).normalize();
+            String imageKey = PROFILE_IMAGE_PREFIX + userId + "_" + sanitizedFileName;
 
-            Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
-            if (!targetPath.startsWith(uploadPath)) {
-                throw new IllegalArgumentException("Invalid file path");
-            }
-
-            Files.createDirectories(targetPath.getParent());
-            Files.write(targetPath, imageFile.getBytes());
+            paperStorage.put(imageKey, imageFile.getBytes());
 
-            userEntity.setProfileImage(targetPath.toString());
+            userEntity.setProfileImage(imageKey);
             userManagementRepo.save(userEntity);
 
             return "Profile image updated successfully";
@@ -99,13 +103,11 @@ public class UserProfileServices {
         }
 
         try {
-            Path imagePath = Paths.get(profileImagePath);
-            if (!Files.exists(imagePath)) {
+            // Not every backend reports whether a delete found anything, so check first
+            if (!paperStorage.delete(imageKey(profileImagePath))) {
                 return "Profile image does not exist; nothing to delete.";
             }
 
-            Files.delete(imagePath);
-
             userEntity.setProfileImage(null);
             userManagementRepo.save(userEntity);
 
@@ -147,24 +149,31 @@ public class UserProfileServices {
         }
 
         try {
-            Path imagePath = Paths.get(profileImagePath);
-
-            // Check if the file exists
-            if (!Files.exists(imagePath)) {
-                throw new RuntimeException("Profile image file not found on disk");
+            // Read the image as bytes
+            byte[] imageBytes;
+            try (InputStream in = paperStorage.get(imageKey(profileImagePath))) {
+                imageBytes = in.readAllBytes();
+            } catch (NoSuchFileException e) {
+                throw new RuntimeException("Profile image file not found in storage");
             }
 
-            // Read the image file as bytes
-            byte[] imageBytes = Files.readAllBytes(imagePath);
-
             // Set response headers to indicate the file type (optional)
             HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_TYPE, Files.probeContentType(imagePath));
+            MediaTypeFactory.getMediaType(profileImagePath)
+                    .ifPresent(mediaType -> headers.add(HttpHeaders.CONTENT_TYPE, mediaType.toString()));
 
             return new ResponseEntity<>(imageBytes, headers, HttpStatus.OK);
         } catch (IOException e) {
             throw new RuntimeException("Failed to load profile image: " + e.getMessage(), e);
         }
     }
-}
 
+    // Map a path stored under the old profile.image.upload-dir onto its key in the shared storage
+    private String imageKey(String storedPath) {
+        String path = storedPath.replace('\\', '/');
+        if (!legacyUploadDir.isEmpty() && path.startsWith(legacyUploadDir + "/")) {
+            return PROFILE_IMAGE_PREFIX + path.substring(legacyUploadDir.length() + 1);
+        }
+        return storedPath;
+    }
+}
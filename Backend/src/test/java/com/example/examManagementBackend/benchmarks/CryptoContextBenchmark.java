@@ -0,0 +1,125 @@
+package com.example.examManagementBackend.benchmarks;
+
+import com.example.examManagementBackend.paperWorkflows.crypto.CryptoContext;
+import com.example.examManagementBackend.paperWorkflows.crypto.SegmentedAesGcm;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares per-call JCA allocation (what EncryptionService did before) with the pooled
+ * {@link CryptoContext}. Run with:
+ * <pre>
+ * mvn test-compile
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     com.example.examManagementBackend.benchmarks.CryptoContextBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CryptoContextBenchmark {
+
+    private final CryptoContext crypto = new CryptoContext();
+
+    private byte[] segment;
+    private byte[] encodedPrivateKey;
+    private byte[] wrappedKey;
+
+    @Setup
+    public void setUp() throws Exception {
+        segment = new byte[64 * 1024];
+        new SecureRandom().nextBytes(segment);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(CryptoContext.RSA_ALGORITHM);
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        encodedPrivateKey = keyPair.getPrivate().getEncoded();
+
+        Cipher rsa = Cipher.getInstance(CryptoContext.RSA_TRANSFORMATION);
+        rsa.init(Cipher.ENCRYPT_MODE, keyPair.getPublic());
+        wrappedKey = rsa.doFinal(crypto.generateAesKey().getEncoded());
+    }
+
+    @Benchmark
+    public byte[] sealSegmentPerCall() throws Exception {
+        KeyGenerator keyGen = KeyGenerator.getInstance(CryptoContext.AES_ALGORITHM);
+        keyGen.init(CryptoContext.AES_KEY_SIZE);
+        SecretKey key = keyGen.generateKey();
+        byte[] nonce = new byte[SegmentedAesGcm.NONCE_LENGTH];
+        new SecureRandom().nextBytes(nonce);
+
+        Cipher cipher = Cipher.getInstance(SegmentedAesGcm.TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, nonce));
+        return cipher.doFinal(segment);
+    }
+
+    @Benchmark
+    public byte[] sealSegmentPooled() throws Exception {
+        SecretKey key = crypto.generateAesKey();
+        byte[] nonce = crypto.randomBytes(SegmentedAesGcm.NONCE_LENGTH);
+
+        Cipher cipher = crypto.aesCipher();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, nonce));
+        return cipher.doFinal(segment);
+    }
+
+    @Benchmark
+    public void unwrapKeyPerCall(Blackhole blackhole) throws Exception {
+        PrivateKey key = KeyFactory.getInstance(CryptoContext.RSA_ALGORITHM)
+                .generatePrivate(new PKCS8EncodedKeySpec(encodedPrivateKey));
+        Cipher rsa = Cipher.getInstance(CryptoContext.RSA_TRANSFORMATION);
+        rsa.init(Cipher.DECRYPT_MODE, key);
+        blackhole.consume(rsa.doFinal(wrappedKey));
+    }
+
+    @Benchmark
+    public void unwrapKeyPooled(Blackhole blackhole) throws Exception {
+        PrivateKey key = crypto.rsaKeyFactory().generatePrivate(new PKCS8EncodedKeySpec(encodedPrivateKey));
+        Cipher rsa = crypto.rsaCipher();
+        rsa.init(Cipher.DECRYPT_MODE, key);
+        blackhole.consume(rsa.doFinal(wrappedKey));
+    }
+
+    @Benchmark
+    public void lookupsOnlyPerCall(Blackhole blackhole) throws Exception {
+        blackhole.consume(Cipher.getInstance(SegmentedAesGcm.TRANSFORMATION));
+        blackhole.consume(Cipher.getInstance(CryptoContext.RSA_TRANSFORMATION));
+        blackhole.consume(KeyFactory.getInstance(CryptoContext.RSA_ALGORITHM));
+        byte[] nonce = new byte[SegmentedAesGcm.NONCE_LENGTH];
+        new SecureRandom().nextBytes(nonce);
+        blackhole.consume(nonce);
+    }
+
+    @Benchmark
+    public void lookupsOnlyPooled(Blackhole blackhole) {
+        blackhole.consume(crypto.aesCipher());
+        blackhole.consume(crypto.rsaCipher());
+        blackhole.consume(crypto.rsaKeyFactory());
+        blackhole.consume(crypto.randomBytes(SegmentedAesGcm.NONCE_LENGTH));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CryptoContextBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.examManagementBackend.benchmarks;
+
+import com.example.examManagementBackend.paperWorkflows.dto.FeedBackData.FeedBackDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.FeedBackData.questionData;
+import com.example.examManagementBackend.paperWorkflows.service.PdfGenrationService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the moderation feedback form through PdfGenrationService with the question table's cells
+ * styled the way the service used to (a new Helvetica, border and colour per cell, into a fresh
+ * output buffer per form) and the way it does now (shared per-document styles, into the reused
+ * per-thread buffer). Both go through the service, so the difference is the styling alone. Run with:
+ * <pre>
+ * mvn test-compile
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     com.example.examManagementBackend.benchmarks.FeedbackPdfBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FeedbackPdfBenchmark {
+
+    private final PdfGenrationService pdfGenrationService = new PdfGenrationService(null);
+
+    private FeedBackDTO form;
+
+    @Setup
+    public void setUp() {
+        questionData[] questions = new questionData[9];
+        for (int i = 0; i < questions.length; i++) {
+            questions[i] = new questionData(i + 1, i % 2 == 0 ? "Yes" : "No",
+                    "Marks for part " + (i + 1) + " should be shown against each sub-question",
+                    "Are the questions of question " + (i + 1) + " clear and unambiguous?");
+        }
+        form = new FeedBackDTO();
+        form.setQuestion(questions);
+        form.setCourseCode("CSC2233");
+        form.setCourseName("Data Structures and Algorithms");
+        form.setDegreeProgram("BCS");
+        form.setExamination("Level 2 Semester 1 2024");
+        form.setGeneralComment("The paper covers the syllabus well; question 4 is long for the time allowed.");
+        form.setAgreeAndAddressed("Question 4 shortened.");
+        form.setNotAgreeAndReasons("None.");
+        form.setLearningOutcomes("All learning outcomes are assessed.");
+        form.setCourseContent("Covered.");
+    }
+
+    @Benchmark
+    public byte[] questionTablePerCellStyles() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        pdfGenrationService.render(form, out, PdfGenrationService.CellStyling.PER_CELL);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] questionTableSharedStyles() throws IOException {
+        return pdfGenrationService.render(form);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FeedbackPdfBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.examManagementBackend.jobs.service;
+
+import com.example.examManagementBackend.jobs.entity.Enums.JobRunStatus;
+import com.example.examManagementBackend.jobs.entity.JobLease;
+import com.example.examManagementBackend.jobs.entity.JobRun;
+import com.example.examManagementBackend.jobs.repository.JobLeaseRepository;
+import com.example.examManagementBackend.jobs.repository.JobRunRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Two coordinators with different node ids stand in for two backend nodes sharing the H2 database
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JobCoordinatorTest {
+
+    @Autowired
+    JobLeaseRepository leaseRepository;
+
+    @Autowired
+    JobRunRepository runRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private JobCoordinator nodeA;
+    private JobCoordinator nodeB;
+    private TransactionTemplate transactionTemplate;
+    private String job;
+
+    @BeforeEach
+    void setUp() {
+        runRepository.deleteAll();
+        leaseRepository.deleteAll();
+        nodeA = new JobCoordinator(leaseRepository, runRepository, "node-a", 60);
+        nodeB = new JobCoordinator(leaseRepository, runRepository, "node-b", 60);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        job = "job-" + UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.stop();
+        nodeB.stop();
+    }
+
+    @Test
+    void aHeldLeaseKeepsOtherNodesOut() {
+        AtomicReference<JobLease> during = new AtomicReference<>();
+        List<Boolean> otherNode = new ArrayList<>();
+
+        boolean ran = nodeA.runExclusive(job, Duration.ZERO, context -> {
+            during.set(leaseRepository.findById(job).orElseThrow());
+            otherNode.add(nodeB.runExclusive(job, Duration.ZERO, ignored -> { }));
+            assertThat(context.isLeaseHeld()).isTrue();
+        });
+
+        assertThat(ran).isTrue();
+        assertThat(otherNode).containsExactly(false);
+        assertThat(during.get().getOwner()).isEqualTo("node-a");
+        assertThat(during.get().getFencingToken()).isEqualTo(1);
+        assertThat(during.get().getLeaseUntil()).isAfter(LocalDateTime.now());
+        assertThat(nodeA.getRuns(job, 10)).singleElement().satisfies(run -> {
+            assertThat(run.getStatus()).isEqualTo(JobRunStatus.SUCCEEDED);
+            assertThat(run.getFencingToken()).isEqualTo(1);
+        });
+        // Released on completion: the next run takes a new token
+        assertThat(nodeB.runExclusive(job, Duration.ZERO, ignored -> { })).isTrue();
+        assertThat(leaseRepository.findById(job).orElseThrow().getFencingToken()).isEqualTo(2);
+    }
+
+    @Test
+    void aFinishedRunHoldsScheduledRunsOffButNotManualOnes() {
+        assertThat(nodeA.runExclusive(job, Duration.ofHours(1), ignored -> { })).isTrue();
+
+        assertThat(nodeB.runExclusive(job, Duration.ofHours(1), ignored -> { })).isFalse();
+        assertThat(nodeB.runExclusive(job, Duration.ZERO, ignored -> { })).isTrue();
+    }
+
+    @Test
+    void aFailedRunDoesNotHoldTheJobOff() {
+        assertThatThrownBy(() -> nodeA.runExclusive(job, Duration.ofHours(1), ignored -> {
+            throw new IllegalStateException("boom");
+        })).hasMessage("boom");
+
+        assertThat(nodeA.getRuns(job, 10)).singleElement().extracting(JobRun::getStatus).isEqualTo(JobRunStatus.FAILED);
+        assertThat(nodeB.runExclusive(job, Duration.ofHours(1), ignored -> { })).isTrue();
+    }
+
+    @Test
+    void renewalExtendsOnlyTheCurrentHoldersLease() {
+        nodeA.runExclusive(job, Duration.ZERO, context -> {
+            LocalDateTime now = now();
+            LocalDateTime later = now.plusMinutes(10);
+
+            assertThat(leaseRepository.renew(job, "node-a", context.getFencingToken(), now, later)).isEqualTo(1);
+            assertThat(leaseRepository.findById(job).orElseThrow().getLeaseUntil()).isEqualTo(later);
+            assertThat(leaseRepository.renew(job, "node-b", context.getFencingToken(), now, later)).isZero();
+            assertThat(leaseRepository.renew(job, "node-a", context.getFencingToken() - 1, now, later)).isZero();
+            // Once a lease has run out it cannot be renewed, only acquired again
+            assertThat(leaseRepository.renew(job, "node-a", context.getFencingToken(), later, later.plusMinutes(1))).isZero();
+        });
+    }
+
+    @Test
+    void anExpiredLeaseIsTakenOverAndTheStaleHolderIsFencedOut() {
+        List<Boolean> takeover = new ArrayList<>();
+
+        boolean ran = nodeA.runExclusive(job, Duration.ZERO, context -> {
+            // The live holder passes the fence
+            transactionTemplate.executeWithoutResult(status -> nodeA.fence(context));
+
+            // Node A stalls past its lease, and node B takes the job over under a newer token
+            expire(job);
+            takeover.add(nodeB.runExclusive(job, Duration.ofHours(1), ignored -> { }));
+
+            assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> nodeA.fence(context)))
+                    .isInstanceOf(LeaseLostException.class);
+            assertThat(context.isLeaseHeld()).isFalse();
+        });
+
+        assertThat(ran).isTrue();
+        assertThat(takeover).containsExactly(true);
+        JobLease lease = leaseRepository.findById(job).orElseThrow();
+        assertThat(lease.getFencingToken()).isEqualTo(2);
+        assertThat(lease.getOwner()).isEqualTo("node-b");
+        // The stale holder's release did not clear the hold node B left behind
+        assertThat(lease.getHoldUntil()).isAfter(LocalDateTime.now());
+        assertThat(nodeA.getRuns(job, 10)).extracting(JobRun::getOwner, JobRun::getStatus)
+                .containsExactlyInAnyOrder(
+                        tuple("node-a", JobRunStatus.LEASE_LOST),
+                        tuple("node-b", JobRunStatus.SUCCEEDED));
+    }
+
+    @Test
+    void fencingChecksOwnerTokenAndExpiry() {
+        nodeA.runExclusive(job, Duration.ZERO, context -> {
+            long token = context.getFencingToken();
+            LocalDateTime now = now();
+
+            assertThat(leaseRepository.fence(job, "node-a", token, now)).isEqualTo(1);
+            assertThat(leaseRepository.fence(job, "node-a", token - 1, now)).isZero();
+            assertThat(leaseRepository.fence(job, "node-b", token, now)).isZero();
+            assertThat(leaseRepository.fence(job, "node-a", token, now.plusHours(1))).isZero();
+        });
+    }
+
+    @Test
+    void partitionsAreLeasedSeparately() {
+        List<Integer> seen = new ArrayList<>();
+
+        int ran = nodeA.runPartitioned(job, 3, Duration.ofHours(1), context -> {
+            seen.add(context.getPartition());
+            assertThat(context.getPartitionCount()).isEqualTo(3);
+        });
+
+        assertThat(ran).isEqualTo(3);
+        assertThat(seen).containsExactlyInAnyOrder(0, 1, 2);
+        assertThat(nodeB.runPartitioned(job, 3, Duration.ofHours(1), context -> { })).isZero();
+        assertThat(leaseRepository.findAllByOrderByNameAsc()).extracting(JobLease::getName)
+                .containsExactly(job + "#0", job + "#1", job + "#2");
+    }
+
+    // Move a lease's expiry into the past, as if its holder had stopped renewing it
+    private void expire(String lockName) {
+        JobLease lease = leaseRepository.findById(lockName).orElseThrow();
+        lease.setLeaseUntil(now().minusSeconds(5));
+        leaseRepository.save(lease);
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.examManagementBackend.paperWorkflows;
+
+import com.example.examManagementBackend.paperWorkflows.entity.CoursesEntity;
+import com.example.examManagementBackend.paperWorkflows.entity.DegreeProgramsEntity;
+import com.example.examManagementBackend.paperWorkflows.entity.EncryptedPaper;
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.PaperType;
+import com.example.examManagementBackend.paperWorkflows.entity.ExaminationEntity;
+import com.example.examManagementBackend.paperWorkflows.repository.CoursesRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.EncryptedPaperRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.userManagement.userManagementEntity.UserEntity;
+import com.example.examManagementBackend.userManagement.userManagementRepo.UserManagementRepo;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Saves the rows a paper needs in the H2 test database; names are random because tests share one database
+public class PaperFixtures {
+
+    private final ExaminationRepository examinationRepository;
+    private final CoursesRepository coursesRepository;
+    private final UserManagementRepo userRepository;
+    private final EncryptedPaperRepository encryptedPaperRepository;
+
+    public PaperFixtures(ExaminationRepository examinationRepository, CoursesRepository coursesRepository,
+                         UserManagementRepo userRepository, EncryptedPaperRepository encryptedPaperRepository) {
+        this.examinationRepository = examinationRepository;
+        this.coursesRepository = coursesRepository;
+        this.userRepository = userRepository;
+        this.encryptedPaperRepository = encryptedPaperRepository;
+    }
+
+    public ExaminationEntity examination(DegreeProgramsEntity degreeProgram, String year) {
+        ExaminationEntity examination = new ExaminationEntity();
+        examination.setYear(year);
+        examination.setLevel("1");
+        examination.setSemester("1");
+        examination.setDegreeProgramsEntity(degreeProgram);
+        return examinationRepository.save(examination);
+    }
+
+    // A course in a degree program of its own; the program is saved along with it
+    public CoursesEntity course(String name) {
+        DegreeProgramsEntity degreeProgram = new DegreeProgramsEntity();
+        degreeProgram.setDegreeName("Degree " + unique());
+        CoursesEntity course = new CoursesEntity();
+        course.setCode("C" + unique());
+        course.setName(name);
+        course.setLevel(1);
+        course.setSemester("1");
+        course.setIsActive(true);
+        course.setCourseType(CoursesEntity.CourseType.THEORY);
+        course.setDegreeProgramsEntity(degreeProgram);
+        return coursesRepository.save(course);
+    }
+
+    // Usernames look like "ada.lovelace.1a2b3c4d", as archive searches match on them
+    public UserEntity user(String firstName, String lastName) {
+        String username = (firstName + "." + lastName + "." + unique()).toLowerCase();
+        UserEntity user = new UserEntity(username, username + "@example.com", firstName, lastName, 0, true);
+        user.setPassword("secret");
+        return userRepository.save(user);
+    }
+
+    public EncryptedPaper encryptedPaper(String fileName, UserEntity creator, ExaminationEntity examination,
+                                         CoursesEntity course, LocalDateTime sharedAt) {
+        EncryptedPaper paper = new EncryptedPaper();
+        paper.setFileName(fileName);
+        paper.setFilePath("Encrypted_Papers/" + unique() + "_" + fileName);
+        paper.setCreator(creator);
+        paper.setExamination(examination);
+        paper.setCourse(course);
+        paper.setPaperType(PaperType.THEORY);
+        paper.setShared(sharedAt != null);
+        paper.setSharedAt(sharedAt);
+        return encryptedPaperRepository.save(paper);
+    }
+
+    private static String unique() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.examManagementBackend.paperWorkflows.controller;
+
+import com.example.examManagementBackend.paperWorkflows.entity.EncryptedPaper;
+import com.example.examManagementBackend.paperWorkflows.entity.StoredBlob;
+import com.example.examManagementBackend.paperWorkflows.repository.CoursesRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.EncryptedPaperRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.paperWorkflows.service.BlobStoreService;
+import com.example.examManagementBackend.paperWorkflows.service.EncryptionService;
+import com.example.examManagementBackend.paperWorkflows.service.FileService;
+import com.example.examManagementBackend.userManagement.userManagementEntity.UserEntity;
+import com.example.examManagementBackend.userManagement.userManagementRepo.UserManagementRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileUploadControllerTest {
+
+    private final EncryptedPaperRepository encryptedPaperRepository = mock(EncryptedPaperRepository.class);
+    private final UserManagementRepo userRepository = mock(UserManagementRepo.class);
+    private final BlobStoreService blobStoreService = mock(BlobStoreService.class);
+    private final MockMultipartFile file = new MockMultipartFile("file", "paper.pdf", "application/pdf", new byte[]{1, 2, 3});
+    private EncryptedPaper paper;
+    private FileUploadController controller;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        paper = new EncryptedPaper();
+        paper.setId(7L);
+        paper.setCreator(user(1L));
+        paper.setModerator(user(2L));
+        paper.setExtraRecipientIds(new HashSet<>(Set.of(3L)));
+        when(encryptedPaperRepository.findById(7L)).thenReturn(Optional.of(paper));
+        when(userRepository.findById(anyLong())).thenAnswer(invocation -> Optional.of(user(invocation.getArgument(0))));
+        when(blobStoreService.storeEncrypted(any(), any())).thenReturn(new StoredBlob());
+
+        FileService fileService = new FileService(mock(EncryptionService.class), encryptedPaperRepository, userRepository,
+                mock(CoursesRepository.class), mock(ExaminationRepository.class), blobStoreService);
+        controller = new FileUploadController(fileService);
+    }
+
+    @Test
+    void updateKeepsTheRecordedRecipientsWhenNoneAreGiven() throws Exception {
+        assertThat(controller.updatePaper(7L, file, "paper.pdf", "v2", null).getStatusCode().value()).isEqualTo(200);
+
+        verify(blobStoreService).storeEncrypted(any(), eq(List.of(1L, 2L, 3L)));
+        assertThat(paper.getExtraRecipientIds()).containsExactly(3L);
+    }
+
+    @Test
+    void updateReplacesTheRecipientsWhenTheRequestNamesThem() throws Exception {
+        assertThat(controller.updatePaper(7L, file, "paper.pdf", "v2", List.of(4L, 5L)).getStatusCode().value()).isEqualTo(200);
+
+        verify(blobStoreService).storeEncrypted(any(), eq(List.of(1L, 2L, 4L, 5L)));
+        assertThat(paper.getExtraRecipientIds()).containsExactlyInAnyOrder(4L, 5L);
+    }
+
+    @Test
+    void unknownRecipientsAreRejected() throws Exception {
+        when(userRepository.findById(9L)).thenReturn(Optional.empty());
+
+        assertThat(controller.updatePaper(7L, file, "paper.pdf", "v2", List.of(9L)).getStatusCode().value()).isEqualTo(400);
+        assertThat(paper.getExtraRecipientIds()).containsExactly(3L);
+    }
+
+    private static UserEntity user(Long id) {
+        UserEntity user = new UserEntity();
+        ReflectionTestUtils.setField(user, "userId", id);
+        return user;
+    }
+}
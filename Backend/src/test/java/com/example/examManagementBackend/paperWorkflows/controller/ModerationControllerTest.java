@@ -0,0 +1,51 @@
+package com.example.examManagementBackend.paperWorkflows.controller;
+
+import com.example.examManagementBackend.paperWorkflows.dto.FeedBackData.FeedBackDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.FeedbackPdfJobDTO;
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.FeedbackPdfJobStatus;
+import com.example.examManagementBackend.paperWorkflows.service.FeedbackPdfJobService;
+import com.example.examManagementBackend.paperWorkflows.service.ModerationReportService;
+import com.example.examManagementBackend.paperWorkflows.service.ModerationService;
+import com.example.examManagementBackend.utill.StandardResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ModerationControllerTest {
+
+    private final FeedbackPdfJobService feedbackPdfJobService = mock(FeedbackPdfJobService.class);
+    private final ModerationController controller = new ModerationController(feedbackPdfJobService,
+            mock(ModerationService.class), mock(ModerationReportService.class));
+
+    @Test
+    void aFailedRenderAnswersWithTheFailedJob() {
+        LocalDateTime submittedAt = LocalDateTime.now();
+        FeedbackPdfJobDTO queued = new FeedbackPdfJobDTO(7L, "CS101", "CS101.pdf", FeedbackPdfJobStatus.QUEUED, 0,
+                null, submittedAt, null, null);
+        FeedbackPdfJobDTO failed = new FeedbackPdfJobDTO(7L, "CS101", "CS101.pdf", FeedbackPdfJobStatus.FAILED, 0,
+                "Font not found", submittedAt, submittedAt, submittedAt);
+        CompletableFuture<byte[]> pdf = new CompletableFuture<>();
+        when(feedbackPdfJobService.submit(any())).thenReturn(new FeedbackPdfJobService.Submission(queued, pdf));
+        when(feedbackPdfJobService.getJob(7L)).thenReturn(Optional.of(failed));
+
+        DeferredResult<ResponseEntity<?>> result = controller.saveFeedBackData(new FeedBackDTO());
+        pdf.completeExceptionally(new IOException("Font not found"));
+
+        ResponseEntity<?> response = (ResponseEntity<?>) result.getResult();
+        assertThat(response.getStatusCode().value()).isEqualTo(500);
+        StandardResponse body = (StandardResponse) response.getBody();
+        assertThat(body.getCode()).isEqualTo(500);
+        assertThat(body.getMessage()).isEqualTo("Feedback PDF rendering failed: Font not found");
+        assertThat(body.getData()).isEqualTo(failed);
+    }
+}
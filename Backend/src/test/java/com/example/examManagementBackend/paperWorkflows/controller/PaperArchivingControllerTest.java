@@ -0,0 +1,57 @@
+package com.example.examManagementBackend.paperWorkflows.controller;
+
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSearchCriteria;
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSliceDTO;
+import com.example.examManagementBackend.paperWorkflows.service.ArchiveExportService;
+import com.example.examManagementBackend.paperWorkflows.service.PaperArchivingService;
+import com.example.examManagementBackend.utill.StandardResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaperArchivingControllerTest {
+
+    private final PaperArchivingService service = mock(PaperArchivingService.class);
+    private final PaperArchivingController controller = new PaperArchivingController(service, mock(ArchiveExportService.class));
+
+    @Test
+    void listingStaysOnOffsetPagesUnlessKeysetIsAskedFor() {
+        when(service.getArchivedPapers(0, 10)).thenReturn(new PageImpl<>(List.of()));
+        when(service.getArchivedPapersAfter(any(), anyInt(), anyBoolean())).thenReturn(new ArchivedPaperSliceDTO());
+
+        assertThat(controller.getArchivedPapers(0, 10, null, null, false).getBody().getData()).isInstanceOf(Page.class);
+        assertThat(controller.getArchivedPapers(0, 10, null, "keyset", false).getBody().getData()).isInstanceOf(ArchivedPaperSliceDTO.class);
+        assertThat(controller.getArchivedPapers(0, 10, 42L, null, false).getBody().getData()).isInstanceOf(ArchivedPaperSliceDTO.class);
+        verify(service).getArchivedPapersAfter(isNull(), eq(10), eq(false));
+        verify(service).getArchivedPapersAfter(eq(42L), eq(10), eq(false));
+    }
+
+    @Test
+    void searchStaysOnOffsetPagesForFreeTextEvenInKeysetMode() {
+        when(service.searchArchivedPapers(any(), any(), anyBoolean(), any())).thenReturn(new PageImpl<>(List.of()));
+
+        assertThat(search(null, null, null).getData()).isInstanceOf(Page.class);
+        assertThat(search(null, "keyset", "algebra").getData()).isInstanceOf(Page.class);
+        verify(service, never()).searchArchivedPapersAfter(any(ArchivedPaperSearchCriteria.class), anyBoolean(), any(), anyInt(), anyBoolean());
+        verify(service).searchArchivedPapers(any(), eq("algebra"), eq(false), eq(PageRequest.of(0, 10)));
+    }
+
+    private StandardResponse search(Long cursor, String mode, String q) {
+        return controller.searchArchivedPapers(null, null, null, null, null, null, null, null, null, null, null,
+                0, 10, cursor, mode, false, q, false).getBody();
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.examManagementBackend.paperWorkflows.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeflatedSegmentsTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    private final Cipher cipher = Cipher.getInstance(SegmentedAesGcm.TRANSFORMATION);
+    private final SecretKey key = KeyGenerator.getInstance("AES").generateKey();
+    private final byte[] baseNonce = new byte[SegmentedAesGcm.NONCE_LENGTH];
+
+    DeflatedSegmentsTest() throws GeneralSecurityException {
+    }
+
+    // A stored paper: sealed segments followed by the segment table
+    private record Sealed(byte[] bytes, long plainLength, long[] offsets) {
+        byte[] segments() {
+            return Arrays.copyOf(bytes, (int) offsets[offsets.length - 1]);
+        }
+    }
+
+    @Test
+    void compressibleSegmentsShrinkAndRoundTrip() throws Exception {
+        byte[] plain = text(5 * SEGMENT_SIZE + 300);
+
+        Sealed sealed = encrypt(plain);
+
+        assertThat(sealed.offsets()).hasSize(7);
+        assertThat(sealed.offsets()[6]).isLessThan(plain.length / 2);
+        assertThat(decrypt(sealed)).isEqualTo(plain);
+    }
+
+    @Test
+    void incompressibleSegmentsAreStoredRaw() throws Exception {
+        byte[] plain = random(3 * SEGMENT_SIZE);
+
+        Sealed sealed = encrypt(plain);
+
+        assertThat(sealed.offsets()).containsExactly(0, 1040, 2080, 3120);
+        assertThat(decrypt(sealed)).isEqualTo(plain);
+    }
+
+    @Test
+    void mixedAndEmptyPapersRoundTrip() throws Exception {
+        byte[] mixed = new byte[4 * SEGMENT_SIZE + 10];
+        System.arraycopy(text(SEGMENT_SIZE), 0, mixed, 0, SEGMENT_SIZE);
+        System.arraycopy(random(2 * SEGMENT_SIZE), 0, mixed, SEGMENT_SIZE, 2 * SEGMENT_SIZE);
+        System.arraycopy(text(SEGMENT_SIZE + 10), 0, mixed, 3 * SEGMENT_SIZE, SEGMENT_SIZE + 10);
+
+        assertThat(decrypt(encrypt(mixed))).isEqualTo(mixed);
+        assertThat(decrypt(encrypt(new byte[0]))).isEmpty();
+        assertThat(encrypt(new byte[0]).offsets()).hasSize(2);
+    }
+
+    @Test
+    void rangesAcrossSegmentBoundariesDecryptOnlyWhatTheyCover() throws Exception {
+        byte[] plain = new byte[6 * SEGMENT_SIZE + 77];
+        System.arraycopy(text(plain.length), 0, plain, 0, plain.length);
+        System.arraycopy(random(SEGMENT_SIZE), 0, plain, 2 * SEGMENT_SIZE, SEGMENT_SIZE);
+        Sealed sealed = encrypt(plain);
+
+        long[][] ranges = {
+                {0, 0}, {0, SEGMENT_SIZE - 1}, {SEGMENT_SIZE - 1, SEGMENT_SIZE}, {SEGMENT_SIZE, 2 * SEGMENT_SIZE - 1},
+                {2 * SEGMENT_SIZE - 5, 3 * SEGMENT_SIZE + 5}, {100, plain.length - 1}, {plain.length - 1, plain.length - 1},
+                {6 * SEGMENT_SIZE, plain.length - 1}
+        };
+        for (long[] range : ranges) {
+            long[] requested = new long[2];
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            DeflatedSegments.decryptRange(cipher, key, baseNonce, SEGMENT_SIZE, sealed.plainLength(), sealed.offsets(),
+                    range[0], range[1], (offset, length) -> {
+                        requested[0] = offset;
+                        requested[1] = length;
+                        return new ByteArrayInputStream(sealed.bytes(), (int) offset, (int) length);
+                    }, out);
+
+            assertThat(out.toByteArray()).isEqualTo(Arrays.copyOfRange(plain, (int) range[0], (int) range[1] + 1));
+            int firstSegment = (int) (range[0] / SEGMENT_SIZE);
+            int lastSegment = (int) (range[1] / SEGMENT_SIZE);
+            assertThat(requested).containsExactly(sealed.offsets()[firstSegment],
+                    sealed.offsets()[lastSegment + 1] - sealed.offsets()[firstSegment]);
+        }
+        assertThatThrownBy(() -> DeflatedSegments.decryptRange(cipher, key, baseNonce, SEGMENT_SIZE, sealed.plainLength(),
+                sealed.offsets(), 0, plain.length, (offset, length) -> null, new ByteArrayOutputStream()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void tamperedSegmentFailsItsTag() throws Exception {
+        Sealed sealed = encrypt(text(3 * SEGMENT_SIZE));
+        sealed.bytes()[(int) sealed.offsets()[1] + 3] ^= 1;
+
+        assertThatThrownBy(() -> decrypt(sealed)).isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void segmentsFromAnotherPositionAreRejected() throws Exception {
+        byte[] plain = random(3 * SEGMENT_SIZE);
+        Sealed sealed = encrypt(plain);
+        byte[] bytes = sealed.bytes();
+        // Swap the first two segments, which have the same length
+        byte[] first = Arrays.copyOfRange(bytes, 0, 1040);
+        System.arraycopy(bytes, 1040, bytes, 0, 1040);
+        System.arraycopy(first, 0, bytes, 1040, 1040);
+
+        assertThatThrownBy(() -> decrypt(sealed)).isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void tableThatDoesNotAddUpIsRejected() throws Exception {
+        Sealed sealed = encrypt(text(3 * SEGMENT_SIZE));
+        byte[] table = Arrays.copyOfRange(sealed.bytes(), (int) sealed.offsets()[3], sealed.bytes().length);
+        ByteBuffer.wrap(table).putInt(0, ByteBuffer.wrap(table).getInt(0) + 1);
+
+        assertThatThrownBy(() -> DeflatedSegments.readTable(new ByteArrayInputStream(table), sealed.plainLength(),
+                SEGMENT_SIZE, sealed.offsets()[3])).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> DeflatedSegments.readTable(new ByteArrayInputStream(table, 0, 8), sealed.plainLength(),
+                SEGMENT_SIZE, sealed.offsets()[3])).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void droppingTheFinalSegmentIsDetected() throws Exception {
+        Sealed sealed = encrypt(text(3 * SEGMENT_SIZE));
+        // Claim the paper ends after two segments, as if the last one had been cut off
+        long[] truncated = Arrays.copyOf(sealed.offsets(), 3);
+
+        assertThatThrownBy(() -> DeflatedSegments.decrypt(cipher, key, baseNonce, SEGMENT_SIZE, 2 * SEGMENT_SIZE, truncated,
+                new ByteArrayInputStream(sealed.segments()), new ByteArrayOutputStream()))
+                .isInstanceOf(AEADBadTagException.class);
+    }
+
+    private Sealed encrypt(byte[] plain) throws Exception {
+        // Every paper gets a fresh nonce, as EncryptionService does
+        new SecureRandom().nextBytes(baseNonce);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(PaperCompression.LEVEL);
+        DeflatedSegments.Written written;
+        try {
+            written = DeflatedSegments.encrypt(cipher, key, baseNonce, SEGMENT_SIZE, deflater,
+                    new ByteArrayInputStream(plain), Channels.newChannel(out));
+        } finally {
+            deflater.end();
+        }
+        assertThat(written.plainLength()).isEqualTo(plain.length);
+
+        byte[] bytes = out.toByteArray();
+        long tableLength = DeflatedSegments.tableLength(plain.length, SEGMENT_SIZE);
+        long sealedLength = bytes.length - tableLength;
+        long[] offsets = DeflatedSegments.readTable(new ByteArrayInputStream(bytes, (int) sealedLength, (int) tableLength),
+                plain.length, SEGMENT_SIZE, sealedLength);
+        return new Sealed(bytes, plain.length, offsets);
+    }
+
+    private byte[] decrypt(Sealed sealed) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DeflatedSegments.decrypt(cipher, key, baseNonce, SEGMENT_SIZE, sealed.plainLength(), sealed.offsets(),
+                new ByteArrayInputStream(sealed.segments()), out);
+        return out.toByteArray();
+    }
+
+    private static byte[] text(int length) {
+        byte[] line = "Q1. Explain the difference between a process and a thread. (10 marks)\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] text = new byte[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = line[i % line.length];
+        }
+        return text;
+    }
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
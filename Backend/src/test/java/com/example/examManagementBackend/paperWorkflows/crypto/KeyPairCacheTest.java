@@ -0,0 +1,115 @@
+package com.example.examManagementBackend.paperWorkflows.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeyPairCacheTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        KeyPairCache cache = new KeyPairCache(10);
+        KeyPair keyPair = new KeyPair(null, null);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<KeyPair>> results = new ArrayList<>();
+            results.add(pool.submit(() -> cache.get(7L, id -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return keyPair;
+            })));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 1; i < THREADS; i++) {
+                results.add(pool.submit(() -> cache.get(7L, id -> {
+                    loads.incrementAndGet();
+                    return new KeyPair(null, null);
+                })));
+            }
+            // Let the waiting threads reach the load in flight before it completes
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<KeyPair> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(keyPair);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(loads).hasValue(1);
+        KeyPairCache.Stats stats = cache.stats();
+        assertThat(stats.loads()).isEqualTo(1);
+        assertThat(stats.hits() + stats.misses()).isEqualTo(THREADS);
+        assertThat(cache.get(7L, id -> {
+            throw new AssertionError("cached key pair was loaded again");
+        })).isSameAs(keyPair);
+    }
+
+    @Test
+    void failedLoadIsNotCachedAndIsRetried() {
+        KeyPairCache cache = new KeyPairCache(10);
+        KeyPair keyPair = new KeyPair(null, null);
+
+        assertThatThrownBy(() -> cache.get(1L, id -> {
+            throw new IllegalStateException("no keys");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("no keys");
+        assertThat(cache.getIfPresent(1L)).isNull();
+        assertThat(cache.get(1L, id -> keyPair)).isSameAs(keyPair);
+
+        KeyPairCache.Stats stats = cache.stats();
+        assertThat(stats.loads()).isEqualTo(2);
+        assertThat(stats.loadFailures()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedFirst() {
+        KeyPairCache cache = new KeyPairCache(2);
+        cache.put(1L, new KeyPair(null, null));
+        cache.put(2L, new KeyPair(null, null));
+        cache.getIfPresent(1L);
+        cache.put(3L, new KeyPair(null, null));
+
+        assertThat(cache.getIfPresent(1L)).isNotNull();
+        assertThat(cache.getIfPresent(2L)).isNull();
+        assertThat(cache.getIfPresent(3L)).isNotNull();
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+        assertThat(cache.stats().size()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidatedEntryIsLoadedAgain() {
+        KeyPairCache cache = new KeyPairCache(10);
+        KeyPair rotated = new KeyPair(null, null);
+        cache.put(5L, new KeyPair(null, null));
+
+        cache.invalidate(5L);
+
+        assertThat(cache.get(5L, id -> rotated)).isSameAs(rotated);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
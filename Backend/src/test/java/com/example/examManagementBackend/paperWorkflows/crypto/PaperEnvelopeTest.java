@@ -0,0 +1,127 @@
+package com.example.examManagementBackend.paperWorkflows.crypto;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaperEnvelopeTest {
+
+    private static final byte[] MAGIC = {(byte) 0x89, 'E', 'P', 'S'};
+    private static final byte[] CIPHERTEXT = {1, 2, 3, 4, 5};
+
+    @TempDir
+    Path dir;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void roundTripsWithFingerprints() throws IOException {
+        byte[] nonce = random(SegmentedAesGcm.NONCE_LENGTH);
+        PaperEnvelope.Recipient creator = new PaperEnvelope.Recipient(random(32), random(256));
+        PaperEnvelope.Recipient moderator = new PaperEnvelope.Recipient(random(32), random(384));
+        PaperEnvelope written = new PaperEnvelope(65536, nonce, List.of(creator, moderator), (byte) 0);
+
+        byte[] file = withCiphertext(written);
+        InputStream in = new ByteArrayInputStream(file);
+        PaperEnvelope read = PaperEnvelope.read(in);
+
+        assertThat(read.getSegmentSize()).isEqualTo(65536);
+        assertThat(read.getBaseNonce()).isEqualTo(nonce);
+        assertThat(read.isSegmentDeflated()).isFalse();
+        assertThat(read.getPlainLength()).isEqualTo(-1);
+        assertThat(read.getHeaderLength()).isEqualTo(written.getHeaderLength()).isEqualTo(file.length - CIPHERTEXT.length);
+        assertThat(read.getRecipients()).hasSize(2);
+        assertThat(read.findRecipient(moderator.fingerprint())).hasValueSatisfying(recipient ->
+                assertThat(recipient.wrappedKey()).isEqualTo(moderator.wrappedKey()));
+        assertThat(read.findRecipient(random(32))).isEmpty();
+        // The stream is left at the first ciphertext segment
+        assertThat(in.readAllBytes()).isEqualTo(CIPHERTEXT);
+    }
+
+    @Test
+    void plainLengthIsFilledInAfterwards() throws IOException {
+        PaperEnvelope written = new PaperEnvelope(1024, random(SegmentedAesGcm.NONCE_LENGTH),
+                List.of(new PaperEnvelope.Recipient(random(32), random(256))), PaperEnvelope.FLAG_SEGMENT_DEFLATE);
+        Path file = dir.resolve("paper.enc");
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            written.write(out);
+            out.write(ByteBuffer.wrap(CIPHERTEXT));
+            PaperEnvelope.writePlainLength(out, 123_456_789_012L);
+        }
+
+        try (InputStream in = Files.newInputStream(file)) {
+            PaperEnvelope read = PaperEnvelope.read(in);
+
+            assertThat(read.isSegmentDeflated()).isTrue();
+            assertThat(read.getPlainLength()).isEqualTo(123_456_789_012L);
+            assertThat(read.getHeaderLength()).isEqualTo(written.getHeaderLength());
+            assertThat(in.readAllBytes()).isEqualTo(CIPHERTEXT);
+        }
+    }
+
+    @Test
+    void recognisesEnvelopesWithoutConsumingThem() throws IOException {
+        byte[] file = withCiphertext(new PaperEnvelope(1024, random(SegmentedAesGcm.NONCE_LENGTH), List.of(), (byte) 0));
+        InputStream envelope = new BufferedInputStream(new ByteArrayInputStream(file));
+        InputStream legacy = new BufferedInputStream(new ByteArrayInputStream("UEsDBBQ=".getBytes()));
+
+        assertThat(PaperEnvelope.isEnvelope(envelope)).isTrue();
+        assertThat(PaperEnvelope.read(envelope).getRecipients()).isEmpty();
+        assertThat(PaperEnvelope.isEnvelope(legacy)).isFalse();
+        assertThat(legacy.readAllBytes()).asString().isEqualTo("UEsDBBQ=");
+    }
+
+    @Test
+    void rejectsUnknownVersionsAndFlags() throws IOException {
+        ByteArrayOutputStream version = new ByteArrayOutputStream();
+        header(version, 2, 0, 1024);
+        ByteArrayOutputStream unknownFlag = new ByteArrayOutputStream();
+        header(unknownFlag, PaperEnvelope.VERSION, 0x02, 1024);
+
+        assertThatThrownBy(() -> PaperEnvelope.read(new ByteArrayInputStream(version.toByteArray())))
+                .isInstanceOf(IOException.class).hasMessageContaining("version");
+        assertThatThrownBy(() -> PaperEnvelope.read(new ByteArrayInputStream(unknownFlag.toByteArray())))
+                .isInstanceOf(IOException.class).hasMessageContaining("flags");
+        assertThatThrownBy(() -> PaperEnvelope.read(new ByteArrayInputStream("not a paper".getBytes())))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static byte[] withCiphertext(PaperEnvelope envelope) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        envelope.write(Channels.newChannel(out));
+        out.write(CIPHERTEXT);
+        return out.toByteArray();
+    }
+
+    private static DataOutputStream header(ByteArrayOutputStream bytes, int version, int flags, int segmentSize) throws IOException {
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(MAGIC);
+        out.writeByte(version);
+        out.writeByte(flags);
+        out.writeInt(segmentSize);
+        return out;
+    }
+
+    private byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.examManagementBackend.paperWorkflows.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentedAesGcmTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+    private static final int SEALED_SIZE = SEGMENT_SIZE + SegmentedAesGcm.TAG_LENGTH;
+
+    private final Cipher cipher = Cipher.getInstance(SegmentedAesGcm.TRANSFORMATION);
+    private final SecretKey key = KeyGenerator.getInstance("AES").generateKey();
+    private final byte[] baseNonce = new byte[SegmentedAesGcm.NONCE_LENGTH];
+
+    SegmentedAesGcmTest() throws GeneralSecurityException {
+    }
+
+    @Test
+    void roundTripsPlaintextsOfEveryShape() throws Exception {
+        for (int length : new int[]{0, 1, SEGMENT_SIZE - 1, SEGMENT_SIZE, SEGMENT_SIZE + 1, 3 * SEGMENT_SIZE, 3 * SEGMENT_SIZE + 17}) {
+            byte[] plain = random(length);
+
+            byte[] sealed = encrypt(plain);
+
+            int segments = Math.max(1, (length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            assertThat(sealed).hasSize(length + segments * SegmentedAesGcm.TAG_LENGTH);
+            assertThat(SegmentedAesGcm.segmentCount(sealed.length, SEGMENT_SIZE)).isEqualTo(segments);
+            assertThat(SegmentedAesGcm.plaintextLength(sealed.length, SEGMENT_SIZE)).isEqualTo(length);
+            assertThat(decrypt(sealed)).isEqualTo(plain);
+        }
+    }
+
+    @Test
+    void segmentNoncesDifferOnlyByIndex() {
+        byte[] base = random(SegmentedAesGcm.NONCE_LENGTH);
+
+        assertThat(SegmentedAesGcm.segmentNonce(base, 0)).isEqualTo(base);
+        assertThat(SegmentedAesGcm.segmentNonce(base, 1)).isNotEqualTo(base);
+        assertThat(Arrays.copyOf(SegmentedAesGcm.segmentNonce(base, 0x01020304), 8)).isEqualTo(Arrays.copyOf(base, 8));
+    }
+
+    @Test
+    void flippedCiphertextBitIsRejected() throws Exception {
+        byte[] sealed = encrypt(random(2 * SEGMENT_SIZE + 5));
+        sealed[SEALED_SIZE + 10] ^= 1;
+
+        assertThatThrownBy(() -> decrypt(sealed)).isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void cuttingOffWholeSegmentsIsDetected() throws Exception {
+        byte[] sealed = encrypt(random(3 * SEGMENT_SIZE + 5));
+
+        // The remaining last segment was not sealed as the final one
+        assertThatThrownBy(() -> decrypt(Arrays.copyOf(sealed, 2 * SEALED_SIZE)))
+                .isInstanceOf(AEADBadTagException.class);
+        assertThatThrownBy(() -> decrypt(Arrays.copyOf(sealed, sealed.length - 1)))
+                .isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void appendingASegmentIsDetected() throws Exception {
+        byte[] sealed = encrypt(random(2 * SEGMENT_SIZE));
+        byte[] extended = Arrays.copyOf(sealed, sealed.length + SEALED_SIZE);
+        System.arraycopy(sealed, 0, extended, sealed.length, SEALED_SIZE);
+
+        assertThatThrownBy(() -> decrypt(extended)).isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void reorderedSegmentsAreRejected() throws Exception {
+        byte[] sealed = encrypt(random(3 * SEGMENT_SIZE + 5));
+        byte[] first = Arrays.copyOfRange(sealed, 0, SEALED_SIZE);
+        System.arraycopy(sealed, SEALED_SIZE, sealed, 0, SEALED_SIZE);
+        System.arraycopy(first, 0, sealed, SEALED_SIZE, SEALED_SIZE);
+
+        assertThatThrownBy(() -> decrypt(sealed)).isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void wrongKeyIsRejected() throws Exception {
+        byte[] sealed = encrypt(random(100));
+        SecretKey otherKey = KeyGenerator.getInstance("AES").generateKey();
+
+        assertThatThrownBy(() -> SegmentedAesGcm.decrypt(cipher, otherKey, baseNonce, SEGMENT_SIZE,
+                new ByteArrayInputStream(sealed), new ByteArrayOutputStream()))
+                .isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void rangesAcrossSegmentBoundariesMatchThePlaintext() throws Exception {
+        int length = 3 * SEGMENT_SIZE + 17;
+        byte[] plain = random(length);
+        byte[] sealed = encrypt(plain);
+
+        long[] edges = {0, 1, SEGMENT_SIZE - 1, SEGMENT_SIZE, SEGMENT_SIZE + 1, 2 * SEGMENT_SIZE - 1, 2 * SEGMENT_SIZE,
+                3 * SEGMENT_SIZE - 1, 3 * SEGMENT_SIZE, length - 1};
+        for (long first : edges) {
+            for (long last : edges) {
+                if (last >= first) {
+                    assertThat(decryptRange(sealed, first, last))
+                            .as("bytes %d-%d", first, last)
+                            .isEqualTo(Arrays.copyOfRange(plain, (int) first, (int) last + 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    void rangeReadsOnlyTheSegmentsItCovers() throws Exception {
+        byte[] sealed = encrypt(random(4 * SEGMENT_SIZE));
+        List<long[]> reads = new ArrayList<>();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SegmentedAesGcm.decryptRange(cipher, key, baseNonce, SEGMENT_SIZE, sealed.length, SEGMENT_SIZE + 10, 2 * SEGMENT_SIZE + 10,
+                (offset, count) -> {
+                    reads.add(new long[]{offset, count});
+                    return new ByteArrayInputStream(sealed, (int) offset, (int) count);
+                }, out);
+
+        assertThat(out.size()).isEqualTo(SEGMENT_SIZE + 1);
+        assertThat(reads).containsExactly(new long[]{SEALED_SIZE, 2L * SEALED_SIZE});
+    }
+
+    @Test
+    void rangeInTheLastSegmentStillChecksItIsFinal() throws Exception {
+        byte[] sealed = encrypt(random(3 * SEGMENT_SIZE + 5));
+        byte[] cut = Arrays.copyOf(sealed, 2 * SEALED_SIZE);
+
+        // The second segment was sealed as a middle one, so it can't pass for the end of a shorter paper
+        assertThatThrownBy(() -> decryptRange(cut, SEGMENT_SIZE, SEGMENT_SIZE + 5))
+                .isInstanceOf(AEADBadTagException.class);
+        assertThat(decryptRange(cut, 0, 5)).hasSize(6);
+    }
+
+    @Test
+    void tamperingIsOnlyNoticedInsideTheRange() throws Exception {
+        byte[] plain = random(3 * SEGMENT_SIZE);
+        byte[] sealed = encrypt(plain);
+        sealed[2 * SEALED_SIZE + 3] ^= 1;
+
+        assertThat(decryptRange(sealed, 0, 2 * SEGMENT_SIZE - 1)).isEqualTo(Arrays.copyOf(plain, 2 * SEGMENT_SIZE));
+        assertThatThrownBy(() -> decryptRange(sealed, 2 * SEGMENT_SIZE - 1, 2 * SEGMENT_SIZE))
+                .isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void rangesOutsideThePaperAreRejected() throws Exception {
+        byte[] sealed = encrypt(random(SEGMENT_SIZE + 5));
+
+        assertThatThrownBy(() -> decryptRange(sealed, 0, SEGMENT_SIZE + 5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> decryptRange(sealed, 10, 9)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> decryptRange(sealed, -1, 9)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private byte[] encrypt(byte[] plain) throws Exception {
+        // Every paper gets a fresh nonce, as EncryptionService does
+        new SecureRandom().nextBytes(baseNonce);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long length = SegmentedAesGcm.encrypt(cipher, key, baseNonce, SEGMENT_SIZE, new ByteArrayInputStream(plain),
+                Channels.newChannel(out));
+        assertThat(length).isEqualTo(plain.length);
+        return out.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] sealed) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SegmentedAesGcm.decrypt(cipher, key, baseNonce, SEGMENT_SIZE, new ByteArrayInputStream(sealed), out);
+        return out.toByteArray();
+    }
+
+    private byte[] decryptRange(byte[] sealed, long first, long last) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SegmentedAesGcm.decryptRange(cipher, key, baseNonce, SEGMENT_SIZE, sealed.length, first, last,
+                (offset, count) -> new ByteArrayInputStream(sealed, (int) offset, (int) count), out);
+        return out.toByteArray();
+    }
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.examManagementBackend.paperWorkflows.repository;
+
+import com.example.examManagementBackend.paperWorkflows.PaperFixtures;
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSearchCriteria;
+import com.example.examManagementBackend.paperWorkflows.entity.ArchivedPaper;
+import com.example.examManagementBackend.paperWorkflows.entity.CoursesEntity;
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.PaperType;
+import com.example.examManagementBackend.paperWorkflows.entity.ExaminationEntity;
+import com.example.examManagementBackend.paperWorkflows.search.ArchiveSearchIndex;
+import com.example.examManagementBackend.userManagement.userManagementEntity.UserEntity;
+import com.example.examManagementBackend.userManagement.userManagementRepo.UserManagementRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The database fallback of archive searches has to return what the search index returns once it is built
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ArchivedPaperQueryRepositoryTest {
+
+    private static final LocalDateTime MARCH = LocalDateTime.of(2023, 3, 10, 9, 0);
+
+    @Autowired
+    ArchivedPaperRepository archivedPaperRepository;
+
+    @Autowired
+    EncryptedPaperRepository encryptedPaperRepository;
+
+    @Autowired
+    ExaminationRepository examinationRepository;
+
+    @Autowired
+    CoursesRepository coursesRepository;
+
+    @Autowired
+    UserManagementRepo userRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private ArchiveSearchIndex index;
+    private CoursesEntity course;
+    private ArchivedPaper discreteMaths;
+    private ArchivedPaper algorithms;
+    private ArchivedPaper linearAlgebra;
+
+    @BeforeEach
+    void setUp() {
+        PaperFixtures fixtures = new PaperFixtures(examinationRepository, coursesRepository, userRepository, encryptedPaperRepository);
+        UserEntity ada = fixtures.user("Ada", "Lovelace");
+        UserEntity grace = fixtures.user("Grace", "Hopper");
+        course = fixtures.course("Mathematics");
+        ExaminationEntity exam2023 = fixtures.examination(course.getDegreeProgramsEntity(), "2023");
+        ExaminationEntity exam2024 = fixtures.examination(course.getDegreeProgramsEntity(), "2024");
+
+        discreteMaths = archive("Discrete Maths Final.pdf", ada, grace, exam2023, PaperType.THEORY, MARCH);
+        algorithms = archive("Algorithms_Midterm.pdf", ada, null, exam2023, PaperType.PRACTICAL, MARCH.plusMonths(3));
+        linearAlgebra = archive("linear-algebra.pdf", grace, ada, exam2024, PaperType.THEORY, MARCH.plusYears(1));
+
+        index = new ArchiveSearchIndex(archivedPaperRepository);
+        index.rebuild();
+    }
+
+    @Test
+    void fileNamesMatchByWordPrefixNotBySubstring() {
+        assertMatches(criteria -> criteria.setFileName("alg"), algorithms, linearAlgebra);
+        assertMatches(criteria -> criteria.setFileName("final MATHS"), discreteMaths);
+        // Inside a word, which LIKE '%gebra%' used to find
+        assertMatches(criteria -> criteria.setFileName("gebra"));
+        assertMatches(criteria -> criteria.setFileName("midterm.pdf"), algorithms);
+    }
+
+    @Test
+    void userNamesMatchByWordPrefix() {
+        assertMatches(criteria -> criteria.setCreatorName("love"), discreteMaths, algorithms);
+        assertMatches(criteria -> criteria.setCreatorName("velace"));
+        assertMatches(criteria -> criteria.setModeratorName("ada lovelace"), linearAlgebra);
+        assertMatches(criteria -> criteria.setModeratorName("grace"), discreteMaths);
+    }
+
+    @Test
+    void keywordFiltersIgnoreCaseAndSurroundingSpaces() {
+        assertMatches(criteria -> criteria.setCourseCode(" " + course.getCode().toLowerCase() + " "), discreteMaths, algorithms, linearAlgebra);
+        assertMatches(criteria -> {
+            criteria.setCourseCode(course.getCode());
+            criteria.setYear("2023");
+            criteria.setPaperType("practical");
+        }, algorithms);
+        assertMatches(criteria -> {
+            criteria.setCourseCode(course.getCode());
+            criteria.setPaperType("essay");
+        });
+    }
+
+    @Test
+    void datesAreInclusive() {
+        assertMatches(criteria -> {
+            criteria.setCourseCode(course.getCode());
+            criteria.setStartDate(MARCH);
+            criteria.setEndDate(MARCH.plusMonths(3));
+        }, discreteMaths, algorithms);
+    }
+
+    // Checks the expected papers, then that the database and the index agree on the whole archive for the same criteria
+    private void assertMatches(Consumer<ArchivedPaperSearchCriteria> filter, ArchivedPaper... expected) {
+        ArchivedPaperSearchCriteria criteria = new ArchivedPaperSearchCriteria();
+        filter.accept(criteria);
+        Set<Long> ours = Set.of(discreteMaths.getId(), algorithms.getId(), linearAlgebra.getId());
+
+        List<Long> fromDatabase = archivedPaperRepository.findProjected(criteria, null, 0, 1000).stream()
+                .map(ArchivedPaperDTO::getId).toList();
+        List<Long> fromIndex = index.search(criteria, null, false).stream().map(ArchivedPaperDTO::getId).toList();
+
+        assertThat(fromDatabase.stream().filter(ours::contains))
+                .containsExactlyInAnyOrder(Arrays.stream(expected).map(ArchivedPaper::getId).toArray(Long[]::new));
+        assertThat(fromIndex).isEqualTo(fromDatabase);
+        assertThat(archivedPaperRepository.countProjected(criteria)).isEqualTo(fromDatabase.size());
+    }
+
+    private ArchivedPaper archive(String fileName, UserEntity creator, UserEntity moderator, ExaminationEntity examination,
+                                  PaperType paperType, LocalDateTime sharedAt) {
+        ArchivedPaper paper = new ArchivedPaper();
+        paper.setFileName(fileName);
+        paper.setFilePath("Archived_Papers/" + fileName);
+        paper.setCreator(creator);
+        paper.setModerator(moderator);
+        paper.setExamination(examination);
+        paper.setPaperType(paperType);
+        paper.setShared(true);
+        paper.setSharedAt(sharedAt);
+        paper.setCreatedAt(sharedAt);
+        // The course association cascades, so it has to be attached to the saving transaction
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            paper.setCourse(coursesRepository.getReferenceById(course.getId()));
+            return archivedPaperRepository.save(paper);
+        });
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.examManagementBackend.paperWorkflows.search;
+
+import com.example.examManagementBackend.paperWorkflows.repository.ArchivedPaperRepository;
+import com.example.examManagementBackend.storage.LocalPaperStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ArchiveFullTextIndexTest {
+
+    @TempDir
+    Path root;
+
+    private final ArchivedPaperRepository archivedPaperRepository = mock(ArchivedPaperRepository.class);
+    private final List<Object[]> fileRefs = new ArrayList<>();
+    private PaperTextStore textStore;
+    private ArchiveFullTextIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(archivedPaperRepository.findAllFileRefs()).thenReturn(fileRefs);
+        textStore = new PaperTextStore(root.resolve("text").toString());
+        index = new ArchiveFullTextIndex(archivedPaperRepository, new LocalPaperStorage(root.resolve("files")), textStore, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.stop();
+    }
+
+    @Test
+    void compactDeletesStoredTextNoPaperUses() throws Exception {
+        paper(1L, "aaa1", "Operating systems: scheduling and paging.");
+        textStore.write("bbb2", List.of("Text of a paper deleted while this node was down."));
+
+        // Before the first reconcile every stored text looks unused, so nothing may go
+        index.compact();
+        assertThat(textStore.keys()).containsExactlyInAnyOrder("aaa1", "bbb2");
+
+        reconcileAndWait();
+        index.compact();
+
+        assertThat(textStore.keys()).containsExactly("aaa1");
+        assertThat(index.search("paging", 0, 10).hits()).extracting(ArchiveFullTextIndex.Hit::paperId).containsExactly(1L);
+    }
+
+    @Test
+    void pagesRepeatingATermRankHigher() throws Exception {
+        paper(1L, "aaa1", "Binary trees and a short note on recursion in general terms.");
+        paper(2L, "bbb2", "Recursion: recursion on trees, recursion on lists, tail recursion.");
+        paper(3L, "ccc3", "Relational algebra and normal forms.");
+        reconcileAndWait();
+
+        ArchiveFullTextIndex.Result result = index.search("recursion", 0, 10);
+
+        assertThat(result.total()).isEqualTo(2);
+        assertThat(result.hits()).extracting(ArchiveFullTextIndex.Hit::paperId).containsExactly(2L, 1L);
+        assertThat(result.hits().get(0).score()).isGreaterThan(result.hits().get(1).score());
+    }
+
+    @Test
+    void rareTermsWeighMoreThanCommonOnes() throws Exception {
+        paper(1L, "aaa1", "Sorting algorithms compared on arrays of integers.");
+        paper(2L, "bbb2", "Hashing with open addressing and chained buckets.");
+        paper(3L, "ccc3", "Sorting networks for parallel machines.");
+        paper(4L, "ddd4", "Sorting in external memory with merge passes.");
+        reconcileAndWait();
+
+        List<Long> ranked = index.search("sorting hashing", 0, 10).hits().stream()
+                .map(ArchiveFullTextIndex.Hit::paperId).toList();
+
+        assertThat(ranked).hasSize(4).startsWith(2L);
+    }
+
+    @Test
+    void papersMatchingEveryTermRankFirst() throws Exception {
+        paper(1L, "aaa1", "Deadlock detection, deadlock avoidance and deadlock recovery.");
+        paper(2L, "bbb2", "Deadlock and starvation in the dining philosophers.");
+        reconcileAndWait();
+
+        assertThat(index.search("deadlock starvation", 0, 10).hits())
+                .extracting(ArchiveFullTextIndex.Hit::paperId).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void snippetsShowTheMatchOnOneBasedPages() throws Exception {
+        String filler = "lorem ipsum dolor sit amet ".repeat(20);
+        paper(1L, "aaa1", "Cover page without the word.", filler + "Explain the Banker's algorithm in detail. " + filler,
+                "Another page about the banker's algorithm.");
+        reconcileAndWait();
+
+        ArchiveFullTextIndex.Hit hit = index.search("banker", 0, 10).hits().get(0);
+
+        assertThat(hit.pages()).extracting(ArchiveFullTextIndex.PageHit::page).containsExactlyInAnyOrder(2, 3);
+        ArchiveFullTextIndex.PageHit middle = hit.pages().stream().filter(page -> page.page() == 2).findFirst().orElseThrow();
+        assertThat(middle.snippet()).startsWith("…").endsWith("…").contains("Banker's algorithm");
+        assertThat(middle.snippet().length()).isLessThanOrEqualTo(202);
+    }
+
+    @Test
+    void papersSharingAFileAreAllReturnedAndPaged() throws Exception {
+        paper(1L, "aaa1", "Compiler construction: parsing and code generation.");
+        fileRefs.add(new Object[]{2L, "aaa1", "Archived_Papers/aaa1.pdf"});
+        paper(3L, "ccc3", "Parsing expression grammars.");
+        reconcileAndWait();
+
+        ArchiveFullTextIndex.Result first = index.search("parsing", 0, 2);
+        ArchiveFullTextIndex.Result second = index.search("parsing", 2, 2);
+
+        assertThat(first.total()).isEqualTo(3);
+        assertThat(first.hits()).hasSize(2);
+        assertThat(second.hits()).hasSize(1);
+        assertThat(index.stats().documents()).isEqualTo(2);
+    }
+
+    @Test
+    void removedPapersDropOutOfResults() throws Exception {
+        paper(1L, "aaa1", "Virtual memory and paging.");
+        paper(2L, "bbb2", "Paging in embedded systems.");
+        reconcileAndWait();
+
+        index.remove(1L);
+
+        assertThat(index.search("paging", 0, 10).hits()).extracting(ArchiveFullTextIndex.Hit::paperId).containsExactly(2L);
+        assertThat(textStore.keys()).containsExactly("bbb2");
+    }
+
+    // An archived paper whose text was already extracted, so indexing it doesn't need the PDF
+    private void paper(long id, String key, String... pages) throws IOException {
+        textStore.write(key, List.of(pages));
+        fileRefs.add(new Object[]{id, key, "Archived_Papers/" + key + ".pdf"});
+    }
+
+    private void reconcileAndWait() throws InterruptedException {
+        index.reconcile();
+        for (int i = 0; i < 500 && (index.stats().pending() > 0 || index.stats().papers() < fileRefs.size()); i++) {
+            Thread.sleep(10);
+        }
+        long documents = fileRefs.stream().map(ref -> ref[1]).distinct().count();
+        assertThat(index.stats().documents()).isEqualTo(documents);
+    }
+}
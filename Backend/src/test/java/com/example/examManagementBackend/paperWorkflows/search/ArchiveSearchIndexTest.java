@@ -0,0 +1,215 @@
+package com.example.examManagementBackend.paperWorkflows.search;
+
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSearchCriteria;
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.PaperType;
+import com.example.examManagementBackend.paperWorkflows.repository.ArchivedPaperRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ArchiveSearchIndexTest {
+
+    private static final LocalDateTime JAN = LocalDateTime.of(2024, 1, 15, 9, 0);
+
+    private final ArchivedPaperRepository repository = mock(ArchivedPaperRepository.class);
+    private final List<ArchivedPaperDTO> stored = new ArrayList<>();
+    private ArchiveSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // The rebuild pages through the repository newest first, from a cursor
+        when(repository.findProjected(any(), any(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            Long cursor = invocation.getArgument(1);
+            int limit = invocation.getArgument(3);
+            return stored.stream()
+                    .filter(paper -> cursor == null || paper.getId() < cursor)
+                    .sorted(Comparator.comparing(ArchivedPaperDTO::getId).reversed())
+                    .limit(limit)
+                    .toList();
+        });
+        when(repository.findProjectedByIds(any())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return stored.stream().filter(paper -> ids.contains(paper.getId())).toList();
+        });
+        index = new ArchiveSearchIndex(repository);
+    }
+
+    @Test
+    void isNotReadyUntilTheFirstBuild() {
+        stored.add(paper(1, "algebra.pdf", "ada.lovelace", "MA101", JAN));
+
+        assertThat(index.isReady()).isFalse();
+        index.reconcile();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.stats().papers()).isEqualTo(1);
+    }
+
+    @Test
+    void freeTextMatchesWholeWordsAndPrefixesBestFirst() {
+        stored.add(paper(1, "Linear Algebra Final.pdf", "ada.lovelace", "MA101", JAN));
+        stored.add(paper(2, "Algorithms Midterm.pdf", "grace.hopper", "CS201", JAN));
+        stored.add(paper(3, "Operating Systems.pdf", "alan.turing", "CS301", JAN));
+        index.rebuild();
+
+        assertThat(ids(index.search(new ArchivedPaperSearchCriteria(), "algebra", false))).containsExactly(1L);
+        // Both are prefix hits with the same score, so the newer paper comes first
+        assertThat(ids(index.search(new ArchivedPaperSearchCriteria(), "alg", false))).containsExactly(2L, 1L);
+        // Every token has to match, in any field
+        assertThat(ids(index.search(new ArchivedPaperSearchCriteria(), "alg midterm", false))).containsExactly(2L);
+        // Not inside a word
+        assertThat(index.search(new ArchivedPaperSearchCriteria(), "gebra", false)).isEmpty();
+        // A file name hit outweighs a hit in a lighter field
+        stored.add(paper(4, "Notes.pdf", "algebra.fan", "MA102", JAN));
+        index.refresh(List.of(4L));
+        assertThat(ids(index.search(new ArchivedPaperSearchCriteria(), "algebra", false))).containsExactly(1L, 4L);
+    }
+
+    @Test
+    void fuzzyMatchingForgivesTyposInLongerTokensOnly() {
+        stored.add(paper(1, "Linear Algebra Final.pdf", "ada.lovelace", "MA101", JAN));
+        stored.add(paper(2, "Operating Systems.pdf", "alan.turing", "CS301", JAN));
+        index.rebuild();
+
+        assertThat(index.search(new ArchivedPaperSearchCriteria(), "algebrs", false)).isEmpty();
+        assertThat(ids(index.search(new ArchivedPaperSearchCriteria(), "algebrs", true))).containsExactly(1L);
+        assertThat(ids(index.search(new ArchivedPaperSearchCriteria(), "opreating", true))).containsExactly(2L);
+        // A swap of two letters is two edits, too many for a seven letter token; and short tokens are never fuzzy
+        assertThat(index.search(new ArchivedPaperSearchCriteria(), "algebar", true)).isEmpty();
+        assertThat(index.search(new ArchivedPaperSearchCriteria(), "alx", true)).isEmpty();
+
+        ArchivedPaperSearchCriteria criteria = new ArchivedPaperSearchCriteria();
+        criteria.setCreatorName("lovelase");
+        assertThat(index.search(criteria, null, false)).isEmpty();
+        assertThat(ids(index.search(criteria, null, true))).containsExactly(1L);
+    }
+
+    @Test
+    void keywordFiltersAreWholeValuesIgnoringCase() {
+        stored.add(paper(1, "a.pdf", "ada.lovelace", "CS101", JAN));
+        stored.add(paper(2, "b.pdf", "ada.lovelace", "CS1011", JAN));
+        index.rebuild();
+        ArchivedPaperSearchCriteria criteria = new ArchivedPaperSearchCriteria();
+
+        criteria.setCourseCode(" cs101 ");
+        assertThat(ids(index.search(criteria, null, false))).containsExactly(1L);
+        criteria.setPaperType("theory");
+        assertThat(ids(index.search(criteria, null, false))).containsExactly(1L);
+        criteria.setPaperType("practical");
+        assertThat(index.search(criteria, null, false)).isEmpty();
+    }
+
+    @Test
+    void dateFiltersAreInclusiveAndSkipPapersWithoutADate() {
+        stored.add(paper(1, "a.pdf", "ada.lovelace", "CS101", JAN));
+        stored.add(paper(2, "b.pdf", "ada.lovelace", "CS101", JAN.plusDays(10)));
+        stored.add(paper(3, "c.pdf", "ada.lovelace", "CS101", JAN.plusDays(20)));
+        stored.add(paper(4, "d.pdf", "ada.lovelace", "CS101", null));
+        index.rebuild();
+        ArchivedPaperSearchCriteria criteria = new ArchivedPaperSearchCriteria();
+
+        criteria.setStartDate(JAN.plusDays(10));
+        assertThat(ids(index.search(criteria, null, false))).containsExactly(3L, 2L);
+        criteria.setEndDate(JAN.plusDays(10));
+        assertThat(ids(index.search(criteria, null, false))).containsExactly(2L);
+        criteria.setStartDate(null);
+        assertThat(ids(index.search(criteria, null, false))).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void refreshPicksUpChangedAndDeletedPapers() {
+        stored.add(paper(1, "Algebra.pdf", "ada.lovelace", "MA101", JAN));
+        stored.add(paper(2, "Geometry.pdf", "ada.lovelace", "MA101", JAN));
+        index.rebuild();
+
+        stored.set(0, paper(1, "Calculus.pdf", "ada.lovelace", "MA101", JAN));
+        stored.remove(1);
+        stored.add(paper(3, "Topology.pdf", "ada.lovelace", "MA101", JAN));
+        index.refresh(List.of(1L, 2L, 3L));
+
+        assertThat(index.search(new ArchivedPaperSearchCriteria(), "algebra", false)).isEmpty();
+        assertThat(ids(index.search(new ArchivedPaperSearchCriteria(), "calculus", false))).containsExactly(1L);
+        assertThat(index.search(new ArchivedPaperSearchCriteria(), "geometry", false)).isEmpty();
+        assertThat(ids(index.search(new ArchivedPaperSearchCriteria(), null, false))).containsExactly(3L, 1L);
+        // Terms of replaced and deleted papers are gone from the dictionary too
+        assertThat(index.facets(new ArchivedPaperSearchCriteria(), null, false).total()).isEqualTo(2);
+
+        index.delete(3L);
+        assertThat(ids(index.search(new ArchivedPaperSearchCriteria(), null, false))).containsExactly(1L);
+    }
+
+    @Test
+    void rebuildReplacesTheWholeIndex() {
+        stored.add(paper(1, "Algebra.pdf", "ada.lovelace", "MA101", JAN));
+        index.rebuild();
+        int termsBefore = index.stats().terms();
+
+        // A renamed user only reaches the index through a rebuild
+        stored.set(0, paper(1, "Algebra.pdf", "ada.byron", "MA101", JAN));
+        index.rebuild();
+
+        ArchivedPaperSearchCriteria criteria = new ArchivedPaperSearchCriteria();
+        criteria.setCreatorName("lovelace");
+        assertThat(index.search(criteria, null, false)).isEmpty();
+        criteria.setCreatorName("byron");
+        assertThat(ids(index.search(criteria, null, false))).containsExactly(1L);
+        assertThat(index.stats().terms()).isEqualTo(termsBefore);
+    }
+
+    @Test
+    void keysetPagesWalkDownFromTheCursorWithoutGaps() {
+        for (long id = 1; id <= 25; id++) {
+            stored.add(paper(id, "paper-" + id + ".pdf", "ada.lovelace", id % 2 == 0 ? "CS101" : "MA201", JAN.plusDays(id)));
+        }
+        index.rebuild();
+
+        List<Long> seen = new ArrayList<>();
+        Long cursor = null;
+        List<ArchivedPaperDTO> page;
+        while (!(page = index.searchAfter(new ArchivedPaperSearchCriteria(), false, cursor, 10)).isEmpty()) {
+            assertThat(page).hasSizeLessThanOrEqualTo(10);
+            page.forEach(paper -> seen.add(paper.getId()));
+            cursor = page.get(page.size() - 1).getId();
+        }
+
+        assertThat(seen).hasSize(25).isSortedAccordingTo(Comparator.reverseOrder());
+        assertThat(index.count(new ArchivedPaperSearchCriteria(), false)).isEqualTo(25);
+    }
+
+    @Test
+    void keysetPagesApplyFiltersAndDates() {
+        for (long id = 1; id <= 25; id++) {
+            stored.add(paper(id, "paper-" + id + ".pdf", "ada.lovelace", id % 2 == 0 ? "CS101" : "MA201", JAN.plusDays(id)));
+        }
+        index.rebuild();
+        ArchivedPaperSearchCriteria criteria = new ArchivedPaperSearchCriteria();
+        criteria.setCourseCode("cs101");
+        criteria.setEndDate(JAN.plusDays(20));
+
+        assertThat(index.searchAfter(criteria, false, null, 3)).extracting(ArchivedPaperDTO::getId).containsExactly(20L, 18L, 16L);
+        assertThat(index.searchAfter(criteria, false, 16L, 3)).extracting(ArchivedPaperDTO::getId).containsExactly(14L, 12L, 10L);
+        assertThat(index.searchAfter(criteria, false, 4L, 3)).extracting(ArchivedPaperDTO::getId).containsExactly(2L);
+        assertThat(index.count(criteria, false)).isEqualTo(10);
+    }
+
+    private static List<Long> ids(List<ArchivedPaperDTO> papers) {
+        return papers.stream().map(ArchivedPaperDTO::getId).toList();
+    }
+
+    private static ArchivedPaperDTO paper(long id, String fileName, String creatorName, String courseCode, LocalDateTime sharedAt) {
+        return new ArchivedPaperDTO(id, fileName, "Archived_Papers/" + fileName, null, creatorName, "Grace Hopper",
+                sharedAt, sharedAt, courseCode, "Course " + courseCode, PaperType.THEORY, "2024", "1", "1", "BSc Computer Science");
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.ArchivedPaperSearchCriteria;
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.PaperType;
+import com.example.examManagementBackend.paperWorkflows.repository.ArchivedPaperRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.storage.PaperStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ArchiveExportServiceTest {
+
+    private static final LocalDateTime JAN = LocalDateTime.of(2024, 1, 15, 9, 0);
+
+    private final ArchivedPaperRepository repository = mock(ArchivedPaperRepository.class);
+    private final PaperStorage storage = mock(PaperStorage.class);
+    private final List<ArchivedPaperDTO> stored = new ArrayList<>();
+    private ArchiveExportService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(repository.findProjected(any(), any(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            Long cursor = invocation.getArgument(1);
+            int limit = invocation.getArgument(3);
+            return stored.stream()
+                    .filter(paper -> cursor == null || paper.getId() < cursor)
+                    .sorted(Comparator.comparing(ArchivedPaperDTO::getId).reversed())
+                    .limit(limit)
+                    .toList();
+        });
+        // Each file holds its own path; files under gone/ have been deleted from storage
+        when(storage.get(anyString())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            if (key.startsWith("gone/")) {
+                throw new NoSuchFileException(key);
+            }
+            return new ByteArrayInputStream(key.getBytes(StandardCharsets.UTF_8));
+        });
+        service = new ArchiveExportService(repository, mock(ExaminationRepository.class), storage);
+    }
+
+    @Test
+    void theManifestListsExactlyThePapersInTheZip() throws IOException {
+        stored.add(paper(1, "Algebra.pdf", "stored/1", "MA101"));
+        stored.add(paper(2, "Notes, \"draft\"", "gone/2", "MA101"));
+        stored.add(paper(3, "../../etc/passwd", "stored/3", "CS/201"));
+
+        Map<String, String> entries = unzip(export());
+
+        assertThat(entries.keySet()).containsExactly("CS_201/3-__.._etc_passwd.pdf", "MA101/1-Algebra.pdf", "manifest.csv", "missing.txt");
+        assertThat(entries.get("MA101/1-Algebra.pdf")).isEqualTo("stored/1");
+        assertThat(entries.get("missing.txt")).isEqualTo("2 Notes, \"draft\"\n");
+        List<String> manifest = entries.get("manifest.csv").lines().toList();
+        assertThat(manifest).hasSize(3);
+        assertThat(manifest.get(0)).startsWith("id,entry,file_name,");
+        assertThat(manifest.subList(1, 3)).extracting(row -> row.substring(0, row.indexOf(',', row.indexOf(',') + 1)))
+                .containsExactly("3,CS_201/3-__.._etc_passwd.pdf", "1,MA101/1-Algebra.pdf");
+    }
+
+    @Test
+    void papersAreReadOnceAPageAtATime() throws IOException {
+        for (long id = 1; id <= 450; id++) {
+            stored.add(paper(id, "paper-" + id + ".pdf", "stored/" + id, "MA101"));
+        }
+
+        Map<String, String> entries = unzip(export());
+
+        assertThat(entries).hasSize(451);
+        assertThat(entries.get("manifest.csv").lines()).hasSize(451);
+        // Three pages of 200 and the empty one that ends the walk; a second pass would double this
+        verify(repository, times(4)).findProjected(any(), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void anEmptyExportStillHasAManifest() throws IOException {
+        assertThat(unzip(export())).containsOnlyKeys("manifest.csv");
+    }
+
+    private byte[] export() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeZip(new ArchivedPaperSearchCriteria(), out);
+        return out.toByteArray();
+    }
+
+    // Entry names in ZIP order with their contents
+    private static Map<String, String> unzip(byte[] zip) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip), StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    private static ArchivedPaperDTO paper(long id, String fileName, String filePath, String courseCode) {
+        return new ArchivedPaperDTO(id, fileName, filePath, null, "ada.lovelace", "grace.hopper",
+                JAN, JAN, courseCode, "Course " + courseCode, PaperType.THEORY, "2024", "1", "1", "BSc Computer Science");
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.jobs.service.JobCoordinator;
+import com.example.examManagementBackend.paperWorkflows.entity.StoredBlob;
+import com.example.examManagementBackend.paperWorkflows.repository.ArchivedPaperRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.EncryptedPaperRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.StoredBlobRepository;
+import com.example.examManagementBackend.storage.LocalPaperStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+// Runs against H2 without a test transaction, so each repository call commits as it would in production
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BlobStoreServiceTest {
+
+    private static final ByteArrayResource PAPER = new ByteArrayResource("%PDF-1.7 exam paper".getBytes(StandardCharsets.UTF_8));
+
+    @TempDir
+    Path root;
+
+    @Autowired
+    StoredBlobRepository blobRepository;
+
+    @Autowired
+    EncryptedPaperRepository encryptedPaperRepository;
+
+    @Autowired
+    ArchivedPaperRepository archivedPaperRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private LocalPaperStorage storage;
+    private BlobStoreService blobStore;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        blobRepository.deleteAll();
+        storage = new LocalPaperStorage(root);
+        blobStore = node("secret");
+    }
+
+    @Test
+    void duplicateUploadsForTheSameRecipientsShareOneBlob() throws Exception {
+        StoredBlob first = blobStore.storeEncrypted(PAPER, List.of(1L, 2L));
+        StoredBlob second = blobStore.storeEncrypted(PAPER, List.of(2L, 1L));
+        StoredBlob otherModerator = blobStore.storeEncrypted(PAPER, List.of(1L, 3L));
+
+        assertThat(second.getContentHash()).isEqualTo(first.getContentHash());
+        assertThat(otherModerator.getContentHash()).isNotEqualTo(first.getContentHash());
+        assertThat(blobRepository.findById(first.getContentHash()).orElseThrow().getRefCount()).isEqualTo(2);
+        assertThat(storage.list("Blobs/")).hasSize(2);
+    }
+
+    @Test
+    void blobNamesAreKeyedWithTheServerSecret() throws Exception {
+        String plainSha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(PAPER.getByteArray()));
+
+        StoredBlob ours = blobStore.storePlain(out -> out.write(PAPER.getByteArray()));
+        StoredBlob otherSecret = node("another secret").storePlain(out -> out.write(PAPER.getByteArray()));
+
+        assertThat(ours.getContentHash()).hasSize(64).isNotEqualTo(plainSha256);
+        assertThat(otherSecret.getContentHash()).isNotEqualTo(ours.getContentHash());
+        assertThat(ours.getFilePath()).endsWith(ours.getContentHash());
+    }
+
+    @Test
+    void releasedBlobsAreCollectedOnlyAfterTheGracePeriod() throws Exception {
+        StoredBlob blob = blobStore.storeEncrypted(PAPER, List.of(1L, 2L));
+        blobStore.storeEncrypted(PAPER, List.of(1L, 2L));
+
+        blobStore.release(blob.getContentHash());
+        blobStore.release(blob.getContentHash());
+        assertThat(blobRepository.findById(blob.getContentHash()).orElseThrow().getRefCount()).isZero();
+
+        blobStore.collectGarbage();
+        assertThat(blobRepository.existsById(blob.getContentHash())).isTrue();
+
+        age(blob.getContentHash());
+        blobStore.collectGarbage();
+
+        assertThat(blobRepository.existsById(blob.getContentHash())).isFalse();
+        assertThat(storage.stat(blob.getFilePath())).isEmpty();
+    }
+
+    @Test
+    void uploadAfterCollectionWritesTheBlobAgain() throws Exception {
+        StoredBlob blob = blobStore.storeEncrypted(PAPER, List.of(1L, 2L));
+        blobStore.release(blob.getContentHash());
+        age(blob.getContentHash());
+        blobStore.collectGarbage();
+
+        StoredBlob again = blobStore.storeEncrypted(PAPER, List.of(1L, 2L));
+
+        assertThat(again.getContentHash()).isEqualTo(blob.getContentHash());
+        assertThat(again.getRefCount()).isEqualTo(1);
+        assertThat(storage.stat(again.getFilePath())).isPresent();
+    }
+
+    @Test
+    void uploadRacingTheCollectorOnAnotherNodeAlwaysEndsWithItsFile() throws Exception {
+        BlobStoreService collectorNode = node("secret");
+        for (int round = 0; round < 20; round++) {
+            StoredBlob blob = blobStore.storeEncrypted(PAPER, List.of(1L, 2L));
+            blobStore.release(blob.getContentHash());
+            age(blob.getContentHash());
+
+            CountDownLatch start = new CountDownLatch(1);
+            CompletableFuture<Void> collector = CompletableFuture.runAsync(() -> {
+                await(start);
+                collectorNode.collectGarbage();
+            });
+            CompletableFuture<StoredBlob> upload = CompletableFuture.supplyAsync(() -> {
+                await(start);
+                try {
+                    return blobStore.storeEncrypted(PAPER, List.of(1L, 2L));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            start.countDown();
+            collector.join();
+            StoredBlob uploaded = upload.join();
+
+            // Whichever side won, the new upload holds a reference to a blob whose file exists
+            assertThat(blobRepository.findById(uploaded.getContentHash())).hasValueSatisfying(row ->
+                    assertThat(row.getRefCount()).isEqualTo(1));
+            assertThat(storage.stat(uploaded.getFilePath())).as("round " + round).isPresent();
+
+            blobStore.release(uploaded.getContentHash());
+        }
+    }
+
+    // Another backend node sharing this database and storage; the encryption itself is stubbed to copy plaintext
+    private BlobStoreService node(String secret) throws Exception {
+        EncryptionService encryptionService = mock(EncryptionService.class);
+        doAnswer(invocation -> {
+            InputStream in = invocation.getArgument(1);
+            FileChannel out = invocation.getArgument(2);
+            in.transferTo(Channels.newOutputStream(out));
+            return null;
+        }).when(encryptionService).encryptStreamForUsers(any(), any(), any());
+        return new BlobStoreService(storage, blobRepository, encryptedPaperRepository, archivedPaperRepository,
+                encryptionService, mock(JobCoordinator.class), transactionManager, secret);
+    }
+
+    // Push a blob past the collector's grace period
+    private void age(String hash) {
+        StoredBlob blob = blobRepository.findById(hash).orElseThrow();
+        blob.setTouchedAt(LocalDateTime.now().minusHours(2));
+        blobRepository.save(blob);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.paperWorkflows.crypto.CryptoContext;
+import com.example.examManagementBackend.paperWorkflows.crypto.DecryptedPaper;
+import com.example.examManagementBackend.paperWorkflows.crypto.KeyPairPool;
+import com.example.examManagementBackend.paperWorkflows.crypto.PaperCompression;
+import com.example.examManagementBackend.paperWorkflows.crypto.PaperEnvelope;
+import com.example.examManagementBackend.storage.LocalPaperStorage;
+import com.example.examManagementBackend.userManagement.userManagementEntity.UserEntity;
+import com.example.examManagementBackend.userManagement.userManagementRepo.UserManagementRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EncryptionServiceTest {
+
+    private static final int SEGMENT_SIZE = EncryptionService.SEGMENT_SIZE;
+
+    @TempDir
+    Path root;
+
+    private final CryptoContext crypto = new CryptoContext();
+    private final Map<Long, UserEntity> users = new HashMap<>();
+    private LocalPaperStorage storage;
+    private EncryptionService encryptionService;
+
+    @BeforeEach
+    void setUp() {
+        UserManagementRepo userRepo = mock(UserManagementRepo.class);
+        when(userRepo.findById(anyLong())).thenAnswer(invocation ->
+                Optional.of(users.computeIfAbsent(invocation.getArgument(0), id -> new UserEntity())));
+        when(userRepo.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        storage = new LocalPaperStorage(root);
+        encryptionService = new EncryptionService(userRepo, crypto, new KeyPairPool(crypto, 1), storage,
+                new PaperCompression(true, 0.1), 100);
+    }
+
+    @Test
+    void compressiblePaperIsDeflatedPerSegmentAndStillReadableByRange() throws Exception {
+        byte[] paper = scan(5 * SEGMENT_SIZE + 1234);
+
+        encryptionService.encryptToStorage(List.of(1L, 2L), new ByteArrayInputStream(paper), "Encrypted_Papers/p.pdf");
+
+        assertThat(envelope("Encrypted_Papers/p.pdf").isSegmentDeflated()).isTrue();
+        assertThat(Files.size(root.resolve("Encrypted_Papers/p.pdf"))).isLessThan(paper.length / 2);
+        assertThat(encryptionService.getCompressionStats().compressed()).isEqualTo(1);
+
+        DecryptedPaper opened = encryptionService.openPaperForUser(2L, "Encrypted_Papers/p.pdf");
+        assertThat(opened.supportsRanges()).isTrue();
+        assertThat(opened.length()).isEqualTo(paper.length);
+        assertThat(decrypt(opened)).isEqualTo(paper);
+        assertRanges(opened, paper);
+    }
+
+    @Test
+    void incompressiblePaperIsStoredPlainAndReadableByRange() throws Exception {
+        byte[] paper = new byte[3 * SEGMENT_SIZE + 5];
+        new Random(7).nextBytes(paper);
+
+        encryptionService.encryptToStorage(List.of(1L, 2L), new ByteArrayInputStream(paper), "Encrypted_Papers/r.pdf");
+
+        assertThat(envelope("Encrypted_Papers/r.pdf").isSegmentDeflated()).isFalse();
+        DecryptedPaper opened = encryptionService.openPaperForUser(1L, "Encrypted_Papers/r.pdf");
+        assertThat(opened.length()).isEqualTo(paper.length);
+        assertThat(decrypt(opened)).isEqualTo(paper);
+        assertRanges(opened, paper);
+    }
+
+    @Test
+    void legacyPapersAreDecryptedFromTheStartForRanges() throws Exception {
+        byte[] paper = scan(3 * SEGMENT_SIZE + 99);
+        writeLegacyPaper("Encrypted_Papers/old.pdf", paper, 1L, 2L);
+
+        DecryptedPaper opened = encryptionService.openPaperForUser(2L, "Encrypted_Papers/old.pdf");
+
+        assertThat(opened.supportsRanges()).isFalse();
+        assertThat(decrypt(opened)).isEqualTo(paper);
+        assertRanges(opened, paper);
+        assertThatThrownBy(() -> opened.writeRange(paper.length - 1, paper.length, new ByteArrayOutputStream()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void onlyRecipientsCanOpenAPaper() throws Exception {
+        encryptionService.encryptToStorage(List.of(1L, 2L), new ByteArrayInputStream(scan(100)), "Encrypted_Papers/s.pdf");
+
+        assertThatThrownBy(() -> encryptionService.openPaperForUser(3L, "Encrypted_Papers/s.pdf"))
+                .isInstanceOf(GeneralSecurityException.class);
+    }
+
+    @Test
+    void corruptedCompressedSegmentFailsToDecrypt() throws Exception {
+        encryptionService.encryptToStorage(List.of(1L), new ByteArrayInputStream(scan(3 * SEGMENT_SIZE)), "Encrypted_Papers/t.pdf");
+        Path file = root.resolve("Encrypted_Papers/t.pdf");
+        byte[] stored = Files.readAllBytes(file);
+        stored[(int) envelope("Encrypted_Papers/t.pdf").getHeaderLength() + 20] ^= 1;
+        Files.write(file, stored);
+
+        DecryptedPaper opened = encryptionService.openPaperForUser(1L, "Encrypted_Papers/t.pdf");
+        assertThatThrownBy(() -> decrypt(opened)).hasMessageContaining("Failed to decrypt");
+    }
+
+    private void assertRanges(DecryptedPaper opened, byte[] paper) throws Exception {
+        long[][] ranges = {
+                {0, 0}, {SEGMENT_SIZE - 1, SEGMENT_SIZE}, {SEGMENT_SIZE, 2L * SEGMENT_SIZE - 1},
+                {2L * SEGMENT_SIZE - 3, Math.min(4L * SEGMENT_SIZE + 3, paper.length - 1)}, {paper.length - 1, paper.length - 1}
+        };
+        for (long[] range : ranges) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            opened.writeRange(range[0], range[1], out);
+            assertThat(out.toByteArray()).isEqualTo(Arrays.copyOfRange(paper, (int) range[0], (int) range[1] + 1));
+        }
+    }
+
+    // Base64 text of IV, creator key, moderator key and one GCM ciphertext, as papers were stored before envelopes
+    private void writeLegacyPaper(String key, byte[] paper, Long creatorId, Long moderatorId) throws Exception {
+        SecretKey aesKey = crypto.generateAesKey();
+        byte[] iv = crypto.randomBytes(16);
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(iv);
+        for (Long recipientId : List.of(creatorId, moderatorId)) {
+            Cipher rsa = crypto.rsaCipher();
+            rsa.init(Cipher.ENCRYPT_MODE, encryptionService.getKeyPairForUser(recipientId).getPublic());
+            file.write(rsa.doFinal(aesKey.getEncoded()));
+        }
+        Cipher aes = crypto.aesCipher();
+        aes.init(Cipher.ENCRYPT_MODE, aesKey, new GCMParameterSpec(128, iv));
+        file.write(aes.doFinal(paper));
+
+        Path path = Files.createDirectories(root.resolve(key).getParent()).resolve(root.resolve(key).getFileName());
+        Files.write(path, Base64.getEncoder().encode(file.toByteArray()));
+    }
+
+    private PaperEnvelope envelope(String key) throws Exception {
+        try (InputStream in = new BufferedInputStream(storage.get(key))) {
+            return PaperEnvelope.read(in);
+        }
+    }
+
+    private static byte[] decrypt(DecryptedPaper opened) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        opened.writeTo(out);
+        return out.toByteArray();
+    }
+
+    // Compressible like an uncompressed scan: long runs with some variation
+    private static byte[] scan(int length) {
+        byte[] line = "Section B - Answer any three questions. Marks are shown in brackets.\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] paper = new byte[length];
+        for (int i = 0; i < length; i++) {
+            paper[i] = (byte) (line[i % line.length] + (i / 4096) % 3);
+        }
+        return paper;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.jobs.repository.JobLeaseRepository;
+import com.example.examManagementBackend.jobs.repository.JobRunRepository;
+import com.example.examManagementBackend.jobs.service.JobCoordinator;
+import com.example.examManagementBackend.paperWorkflows.dto.FeedBackData.FeedBackDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.FeedbackPdfJobDTO;
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.FeedbackPdfJobStatus;
+import com.example.examManagementBackend.paperWorkflows.entity.FeedbackPdfJob;
+import com.example.examManagementBackend.paperWorkflows.repository.FeedbackPdfJobRepository;
+import com.example.examManagementBackend.storage.PaperStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// One renderer thread and a queue of one, against the H2 database
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FeedbackPdfJobServiceTest {
+
+    @Autowired
+    FeedbackPdfJobRepository jobRepository;
+
+    @Autowired
+    JobLeaseRepository leaseRepository;
+
+    @Autowired
+    JobRunRepository runRepository;
+
+    private final PdfGenrationService pdfGenrationService = mock(PdfGenrationService.class);
+    private final CountDownLatch rendering = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private FeedbackPdfJobService service;
+    private String courseCode;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jobRepository.deleteAll();
+        courseCode = "C" + UUID.randomUUID().toString().substring(0, 8);
+        when(pdfGenrationService.fileNameFor(any())).thenReturn(courseCode + ".pdf");
+        // Holds the renderer thread until the test lets it go
+        when(pdfGenrationService.render(any(FeedBackDTO.class))).thenAnswer(invocation -> {
+            rendering.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return new byte[]{'%', 'P', 'D', 'F'};
+        });
+        service = new FeedbackPdfJobService(pdfGenrationService, jobRepository, mock(PaperStorage.class),
+                new JobCoordinator(leaseRepository, runRepository, "node-a", 60), mock(ReferenceDataCache.class), 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        service.stop();
+    }
+
+    @Test
+    void aFullQueueRefusesSubmissionsWithoutRecordingThem() throws Exception {
+        FeedbackPdfJobService.Submission first = service.submit(form());
+        assertThat(rendering.await(10, TimeUnit.SECONDS)).isTrue();
+        FeedbackPdfJobService.Submission second = service.submit(form());
+        assertThat(service.getQueuedCount()).isEqualTo(1);
+
+        assertThatThrownBy(() -> service.submit(form())).isInstanceOf(RejectedExecutionException.class);
+        assertThat(jobRepository.count()).isEqualTo(2);
+
+        release.countDown();
+        first.pdf().get(10, TimeUnit.SECONDS);
+        second.pdf().get(10, TimeUnit.SECONDS);
+        assertThat(service.getJob(second.job().getId())).get().extracting(FeedbackPdfJobDTO::getStatus)
+                .isEqualTo(FeedbackPdfJobStatus.SUCCEEDED);
+        // Room again once the queue has drained
+        assertThat(service.submit(form()).job().getStatus()).isEqualTo(FeedbackPdfJobStatus.QUEUED);
+    }
+
+    @Test
+    void aFailedRenderIsRecordedOnTheJob() throws IOException {
+        when(pdfGenrationService.render(any(FeedBackDTO.class))).thenThrow(new IOException("Font not found"));
+
+        FeedbackPdfJobService.Submission submission = service.submit(form());
+
+        assertThatThrownBy(() -> submission.pdf().get(10, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("Font not found");
+        assertThat(service.getJob(submission.job().getId())).get().satisfies(job -> {
+            assertThat(job.getStatus()).isEqualTo(FeedbackPdfJobStatus.FAILED);
+            assertThat(job.getError()).isEqualTo("Font not found");
+            assertThat(job.getFinishedAt()).isNotNull();
+        });
+    }
+
+    @Test
+    void theSweepFailsOnlyJobsLeftPendingTooLong() {
+        LocalDateTime now = LocalDateTime.now();
+        FeedbackPdfJob abandonedQueued = job(FeedbackPdfJobStatus.QUEUED, now.minusMinutes(20));
+        FeedbackPdfJob abandonedRunning = job(FeedbackPdfJobStatus.RUNNING, now.minusMinutes(20));
+        FeedbackPdfJob recent = job(FeedbackPdfJobStatus.RUNNING, now.minusMinutes(5));
+        FeedbackPdfJob finished = job(FeedbackPdfJobStatus.SUCCEEDED, now.minusHours(2));
+
+        service.failAbandonedJobs();
+
+        assertThat(jobRepository.findById(abandonedQueued.getId())).get().satisfies(job -> {
+            assertThat(job.getStatus()).isEqualTo(FeedbackPdfJobStatus.FAILED);
+            assertThat(job.getError()).startsWith("Abandoned");
+            assertThat(job.getFinishedAt()).isNotNull();
+        });
+        assertThat(jobRepository.findById(abandonedRunning.getId())).get().extracting(FeedbackPdfJob::getStatus)
+                .isEqualTo(FeedbackPdfJobStatus.FAILED);
+        assertThat(jobRepository.findById(recent.getId())).get().extracting(FeedbackPdfJob::getStatus)
+                .isEqualTo(FeedbackPdfJobStatus.RUNNING);
+        assertThat(jobRepository.findById(finished.getId())).get().extracting(FeedbackPdfJob::getStatus)
+                .isEqualTo(FeedbackPdfJobStatus.SUCCEEDED);
+    }
+
+    private FeedBackDTO form() {
+        FeedBackDTO form = new FeedBackDTO();
+        form.setCourseCode(courseCode);
+        form.setExaminationId(1L);
+        return form;
+    }
+
+    private FeedbackPdfJob job(FeedbackPdfJobStatus status, LocalDateTime submittedAt) {
+        FeedbackPdfJob job = new FeedbackPdfJob();
+        job.setCourseCode(courseCode);
+        job.setFileName(courseCode + ".pdf");
+        job.setStatus(status);
+        job.setSubmittedAt(submittedAt);
+        return jobRepository.save(job);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.FeedbackPdfJobRepository;
+import com.example.examManagementBackend.storage.PaperStorage;
+import com.itextpdf.kernel.pdf.PdfArray;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfOutline;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.AreaBreak;
+import com.itextpdf.layout.element.Paragraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Renders hand-built plans, so only the layout of the merged report is under test
+class ModerationReportServiceTest {
+
+    private static final Pattern CONTENTS_LINE = Pattern.compile("^(CS\\d{3}) - .* (\\d+)$");
+
+    private final PaperStorage storage = mock(PaperStorage.class);
+    private ModerationReportService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // forms/<code> holds a two page form; anything else has gone from storage
+        when(storage.get(anyString())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            if (!key.startsWith("forms/")) {
+                throw new NoSuchFileException(key);
+            }
+            return new ByteArrayInputStream(form(key.substring("forms/".length())));
+        });
+        service = new ModerationReportService(mock(ExaminationRepository.class), mock(FeedbackPdfJobRepository.class),
+                storage, mock(PlatformTransactionManager.class), 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void contentsLongerThanAPageStillPointAtTheRightPages() throws IOException {
+        List<ModerationReportService.CourseSection> courses = new ArrayList<>();
+        for (int i = 1; i <= 60; i++) {
+            String code = String.format("CS%03d", i);
+            // Every fourth course has a form, every seventh lost its form, and one runs over several pages
+            String formKey = i % 4 == 0 ? "forms/" + code : i % 7 == 0 ? "gone/" + code : null;
+            courses.add(new ModerationReportService.CourseSection(code, "Course " + i, List.of(paper(i, i == 5 ? 120 : i % 3)), formKey));
+        }
+
+        try (PdfDocument report = write(courses)) {
+            Map<String, Integer> listed = contents(report);
+            assertThat(listed).hasSize(60);
+            int firstCourse = listed.get("CS001");
+            assertThat(firstCourse).as("contents pages").isGreaterThan(2);
+
+            PdfOutline root = report.getOutlines(false);
+            List<PdfOutline> outlines = root.getAllChildren();
+            assertThat(outlines.get(0).getTitle()).isEqualTo("Contents");
+            assertThat(pageOf(report, outlines.get(0))).isEqualTo(1);
+            assertThat(outlines.subList(1, outlines.size())).hasSize(60).allSatisfy(outline -> {
+                String code = outline.getTitle().substring(0, 5);
+                int page = pageOf(report, outline);
+                assertThat(page).as(code).isEqualTo(listed.get(code));
+                assertThat(text(report, page)).as(code).startsWith(outline.getTitle());
+            });
+            // The long course takes several pages, and the next course starts after all of them
+            assertThat(listed.get("CS006") - listed.get("CS005")).isGreaterThan(1);
+            assertThat(listed.get("CS060") + 2).isEqualTo(report.getNumberOfPages());
+        }
+    }
+
+    @Test
+    void aFormIsBookmarkedUnderItsCourseAndAMissingFormIsLeftOut() throws IOException {
+        List<ModerationReportService.CourseSection> courses = List.of(
+                new ModerationReportService.CourseSection("CS001", "With form", List.of(paper(1, 2)), "forms/CS001"),
+                new ModerationReportService.CourseSection("CS002", "Never submitted", List.of(), null),
+                new ModerationReportService.CourseSection("CS003", "Gone from storage", List.of(paper(3, 1)), "gone/CS003"));
+
+        try (PdfDocument report = write(courses)) {
+            List<PdfOutline> outlines = report.getOutlines(false).getAllChildren();
+            assertThat(outlines).extracting(PdfOutline::getTitle)
+                    .containsExactly("Contents", "CS001 - With form", "CS002 - Never submitted", "CS003 - Gone from storage");
+
+            PdfOutline withForm = outlines.get(1);
+            assertThat(withForm.getAllChildren()).singleElement().satisfies(form -> {
+                assertThat(form.getTitle()).isEqualTo("Evaluation form");
+                assertThat(text(report, pageOf(report, form))).contains("Evaluation form of CS001, page 1");
+            });
+            assertThat(outlines.get(2).getAllChildren()).isEmpty();
+            assertThat(outlines.get(3).getAllChildren()).isEmpty();
+
+            String neverSubmitted = text(report, pageOf(report, outlines.get(2)));
+            assertThat(neverSubmitted).contains("No paper has been submitted", "No evaluation form has been submitted");
+            // Contents, CS001 with its two page form, CS002, CS003
+            assertThat(report.getNumberOfPages()).isEqualTo(6);
+            assertThat(contents(report)).containsExactly(Map.entry("CS001", 2), Map.entry("CS002", 5), Map.entry("CS003", 6));
+        }
+    }
+
+    private PdfDocument write(List<ModerationReportService.CourseSection> courses) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeReport(new ModerationReportService.ReportPlan(1L, "BSc Computer Science 2024 - Level 1, Semester 1", courses), out);
+        return new PdfDocument(new PdfReader(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    // Course code to the page the contents list for it, read from the pages before the first course's bookmark
+    private static Map<String, Integer> contents(PdfDocument report) {
+        Map<String, Integer> listed = new LinkedHashMap<>();
+        int firstCourse = pageOf(report, report.getOutlines(false).getAllChildren().get(1));
+        for (int page = 1; page < firstCourse; page++) {
+            for (String line : text(report, page).split("\n")) {
+                Matcher matcher = CONTENTS_LINE.matcher(line.trim());
+                if (matcher.matches()) {
+                    listed.put(matcher.group(1), Integer.parseInt(matcher.group(2)));
+                }
+            }
+        }
+        return listed;
+    }
+
+    private static int pageOf(PdfDocument report, PdfOutline outline) {
+        PdfArray destination = (PdfArray) outline.getDestination().getPdfObject();
+        return report.getPageNumber(destination.getAsDictionary(0));
+    }
+
+    private static String text(PdfDocument report, int page) {
+        return PdfTextExtractor.getTextFromPage(report.getPage(page));
+    }
+
+    private static ModerationReportService.PaperSummary paper(long id, int questions) {
+        List<ModerationReportService.QuestionRow> rows = new ArrayList<>();
+        for (int i = 1; i <= questions; i++) {
+            rows.add(new ModerationReportService.QuestionRow(String.valueOf(i), 10, "APPROVED", "Clear"));
+        }
+        return new ModerationReportService.PaperSummary(id, "THEORY", "APPROVED", "Ada Lovelace", "Grace Hopper", null, rows);
+    }
+
+    private static byte[] form(String courseCode) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Document document = new Document(new PdfDocument(new PdfWriter(out)))) {
+            document.add(new Paragraph("Evaluation form of " + courseCode + ", page 1"));
+            document.add(new AreaBreak());
+            document.add(new Paragraph("Evaluation form of " + courseCode + ", page 2"));
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.jobs.service.JobContext;
+import com.example.examManagementBackend.jobs.service.JobCoordinator;
+import com.example.examManagementBackend.jobs.service.LeaseLostException;
+import com.example.examManagementBackend.paperWorkflows.PaperFixtures;
+import com.example.examManagementBackend.paperWorkflows.entity.ArchiveQuarantine;
+import com.example.examManagementBackend.paperWorkflows.entity.ArchiveRun;
+import com.example.examManagementBackend.paperWorkflows.entity.CoursesEntity;
+import com.example.examManagementBackend.paperWorkflows.entity.EncryptedPaper;
+import com.example.examManagementBackend.paperWorkflows.entity.Enums.ArchiveRunStatus;
+import com.example.examManagementBackend.paperWorkflows.entity.ExaminationEntity;
+import com.example.examManagementBackend.paperWorkflows.entity.StoredBlob;
+import com.example.examManagementBackend.paperWorkflows.repository.ArchiveQuarantineRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.ArchiveRunRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.ArchivedPaperRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.CoursesRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.EncryptedPaperRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.paperWorkflows.search.ArchiveFullTextIndex;
+import com.example.examManagementBackend.paperWorkflows.search.ArchiveSearchIndex;
+import com.example.examManagementBackend.storage.PaperStorage;
+import com.example.examManagementBackend.userManagement.userManagementEntity.UserEntity;
+import com.example.examManagementBackend.userManagement.userManagementRepo.UserManagementRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Archives real rows in H2; decryption, blobs and the lease are stubbed so each test can make one of them fail
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaperArchivingServiceTest {
+
+    // Longer than the 64 characters the archived_papers column takes, so saving the row fails
+    private static final String OVERSIZED_HASH = "f".repeat(80);
+
+    @Autowired
+    EncryptedPaperRepository encryptedPaperRepository;
+
+    @Autowired
+    ArchivedPaperRepository archivedPaperRepository;
+
+    @Autowired
+    ArchiveRunRepository archiveRunRepository;
+
+    @Autowired
+    ArchiveQuarantineRepository archiveQuarantineRepository;
+
+    @Autowired
+    UserManagementRepo userRepository;
+
+    @Autowired
+    ExaminationRepository examinationRepository;
+
+    @Autowired
+    CoursesRepository coursesRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private final EncryptionService encryptionService = mock(EncryptionService.class);
+    private final BlobStoreService blobStoreService = mock(BlobStoreService.class);
+    private final JobCoordinator jobCoordinator = mock(JobCoordinator.class);
+    private final JobContext context = mock(JobContext.class);
+    private PaperFixtures fixtures;
+    private UserEntity creator;
+    private ExaminationEntity examination;
+    private CoursesEntity course;
+    private PaperArchivingService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        encryptedPaperRepository.deleteAll();
+        archiveQuarantineRepository.deleteAll();
+        archiveRunRepository.deleteAll();
+
+        fixtures = new PaperFixtures(examinationRepository, coursesRepository, userRepository, encryptedPaperRepository);
+        creator = fixtures.user("Ada", "Lovelace");
+        course = fixtures.course("Compilers");
+        examination = fixtures.examination(course.getDegreeProgramsEntity(), "2024");
+
+        // A paper's "plaintext" is its file path; paths marked unreadable fail to decrypt
+        doAnswer(invocation -> {
+            String key = invocation.getArgument(1);
+            if (key.contains("unreadable")) {
+                throw new IllegalStateException("Authentication tag mismatch");
+            }
+            invocation.<OutputStream>getArgument(2).write(key.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(encryptionService).decryptFileForUser(any(), anyString(), any());
+        when(blobStoreService.storePlain(any())).thenAnswer(invocation -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            invocation.<BlobStoreService.ContentWriter>getArgument(0).writeTo(out);
+            String plain = out.toString(StandardCharsets.UTF_8);
+            String hash = plain.contains("oversized") ? OVERSIZED_HASH : String.format("%064x", plain.hashCode() & 0xffffffffL);
+            return new StoredBlob(hash, "Blobs/" + hash, out.size(), 1, LocalDateTime.now(), LocalDateTime.now());
+        });
+        when(jobCoordinator.runPartitioned(anyString(), anyInt(), any(), any())).thenAnswer(invocation -> {
+            invocation.<JobCoordinator.JobTask>getArgument(3).run(context);
+            return 1;
+        });
+        when(context.getPartition()).thenReturn(0);
+        when(context.getPartitionCount()).thenReturn(1);
+
+        service = new PaperArchivingService(encryptedPaperRepository, archivedPaperRepository, encryptionService, userRepository,
+                examinationRepository, coursesRepository, blobStoreService, mock(PaperStorage.class), archiveRunRepository,
+                archiveQuarantineRepository, transactionManager, jobCoordinator, mock(ArchiveSearchIndex.class),
+                mock(ArchiveFullTextIndex.class), 2, 10, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stopArchiveWorkers();
+    }
+
+    @Test
+    void unreadablePapersAreQuarantinedAndTheRestArchived() {
+        EncryptedPaper good = paper("good.pdf");
+        EncryptedPaper unreadable = paper("unreadable.pdf");
+        EncryptedPaper other = paper("other.pdf");
+
+        ArchiveRun run = service.runArchiveJob(true).get(0);
+
+        assertThat(run.getStatus()).isEqualTo(ArchiveRunStatus.COMPLETED);
+        assertThat(run.getArchived()).isEqualTo(2);
+        assertThat(run.getQuarantined()).isEqualTo(1);
+        assertThat(encryptedPaperRepository.findAll()).extracting(EncryptedPaper::getId).containsExactly(unreadable.getId());
+        assertThat(archiveQuarantineRepository.findById(unreadable.getId())).hasValueSatisfying(quarantine -> {
+            assertThat(quarantine.getError()).isEqualTo("Authentication tag mismatch");
+            assertThat(quarantine.getRunId()).isEqualTo(run.getId());
+        });
+        assertThat(encryptedPaperRepository.existsById(good.getId())).isFalse();
+        assertThat(encryptedPaperRepository.existsById(other.getId())).isFalse();
+    }
+
+    @Test
+    void aRowThatFailsRollsBackTheChunkAndOnlyThatPaperIsQuarantined() {
+        EncryptedPaper first = paper("first.pdf");
+        EncryptedPaper oversized = paper("oversized.pdf");
+        EncryptedPaper unreadable = paper("unreadable.pdf");
+        EncryptedPaper last = paper("last.pdf");
+
+        ArchiveRun run = service.runArchiveJob(true).get(0);
+
+        // The first attempt rolled back with the bad row; the per-paper retry archived the others
+        assertThat(run.getArchived()).isEqualTo(2);
+        assertThat(run.getQuarantined()).isEqualTo(2);
+        assertThat(archiveQuarantineRepository.findAll()).extracting(ArchiveQuarantine::getPaperId)
+                .containsExactlyInAnyOrder(oversized.getId(), unreadable.getId());
+        assertThat(encryptedPaperRepository.findAll()).extracting(EncryptedPaper::getId)
+                .containsExactlyInAnyOrder(oversized.getId(), unreadable.getId());
+        assertThat(archivedPaperRepository.findAll()).filteredOn(archived -> archived.getFileName().equals("first.pdf")
+                || archived.getFileName().equals("last.pdf")).hasSize(2);
+        verify(blobStoreService).release(OVERSIZED_HASH);
+        assertThat(encryptedPaperRepository.existsById(first.getId())).isFalse();
+        assertThat(encryptedPaperRepository.existsById(last.getId())).isFalse();
+    }
+
+    @Test
+    void anInterruptedRunResumesFromItsCheckpoint() {
+        EncryptedPaper done = paper("done.pdf");
+        EncryptedPaper next = paper("next.pdf");
+        ArchiveRun interrupted = archiveRunRepository.save(new ArchiveRun(null, LocalDateTime.now(), 0, 1,
+                done.getId(), 1, 0, ArchiveRunStatus.RUNNING, LocalDateTime.now().minusMinutes(5), null));
+
+        ArchiveRun run = service.runArchiveJob(true).get(0);
+
+        assertThat(run.getId()).isEqualTo(interrupted.getId());
+        assertThat(run.getArchived()).isEqualTo(2);
+        assertThat(run.getLastPaperId()).isEqualTo(next.getId());
+        // Papers at or below the checkpoint are not archived a second time
+        assertThat(encryptedPaperRepository.existsById(done.getId())).isTrue();
+        assertThat(encryptedPaperRepository.existsById(next.getId())).isFalse();
+    }
+
+    @Test
+    void aLostLeaseQuarantinesNothing() throws Exception {
+        EncryptedPaper good = paper("good.pdf");
+        EncryptedPaper unreadable = paper("unreadable.pdf");
+        doThrow(new LeaseLostException("Lease taken over")).when(jobCoordinator).fence(context);
+
+        assertThatThrownBy(() -> service.runArchiveJob(true)).isInstanceOf(LeaseLostException.class);
+
+        // The new holder of the partition decides what to do with both papers
+        assertThat(archiveQuarantineRepository.count()).isZero();
+        assertThat(encryptedPaperRepository.findAll()).extracting(EncryptedPaper::getId)
+                .containsExactlyInAnyOrder(good.getId(), unreadable.getId());
+        verify(blobStoreService).release(any());
+        verify(blobStoreService, never()).releaseFile(any(), any());
+    }
+
+    @Test
+    void archivableIdsLeaveOutQuarantinedPapersLaterPapersAndOtherPartitions() {
+        List<EncryptedPaper> papers = List.of(paper("a.pdf"), paper("b.pdf"), paper("c.pdf"), paper("d.pdf"));
+        EncryptedPaper notYetShared = fixtures.encryptedPaper("future.pdf", creator, examination, course, LocalDateTime.now().plusDays(1));
+        archiveQuarantineRepository.save(new ArchiveQuarantine(papers.get(1).getId(), "b.pdf", "bad", null, LocalDateTime.now()));
+        LocalDateTime cutoff = LocalDateTime.now();
+
+        assertThat(encryptedPaperRepository.findArchivableIds(cutoff, 0, 0, 1, PageRequest.of(0, 10)))
+                .containsExactly(papers.get(0).getId(), papers.get(2).getId(), papers.get(3).getId())
+                .doesNotContain(notYetShared.getId());
+        assertThat(encryptedPaperRepository.findArchivableIds(cutoff, papers.get(2).getId(), 0, 1, PageRequest.of(0, 10)))
+                .containsExactly(papers.get(3).getId());
+        List<Long> even = encryptedPaperRepository.findArchivableIds(cutoff, 0, 0, 2, PageRequest.of(0, 10));
+        List<Long> odd = encryptedPaperRepository.findArchivableIds(cutoff, 0, 1, 2, PageRequest.of(0, 10));
+        assertThat(even).allMatch(id -> id % 2 == 0);
+        assertThat(odd).allMatch(id -> id % 2 == 1);
+        assertThat(even.size() + odd.size()).isEqualTo(3);
+    }
+
+    private EncryptedPaper paper(String fileName) {
+        return fixtures.encryptedPaper(fileName, creator, examination, course, LocalDateTime.now().minusDays(1));
+    }
+}
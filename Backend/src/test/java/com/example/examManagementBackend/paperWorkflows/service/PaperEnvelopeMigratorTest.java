@@ -0,0 +1,138 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.jobs.service.JobCoordinator;
+import com.example.examManagementBackend.paperWorkflows.crypto.CryptoContext;
+import com.example.examManagementBackend.paperWorkflows.crypto.KeyPairPool;
+import com.example.examManagementBackend.paperWorkflows.crypto.PaperCompression;
+import com.example.examManagementBackend.paperWorkflows.crypto.PaperEnvelope;
+import com.example.examManagementBackend.paperWorkflows.entity.EncryptedPaper;
+import com.example.examManagementBackend.paperWorkflows.repository.EncryptedPaperRepository;
+import com.example.examManagementBackend.storage.LocalPaperStorage;
+import com.example.examManagementBackend.userManagement.userManagementEntity.UserEntity;
+import com.example.examManagementBackend.userManagement.userManagementRepo.UserManagementRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PaperEnvelopeMigratorTest {
+
+    @TempDir
+    Path root;
+
+    private final CryptoContext crypto = new CryptoContext();
+    private final Map<Long, UserEntity> users = new HashMap<>();
+    private final EncryptedPaperRepository encryptedPaperRepository = mock(EncryptedPaperRepository.class);
+    private LocalPaperStorage storage;
+    private EncryptionService encryptionService;
+    private PaperEnvelopeMigrator migrator;
+
+    @BeforeEach
+    void setUp() {
+        UserManagementRepo userRepo = mock(UserManagementRepo.class);
+        when(userRepo.findById(anyLong())).thenAnswer(invocation ->
+                Optional.of(users.computeIfAbsent(invocation.getArgument(0), id -> new UserEntity())));
+        when(userRepo.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        storage = new LocalPaperStorage(root);
+        encryptionService = new EncryptionService(userRepo, crypto, new KeyPairPool(crypto, 1), storage,
+                new PaperCompression(false, 0.1), 100);
+        migrator = new PaperEnvelopeMigrator(encryptedPaperRepository, encryptionService, storage, mock(JobCoordinator.class));
+    }
+
+    @Test
+    void legacyPapersAreRewrittenAsEnvelopesForTheSameRecipients() throws Exception {
+        byte[] paper = new byte[3 * EncryptionService.SEGMENT_SIZE + 17];
+        new Random(7).nextBytes(paper);
+        writeLegacyPaper("Encrypted_Papers/old.pdf", paper, 1L, 2L);
+        when(encryptedPaperRepository.findExtraRecipientIds(10L)).thenReturn(List.of(3L));
+        when(encryptedPaperRepository.findAll(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(encryptedPaper("Encrypted_Papers/old.pdf", 1L, 2L))));
+
+        migrator.migrateLegacyPapers();
+
+        try (InputStream in = new BufferedInputStream(storage.get("Encrypted_Papers/old.pdf"))) {
+            assertThat(PaperEnvelope.isEnvelope(in)).isTrue();
+            assertThat(PaperEnvelope.read(in).getRecipients()).hasSize(3);
+        }
+        assertThat(encryptionService.needsMigration("Encrypted_Papers/old.pdf")).isFalse();
+        assertThat(decrypt(1L, "Encrypted_Papers/old.pdf")).isEqualTo(paper);
+        assertThat(decrypt(2L, "Encrypted_Papers/old.pdf")).isEqualTo(paper);
+        assertThat(decrypt(3L, "Encrypted_Papers/old.pdf")).isEqualTo(paper);
+    }
+
+    @Test
+    void envelopesAreLeftAlone() throws Exception {
+        encryptionService.encryptToStorage(List.of(1L, 2L), new ByteArrayInputStream(new byte[100]), "Encrypted_Papers/new.pdf");
+        byte[] before = Files.readAllBytes(root.resolve("Encrypted_Papers/new.pdf"));
+        when(encryptedPaperRepository.findAll(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(encryptedPaper("Encrypted_Papers/new.pdf", 1L, 2L))));
+
+        migrator.migrateLegacyPapers();
+
+        assertThat(Files.readAllBytes(root.resolve("Encrypted_Papers/new.pdf"))).isEqualTo(before);
+    }
+
+    // Base64 text of IV, creator key, moderator key and one GCM ciphertext, as papers were stored before envelopes
+    private void writeLegacyPaper(String key, byte[] paper, Long creatorId, Long moderatorId) throws Exception {
+        SecretKey aesKey = crypto.generateAesKey();
+        byte[] iv = crypto.randomBytes(16);
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(iv);
+        for (Long recipientId : List.of(creatorId, moderatorId)) {
+            Cipher rsa = crypto.rsaCipher();
+            rsa.init(Cipher.ENCRYPT_MODE, encryptionService.getKeyPairForUser(recipientId).getPublic());
+            file.write(rsa.doFinal(aesKey.getEncoded()));
+        }
+        Cipher aes = crypto.aesCipher();
+        aes.init(Cipher.ENCRYPT_MODE, aesKey, new GCMParameterSpec(128, iv));
+        file.write(aes.doFinal(paper));
+
+        Path path = Files.createDirectories(root.resolve(key).getParent()).resolve(root.resolve(key).getFileName());
+        Files.write(path, Base64.getEncoder().encode(file.toByteArray()));
+    }
+
+    private EncryptedPaper encryptedPaper(String key, Long creatorId, Long moderatorId) {
+        EncryptedPaper paper = new EncryptedPaper();
+        paper.setId(10L);
+        paper.setFilePath(key);
+        paper.setCreator(user(creatorId));
+        paper.setModerator(user(moderatorId));
+        return paper;
+    }
+
+    private UserEntity user(Long id) {
+        UserEntity user = users.computeIfAbsent(id, ignored -> new UserEntity());
+        ReflectionTestUtils.setField(user, "userId", id);
+        return user;
+    }
+
+    private byte[] decrypt(Long userId, String key) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encryptionService.decryptFileForUser(userId, key, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.paperWorkflows.dto.FeedBackData.FeedBackDTO;
+import com.example.examManagementBackend.paperWorkflows.dto.FeedBackData.questionData;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PdfGenrationServiceTest {
+
+    private final PdfGenrationService service = new PdfGenrationService(null);
+
+    @Test
+    void bothCellStylingsRenderTheSameForm() throws IOException {
+        ByteArrayOutputStream perCell = new ByteArrayOutputStream();
+        service.render(form(), perCell, PdfGenrationService.CellStyling.PER_CELL);
+        byte[] shared = service.render(form());
+
+        assertThat(text(shared)).contains("Course Code: CSC2233", "Are the questions of question 9 clear");
+        assertThat(text(shared)).isEqualTo(text(perCell.toByteArray()));
+        // One embedded font reference instead of one per cell
+        assertThat(shared.length).isLessThan(perCell.size());
+    }
+
+    @Test
+    void aFormThatFailsToLayOutReportsTheLayoutError() throws IOException {
+        FeedBackDTO form = form();
+        form.getQuestion()[3] = null;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThatThrownBy(() -> service.render(form, out)).isInstanceOf(NullPointerException.class);
+        // The thread's buffer is still usable for the next form
+        assertThat(service.render(form()).length).isPositive();
+    }
+
+    private static String text(byte[] pdf) throws IOException {
+        try (PdfDocument document = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf)))) {
+            StringBuilder text = new StringBuilder();
+            for (int page = 1; page <= document.getNumberOfPages(); page++) {
+                text.append(PdfTextExtractor.getTextFromPage(document.getPage(page)));
+            }
+            return text.toString();
+        }
+    }
+
+    private static FeedBackDTO form() {
+        questionData[] questions = new questionData[9];
+        for (int i = 0; i < questions.length; i++) {
+            questions[i] = new questionData(i + 1, i % 2 == 0 ? "Yes" : "No", "Comment " + (i + 1),
+                    "Are the questions of question " + (i + 1) + " clear and unambiguous?");
+        }
+        FeedBackDTO form = new FeedBackDTO();
+        form.setQuestion(questions);
+        form.setCourseCode("CSC2233");
+        form.setCourseName("Data Structures and Algorithms");
+        form.setDegreeProgram("BCS");
+        form.setExamination("Level 2 Semester 1 2024");
+        form.setGeneralComment("Fine.");
+        form.setAgreeAndAddressed("Done.");
+        form.setLearningOutcomes("All assessed.");
+        form.setCourseContent("Covered.");
+        return form;
+    }
+}
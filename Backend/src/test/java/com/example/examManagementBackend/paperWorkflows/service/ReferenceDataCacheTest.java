@@ -0,0 +1,136 @@
+package com.example.examManagementBackend.paperWorkflows.service;
+
+import com.example.examManagementBackend.paperWorkflows.repository.CoursesRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.DegreeProgramRepo;
+import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.resultManagement.entities.Enums.ExamTypesName;
+import com.example.examManagementBackend.resultManagement.repo.ExamTypeRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReferenceDataCacheTest {
+
+    private final CoursesRepository coursesRepository = mock(CoursesRepository.class);
+    private final ExaminationRepository examinationRepository = mock(ExaminationRepository.class);
+    private final ExamTypeRepo examTypeRepo = mock(ExamTypeRepo.class);
+    private final DegreeProgramRepo degreeProgramRepo = mock(DegreeProgramRepo.class);
+    private final List<Object[]> courses = new ArrayList<>();
+    private final List<Object[]> examinations = new ArrayList<>();
+    private ReferenceDataCache cache;
+
+    @BeforeEach
+    void setUp() {
+        courses.add(new Object[]{1L, "CSC1113"});
+        examinations.add(new Object[]{10L, "2024", "1", "1", "BCS"});
+        examinations.add(new Object[]{11L, "2024", "2", "1", "BCS"});
+        examinations.add(new Object[]{12L, "2024", "2", "1", "BSc"});
+        when(coursesRepository.findAllCodes()).thenAnswer(invocation -> List.copyOf(courses));
+        when(examinationRepository.findAllNameParts()).thenAnswer(invocation -> List.copyOf(examinations));
+        when(examTypeRepo.findAllNames()).thenReturn(List.<Object[]>of(new Object[]{5L, ExamTypesName.THEORY}));
+        // A name that isn't in the database finds no id
+        when(coursesRepository.getCourseIdByCode(anyString())).thenReturn(null);
+        when(examinationRepository.getExaminationIdByYearAndSemesterAndLevel(anyString(), anyString(), anyString())).thenReturn(null);
+        when(degreeProgramRepo.findAllNames()).thenReturn(List.<Object[]>of(new Object[]{3L, "BCS"}));
+        cache = cache(Duration.ofMinutes(10));
+    }
+
+    @Test
+    void hitsIssueNoQueries() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(cache.courseId("CSC1113")).isEqualTo(1L);
+            assertThat(cache.examinationId("2024-BCS-Level 2-Semester 1")).isEqualTo(11L);
+            assertThat(cache.examTypeId(ExamTypesName.THEORY)).isEqualTo(5L);
+            assertThat(cache.degreeProgramId("BCS")).isEqualTo(3L);
+        }
+
+        verify(coursesRepository, times(1)).findAllCodes();
+        verify(coursesRepository, never()).getCourseIdByCode("CSC1113");
+        verify(examinationRepository, never()).getExaminationIdByYearAndSemesterAndLevel("2024", "2", "1");
+        ReferenceDataCache.Stats stats = cache.stats();
+        assertThat(stats.loads()).isEqualTo(1);
+        assertThat(stats.hits()).isEqualTo(12);
+        assertThat(stats.misses()).isZero();
+    }
+
+    @Test
+    void invalidateReloadsOnTheNextLookup() {
+        assertThat(cache.courseId("CSC2213")).isNull();
+        courses.add(new Object[]{2L, "CSC2213"});
+
+        cache.invalidate();
+
+        assertThat(cache.courseId("CSC2213")).isEqualTo(2L);
+        verify(coursesRepository, times(2)).findAllCodes();
+        assertThat(cache.stats().invalidations()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidatingInsideATransactionReloadsAgainAfterCommit() {
+        cache.courseId("CSC1113");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidate();
+            // A lookup before the commit still sees the old rows
+            assertThat(cache.courseId("CSC2213")).isNull();
+            courses.add(new Object[]{2L, "CSC2213"});
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(cache.courseId("CSC2213")).isEqualTo(2L);
+        verify(coursesRepository, times(3)).findAllCodes();
+    }
+
+    @Test
+    void nameFoundOnlyInTheDatabaseReloadsTheSnapshot() {
+        when(coursesRepository.getCourseIdByCode("CSC3113")).thenReturn(7L);
+
+        assertThat(cache.courseId("CSC3113")).isEqualTo(7L);
+        courses.add(new Object[]{7L, "CSC3113"});
+        assertThat(cache.courseId("CSC3113")).isEqualTo(7L);
+
+        verify(coursesRepository, times(1)).getCourseIdByCode("CSC3113");
+        verify(coursesRepository, times(2)).findAllCodes();
+    }
+
+    @Test
+    void expiredSnapshotIsReloaded() {
+        ReferenceDataCache expiring = cache(Duration.ZERO);
+
+        expiring.courseId("CSC1113");
+        expiring.courseId("CSC1113");
+
+        verify(coursesRepository, times(2)).findAllCodes();
+    }
+
+    @Test
+    void examinationNamesFallBackToTheTerm() {
+        // The degree part doesn't match, but only one examination sits that term
+        assertThat(cache.examinationId("2024-Computer Science-Level 1-Semester 1")).isEqualTo(10L);
+        // Two degree programs sit this term, so the name doesn't say which
+        assertThat(cache.examinationId("2024-Computer Science-Level 2-Semester 1")).isNull();
+        assertThatThrownBy(() -> cache.examinationId("2024 Level 1")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ReferenceDataCache cache(Duration maxAge) {
+        return new ReferenceDataCache(coursesRepository, examinationRepository, examTypeRepo, degreeProgramRepo,
+                mock(PlatformTransactionManager.class), maxAge);
+    }
+}
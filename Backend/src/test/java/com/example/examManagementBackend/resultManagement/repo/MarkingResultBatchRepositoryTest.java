@@ -0,0 +1,165 @@
+package com.example.examManagementBackend.resultManagement.repo;
+
+import com.example.examManagementBackend.paperWorkflows.PaperFixtures;
+import com.example.examManagementBackend.paperWorkflows.entity.CoursesEntity;
+import com.example.examManagementBackend.paperWorkflows.repository.CoursesRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.EncryptedPaperRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.resultManagement.entities.Enums.ExamTypesName;
+import com.example.examManagementBackend.resultManagement.entities.Enums.ResultStatus;
+import com.example.examManagementBackend.resultManagement.entities.ExamTypesEntity;
+import com.example.examManagementBackend.userManagement.userManagementRepo.UserManagementRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs the batched statements against the H2 database in MySQL mode
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MarkingResultBatchRepositoryTest {
+
+    @Autowired
+    ResultRepo resultRepo;
+
+    @Autowired
+    ExamTypeRepo examTypeRepo;
+
+    @Autowired
+    ExaminationRepository examinationRepository;
+
+    @Autowired
+    CoursesRepository coursesRepository;
+
+    @Autowired
+    UserManagementRepo userRepository;
+
+    @Autowired
+    EncryptedPaperRepository encryptedPaperRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private Long examinationId;
+    private Long courseId;
+    private Long otherCourseId;
+    private Long examTypeId;
+    private Long markerId;
+    private String prefix;
+
+    @BeforeEach
+    void setUp() {
+        PaperFixtures fixtures = new PaperFixtures(examinationRepository, coursesRepository, userRepository, encryptedPaperRepository);
+        CoursesEntity course = fixtures.course("Databases");
+        courseId = course.getId();
+        otherCourseId = fixtures.course("Networks").getId();
+        examinationId = fixtures.examination(course.getDegreeProgramsEntity(), "2024").getId();
+        ExamTypesEntity examType = new ExamTypesEntity();
+        examType.setName(ExamTypesName.THEORY);
+        examTypeId = examTypeRepo.save(examType).getId();
+        markerId = fixtures.user("Alan", "Turing").getUserId();
+        prefix = "S" + UUID.randomUUID().toString().substring(0, 8) + "-";
+    }
+
+    @Test
+    void upsertInsertsNewStudentsAndRenamesExistingOnes() {
+        Map<String, Long> first = resultRepo.upsertStudents(names(prefix + "1", "Ann", prefix + "2", "Bob"));
+        Map<String, Long> second = resultRepo.upsertStudents(names(prefix + "2", "Robert", prefix + "3", "Cid"));
+
+        assertThat(first).containsOnlyKeys(prefix + "1", prefix + "2");
+        assertThat(second).containsOnlyKeys(prefix + "2", prefix + "3");
+        assertThat(second.get(prefix + "2")).isEqualTo(first.get(prefix + "2"));
+        assertThat(jdbcTemplate.queryForObject("SELECT student_name FROM students_details WHERE student_number = ?",
+                String.class, prefix + "2")).isEqualTo("Robert");
+    }
+
+    @Test
+    void idsComeBackForSheetsLongerThanOneBatch() {
+        Map<String, String> names = new LinkedHashMap<>();
+        for (int i = 0; i < 1200; i++) {
+            names.put(prefix + i, "Student " + i);
+        }
+
+        Map<String, Long> ids = resultRepo.upsertStudents(names);
+        Map<Long, Float> marks = new LinkedHashMap<>();
+        ids.values().forEach(id -> marks.put(id, 50f));
+        resultRepo.insertFirstMarkings(examinationId, courseId, examTypeId, markerId, marks);
+
+        assertThat(ids).hasSize(1200).doesNotContainValue(null);
+        assertThat(resultRepo.findResultIds(examinationId, courseId, examTypeId, ids.values())).hasSize(1200);
+    }
+
+    @Test
+    void insertedResultsTakeTheFirstMarking() {
+        Long studentId = resultRepo.upsertStudents(names(prefix + "1", "Ann")).get(prefix + "1");
+
+        resultRepo.insertFirstMarkings(examinationId, courseId, examTypeId, markerId, Map.of(studentId, 62.5f));
+
+        assertThat(rows(studentId)).singleElement().satisfies(row -> {
+            assertThat(row.get("FIRST_MARKING")).isEqualTo(62.5f);
+            assertThat(row.get("SECOND_MARKING")).isEqualTo(0f);
+            assertThat(row.get("STATUS")).isEqualTo("FIRST_MARKING_COMPLETE");
+            assertThat(row.get("APPROVED_BY")).isEqualTo(markerId);
+        });
+    }
+
+    @Test
+    void resultIdsAreScopedToTheSheetAndDuplicatesResolveToTheOldestRow() {
+        Long studentId = resultRepo.upsertStudents(names(prefix + "1", "Ann")).get(prefix + "1");
+        resultRepo.insertFirstMarkings(examinationId, courseId, examTypeId, null, Map.of(studentId, 40f));
+        resultRepo.insertFirstMarkings(examinationId, courseId, examTypeId, null, Map.of(studentId, 45f));
+        resultRepo.insertFirstMarkings(examinationId, otherCourseId, examTypeId, null, Map.of(studentId, 90f));
+        Long oldest = (Long) rows(studentId).get(0).get("RESULT_ID");
+
+        assertThat(resultRepo.findResultIds(examinationId, courseId, examTypeId, List.of(studentId)))
+                .containsExactly(Map.entry(studentId, oldest));
+        assertThat(resultRepo.findResultIds(examinationId, courseId, examTypeId, List.of())).isEmpty();
+    }
+
+    @Test
+    void updatesChangeOnlyTheirColumnAndStatus() {
+        Long studentId = resultRepo.upsertStudents(names(prefix + "1", "Ann")).get(prefix + "1");
+        resultRepo.insertFirstMarkings(examinationId, courseId, examTypeId, null, Map.of(studentId, 40f));
+        Long resultId = (Long) rows(studentId).get(0).get("RESULT_ID");
+
+        resultRepo.updateFirstMarkings(List.of(new MarkingResultBatchRepository.MarkUpdate(resultId, 48f)), markerId,
+                ResultStatus.FIRST_MARKING_COMPLETE);
+        resultRepo.updateSecondMarkings(List.of(new MarkingResultBatchRepository.MarkUpdate(resultId, 52f)), markerId,
+                ResultStatus.SECOND_MARKING_COMPLETE);
+        resultRepo.updateSecondMarkings(List.of(), markerId, ResultStatus.SECOND_MARKING_COMPLETE);
+
+        assertThat(rows(studentId)).singleElement().satisfies(row -> {
+            assertThat(row.get("FIRST_MARKING")).isEqualTo(48f);
+            assertThat(row.get("SECOND_MARKING")).isEqualTo(52f);
+            assertThat(row.get("STATUS")).isEqualTo("SECOND_MARKING_COMPLETE");
+            assertThat(row.get("APPROVED_BY")).isEqualTo(markerId);
+        });
+    }
+
+    private List<Map<String, Object>> rows(Long studentId) {
+        return jdbcTemplate.queryForList("SELECT result_id, first_marking, second_marking, status, approved_by FROM result " +
+                "WHERE student_id = ? AND course_id = ? ORDER BY result_id", studentId, courseId);
+    }
+
+    private static Map<String, String> names(String... numbersAndNames) {
+        Map<String, String> names = new LinkedHashMap<>();
+        for (int i = 0; i < numbersAndNames.length; i += 2) {
+            names.put(numbersAndNames[i], numbersAndNames[i + 1]);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.examManagementBackend.resultManagement.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FinalMarkServiceTest {
+
+    private static final int THEORY = 0;
+    private static final int PRACTICAL = 1;
+    private static final float[] WEIGHTS = {60, 40};
+
+    @Test
+    void finalMarkIsTheWeightedAverage() {
+        FinalMarkService.CourseMarks course = new FinalMarkService.CourseMarks(9);
+        course.add(1, 100, THEORY, 80, 0, false);
+        course.add(2, 100, PRACTICAL, 60, 0, false);
+
+        FinalMarkService.CourseFinals finals = course.compute(WEIGHTS);
+
+        // 0.6 * 80 + 0.4 * 60
+        assertThat(finals.courseId()).isEqualTo(9);
+        assertThat(finals.results()).isEqualTo(2);
+        assertThat(finals.changed()).isEqualTo(2);
+        assertThat(changedIds(finals)).containsExactly(1, 2);
+        assertThat(changedMarks(finals)).containsExactly(72f, 72f);
+    }
+
+    @Test
+    void missingExamTypeCountsAsZeroAndMarksAreRounded() {
+        FinalMarkService.CourseMarks course = new FinalMarkService.CourseMarks(9);
+        course.add(1, 100, THEORY, 70, 0, false);
+        course.add(2, 101, THEORY, 66.666f, 0, false);
+        course.add(3, 101, PRACTICAL, 33.333f, 0, false);
+
+        FinalMarkService.CourseFinals finals = course.compute(WEIGHTS);
+
+        assertThat(changedMarks(finals)).containsExactly(42f, 53.33f, 53.33f);
+    }
+
+    @Test
+    void unchangedAndPublishedResultsAreNotRewritten() {
+        FinalMarkService.CourseMarks course = new FinalMarkService.CourseMarks(9);
+        course.add(1, 100, THEORY, 80, 72, false);
+        course.add(2, 100, PRACTICAL, 60, 72, false);
+        course.add(3, 101, THEORY, 50, 10, true);
+        course.add(4, 101, PRACTICAL, 50, 10, false);
+
+        FinalMarkService.CourseFinals finals = course.compute(WEIGHTS);
+
+        assertThat(finals.changed()).isEqualTo(1);
+        assertThat(changedIds(finals)).containsExactly(4);
+        assertThat(changedMarks(finals)).containsExactly(50f);
+        assertThat(finals.publishedUnchanged()).isEqualTo(1);
+    }
+
+    @Test
+    void duplicateResultForAnExamTypeCountsOnce() {
+        FinalMarkService.CourseMarks course = new FinalMarkService.CourseMarks(9);
+        course.add(1, 100, THEORY, 80, 0, false);
+        course.add(2, 100, THEORY, 20, 0, false);
+        course.add(3, 100, PRACTICAL, 60, 0, false);
+
+        FinalMarkService.CourseFinals finals = course.compute(WEIGHTS);
+
+        assertThat(changedMarks(finals)).containsOnly(72f);
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        FinalMarkService.CourseMarks course = new FinalMarkService.CourseMarks(9);
+        for (int student = 0; student < 100; student++) {
+            course.add(2L * student, student, THEORY, student, 0, false);
+            course.add(2L * student + 1, student, PRACTICAL, student, 0, false);
+        }
+
+        FinalMarkService.CourseFinals finals = course.compute(WEIGHTS);
+
+        assertThat(finals.results()).isEqualTo(200);
+        // Student 0 scores 0, which is already stored
+        assertThat(finals.changed()).isEqualTo(198);
+        assertThat(finals.resultIds()[197]).isEqualTo(199);
+        assertThat(finals.finalMarks()[197]).isEqualTo(99f);
+    }
+
+    private static long[] changedIds(FinalMarkService.CourseFinals finals) {
+        return Arrays.copyOf(finals.resultIds(), finals.changed());
+    }
+
+    private static float[] changedMarks(FinalMarkService.CourseFinals finals) {
+        return Arrays.copyOf(finals.finalMarks(), finals.changed());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.examManagementBackend.resultManagement.services;
+
+import com.example.examManagementBackend.resultManagement.dto.MarkImportErrorDTO;
+import com.example.examManagementBackend.resultManagement.dto.MarkImportReportDTO;
+import com.example.examManagementBackend.resultManagement.dto.StudentDTO;
+import com.example.examManagementBackend.resultManagement.entities.Enums.ExamTypesName;
+import com.example.examManagementBackend.resultManagement.services.ResultService.MarkingTarget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.TransactionSystemException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MarkSheetImportServiceTest {
+
+    private final ResultService resultService = mock(ResultService.class);
+    private final MarkSheetImportService importService = new MarkSheetImportService(resultService);
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(resultService.resolveTarget(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            String courseCode = invocation.getArgument(1);
+            return new MarkingTarget(1L, Long.parseLong(courseCode.substring(2)), 1L);
+        });
+        when(resultService.writeMarks(any(), any(), any(), anyBoolean())).thenAnswer(invocation -> {
+            Collection<StudentDTO> students = invocation.getArgument(1);
+            batchSizes.add(students.size());
+            return List.of();
+        });
+    }
+
+    @Test
+    void rowsSpreadOverManyCoursesAreFlushedBeforeTheSheetEnds() throws IOException {
+        // 20 courses with 300 rows each, interleaved, so no course ever fills a batch of 500
+        StringBuilder csv = new StringBuilder("studentNumber,studentName,courseCode,firstMarking\n");
+        for (int student = 0; student < 300; student++) {
+            for (int course = 0; course < 20; course++) {
+                csv.append("S").append(student).append(",Student ").append(student).append(",CS").append(course).append(",70\n");
+            }
+        }
+
+        MarkImportReportDTO report = importService.importSheet(csv(csv.toString()), "2024 Level 1 Semester 1", null,
+                ExamTypesName.THEORY, 7L);
+
+        assertThat(report.getImported()).isEqualTo(6000);
+        assertThat(report.getFailed()).isZero();
+        assertThat(batchSizes).hasSizeGreaterThan(20).allMatch(size -> size <= 500);
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(6000);
+    }
+
+    @Test
+    void aFailingBatchReportsItsRowsAndTheRestAreImported() throws IOException {
+        doThrow(new TransactionSystemException("Could not commit JDBC transaction"))
+                .when(resultService).writeMarks(eq(new MarkingTarget(1L, 2L, 1L)), any(), any(), anyBoolean());
+
+        MarkImportReportDTO report = importService.importSheet(csv("""
+                studentNumber,studentName,courseCode,firstMarking
+                S1,Ann,CS1,55
+                S2,Bob,CS2,60
+                S3,Cid,CS2,65
+                S4,Dee,CS1,abc
+                """), "2024 Level 1 Semester 1", null, ExamTypesName.THEORY, 7L);
+
+        assertThat(report.getRows()).isEqualTo(4);
+        assertThat(report.getImported()).isEqualTo(1);
+        assertThat(report.getFailed()).isEqualTo(3);
+        assertThat(report.getErrors()).extracting(MarkImportErrorDTO::getStudentNumber)
+                .containsExactlyInAnyOrder("S2", "S3", "S4");
+        assertThat(report.getErrors()).filteredOn(error -> "S2".equals(error.getStudentNumber()))
+                .singleElement()
+                .satisfies(error -> assertThat(error.getMessage()).contains("Could not commit JDBC transaction"));
+    }
+
+    private static MockMultipartFile csv(String content) {
+        return new MockMultipartFile("file", "marks.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.examManagementBackend.resultManagement.services;
+
+import com.example.examManagementBackend.paperWorkflows.PaperFixtures;
+import com.example.examManagementBackend.paperWorkflows.entity.CoursesEntity;
+import com.example.examManagementBackend.paperWorkflows.repository.CoursesRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.EncryptedPaperRepository;
+import com.example.examManagementBackend.paperWorkflows.repository.ExaminationRepository;
+import com.example.examManagementBackend.paperWorkflows.service.ReferenceDataCache;
+import com.example.examManagementBackend.resultManagement.dto.StudentDTO;
+import com.example.examManagementBackend.resultManagement.entities.Enums.ExamTypesName;
+import com.example.examManagementBackend.resultManagement.entities.ExamTypesEntity;
+import com.example.examManagementBackend.resultManagement.repo.ExamTypeRepo;
+import com.example.examManagementBackend.resultManagement.repo.ResultRepo;
+import com.example.examManagementBackend.resultManagement.services.ResultService.MarkingTarget;
+import com.example.examManagementBackend.userManagement.userManagementRepo.UserManagementRepo;
+import com.example.examManagementBackend.userManagement.userManagementServices.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+// writeMarks against the H2 database, one fresh course per test
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ResultServiceTest {
+
+    @Autowired
+    ResultRepo resultRepo;
+
+    @Autowired
+    ExamTypeRepo examTypeRepo;
+
+    @Autowired
+    ExaminationRepository examinationRepository;
+
+    @Autowired
+    CoursesRepository coursesRepository;
+
+    @Autowired
+    UserManagementRepo userRepository;
+
+    @Autowired
+    EncryptedPaperRepository encryptedPaperRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private ResultService resultService;
+    private MarkingTarget target;
+    private Long markerId;
+    private String prefix;
+
+    @BeforeEach
+    void setUp() {
+        PaperFixtures fixtures = new PaperFixtures(examinationRepository, coursesRepository, userRepository, encryptedPaperRepository);
+        CoursesEntity course = fixtures.course("Databases");
+        ExamTypesEntity examType = new ExamTypesEntity();
+        examType.setName(ExamTypesName.THEORY);
+        target = new MarkingTarget(fixtures.examination(course.getDegreeProgramsEntity(), "2024").getId(), course.getId(),
+                examTypeRepo.save(examType).getId());
+        markerId = fixtures.user("Alan", "Turing").getUserId();
+        prefix = "S" + UUID.randomUUID().toString().substring(0, 8) + "-";
+        resultService = new ResultService(resultRepo, mock(ReferenceDataCache.class), mock(JwtService.class),
+                userRepository, transactionManager);
+    }
+
+    @Test
+    void newStudentsGetAResultWithTheirFirstMarking() {
+        List<String> incomplete = write(false, student("1", 55f, null), student("2", 61f, 70f));
+
+        assertThat(incomplete).isEmpty();
+        assertThat(marks()).containsExactly(
+                row("1", 55f, 0f, "FIRST_MARKING_COMPLETE"),
+                // Nothing to second-mark yet, so the second marking waits for the next sheet
+                row("2", 61f, 0f, "FIRST_MARKING_COMPLETE"));
+    }
+
+    @Test
+    void anExistingResultGetsItsFirstMarkingCorrectedOrItsSecondMarking() {
+        write(false, student("1", 55f, null), student("2", 61f, null));
+
+        write(false, student("1", 58f, null), student("2", null, 66f));
+
+        assertThat(marks()).containsExactly(
+                row("1", 58f, 0f, "FIRST_MARKING_COMPLETE"),
+                row("2", 61f, 66f, "SECOND_MARKING_COMPLETE"));
+        assertThat(jdbcTemplate.queryForList("SELECT DISTINCT approved_by FROM result WHERE course_id = ?", Long.class,
+                target.courseId())).containsExactly(markerId);
+    }
+
+    @Test
+    void studentsWithoutAFirstMarkingAreSkippedAndReported() {
+        write(false, student("1", 55f, null));
+
+        List<String> incomplete = write(false, student("1", null, null), student("2", null, null), student("3", 40f, null));
+
+        assertThat(incomplete).containsExactly(prefix + "1", prefix + "2");
+        assertThat(marks()).containsExactly(row("1", 55f, 0f, "FIRST_MARKING_COMPLETE"), row("3", 40f, 0f, "FIRST_MARKING_COMPLETE"));
+        // Skipped students are still on the roll, under the name on the sheet
+        assertThat(studentCount()).isEqualTo(3);
+    }
+
+    @Test
+    void aStudentWithDuplicateResultRowsIsMarkedOnTheOldestOne() {
+        Long studentId = resultRepo.upsertStudents(Map.of(prefix + "1", "Student 1")).get(prefix + "1");
+        resultRepo.insertFirstMarkings(target.examinationId(), target.courseId(), target.examTypeId(), null, Map.of(studentId, 40f));
+        resultRepo.insertFirstMarkings(target.examinationId(), target.courseId(), target.examTypeId(), null, Map.of(studentId, 45f));
+
+        write(false, student("1", null, 72f));
+
+        assertThat(marks()).containsExactly(
+                row("1", 40f, 72f, "SECOND_MARKING_COMPLETE"),
+                row("1", 45f, 0f, "FIRST_MARKING_COMPLETE"));
+    }
+
+    @Test
+    void rejectIncompleteWritesNothingWhenAnyStudentLacksAFirstMarking() {
+        write(false, student("1", 55f, null));
+
+        assertThatThrownBy(() -> write(true, student("1", null, 80f), student("2", 61f, null), student("3", null, null)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Missing first marking for student " + prefix + "3");
+
+        assertThat(marks()).containsExactly(row("1", 55f, 0f, "FIRST_MARKING_COMPLETE"));
+        assertThat(studentCount()).isEqualTo(1);
+    }
+
+    private List<String> write(boolean rejectIncomplete, StudentDTO... students) {
+        return resultService.writeMarks(target, List.of(students), markerId, rejectIncomplete);
+    }
+
+    private StudentDTO student(String number, Float firstMarking, Float secondMarking) {
+        return new StudentDTO(prefix + number, "Student " + number, firstMarking, secondMarking, null);
+    }
+
+    // Student number, first and second marking and status of every result of the course, oldest first
+    private List<List<Object>> marks() {
+        return jdbcTemplate.query("SELECT s.student_number, r.first_marking, r.second_marking, r.status FROM result r " +
+                        "JOIN students_details s ON s.student_id = r.student_id WHERE r.course_id = ? ORDER BY r.result_id",
+                (row, rowNumber) -> List.of(row.getString(1), row.getFloat(2), row.getFloat(3), row.getString(4)),
+                target.courseId());
+    }
+
+    private List<Object> row(String number, float firstMarking, float secondMarking, String status) {
+        return List.of(prefix + number, firstMarking, secondMarking, status);
+    }
+
+    private int studentCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM students_details WHERE student_number LIKE ?", Integer.class,
+                prefix + "%");
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.examManagementBackend.resultManagement.sheets;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvSheetReaderTest {
+
+    @Test
+    void readsPlainRowsTrimmingCells() throws IOException {
+        List<List<String>> rows = readAll("studentNumber, studentName ,firstMarking\nSC/2020/001,Nimal, 72.5\n");
+
+        assertThat(rows).containsExactly(
+                List.of("studentNumber", "studentName", "firstMarking"),
+                List.of("SC/2020/001", "Nimal", "72.5"));
+    }
+
+    @Test
+    void unquotesFieldsWithCommasQuotesAndLineBreaks() throws IOException {
+        List<List<String>> rows = readAll("a,b,c\r\n\"Perera, K.\",\"said \"\"absent\"\"\",\"two\r\nlines\"\r\nx,,\"\"\r\n");
+
+        assertThat(rows).containsExactly(
+                List.of("a", "b", "c"),
+                List.of("Perera, K.", "said \"absent\"", "two\r\nlines"),
+                List.of("x", "", ""));
+    }
+
+    @Test
+    void reportsTheLineEachRowStartsOn() throws IOException {
+        try (CsvSheetReader reader = reader("header\n\n\"first\nstill first\"\nsecond\n\n\nthird")) {
+            assertThat(reader.next()).containsExactly("header");
+            assertThat(reader.rowNumber()).isEqualTo(1);
+            assertThat(reader.next()).containsExactly("first\nstill first");
+            assertThat(reader.rowNumber()).isEqualTo(3);
+            assertThat(reader.next()).containsExactly("second");
+            assertThat(reader.rowNumber()).isEqualTo(5);
+            assertThat(reader.next()).containsExactly("third");
+            assertThat(reader.rowNumber()).isEqualTo(8);
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void skipsAByteOrderMark() throws IOException {
+        List<List<String>> rows = readAll("\uFEFFstudentNumber,studentName\nSC/2020/002,Kasun\n");
+
+        assertThat(rows.get(0)).containsExactly("studentNumber", "studentName");
+        assertThat(rows.get(1)).containsExactly("SC/2020/002", "Kasun");
+    }
+
+    @Test
+    void readsUtf8Text() throws IOException {
+        assertThat(readAll("නිමල්,Müller\n")).containsExactly(List.of("නිමල්", "Müller"));
+    }
+
+    @Test
+    void emptyInputHasNoRows() throws IOException {
+        assertThat(readAll("")).isEmpty();
+        assertThat(readAll("\n\n")).isEmpty();
+    }
+
+    private static CsvSheetReader reader(String csv) throws IOException {
+        return new CsvSheetReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (CsvSheetReader reader = reader(csv)) {
+            List<String> row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
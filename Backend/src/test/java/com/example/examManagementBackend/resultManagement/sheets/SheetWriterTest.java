@@ -0,0 +1,111 @@
+package com.example.examManagementBackend.resultManagement.sheets;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SheetWriterTest {
+
+    private static final List<String> COLUMNS = List.of("studentNumber", "studentName", "finalMark", "grade");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void xlsxReopensWithTheSheetReader() throws IOException {
+        Path file = dir.resolve("marks.xlsx");
+        Files.write(file, write(SheetWriter.Format.XLSX));
+
+        try (XlsxSheetReader reader = new XlsxSheetReader(file.toFile())) {
+            assertThat(readAll(reader)).containsExactly(
+                    COLUMNS,
+                    List.of("SC/2020/001", "Perera, K. \"KP\"", "72.5", "A-"),
+                    // Empty cells at the end of a row are left out of the worksheet
+                    List.of("SC/2020/002", "Silva & <Sons>", "80"),
+                    List.of("SC/2020/003", "two\nlines"));
+        }
+    }
+
+    @Test
+    void csvReopensWithTheSheetReader() throws IOException {
+        byte[] csv = write(SheetWriter.Format.CSV);
+
+        assertThat(new String(csv, StandardCharsets.UTF_8)).startsWith("studentNumber,studentName,finalMark,grade\r\n");
+        try (CsvSheetReader reader = new CsvSheetReader(new ByteArrayInputStream(csv))) {
+            assertThat(readAll(reader)).containsExactly(
+                    COLUMNS,
+                    List.of("SC/2020/001", "Perera, K. \"KP\"", "72.5", "A-"),
+                    List.of("SC/2020/002", "Silva & <Sons>", "80", ""),
+                    List.of("SC/2020/003", "two\nlines"));
+        }
+    }
+
+    @Test
+    void jsonLinesKeyEachRowByColumn() throws IOException {
+        String[] lines = new String(write(SheetWriter.Format.JSONL), StandardCharsets.UTF_8).split("\n");
+        ObjectMapper mapper = new ObjectMapper();
+
+        assertThat(lines).hasSize(3);
+        JsonNode first = mapper.readTree(lines[0]);
+        assertThat(first.get("studentName").asText()).isEqualTo("Perera, K. \"KP\"");
+        assertThat(first.get("finalMark").isNumber()).isTrue();
+        assertThat(first.get("finalMark").floatValue()).isEqualTo(72.5f);
+        JsonNode second = mapper.readTree(lines[1]);
+        assertThat(second.get("finalMark").asLong()).isEqualTo(80);
+        assertThat(second.get("grade").isNull()).isTrue();
+        assertThat(mapper.readTree(lines[2]).get("grade").isNull()).isTrue();
+    }
+
+    @Test
+    void xlsxDropsCharactersXmlCannotCarry() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SheetWriter writer = SheetWriter.Format.XLSX.open(out, List.of("name"));
+        writer.row("bell\u0007 and\ttab");
+        writer.finish();
+        Path file = Files.write(dir.resolve("control.xlsx"), out.toByteArray());
+
+        try (XlsxSheetReader reader = new XlsxSheetReader(file.toFile())) {
+            assertThat(readAll(reader)).containsExactly(List.of("name"), List.of("bell and\ttab"));
+        }
+    }
+
+    @Test
+    void formatsAreNamedCaseInsensitively() {
+        assertThat(SheetWriter.Format.of(" Xlsx ")).isEqualTo(SheetWriter.Format.XLSX);
+        assertThat(SheetWriter.Format.of("jsonl").getExtension()).isEqualTo("jsonl");
+        assertThatThrownBy(() -> SheetWriter.Format.of("xls")).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("xls");
+    }
+
+    private static byte[] write(SheetWriter.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SheetWriter writer = format.open(out, COLUMNS);
+        writer.row("SC/2020/001", "Perera, K. \"KP\"", 72.5f, "A-");
+        writer.row("SC/2020/002", "Silva & <Sons>", 80, null);
+        writer.row("SC/2020/003", "two\nlines");
+        writer.finish();
+        return out.toByteArray();
+    }
+
+    private static List<List<String>> readAll(SheetReader reader) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row;
+        while ((row = reader.next()) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+}
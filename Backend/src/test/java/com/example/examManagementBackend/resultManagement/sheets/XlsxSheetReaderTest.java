@@ -0,0 +1,142 @@
+package com.example.examManagementBackend.resultManagement.sheets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class XlsxSheetReaderTest {
+
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resolvesSharedInlineAndRichStrings() throws IOException {
+        Map<String, String> parts = workbook("""
+                <row r="1"><c r="A1" t="s"><v>0</v></c><c r="B1" t="s"><v>1</v></c><c r="C1" t="inlineStr"><is><t>firstMarking</t></is></c></row>
+                <row r="2"><c r="A2" t="s"><v>2</v></c><c r="B2" t="s"><v>3</v></c><c r="C2"><v>72.5</v></c></row>
+                """);
+        parts.put("xl/sharedStrings.xml", "<sst xmlns=\"" + MAIN_NS + "\">"
+                + "<si><t>studentNumber</t></si>"
+                + "<si><t> studentName </t></si>"
+                + "<si><t>SC/2020/001</t></si>"
+                // Formatted runs are joined, phonetic reading aids are not part of the text
+                + "<si><r><rPr><b/></rPr><t>Ni</t></r><r><t xml:space=\"preserve\">mal</t></r><rPh sb=\"0\" eb=\"1\"><t>ニ</t></rPh></si>"
+                + "</sst>");
+
+        assertThat(readAll(write(parts))).containsExactly(
+                List.of("studentNumber", "studentName", "firstMarking"),
+                List.of("SC/2020/001", "Nimal", "72.5"));
+    }
+
+    @Test
+    void fillsSkippedCellsAndReportsSheetRowNumbers() throws IOException {
+        Path file = write(workbook("""
+                <row r="1"><c r="A1" t="inlineStr"><is><t>a</t></is></c><c r="C1" t="inlineStr"><is><t>c</t></is></c></row>
+                <row r="3"><c r="A3" t="str"><v></v></c></row>
+                <row r="5"><c r="B5"><v>1</v></c></row>
+                """));
+
+        try (XlsxSheetReader reader = new XlsxSheetReader(file.toFile())) {
+            assertThat(reader.next()).containsExactly("a", "", "c");
+            assertThat(reader.rowNumber()).isEqualTo(1);
+            // Row 3 has nothing but an empty cell, so it is skipped
+            assertThat(reader.next()).containsExactly("", "1");
+            assertThat(reader.rowNumber()).isEqualTo(5);
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void writesNumbersWithoutExponentsOrTrailingZeros() throws IOException {
+        Path file = write(workbook("""
+                <row r="1"><c r="A1"><v>7.5E1</v></c><c r="B1" t="n"><v>80.000</v></c><c r="C1"><v>1.2E-2</v></c></row>
+                """));
+
+        assertThat(readAll(file)).containsExactly(List.of("75", "80", "0.012"));
+    }
+
+    @Test
+    void findsTheFirstSheetThroughTheWorkbookRelationships() throws IOException {
+        Map<String, String> parts = new LinkedHashMap<>();
+        parts.put("xl/worksheets/sheet1.xml", sheet("<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>hidden</t></is></c></row>"));
+        parts.put("xl/worksheets/marks.xml", sheet("<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>marks</t></is></c></row>"));
+        parts.put("xl/workbook.xml", "<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\"><sheets>"
+                + "<sheet name=\"Marks\" sheetId=\"2\" r:id=\"rId7\"/><sheet name=\"Other\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>");
+        parts.put("xl/_rels/workbook.xml.rels", "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Target=\"worksheets/sheet1.xml\"/>"
+                + "<Relationship Id=\"rId7\" Target=\"/xl/worksheets/marks.xml\"/></Relationships>");
+
+        assertThat(readAll(write(parts))).containsExactly(List.of("marks"));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotWorkbooks() throws IOException {
+        Path notZip = Files.writeString(dir.resolve("marks.xlsx"), "studentNumber,studentName\n");
+        Path noSheet = write(Map.of("xl/workbook.xml", "<workbook xmlns=\"" + MAIN_NS + "\"/>"));
+
+        assertThatThrownBy(() -> new XlsxSheetReader(notZip.toFile())).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> new XlsxSheetReader(noSheet.toFile())).isInstanceOf(IOException.class)
+                .hasMessageContaining("no worksheet");
+    }
+
+    @Test
+    void refusesDocumentTypeDeclarations() throws IOException {
+        Map<String, String> parts = workbook("<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>&xxe;</t></is></c></row>");
+        parts.put("xl/worksheets/sheet1.xml", "<!DOCTYPE worksheet [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>"
+                + parts.get("xl/worksheets/sheet1.xml"));
+
+        Path file = write(parts);
+
+        assertThatThrownBy(() -> readAll(file)).isInstanceOf(IOException.class);
+    }
+
+    private static Map<String, String> workbook(String rows) {
+        Map<String, String> parts = new LinkedHashMap<>();
+        parts.put("xl/worksheets/sheet1.xml", sheet(rows));
+        return parts;
+    }
+
+    private static String sheet(String rows) {
+        return "<worksheet xmlns=\"" + MAIN_NS + "\"><sheetData>" + rows + "</sheetData></worksheet>";
+    }
+
+    private Path write(Map<String, String> parts) throws IOException {
+        Path file = Files.createTempFile(dir, "sheet-", ".xlsx");
+        try (OutputStream out = Files.newOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> part : parts.entrySet()) {
+                zip.putNextEntry(new ZipEntry(part.getKey()));
+                zip.write(part.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    private static List<List<String>> readAll(Path file) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (XlsxSheetReader reader = new XlsxSheetReader(file.toFile())) {
+            List<String> row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.examManagementBackend.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalPaperStorageTest {
+
+    @TempDir
+    Path root;
+
+    private LocalPaperStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new LocalPaperStorage(root);
+    }
+
+    @Test
+    void putAndGetRoundTrip() throws IOException {
+        byte[] content = "exam paper".getBytes(StandardCharsets.UTF_8);
+        storage.put("Encrypted_Papers/a.pdf", new ByteArrayInputStream(content), content.length);
+
+        try (InputStream in = storage.get("Encrypted_Papers/a.pdf")) {
+            assertThat(in.readAllBytes()).isEqualTo(content);
+        }
+        assertThat(root.resolve("Encrypted_Papers/a.pdf")).hasBinaryContent(content);
+        try (var leftovers = Files.list(root.resolve("Encrypted_Papers"))) {
+            assertThat(leftovers).hasSize(1);
+        }
+    }
+
+    @Test
+    void putRejectsShortStreamAndKeepsPreviousObject() throws IOException {
+        storage.put("a.bin", new byte[]{1, 2, 3});
+
+        assertThatThrownBy(() -> storage.put("a.bin", new ByteArrayInputStream(new byte[]{9}), 2))
+                .isInstanceOf(IOException.class);
+        try (InputStream in = storage.get("a.bin")) {
+            assertThat(in.readAllBytes()).containsExactly(1, 2, 3);
+        }
+    }
+
+    @Test
+    void putMovesFileIntoPlace() throws IOException {
+        Path upload = Files.write(root.resolve("upload.tmp"), new byte[]{4, 5});
+
+        storage.put("Archived_Papers/b.bin", upload);
+
+        assertThat(upload).doesNotExist();
+        try (InputStream in = storage.get("Archived_Papers/b.bin")) {
+            assertThat(in.readAllBytes()).containsExactly(4, 5);
+        }
+    }
+
+    @Test
+    void getRangeReturnsOnlyTheRequestedBytes() throws IOException {
+        storage.put("range.bin", "0123456789".getBytes(StandardCharsets.US_ASCII));
+
+        try (InputStream in = storage.getRange("range.bin", 3, 4)) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.US_ASCII)).isEqualTo("3456");
+        }
+        try (InputStream in = storage.getRange("range.bin", 8, 10)) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.US_ASCII)).isEqualTo("89");
+        }
+        assertThatThrownBy(() -> storage.getRange("missing.bin", 0, 1)).isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    void statReportsSizeOrEmpty() throws IOException {
+        storage.put("dir/c.bin", new byte[42]);
+
+        assertThat(storage.stat("dir/c.bin")).hasValueSatisfying(object -> {
+            assertThat(object.key()).isEqualTo("dir/c.bin");
+            assertThat(object.size()).isEqualTo(42);
+        });
+        assertThat(storage.stat("dir/missing.bin")).isEmpty();
+    }
+
+    @Test
+    void deleteReportsWhetherSomethingWasRemoved() throws IOException {
+        storage.put("d.bin", new byte[]{1});
+
+        assertThat(storage.delete("d.bin")).isTrue();
+        assertThat(storage.delete("d.bin")).isFalse();
+        assertThat(storage.stat("d.bin")).isEmpty();
+    }
+
+    @Test
+    void listReturnsObjectsUnderPrefix() throws IOException {
+        storage.put("Blobs/ab/one", new byte[1]);
+        storage.put("Blobs/ab/two", new byte[2]);
+        storage.put("Blobs/cd/three", new byte[3]);
+        storage.put("Other/four", new byte[4]);
+
+        assertThat(storage.list("Blobs/ab/")).extracting(PaperStorage.StoredObject::key)
+                .containsExactlyInAnyOrder("Blobs/ab/one", "Blobs/ab/two");
+        assertThat(storage.list("Blobs/")).hasSize(3);
+        assertThat(storage.list("Missing/")).isEmpty();
+    }
+
+    @Test
+    void legacyPathsMapOntoKeys() throws IOException {
+        storage.put("Encrypted_Papers/old.pdf", new byte[]{7});
+
+        try (InputStream in = storage.get("D:/examPapperManagement/Backend/src/main/resources/Encrypted_Papers/old.pdf")) {
+            assertThat(in.readAllBytes()).containsExactly(7);
+        }
+    }
+
+    @Test
+    void rejectsKeysEscapingTheRoot() {
+        assertThatThrownBy(() -> storage.get("../outside")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> storage.put("a/../../b", new byte[0])).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.examManagementBackend.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs S3PaperStorage against an in-process fake of the S3 REST API. The fake checks every request's
+ * SigV4 signature against its own canonical form of what arrived on the wire, pages list results two
+ * keys at a time and honours Range headers, so signing, pagination and ranged reads are all exercised.
+ */
+class S3PaperStorageTest {
+
+    private static final String BUCKET = "exam-papers";
+    private static final String REGION = "us-east-1";
+    private static final String ACCESS_KEY = "test-access";
+    private static final String SECRET_KEY = "test-secret";
+    private static final Pattern AUTHORIZATION = Pattern.compile(
+            "AWS4-HMAC-SHA256 Credential=([^/]+)/(\\d{8})/([^/]+)/s3/aws4_request, SignedHeaders=([^,]+), Signature=([0-9a-f]{64})");
+
+    private final NavigableMap<String, byte[]> objects = new ConcurrentSkipListMap<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final Instant lastModified = Instant.parse("2024-05-01T10:15:30Z");
+    private HttpServer server;
+    private S3PaperStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        URI endpoint = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        storage = new S3PaperStorage(endpoint, BUCKET, REGION, ACCESS_KEY, SECRET_KEY);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void putAndGetRoundTrip() throws IOException {
+        byte[] content = "exam paper".getBytes(StandardCharsets.UTF_8);
+        storage.put("Encrypted_Papers/a.pdf", new ByteArrayInputStream(content), content.length);
+
+        assertThat(objects).containsKey("Encrypted_Papers/a.pdf");
+        try (InputStream in = storage.get("Encrypted_Papers/a.pdf")) {
+            assertThat(in.readAllBytes()).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void putUploadsAndRemovesLocalFile() throws IOException {
+        Path upload = Files.createTempFile("upload", ".bin");
+        Files.write(upload, new byte[]{1, 2, 3});
+
+        storage.put("Archived_Papers/b.bin", upload);
+
+        assertThat(upload).doesNotExist();
+        assertThat(objects.get("Archived_Papers/b.bin")).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void keysNeedingEscapesAreSignedAsSent() throws IOException {
+        storage.put("Papers/exam 2024+final (v2).pdf", new byte[]{5});
+
+        assertThat(objects).containsKey("Papers/exam 2024+final (v2).pdf");
+        assertThat(storage.stat("Papers/exam 2024+final (v2).pdf")).isPresent();
+    }
+
+    @Test
+    void getRangeSendsRangeHeader() throws IOException {
+        storage.put("range.bin", "0123456789".getBytes(StandardCharsets.US_ASCII));
+
+        try (InputStream in = storage.getRange("range.bin", 3, 4)) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.US_ASCII)).isEqualTo("3456");
+        }
+        assertThat(requests).contains("GET /range.bin bytes=3-6");
+        try (InputStream in = storage.getRange("range.bin", 0, 0)) {
+            assertThat(in.readAllBytes()).isEmpty();
+        }
+    }
+
+    @Test
+    void missingObjectsSurfaceAsNoSuchFile() {
+        assertThatThrownBy(() -> storage.get("missing.bin")).isInstanceOf(NoSuchFileException.class);
+        assertThatThrownBy(() -> storage.getRange("missing.bin", 0, 1)).isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    void statReadsHeadHeaders() throws IOException {
+        storage.put("dir/c.bin", new byte[42]);
+
+        assertThat(storage.stat("dir/c.bin")).hasValueSatisfying(object -> {
+            assertThat(object.key()).isEqualTo("dir/c.bin");
+            assertThat(object.size()).isEqualTo(42);
+            assertThat(object.lastModified()).isEqualTo(lastModified);
+        });
+        assertThat(storage.stat("dir/missing.bin")).isEmpty();
+    }
+
+    @Test
+    void deleteReportsWhetherSomethingWasRemoved() throws IOException {
+        storage.put("d.bin", new byte[]{1});
+
+        assertThat(storage.delete("d.bin")).isTrue();
+        assertThat(objects).doesNotContainKey("d.bin");
+        assertThat(storage.delete("d.bin")).isFalse();
+    }
+
+    @Test
+    void listFollowsContinuationTokens() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            storage.put("Blobs/ab/" + i, new byte[i]);
+        }
+        storage.put("Other/x", new byte[1]);
+        requests.clear();
+
+        List<PaperStorage.StoredObject> listed = storage.list("Blobs/");
+
+        assertThat(listed).extracting(PaperStorage.StoredObject::key)
+                .containsExactly("Blobs/ab/0", "Blobs/ab/1", "Blobs/ab/2", "Blobs/ab/3", "Blobs/ab/4");
+        assertThat(listed).extracting(PaperStorage.StoredObject::size).containsExactly(0L, 1L, 2L, 3L, 4L);
+        assertThat(listed.get(0).lastModified()).isEqualTo(lastModified);
+        assertThat(requests).hasSize(3);
+    }
+
+    @Test
+    void badCredentialsAreRejected() {
+        S3PaperStorage wrongSecret = new S3PaperStorage(
+                URI.create("http://127.0.0.1:" + server.getAddress().getPort()), BUCKET, REGION, ACCESS_KEY, "wrong");
+
+        assertThatThrownBy(() -> wrongSecret.put("e.bin", new byte[]{1}))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("403");
+        assertThat(objects).doesNotContainKey("e.bin");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if (!signatureMatches(exchange)) {
+                respond(exchange, 403, "<Error><Code>SignatureDoesNotMatch</Code></Error>");
+                return;
+            }
+            String path = URLDecoder.decode(exchange.getRequestURI().getRawPath().replace("+", "%2B"), StandardCharsets.UTF_8);
+            if (!path.startsWith("/" + BUCKET)) {
+                respond(exchange, 404, "<Error><Code>NoSuchBucket</Code></Error>");
+                return;
+            }
+            String key = path.length() > BUCKET.length() + 2 ? path.substring(BUCKET.length() + 2) : null;
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            requests.add(method + " /" + (key == null ? "?" + exchange.getRequestURI().getRawQuery() : key)
+                    + (range == null ? "" : " " + range));
+
+            if (key == null) {
+                list(exchange);
+                return;
+            }
+            byte[] object = objects.get(key);
+            switch (method) {
+                case "PUT" -> {
+                    objects.put(key, body);
+                    respond(exchange, 200, "");
+                }
+                case "DELETE" -> {
+                    objects.remove(key);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                case "HEAD" -> {
+                    if (object == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.length));
+                    exchange.getResponseHeaders().set("Last-Modified",
+                            DateTimeFormatter.RFC_1123_DATE_TIME.format(lastModified.atZone(ZoneOffset.UTC)));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "GET" -> {
+                    if (object == null) {
+                        respond(exchange, 404, "<Error><Code>NoSuchKey</Code></Error>");
+                        return;
+                    }
+                    if (range == null) {
+                        respond(exchange, 200, object);
+                        return;
+                    }
+                    Matcher bytes = Pattern.compile("bytes=(\\d+)-(\\d+)").matcher(range);
+                    assertThat(bytes.matches()).isTrue();
+                    int from = Integer.parseInt(bytes.group(1));
+                    int to = Math.min(Integer.parseInt(bytes.group(2)), object.length - 1);
+                    respond(exchange, 206, java.util.Arrays.copyOfRange(object, from, to + 1));
+                }
+                default -> respond(exchange, 405, "");
+            }
+        }
+    }
+
+    // ListObjectsV2 with at most two keys per page; the continuation token is the last key returned
+    private void list(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        assertThat(query).containsEntry("list-type", "2");
+        String prefix = query.getOrDefault("prefix", "");
+        String token = query.get("continuation-token");
+        List<String> keys = new ArrayList<>();
+        for (String key : (token == null ? objects : objects.tailMap(token, false)).keySet()) {
+            if (key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">");
+        for (String key : keys.subList(0, Math.min(2, keys.size()))) {
+            xml.append("<Contents><Key>").append(key).append("</Key><LastModified>").append(lastModified)
+                    .append("</LastModified><Size>").append(objects.get(key).length).append("</Size></Contents>");
+        }
+        boolean truncated = keys.size() > 2;
+        xml.append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (truncated) {
+            xml.append("<NextContinuationToken>").append(keys.get(1)).append("</NextContinuationToken>");
+        }
+        respond(exchange, 200, xml.append("</ListBucketResult>").toString());
+    }
+
+    // Recompute the SigV4 signature from the request as received
+    private boolean signatureMatches(HttpExchange exchange) {
+        Matcher authorization = AUTHORIZATION.matcher(String.valueOf(exchange.getRequestHeaders().getFirst("Authorization")));
+        if (!authorization.matches() || !authorization.group(1).equals(ACCESS_KEY) || !authorization.group(3).equals(REGION)) {
+            return false;
+        }
+        String dateStamp = authorization.group(2);
+        String amzDate = exchange.getRequestHeaders().getFirst("x-amz-date");
+        if (amzDate == null || !amzDate.startsWith(dateStamp)) {
+            return false;
+        }
+        StringBuilder canonicalHeaders = new StringBuilder();
+        for (String name : authorization.group(4).split(";")) {
+            canonicalHeaders.append(name).append(':').append(exchange.getRequestHeaders().getFirst(name).trim()).append('\n');
+        }
+        StringBuilder canonicalQuery = new StringBuilder();
+        query(exchange.getRequestURI().getRawQuery()).forEach((name, value) -> canonicalQuery
+                .append(canonicalQuery.isEmpty() ? "" : "&").append(encode(name)).append('=').append(encode(value)));
+        String canonicalRequest = exchange.getRequestMethod() + "\n"
+                + exchange.getRequestURI().getRawPath() + "\n"
+                + canonicalQuery + "\n"
+                + canonicalHeaders + "\n"
+                + authorization.group(4) + "\n"
+                + exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        String scope = dateStamp + "/" + REGION + "/s3/aws4_request";
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n"
+                + HexFormat.of().formatHex(sha256(canonicalRequest));
+        byte[] key = hmac(("AWS4" + SECRET_KEY).getBytes(StandardCharsets.UTF_8), dateStamp);
+        key = hmac(key, REGION);
+        key = hmac(key, "s3");
+        key = hmac(key, "aws4_request");
+        return HexFormat.of().formatHex(hmac(key, stringToSign)).equals(authorization.group(5));
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> parameters = new TreeMap<>();
+        if (rawQuery != null && !rawQuery.isEmpty()) {
+            for (String parameter : rawQuery.split("&")) {
+                int equals = parameter.indexOf('=');
+                parameters.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static String encode(String value) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            if (Character.isLetterOrDigit(b) || "-_.~".indexOf(b) >= 0) {
+                encoded.append((char) b);
+            } else {
+                encoded.append(String.format("%%%02X", b & 0xff));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        respond(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}